@@ -21,6 +21,7 @@ import java.io.Closeable;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 
+import org.jclouds.googlecomputeengine.features.BatchApi;
 import org.jclouds.googlecomputeengine.features.DiskApi;
 import org.jclouds.googlecomputeengine.features.FirewallApi;
 import org.jclouds.googlecomputeengine.features.ImageApi;
@@ -46,6 +47,12 @@ import com.google.common.annotations.Beta;
 @Beta
 public interface GoogleComputeEngineApi extends Closeable {
 
+   /**
+    * Provides access to Batch features
+    */
+   @Delegate
+   BatchApi getBatchApi();
+
    /**
     * Provides access to Disk features
     *
@@ -18,9 +18,26 @@ package org.jclouds.googlecomputeengine;
 
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 import static org.jclouds.compute.config.ComputeServiceProperties.TEMPLATE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.BULK_OPERATION_CONCURRENCY;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CACHE_CATALOG;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CATALOG_CACHE_MAX_BYTES;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CATALOG_CACHE_TTL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COALESCE_GETS;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GCE_PROVIDER_NAME;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GZIP_RESPONSES;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.HEDGE_BUDGET_RATIO;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.HEDGE_GETS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.HEDGE_PERCENTILE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.INSTRUMENT_API_CALLS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.MAINTENANCE_WINDOW_MARGIN;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.MUTATIONS_PER_SECOND;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_POLLS_PER_SECOND;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.PAGE_PREFETCH_DEPTH;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RATE_LIMIT;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.READS_PER_SECOND;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RETRY_BUDGET_RATIO;
 import static org.jclouds.oauth.v2.config.OAuthProperties.AUDIENCE;
 import static org.jclouds.oauth.v2.config.OAuthProperties.SIGNATURE_OR_MAC_ALGORITHM;
 import static org.jclouds.reflect.Reflection2.typeToken;
@@ -70,6 +87,23 @@ public class GoogleComputeEngineApiMetadata extends BaseHttpApiMetadata<GoogleCo
               "loginUser=jclouds");
       properties.put(OPERATION_COMPLETE_INTERVAL, 500);
       properties.put(OPERATION_COMPLETE_TIMEOUT, 600000);
+      properties.put(BULK_OPERATION_CONCURRENCY, 10);
+      properties.put(PAGE_PREFETCH_DEPTH, 0);
+      properties.put(GZIP_RESPONSES, false);
+      properties.put(RATE_LIMIT, false);
+      properties.put(READS_PER_SECOND, 20);
+      properties.put(MUTATIONS_PER_SECOND, 10);
+      properties.put(OPERATION_POLLS_PER_SECOND, 20);
+      properties.put(RETRY_BUDGET_RATIO, 0.2);
+      properties.put(INSTRUMENT_API_CALLS, false);
+      properties.put(COALESCE_GETS, false);
+      properties.put(CACHE_CATALOG, false);
+      properties.put(CATALOG_CACHE_TTL, 300000);
+      properties.put(CATALOG_CACHE_MAX_BYTES, 8 * 1024 * 1024);
+      properties.put(HEDGE_GETS, false);
+      properties.put(HEDGE_PERCENTILE, 95);
+      properties.put(HEDGE_BUDGET_RATIO, 0.05);
+      properties.put(MAINTENANCE_WINDOW_MARGIN, 3600000);
       return properties;
    }
 
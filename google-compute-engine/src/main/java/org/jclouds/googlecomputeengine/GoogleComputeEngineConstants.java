@@ -49,6 +49,130 @@ public interface GoogleComputeEngineConstants {
    @Beta
    public static final String OPERATION_COMPLETE_INTERVAL = "jclouds.google-compute-engine.operation-complete-interval";
 
+   /**
+    * The maximum number of mutating requests, e.g. instance deletes, that bulk operations keep in flight at once.
+    */
+   @Beta
+   public static final String BULK_OPERATION_CONCURRENCY = "jclouds.google-compute-engine.bulk-operation-concurrency";
+
+   /**
+    * The number of pages that list() requests fetch in the background, ahead of the page being consumed. Zero, the
+    * default, fetches each page only once the previous one is used up.
+    */
+   @Beta
+   public static final String PAGE_PREFETCH_DEPTH = "jclouds.google-compute-engine.page-prefetch-depth";
+
+   /**
+    * Whether list() requests ask for gzip encoded responses, which are decompressed as they are parsed. Disabled by
+    * default.
+    */
+   @Beta
+   public static final String GZIP_RESPONSES = "jclouds.google-compute-engine.gzip-responses";
+
+   /**
+    * Whether requests are paced client side, per class of request, and slowed down when GCE answers that a rate limit
+    * was exceeded. Disabled by default.
+    *
+    * @see org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter
+    */
+   @Beta
+   public static final String RATE_LIMIT = "jclouds.google-compute-engine.rate-limit";
+
+   /**
+    * The highest rate, in requests per second, of resource gets and lists when {@link #RATE_LIMIT} is enabled.
+    */
+   @Beta
+   public static final String READS_PER_SECOND = "jclouds.google-compute-engine.reads-per-second";
+
+   /**
+    * The highest rate, in requests per second, of inserts, deletes and other mutations when {@link #RATE_LIMIT} is
+    * enabled.
+    */
+   @Beta
+   public static final String MUTATIONS_PER_SECOND = "jclouds.google-compute-engine.mutations-per-second";
+
+   /**
+    * The highest rate, in requests per second, of operation polls when {@link #RATE_LIMIT} is enabled.
+    */
+   @Beta
+   public static final String OPERATION_POLLS_PER_SECOND = "jclouds.google-compute-engine.operation-polls-per-second";
+
+   /**
+    * The number of retries each request earns, e.g. 0.2 lets retries add at most a fifth to the requests made, so
+    * that a backend in trouble is not hit with a storm of retries.
+    *
+    * @see org.jclouds.googlecomputeengine.filters.RetryBudget
+    */
+   @Beta
+   public static final String RETRY_BUDGET_RATIO = "jclouds.google-compute-engine.retry-budget-ratio";
+
+   /**
+    * Whether every GoogleComputeEngineApi call is recorded with an
+    * {@link org.jclouds.googlecomputeengine.instrumentation.ApiMetricsSink}. Disabled by default.
+    *
+    * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+    */
+   @Beta
+   public static final String INSTRUMENT_API_CALLS = "jclouds.google-compute-engine.instrument-api-calls";
+
+   /**
+    * Whether identical concurrent GETs share one request. Disabled by default.
+    *
+    * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+    */
+   @Beta
+   public static final String COALESCE_GETS = "jclouds.google-compute-engine.coalesce-gets";
+
+   /**
+    * Whether the catalog responses, zones, machine types, images and kernels, are cached. Disabled by default.
+    *
+    * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+    */
+   @Beta
+   public static final String CACHE_CATALOG = "jclouds.google-compute-engine.cache-catalog";
+
+   /**
+    * How long, in msecs, a cached catalog response (zones, machine types, images and kernels) is used without asking
+    * GCE whether it changed, when {@link #CACHE_CATALOG} is enabled.
+    */
+   @Beta
+   public static final String CATALOG_CACHE_TTL = "jclouds.google-compute-engine.catalog-cache-ttl";
+
+   /**
+    * The most bytes of catalog response content that are kept cached.
+    */
+   @Beta
+   public static final String CATALOG_CACHE_MAX_BYTES = "jclouds.google-compute-engine.catalog-cache-max-bytes";
+
+   /**
+    * Whether slow gets of single resources are hedged with a second, identical request. Disabled by default.
+    *
+    * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+    */
+   @Beta
+   public static final String HEDGE_GETS = "jclouds.google-compute-engine.hedge-gets";
+
+   /**
+    * The percentile of the observed latencies after which a get is hedged, when {@link #HEDGE_GETS} is enabled.
+    */
+   @Beta
+   public static final String HEDGE_PERCENTILE = "jclouds.google-compute-engine.hedge-percentile";
+
+   /**
+    * The share of the gets that can be hedged, e.g. 0.05 lets hedges add at most a twentieth to the gets made.
+    */
+   @Beta
+   public static final String HEDGE_BUDGET_RATIO = "jclouds.google-compute-engine.hedge-budget-ratio";
+
+   /**
+    * How long, in msecs, before a zone's maintenance window begins that nodes spread across zones stop being placed
+    * in it.
+    *
+    * @see org.jclouds.googlecomputeengine.compute.strategy.ZoneSpreadingPlacement
+    */
+   @Beta
+   public static final String MAINTENANCE_WINDOW_MARGIN = "jclouds.google-compute-engine.maintenance-window-margin";
+
    public static final Location GOOGLE_PROVIDER_LOCATION = new LocationBuilder().scope(LocationScope.PROVIDER).id
            (GCE_PROVIDER_NAME).description(GCE_PROVIDER_NAME).build();
 
@@ -20,11 +20,14 @@ import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import org.jclouds.Constants;
 import org.jclouds.collect.Memoized;
 import org.jclouds.compute.ComputeServiceContext;
 import org.jclouds.compute.callables.RunScriptOnNode;
+import org.jclouds.compute.domain.ComputeMetadata;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.NodeMetadata;
@@ -48,9 +51,13 @@ import org.jclouds.compute.strategy.SuspendNodeStrategy;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.Location;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.functions.AddLoginCredentialsFromStore;
 import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
+import org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates.ListFilterPredicate;
 import org.jclouds.googlecomputeengine.config.UserProject;
+import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.scriptbuilder.functions.InitAdminAccess;
 
@@ -61,13 +68,22 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.google.common.base.Functions.compose;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Predicates.and;
+import static com.google.common.base.Predicates.in;
+import static com.google.common.base.Predicates.not;
+import static com.google.common.collect.Iterables.filter;
+import static com.google.common.collect.Iterables.transform;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_RUNNING;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_TERMINATED;
+import static org.jclouds.compute.predicates.NodePredicates.TERMINATED;
+import static org.jclouds.compute.predicates.NodePredicates.all;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.compute.functions.AddLoginCredentialsFromStore.credentialsKey;
 import static org.jclouds.util.Predicates2.retry;
 
 /**
@@ -75,6 +91,11 @@ import static org.jclouds.util.Predicates2.retry;
  */
 public class GoogleComputeEngineService extends BaseComputeService {
 
+   private final Map<String, Credentials> credentialStore;
+   private final ListNodesStrategy listNodesStrategy;
+   private final GoogleComputeEngineServiceAdapter adapter;
+   private final Function<Instance, NodeMetadata> instanceToNodeMetadata;
+   private final AddLoginCredentialsFromStore addLoginCredentials;
    private final Function<Set<? extends NodeMetadata>, Set<String>> findOrphanedGroups;
    private final GroupNamingConvention.Factory namingConvention;
    private final GoogleComputeEngineApi api;
@@ -82,6 +103,7 @@ public class GoogleComputeEngineService extends BaseComputeService {
    private final Predicate<AtomicReference<Operation>> operationDonePredicate;
    private final long operationCompleteCheckInterval;
    private final long operationCompleteCheckTimeout;
+   private final WarmPoolManager warmPool;
 
    @Inject
    protected GoogleComputeEngineService(ComputeServiceContext context,
@@ -116,16 +138,25 @@ public class GoogleComputeEngineService extends BaseComputeService {
                                         Function<Set<? extends NodeMetadata>, Set<String>> findOrphanedGroups,
                                         GroupNamingConvention.Factory namingConvention,
                                         GoogleComputeEngineApi api,
+                                        GoogleComputeEngineServiceAdapter adapter,
+                                        Function<Instance, NodeMetadata> instanceToNodeMetadata,
+                                        AddLoginCredentialsFromStore addLoginCredentials,
                                         @UserProject Supplier<String> project,
                                         Predicate<AtomicReference<Operation>> operationDonePredicate,
                                         @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-                                        @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout) {
+                                        @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
+                                        WarmPoolManager warmPool) {
 
       super(context, credentialStore, images, hardwareProfiles, locations, listNodesStrategy, getImageStrategy,
               getNodeMetadataStrategy, runNodesAndAddToSetStrategy, rebootNodeStrategy, destroyNodeStrategy,
               resumeNodeStrategy, suspendNodeStrategy, templateBuilderProvider, templateOptionsProvider, nodeRunning,
               nodeTerminated, nodeSuspended, initScriptRunnerFactory, initAdminAccess, runScriptOnNodeFactory,
               persistNodeCredentials, timeouts, userExecutor, imageExtension, securityGroupExtension);
+      this.credentialStore = checkNotNull(credentialStore, "credential store");
+      this.listNodesStrategy = checkNotNull(listNodesStrategy, "list nodes strategy");
+      this.adapter = checkNotNull(adapter, "compute service adapter");
+      this.instanceToNodeMetadata = checkNotNull(instanceToNodeMetadata, "instance to node metadata function");
+      this.addLoginCredentials = checkNotNull(addLoginCredentials, "add login credentials function");
       this.findOrphanedGroups = checkNotNull(findOrphanedGroups, "find orphaned groups function");
       this.namingConvention = checkNotNull(namingConvention, "naming convention factory");
       this.api = checkNotNull(api, "google compute api");
@@ -135,12 +166,82 @@ public class GoogleComputeEngineService extends BaseComputeService {
               "operation completed check interval");
       this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
               "operation completed check timeout");
+      this.warmPool = checkNotNull(warmPool, "warm pool manager");
    }
 
+   /**
+    * Lists only the instances that match the server side filter of a {@link ListFilterPredicate}, e.g.
+    * {@link org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates#inGroup(String)},
+    * instead of every instance in the project. Other predicates are evaluated client side, as usual.
+    */
+   @Override
+   public Set<? extends NodeMetadata> listNodesDetailsMatching(Predicate<ComputeMetadata> filter) {
+      checkNotNull(filter, "filter");
+      Optional<String> listFilter = listFilterOf(filter);
+      if (!listFilter.isPresent()) {
+         return super.listNodesDetailsMatching(filter);
+      }
+      logger.trace(">> listing node details matching(%s) with list filter(%s)", filter, listFilter.get());
+      Set<NodeMetadata> nodes = ImmutableSet.copyOf(filter(listNodesWithListFilter(listFilter.get()), filter));
+      logger.trace("<< list(%d)", nodes.size());
+      return nodes;
+   }
+
+   /**
+    * Destroys all matching nodes at once instead of one user thread per node, see
+    * {@link GoogleComputeEngineServiceAdapter#destroyNodes(Iterable)}. Nodes that fail to be destroyed are logged and
+    * left out of the returned set.
+    */
+   @Override
+   public Set<? extends NodeMetadata> destroyNodesMatching(Predicate<NodeMetadata> filter) {
+      logger.debug(">> destroying nodes matching(%s)", filter);
+      Optional<String> listFilter = listFilterOf(checkNotNull(filter, "filter"));
+      Iterable<? extends NodeMetadata> candidates = listFilter.isPresent()
+              ? listNodesWithListFilter(listFilter.get())
+              : listNodesStrategy.listDetailsOnNodesMatching(all());
+      Map<String, ? extends NodeMetadata> nodes = Maps.uniqueIndex(filter(candidates,
+              and(filter, not(TERMINATED))), new Function<ComputeMetadata, String>() {
+                 @Override
+                 public String apply(ComputeMetadata input) {
+                    return input.getId();
+                 }
+              });
+
+      Map<String, Exception> failures = adapter.destroyNodes(nodes.keySet());
+      for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+         logger.error(failure.getValue(), "<< error destroying node(%s)", failure.getKey());
+      }
+
+      Set<NodeMetadata> destroyed = ImmutableSet.<NodeMetadata>copyOf(Maps.filterKeys(nodes,
+              not(in(failures.keySet()))).values());
+      for (NodeMetadata node : destroyed) {
+         credentialStore.remove(credentialsKey(node.getId()));
+      }
+      logger.debug("<< destroyed(%d)", destroyed.size());
+
+      cleanUpIncidentalResourcesOfDeadNodes(destroyed);
+      return destroyed;
+   }
+
+   private static Optional<String> listFilterOf(Predicate<?> filter) {
+      return filter instanceof ListFilterPredicate ? ((ListFilterPredicate<?>) filter).getListFilter()
+              : Optional.<String>absent();
+   }
+
+   private Iterable<NodeMetadata> listNodesWithListFilter(String listFilter) {
+      return ImmutableSet.copyOf(transform(adapter.listNodes(new ListOptions.Builder().filter(listFilter)),
+              compose(addLoginCredentials, instanceToNodeMetadata)));
+   }
+
+   /**
+    * The spares of a group are hidden from the listings, so a group whose nodes were all destroyed looks orphaned
+    * while its spares still run on its network; its warm pool is disabled, and its spares deleted, first.
+    */
    @Override
    protected synchronized void cleanUpIncidentalResourcesOfDeadNodes(Set<? extends NodeMetadata> deadNodes) {
       Set<String> orphanedGroups = findOrphanedGroups.apply(deadNodes);
       for (String orphanedGroup : orphanedGroups) {
+         warmPool.disableAndAwait(orphanedGroup);
          cleanUpNetworksAndFirewallsForGroup(orphanedGroup);
       }
    }
@@ -18,12 +18,18 @@ package org.jclouds.googlecomputeengine.compute;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.UncheckedTimeoutException;
 import com.google.inject.Inject;
+import org.jclouds.Constants;
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.Template;
@@ -31,6 +37,7 @@ import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.functions.NewClientOperationId;
 import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
 import org.jclouds.googlecomputeengine.config.UserProject;
 import org.jclouds.googlecomputeengine.domain.Image;
@@ -38,32 +45,65 @@ import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
 import org.jclouds.googlecomputeengine.domain.MachineType;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
 import org.jclouds.googlecomputeengine.domain.Zone;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.handlers.InstanceTemplatePrecompiler;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace.Phase;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTracer;
+import org.jclouds.googlecomputeengine.options.ListFilter;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.googlecomputeengine.predicates.AllOperationsDonePredicate;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.logging.Logger;
 
 import javax.annotation.Resource;
 import javax.inject.Named;
 import java.net.URI;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.filter;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.BULK_OPERATION_CONCURRENCY;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GOOGLE_PROJECT;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates.withIds;
 import static org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig.Type;
+import static org.jclouds.googlecomputeengine.instrumentation.ProvisioningTracer.counting;
 import static org.jclouds.util.Predicates2.retry;
 
 /**
+ * Instance inserts and deletes are tagged with a new client operation id. When one of them fails, e.g. it timed out
+ * or it was retried after the first attempt went through, the operation is looked up by its id before giving up, so
+ * that a short socket timeout plus retries never provisions or deletes an instance twice.
+ * <p/>
+ * The nodes of a group share their instance template, so it is compiled once into the insert body and only the name
+ * of each node is written into it. Their status is then watched with {@link GroupStatusWatcher}, which lists the
+ * group once per tick for all of them, instead of getting each node until it shows up.
+ * <p/>
+ * Groups configured in the {@link WarmPoolManager} are handed a running spare instead, when it has one. Spares are
+ * left out of the node listings until they are handed out.
+ *
  * @author David Alves
  */
 public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<Instance, MachineType, Image, Zone> {
 
+   // each id is only looked up once, so its filter isn't cached
+   private static final ListFilter.Field CLIENT_OPERATION_ID = ListFilter
+           .on(org.jclouds.googlecomputeengine.domain.Resource.Kind.OPERATION).field("clientOperationId").uncached();
+
+   private static final Set<Instance.Status> SETTLED_STATUS = Sets.immutableEnumSet(Instance.Status.RUNNING,
+           Instance.Status.STOPPED, Instance.Status.TERMINATED);
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -71,9 +111,17 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
    private final GoogleComputeEngineApi api;
    private final Supplier<String> userProject;
    private final Function<TemplateOptions, ImmutableMap.Builder<String, String>> metatadaFromTemplateOptions;
-   private final Predicate<AtomicReference<Operation>> retryOperationDonePredicate;
+   private final Predicate<AtomicReference<Operation>> operationDonePredicate;
+   private final AllOperationsDonePredicate allOperationsDonePredicate;
    private final long operationCompleteCheckInterval;
    private final long operationCompleteCheckTimeout;
+   private final ListeningExecutorService userExecutor;
+   private final int bulkOperationConcurrency;
+   private final ProvisioningTracer tracer;
+   private final NewClientOperationId newClientOperationId;
+   private final InstanceTemplatePrecompiler precompiler;
+   private final GroupStatusWatcher statusWatcher;
+   private final WarmPoolManager warmPool;
 
    @Inject
    public GoogleComputeEngineServiceAdapter(GoogleComputeEngineApi api,
@@ -81,8 +129,17 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
                                             Function<TemplateOptions,
                                                     ImmutableMap.Builder<String, String>> metatadaFromTemplateOptions,
                                             Predicate<AtomicReference<Operation>> operationDonePredicate,
+                                            AllOperationsDonePredicate allOperationsDonePredicate,
                                             @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-                                            @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout) {
+                                            @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
+                                            @Named(Constants.PROPERTY_USER_THREADS)
+                                            ListeningExecutorService userExecutor,
+                                            @Named(BULK_OPERATION_CONCURRENCY) Integer bulkOperationConcurrency,
+                                            ProvisioningTracer tracer,
+                                            NewClientOperationId newClientOperationId,
+                                            InstanceTemplatePrecompiler precompiler,
+                                            GroupStatusWatcher statusWatcher,
+                                            WarmPoolManager warmPool) {
       this.api = checkNotNull(api, "google compute api");
       this.userProject = checkNotNull(userProject, "user project name");
       this.metatadaFromTemplateOptions = checkNotNull(metatadaFromTemplateOptions,
@@ -91,8 +148,15 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
               "operation completed check interval");
       this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
               "operation completed check timeout");
-      this.retryOperationDonePredicate = retry(operationDonePredicate, operationCompleteCheckTimeout,
-              operationCompleteCheckInterval, TimeUnit.MILLISECONDS);
+      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operation done predicate");
+      this.allOperationsDonePredicate = checkNotNull(allOperationsDonePredicate, "all operations done predicate");
+      this.userExecutor = checkNotNull(userExecutor, "user executor");
+      this.bulkOperationConcurrency = checkNotNull(bulkOperationConcurrency, "bulk operation concurrency");
+      this.tracer = checkNotNull(tracer, "provisioning tracer");
+      this.newClientOperationId = checkNotNull(newClientOperationId, "new client operation id");
+      this.precompiler = checkNotNull(precompiler, "instance template precompiler");
+      this.statusWatcher = checkNotNull(statusWatcher, "group status watcher");
+      this.warmPool = checkNotNull(warmPool, "warm pool manager");
    }
 
    @Override
@@ -123,27 +187,41 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
       instanceTemplate.serviceAccounts(options.getServiceAccounts());
       instanceTemplate.image(checkNotNull(template.getImage().getUri(), "image URI is null"));
 
-      Operation operation = api.getInstanceApiForProject(userProject.get())
-              .createInZone(name, instanceTemplate, template.getLocation().getId());
-
-      if (options.shouldBlockUntilRunning()) {
-         waitOperationDone(operation);
+      final InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+      final PrecompiledInstanceTemplate toInsert = precompiler.precompile(instanceTemplate,
+              template.getLocation().getId());
+      // a spare was inserted from the same body, so it only differs from the requested node by its name
+      Optional<Instance> spare = warmPool.acquire(group, toInsert);
+      if (spare.isPresent()) {
+         return new NodeAndInitialCredentials<Instance>(spare.get(), spare.get().getName(), credentials);
       }
-
-      // some times the newly created instances are not immediately returned
-      AtomicReference<Instance> instance = new AtomicReference<Instance>();
-
-      retry(new Predicate<AtomicReference<Instance>>() {
+      long start = tracer.start();
+      Operation operation = tagged(name, new Function<String, Operation>() {
          @Override
-         public boolean apply(AtomicReference<Instance> input) {
-            input.set(api.getInstanceApiForProject(userProject.get()).get(name));
-            return input.get() != null;
+         public Operation apply(String clientOperationId) {
+            return instanceApi.create(name, toInsert, clientOperationId);
          }
-      }, operationCompleteCheckTimeout, operationCompleteCheckInterval, MILLISECONDS).apply(instance);
+      });
+      tracer.record(options.getTrace().orNull(), name, Phase.INSERT, start, 0);
 
-      return new NodeAndInitialCredentials<Instance>(instance.get(), name, credentials);
-   }
+      if (options.shouldBlockUntilRunning()) {
+         start = tracer.start();
+         int polls = waitOperationDone(operation);
+         tracer.record(options.getTrace().orNull(), name, Phase.OPERATION, start, polls - 1);
+      }
 
+      // some times the newly created instances are not immediately returned, so wait until the instance is listed,
+      // and running if so requested, sharing one list of the group between the nodes created concurrently
+      start = tracer.start();
+      AtomicInteger snapshots = new AtomicInteger();
+      Optional<Instance> instance = statusWatcher.await(group, name,
+              options.shouldBlockUntilRunning() ? SETTLED_STATUS : GroupStatusWatcher.ANY_STATUS,
+              operationCompleteCheckTimeout, MILLISECONDS, snapshots);
+      tracer.record(options.getTrace().orNull(), name, Phase.GET, start, Math.max(snapshots.get() - 1, 0));
+
+      return new NodeAndInitialCredentials<Instance>(instance.isPresent() ? instance.get() : instanceApi.get(name),
+              name, credentials);
+   }
 
    @Override
    public Iterable<MachineType> listHardwareProfiles() {
@@ -171,28 +249,130 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
 
    @Override
    public Instance getNode(String name) {
-      return api.getInstanceApiForProject(userProject.get()).get(name);
+      return warmPool.isSpare(name) ? null : api.getInstanceApiForProject(userProject.get()).get(name);
    }
 
    @Override
    public Iterable<Instance> listNodes() {
-      return api.getInstanceApiForProject(userProject.get()).list().concat();
+      return withoutSpares(api.getInstanceApiForProject(userProject.get()).list().concat());
+   }
+
+   /**
+    * Lists the instances that match the given options, e.g. a server side filter.
+    */
+   public Iterable<Instance> listNodes(ListOptions options) {
+      return withoutSpares(api.getInstanceApiForProject(userProject.get()).list(checkNotNull(options, "options"))
+              .concat());
+   }
+
+   private Iterable<Instance> withoutSpares(Iterable<Instance> instances) {
+      if (!warmPool.hasSpares()) {
+         return instances;
+      }
+      return filter(instances, new Predicate<Instance>() {
+
+         @Override
+         public boolean apply(Instance instance) {
+            return !warmPool.isSpare(instance.getName());
+         }
+      });
    }
 
+   /**
+    * Pushes the ids down as an instance name filter when they fit in one, and otherwise lists every instance. Either
+    * way the result is matched against a hashed set of the ids.
+    */
    @Override
-   public Iterable<Instance> listNodesByIds(final Iterable<String> ids) {
-      return filter(listNodes(), new Predicate<Instance>() {
+   public Iterable<Instance> listNodesByIds(Iterable<String> ids) {
+      final Set<String> names = ImmutableSet.copyOf(checkNotNull(ids, "ids"));
+      if (names.isEmpty()) {
+         return ImmutableSet.of();
+      }
+      Optional<String> listFilter = withIds(names).getListFilter();
+      Iterable<Instance> instances = listFilter.isPresent()
+              ? listNodes(new ListOptions.Builder().filter(listFilter.get()))
+              : listNodes();
+      return filter(instances, new Predicate<Instance>() {
 
          @Override
          public boolean apply(Instance instance) {
-            return contains(ids, instance.getName());
+            return names.contains(instance.getName());
          }
       });
    }
 
    @Override
    public void destroyNode(final String name) {
-      waitOperationDone(api.getInstanceApiForProject(userProject.get()).delete(name));
+      Operation operation = deleteInstance(api.getInstanceApiForProject(userProject.get()), name);
+      // a null operation means the instance was already gone
+      if (operation != null) {
+         waitOperationDone(operation);
+      }
+   }
+
+   /**
+    * Destroys the given instances. Deletes are issued with at most {@code BULK_OPERATION_CONCURRENCY} in flight and
+    * the resulting operations are all tracked by a single poller, so that the calling thread is the only one
+    * blocked while the instances go away.
+    *
+    * @param names the names of the instances to destroy
+    * @return the exception that prevented each failed instance from being destroyed, by instance name. Instances
+    *         missing from the map were destroyed.
+    */
+   public Map<String, Exception> destroyNodes(Iterable<String> names) {
+      final InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+      final Semaphore inFlight = new Semaphore(bulkOperationConcurrency);
+      Map<String, ListenableFuture<Operation>> deletes = Maps.newLinkedHashMap();
+      for (final String name : names) {
+         inFlight.acquireUninterruptibly();
+         deletes.put(name, userExecutor.submit(new Callable<Operation>() {
+            @Override
+            public Operation call() {
+               try {
+                  return deleteInstance(instanceApi, name);
+               } finally {
+                  inFlight.release();
+               }
+            }
+         }));
+      }
+
+      Map<String, Exception> failures = Maps.newLinkedHashMap();
+      Map<String, AtomicReference<Operation>> operations = Maps.newLinkedHashMap();
+      for (Map.Entry<String, ListenableFuture<Operation>> delete : deletes.entrySet()) {
+         try {
+            Operation operation = delete.getValue().get();
+            // a null operation means the instance was already gone
+            if (operation != null) {
+               operations.put(delete.getKey(), new AtomicReference<Operation>(operation));
+            }
+         } catch (ExecutionException e) {
+            failures.put(delete.getKey(), e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.put(delete.getKey(), e);
+         }
+      }
+
+      // wait for all the operations to complete; an operation that can't be polled only fails its own instance
+      Map<AtomicReference<Operation>, Exception> pollFailures = Maps.newHashMap();
+      retry(allOperationsDonePredicate.recordingFailuresIn(pollFailures), operationCompleteCheckTimeout,
+              operationCompleteCheckInterval, MILLISECONDS).apply(operations.values());
+
+      for (Map.Entry<String, AtomicReference<Operation>> operation : operations.entrySet()) {
+         Operation current = operation.getValue().get();
+         if (pollFailures.containsKey(operation.getValue())) {
+            failures.put(operation.getKey(), pollFailures.get(operation.getValue()));
+         } else if (current.getStatus() != Operation.Status.DONE) {
+            failures.put(operation.getKey(),
+                    new UncheckedTimeoutException("operation did not reach DONE state" + current));
+         } else if (current.getHttpError().isPresent()) {
+            HttpResponse response = current.getHttpError().get();
+            failures.put(operation.getKey(), new IllegalStateException("operation failed. Http Error Code: " +
+                    response.getStatusCode() + " HttpError: " + response.getMessage()));
+         }
+      }
+      return failures;
    }
 
    @Override
@@ -243,11 +423,56 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
       return credentials;
    }
 
-   private void waitOperationDone(Operation operation) {
+   private Operation deleteInstance(final InstanceApi instanceApi, final String name) {
+      return tagged(name, new Function<String, Operation>() {
+         @Override
+         public Operation apply(String clientOperationId) {
+            return instanceApi.delete(name, clientOperationId);
+         }
+      });
+   }
+
+   /**
+    * Issues a request tagged with a new client operation id for the named resource. If the request fails, the
+    * operation it may have started is looked up by that id, and only when there is none the failure is propagated.
+    */
+   private Operation tagged(String resourceName, Function<String, Operation> request) {
+      String clientOperationId = newClientOperationId.apply(resourceName);
+      try {
+         return request.apply(clientOperationId);
+      } catch (RuntimeException e) {
+         Optional<Operation> started;
+         try {
+            started = findOperation(clientOperationId);
+         } catch (RuntimeException lookupFailure) {
+            logger.warn(lookupFailure, "could not look up operation %s", clientOperationId);
+            throw e;
+         }
+         if (!started.isPresent()) {
+            throw e;
+         }
+         logger.debug("request for %s failed, but it started operation %s: %s", resourceName,
+                 started.get().getName(), e.getMessage());
+         return started.get();
+      }
+   }
+
+   private Optional<Operation> findOperation(String clientOperationId) {
+      ListOptions options = new ListOptions.Builder()
+              .filter(CLIENT_OPERATION_ID.equalTo(clientOperationId).getExpression());
+      return api.getOperationApiForProject(userProject.get()).list(options).concat().first();
+   }
+
+   /**
+    * @return the number of times the operation was polled.
+    */
+   private int waitOperationDone(Operation operation) {
       AtomicReference<Operation> operationRef = new AtomicReference<Operation>(operation);
+      AtomicInteger polls = new AtomicInteger();
 
       // wait for the operation to complete
-      if (!retryOperationDonePredicate.apply(operationRef)) {
+      if (!retry(counting(operationDonePredicate, polls), operationCompleteCheckTimeout,
+              operationCompleteCheckInterval, MILLISECONDS).apply(operationRef)) {
          throw new UncheckedTimeoutException("operation did not reach DONE state" + operationRef.get());
       }
 
@@ -257,6 +482,7 @@ public class GoogleComputeEngineServiceAdapter implements ComputeServiceAdapter<
          throw new IllegalStateException("operation failed. Http Error Code: " + response.getStatusCode() +
                  " HttpError: " + response.getMessage());
       }
+      return polls.get();
    }
 
 }
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.config.UserProject;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
+import static org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates.inGroup;
+
+/**
+ * Watches the status of the instances of a group with a single filtered instance list per tick, instead of a get per
+ * instance. Callers wait for an instance to reach a status with {@link #await}; while anyone waits on a group, one of
+ * the waiters lists the group's instances at most once every {@link
+ * org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#OPERATION_COMPLETE_INTERVAL} milliseconds, and every
+ * waiter of the group is checked against that snapshot.
+ * <p/>
+ * Each list is diffed against the previous snapshot of the group, and every status change is reported to the
+ * registered {@link Listener}s.
+ */
+@Beta
+@Singleton
+public class GroupStatusWatcher {
+
+   /**
+    * Every status, i.e. waits until the instance is listed, even with a status this provider doesn't know.
+    */
+   public static final Set<Instance.Status> ANY_STATUS = Sets.immutableEnumSet(EnumSet.allOf(Instance.Status.class));
+
+   /**
+    * Notified of the status changes between two snapshots of a group, from the thread that listed the group.
+    */
+   public interface Listener {
+
+      /**
+       * @param previous the status in the previous snapshot, or null if the instance was not listed.
+       * @param current  the status in the new snapshot, or null if the instance is no longer listed.
+       */
+      void statusChanged(String group, String instanceName, @Nullable Instance.Status previous,
+                         @Nullable Instance.Status current);
+   }
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final GoogleComputeEngineApi api;
+   private final Supplier<String> userProject;
+   private final long intervalNanos;
+   private final ConcurrentMap<String, Group> groups = Maps.newConcurrentMap();
+   private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+   @Inject
+   GroupStatusWatcher(GoogleComputeEngineApi api, @UserProject Supplier<String> userProject,
+                      @Named(OPERATION_COMPLETE_INTERVAL) Long interval) {
+      this.api = checkNotNull(api, "google compute api");
+      this.userProject = checkNotNull(userProject, "user project name");
+      checkArgument(checkNotNull(interval, "interval") >= 0, "interval must not be negative");
+      this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+   }
+
+   public void addListener(Listener listener) {
+      listeners.add(checkNotNull(listener, "listener"));
+   }
+
+   public void removeListener(Listener listener) {
+      listeners.remove(listener);
+   }
+
+   /**
+    * Waits until the given instance of the group is listed with one of the given statuses.
+    *
+    * @return the instance as it was last listed, or absent if it did not reach one of the statuses in time.
+    */
+   public Optional<Instance> await(String group, String instanceName, Set<Instance.Status> statuses, long timeout,
+                                   TimeUnit unit) {
+      return await(group, instanceName, statuses, timeout, unit, new AtomicInteger());
+   }
+
+   /**
+    * @param snapshots incremented for each snapshot of the group the instance was looked up in.
+    * @see #await(String, String, Set, long, TimeUnit)
+    */
+   public Optional<Instance> await(String group, String instanceName, Set<Instance.Status> statuses, long timeout,
+                                   TimeUnit unit, AtomicInteger snapshots) {
+      checkNotNull(group, "group");
+      checkNotNull(instanceName, "instanceName");
+      checkNotNull(statuses, "statuses");
+      checkNotNull(snapshots, "snapshots");
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (true) {
+         Group watched = groups.get(group);
+         if (watched == null) {
+            Group created = new Group(group);
+            watched = groups.putIfAbsent(group, created);
+            watched = watched != null ? watched : created;
+         }
+         Optional<Optional<Instance>> result = watched.await(instanceName, statuses, deadline, snapshots);
+         // absent only if the group was retired, in between getting and locking it
+         if (result.isPresent()) {
+            return result.get();
+         }
+      }
+   }
+
+   /**
+    * An instance whose status this provider doesn't know, and which is read as null, only matches any status.
+    */
+   private static boolean matches(Instance instance, Set<Instance.Status> statuses) {
+      return instance.getStatus() != null ? statuses.contains(instance.getStatus()) : statuses.containsAll(ANY_STATUS);
+   }
+
+   private void fireChanges(String group, Map<String, Instance> previous, Map<String, Instance> current) {
+      if (listeners.isEmpty()) {
+         return;
+      }
+      for (Map.Entry<String, Instance> entry : current.entrySet()) {
+         Instance before = previous.get(entry.getKey());
+         Instance.Status status = entry.getValue().getStatus();
+         if (before == null || before.getStatus() != status) {
+            fire(group, entry.getKey(), before != null ? before.getStatus() : null, status);
+         }
+      }
+      for (Map.Entry<String, Instance> entry : previous.entrySet()) {
+         if (!current.containsKey(entry.getKey())) {
+            fire(group, entry.getKey(), entry.getValue().getStatus(), null);
+         }
+      }
+   }
+
+   private void fire(String group, String instanceName, Instance.Status previous, Instance.Status current) {
+      for (Listener listener : listeners) {
+         try {
+            listener.statusChanged(group, instanceName, previous, current);
+         } catch (RuntimeException e) {
+            logger.warn(e, "listener %s failed on %s of group %s", listener, instanceName, group);
+         }
+      }
+   }
+
+   private Map<String, Instance> list(String group) {
+      InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+      Optional<String> filter = inGroup(group).getListFilter();
+      Iterable<Instance> instances = filter.isPresent()
+              ? instanceApi.list(new ListOptions.Builder().filter(filter.get())).concat()
+              : instanceApi.list().concat();
+      ImmutableMap.Builder<String, Instance> snapshot = ImmutableMap.builder();
+      for (Instance instance : instances) {
+         // the server side filter is a name prefix, which is broader than the group
+         if (instance.getName().startsWith(group + "-")) {
+            snapshot.put(instance.getName(), instance);
+         }
+      }
+      return snapshot.build();
+   }
+
+   /**
+    * The latest snapshot of a group and its waiters. The group is retired, and removed, when its last waiter leaves.
+    */
+   private final class Group {
+      private final String name;
+      private final ReentrantLock lock = new ReentrantLock();
+      private final Condition refreshed = lock.newCondition();
+      private Map<String, Instance> snapshot = ImmutableMap.of();
+      private long refreshedAt;
+      private boolean listed;
+      private boolean refreshing;
+      private boolean retired;
+      private int waiters;
+
+      private Group(String name) {
+         this.name = name;
+      }
+
+      private Optional<Optional<Instance>> await(String instanceName, Set<Instance.Status> statuses, long deadline,
+                                                 AtomicInteger snapshots) {
+         lock.lock();
+         try {
+            if (retired) {
+               return Optional.absent();
+            }
+            waiters++;
+            try {
+               Map<String, Instance> checked = null;
+               while (true) {
+                  if (listed && snapshot != checked) {
+                     checked = snapshot;
+                     snapshots.incrementAndGet();
+                  }
+                  Instance instance = snapshot.get(instanceName);
+                  if (instance != null && matches(instance, statuses)) {
+                     return Optional.of(Optional.of(instance));
+                  }
+                  long now = System.nanoTime();
+                  if (now - deadline >= 0) {
+                     return Optional.of(Optional.<Instance>absent());
+                  }
+                  long untilRefresh = listed ? refreshedAt + intervalNanos - now : 0;
+                  if (!refreshing && untilRefresh <= 0) {
+                     refresh();
+                  } else {
+                     long wait = refreshing ? deadline - now : Math.min(deadline - now, untilRefresh);
+                     refreshed.awaitNanos(wait);
+                  }
+               }
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               return Optional.of(Optional.<Instance>absent());
+            } finally {
+               if (--waiters == 0) {
+                  retired = true;
+                  groups.remove(name, this);
+               }
+            }
+         } finally {
+            lock.unlock();
+         }
+      }
+
+      /**
+       * Lists the group without holding the lock, so that the other waiters keep waiting for the new snapshot.
+       */
+      private void refresh() {
+         refreshing = true;
+         Map<String, Instance> previous = snapshot;
+         Map<String, Instance> current = null;
+         lock.unlock();
+         try {
+            current = list(name);
+            fireChanges(name, previous, current);
+         } finally {
+            lock.lock();
+            if (current != null) {
+               snapshot = current;
+            }
+            refreshedAt = System.nanoTime();
+            listed = true;
+            refreshing = false;
+            refreshed.signalAll();
+         }
+      }
+   }
+}
@@ -0,0 +1,529 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jclouds.Constants;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.functions.NewClientOperationId;
+import org.jclouds.googlecomputeengine.config.UserProject;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.util.Predicates2.retry;
+
+/**
+ * Keeps running spare instances for the groups it is configured for, so that a node of such a group is handed out as
+ * soon as it is requested instead of after the instance boots.
+ * <p/>
+ * There is a pool per group and instance insert body, i.e. the same machine type, image, zone, network, metadata and
+ * tags, so a spare is only ever handed out as the exact instance that would have been created. GCE can't rename an
+ * instance or change its tags, so spares are created with a name in their group from the start. Until they are
+ * handed out they are hidden by {@link GoogleComputeEngineServiceAdapter}, but after a restart they show up as regular
+ * nodes of the group.
+ * <p/>
+ * Each pool is refilled in the background, on the user executor, up to a target size that grows between the
+ * configured minimum and maximum with every request that finds the pool empty, and shrinks back as spares stay idle
+ * for longer than the idle timeout, which are then deleted. A pool whose inserts fail, e.g. for lack of quota, waits
+ * before it inserts again, twice as long after every failed insert in a row, up to {@link #MAX_BACKOFF}. Once the
+ * compute service destroyed the last node of a group, it disables the group and waits for its spares to be deleted
+ * before it deletes the network and firewall of the group.
+ * <p/>
+ * The manager is a singleton of the context, i.e.
+ * {@code context.utils().injector().getInstance(WarmPoolManager.class)}, and is closed with it. Closing it waits for
+ * the spares, including the ones being created, to be deleted; the ones the user executor no longer accepts are
+ * deleted by the closing thread.
+ */
+@Beta
+@Singleton
+public class WarmPoolManager implements Closeable {
+
+   /**
+    * How often idle spares are reaped and the pools refilled after a failed insert.
+    */
+   static final long MAINTENANCE_INTERVAL = 1000;
+
+   /**
+    * The longest a pool waits to insert again after failed inserts, in milliseconds.
+    */
+   static final long MAX_BACKOFF = TimeUnit.MINUTES.toMillis(5);
+
+   private static final Set<Instance.Status> RUNNING = EnumSet.of(Instance.Status.RUNNING);
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final GoogleComputeEngineApi api;
+   private final Supplier<String> userProject;
+   private final GroupNamingConvention.Factory namingConvention;
+   private final GroupStatusWatcher statusWatcher;
+   private final Predicate<AtomicReference<Operation>> operationDonePredicate;
+   private final long operationCompleteCheckInterval;
+   private final long operationCompleteCheckTimeout;
+   private final ListeningExecutorService userExecutor;
+   private final NewClientOperationId newClientOperationId;
+   private final ConcurrentMap<String, Policy> policies = Maps.newConcurrentMap();
+   private final ConcurrentMap<List<Object>, Pool> pools = Maps.newConcurrentMap();
+   private final Set<String> spares = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+   // the spares being created or deleted on the user executor, with their group, which close waits for
+   private final ConcurrentMap<ListenableFuture<?>, String> pending = Maps.newConcurrentMap();
+   private ScheduledExecutorService maintenance;
+
+   @Inject
+   WarmPoolManager(GoogleComputeEngineApi api, @UserProject Supplier<String> userProject,
+                   GroupNamingConvention.Factory namingConvention, GroupStatusWatcher statusWatcher,
+                   Predicate<AtomicReference<Operation>> operationDonePredicate,
+                   @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
+                   @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
+                   @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                   NewClientOperationId newClientOperationId) {
+      this.api = checkNotNull(api, "google compute api");
+      this.userProject = checkNotNull(userProject, "user project name");
+      this.namingConvention = checkNotNull(namingConvention, "naming convention");
+      this.statusWatcher = checkNotNull(statusWatcher, "group status watcher");
+      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operation done predicate");
+      this.operationCompleteCheckInterval = checkNotNull(operationCompleteCheckInterval,
+              "operation completed check interval");
+      this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
+              "operation completed check timeout");
+      this.userExecutor = checkNotNull(userExecutor, "user executor");
+      this.newClientOperationId = checkNotNull(newClientOperationId, "new client operation id");
+   }
+
+   /**
+    * Keeps between {@code minSize} and {@code maxSize} spares for each kind of node created in the group. Pools that
+    * already exist switch to the new sizes on their next maintenance.
+    *
+    * @param idleTimeout how long a spare is kept beyond the minimum size before it is deleted.
+    */
+   public void configure(String group, int minSize, int maxSize, long idleTimeout, TimeUnit unit) {
+      checkNotNull(group, "group");
+      checkArgument(minSize >= 0, "minSize must not be negative");
+      checkArgument(maxSize >= minSize && maxSize > 0, "maxSize must be positive and at least minSize");
+      checkArgument(idleTimeout >= 0, "idleTimeout must not be negative");
+      policies.put(group, new Policy(minSize, maxSize, checkNotNull(unit, "unit").toNanos(idleTimeout)));
+      startMaintenance();
+   }
+
+   /**
+    * Stops keeping spares for the group, and deletes the ones it has. Spares being created are deleted once they are.
+    */
+   public void disable(String group) {
+      checkNotNull(group, "group");
+      policies.remove(group);
+      for (Map.Entry<List<Object>, Pool> entry : pools.entrySet()) {
+         if (entry.getValue().group.equals(group) && pools.remove(entry.getKey(), entry.getValue())) {
+            entry.getValue().drain();
+         }
+      }
+   }
+
+   /**
+    * Same as {@link #disable}, but also waits for the spares of the group, including the ones being created, to be
+    * deleted, e.g. before the network and firewall of the group are.
+    */
+   public void disableAndAwait(String group) {
+      disable(group);
+      awaitPending(group);
+   }
+
+   /**
+    * Hands out a running spare that was created from the given template, if the pool has one; either way the pool is
+    * refilled in the background.
+    *
+    * @return the spare, which is no longer hidden from the node listings, or absent if the group is not configured
+    *         or its pool is empty.
+    */
+   public Optional<Instance> acquire(String group, PrecompiledInstanceTemplate template) {
+      checkNotNull(group, "group");
+      checkNotNull(template, "template");
+      if (!policies.containsKey(group)) {
+         return Optional.absent();
+      }
+      List<Object> key = ImmutableList.<Object>of(group, template);
+      Pool pool = pools.get(key);
+      if (pool == null) {
+         Pool created = new Pool(group, template);
+         pool = pools.putIfAbsent(key, created);
+         pool = pool != null ? pool : created;
+      }
+      return pool.acquire();
+   }
+
+   /**
+    * @return true if the instance is a spare that was not handed out yet.
+    */
+   public boolean isSpare(String instanceName) {
+      return spares.contains(instanceName);
+   }
+
+   /**
+    * @return whether there are spares, including the ones being created or deleted.
+    */
+   public boolean hasSpares() {
+      return !spares.isEmpty();
+   }
+
+   /**
+    * @return the number of running spares of the group that can be handed out.
+    */
+   public int getReadyCount(String group) {
+      int ready = 0;
+      for (Pool pool : pools.values()) {
+         if (pool.group.equals(group)) {
+            ready += pool.readyCount();
+         }
+      }
+      return ready;
+   }
+
+   /**
+    * Stops the background maintenance, disables every group and waits for their spares to be deleted.
+    */
+   @PreDestroy
+   @Override
+   public void close() {
+      synchronized (this) {
+         if (maintenance != null) {
+            maintenance.shutdownNow();
+            maintenance = null;
+         }
+      }
+      for (String group : ImmutableList.copyOf(policies.keySet())) {
+         disable(group);
+      }
+      awaitPending(null);
+   }
+
+   /**
+    * Waits until nothing is left in flight for the group, or for any group if null, as spares that finish being
+    * created after their group was disabled are deleted then.
+    */
+   private void awaitPending(@Nullable String group) {
+      try {
+         while (true) {
+            List<ListenableFuture<?>> inFlight = Lists.newArrayList();
+            for (Map.Entry<ListenableFuture<?>, String> entry : pending.entrySet()) {
+               if (group == null || entry.getValue().equals(group)) {
+                  inFlight.add(entry.getKey());
+               }
+            }
+            if (inFlight.isEmpty()) {
+               return;
+            }
+            Futures.successfulAsList(inFlight).get();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         logger.warn("interrupted while deleting the spare instances, some may be left running");
+      } catch (ExecutionException e) {
+         throw new IllegalStateException(e.getCause());
+      }
+   }
+
+   private synchronized void startMaintenance() {
+      if (maintenance != null) {
+         return;
+      }
+      maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("gce-warm-pool-%d").build());
+      maintenance.scheduleWithFixedDelay(new Runnable() {
+         @Override
+         public void run() {
+            maintain();
+         }
+      }, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL, MILLISECONDS);
+   }
+
+   /**
+    * Deletes the spares that were idle for too long and refills the pools.
+    */
+   void maintain() {
+      maintain(System.nanoTime());
+   }
+
+   void maintain(long now) {
+      for (Pool pool : pools.values()) {
+         try {
+            pool.maintain(now);
+         } catch (RuntimeException e) {
+            logger.warn(e, "could not maintain the warm pool of group %s", pool.group);
+         }
+      }
+   }
+
+   /**
+    * Deletes the spare on the user executor, or right away once the executor is shut down.
+    */
+   private void delete(String group, final String name) {
+      Runnable deletion = new Runnable() {
+         @Override
+         public void run() {
+            try {
+               Operation operation = api.getInstanceApiForProject(userProject.get()).delete(name);
+               if (operation != null) {
+                  retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
+                          MILLISECONDS).apply(new AtomicReference<Operation>(operation));
+               }
+               spares.remove(name);
+            } catch (RuntimeException e) {
+               // still hidden, so that a spare that may be running is not handed out as a node by the listings
+               logger.warn(e, "could not delete spare instance %s", name);
+            }
+         }
+      };
+      if (!submit(group, deletion)) {
+         deletion.run();
+      }
+   }
+
+   /**
+    * @return false if the user executor did not accept the task, i.e. it is shut down.
+    */
+   private boolean submit(String group, Runnable task) {
+      final ListenableFuture<?> future;
+      try {
+         future = userExecutor.submit(task);
+      } catch (RejectedExecutionException e) {
+         return false;
+      }
+      pending.put(future, group);
+      future.addListener(new Runnable() {
+         @Override
+         public void run() {
+            pending.remove(future);
+         }
+      }, sameThreadExecutor());
+      return true;
+   }
+
+   private static final class Policy {
+      private final int minSize;
+      private final int maxSize;
+      private final long idleNanos;
+
+      private Policy(int minSize, int maxSize, long idleNanos) {
+         this.minSize = minSize;
+         this.maxSize = maxSize;
+         this.idleNanos = idleNanos;
+      }
+   }
+
+   private static final class Spare {
+      private final Instance instance;
+      private final long readySince;
+
+      private Spare(Instance instance, long readySince) {
+         this.instance = instance;
+         this.readySince = readySince;
+      }
+   }
+
+   private final class Pool {
+      private final String group;
+      private final PrecompiledInstanceTemplate template;
+      // guarded by this; the most recently created spares are at the end
+      private final Deque<Spare> ready = new ArrayDeque<Spare>();
+      private int creating;
+      private int target = -1;
+      private boolean drained;
+      // the failed inserts in a row, and when the pool inserts again after the last one
+      private int failures;
+      private long retryAt;
+
+      private Pool(String group, PrecompiledInstanceTemplate template) {
+         this.group = group;
+         this.template = template;
+      }
+
+      private Optional<Instance> acquire() {
+         Spare spare;
+         synchronized (this) {
+            Policy policy = policy();
+            // the newest spare, so that the oldest ones are the ones left idle
+            spare = ready.pollLast();
+            if (spare == null && policy != null) {
+               target = Math.min(target + 1, policy.maxSize);
+            }
+         }
+         if (spare != null) {
+            spares.remove(spare.instance.getName());
+         }
+         replenish(System.nanoTime());
+         return spare != null ? Optional.of(spare.instance) : Optional.<Instance>absent();
+      }
+
+      private synchronized int readyCount() {
+         return ready.size();
+      }
+
+      private void maintain(long now) {
+         List<String> idle = Lists.newArrayList();
+         synchronized (this) {
+            Policy policy = policy();
+            if (drained || policy == null) {
+               return;
+            }
+            while (ready.size() > policy.minSize && now - ready.peekFirst().readySince >= policy.idleNanos) {
+               idle.add(ready.pollFirst().instance.getName());
+               target--;
+            }
+            target = Math.max(Math.min(target, policy.maxSize), policy.minSize);
+         }
+         for (String name : idle) {
+            delete(group, name);
+         }
+         replenish(now);
+      }
+
+      private void drain() {
+         List<Spare> toDelete;
+         synchronized (this) {
+            drained = true;
+            toDelete = ImmutableList.copyOf(ready);
+            ready.clear();
+         }
+         for (Spare spare : toDelete) {
+            delete(group, spare.instance.getName());
+         }
+      }
+
+      private Policy policy() {
+         Policy policy = policies.get(group);
+         if (policy != null && target < 0) {
+            target = policy.minSize;
+         }
+         return policy;
+      }
+
+      /**
+       * Starts creating spares until the ready and the ones being created add up to the target, unless the pool is
+       * backing off after failed inserts.
+       */
+      private void replenish(long now) {
+         int missing;
+         synchronized (this) {
+            boolean backingOff = failures > 0 && now - retryAt < 0;
+            missing = drained || backingOff ? 0 : Math.max(target - ready.size() - creating, 0);
+            creating += missing;
+         }
+         for (int i = 0; i < missing; i++) {
+            boolean submitted = submit(group, new Runnable() {
+               @Override
+               public void run() {
+                  createSpare();
+               }
+            });
+            if (!submitted) {
+               synchronized (this) {
+                  creating--;
+               }
+            }
+         }
+      }
+
+      private void createSpare() {
+         String name = namingConvention.createWithoutPrefix().uniqueNameForGroup(group);
+         // hidden before it is inserted, so that no listing can see it as a node
+         spares.add(name);
+         Optional<Instance> instance;
+         try {
+            InstanceApi instanceApi = api.getInstanceApiForProject(userProject.get());
+            AtomicReference<Operation> operation = new AtomicReference<Operation>(instanceApi.create(name, template,
+                    newClientOperationId.apply(name)));
+            retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
+                    MILLISECONDS).apply(operation);
+            checkState(operation.get().getStatus() == Operation.Status.DONE, "timed out inserting spare %s", name);
+            checkState(!operation.get().getHttpError().isPresent(), "could not insert spare %s: %s", name,
+                    operation.get());
+            instance = statusWatcher.await(group, name, RUNNING, operationCompleteCheckTimeout, MILLISECONDS);
+            checkState(instance.isPresent(), "spare %s did not reach RUNNING in time", name);
+         } catch (RuntimeException e) {
+            long backoff;
+            synchronized (this) {
+               creating--;
+               failures++;
+               backoff = Math.min(MAINTENANCE_INTERVAL << Math.min(failures - 1, 20), MAX_BACKOFF);
+               retryAt = System.nanoTime() + MILLISECONDS.toNanos(backoff);
+            }
+            logger.warn(e, "could not create spare instance %s of group %s, inserting again in %d ms", name, group,
+                    backoff);
+            // in case the insert went through after all; the pool is refilled once it stops backing off
+            delete(group, name);
+            return;
+         }
+         boolean keep;
+         synchronized (this) {
+            creating--;
+            failures = 0;
+            keep = !drained;
+            if (keep) {
+               ready.addLast(new Spare(instance.get(), System.nanoTime()));
+            }
+         }
+         if (!keep) {
+            delete(group, name);
+         }
+      }
+   }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.functions;
+
+import com.google.common.base.Function;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.domain.Credentials;
+import org.jclouds.domain.LoginCredentials;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Adds the login credentials kept in the credential store to a node, the way the nodes listed through the
+ * {@link org.jclouds.compute.strategy.ListNodesStrategy} get them, for the nodes the compute service lists on its own.
+ */
+@Singleton
+public class AddLoginCredentialsFromStore implements Function<NodeMetadata, NodeMetadata> {
+
+   private final Map<String, Credentials> credentialStore;
+
+   @Inject
+   AddLoginCredentialsFromStore(Map<String, Credentials> credentialStore) {
+      this.credentialStore = checkNotNull(credentialStore, "credential store");
+   }
+
+   /**
+    * @return the credential store key of the node.
+    */
+   public static String credentialsKey(String nodeId) {
+      return "node#" + checkNotNull(nodeId, "nodeId");
+   }
+
+   @Override
+   public NodeMetadata apply(NodeMetadata node) {
+      Credentials credentials = credentialStore.get(credentialsKey(node.getId()));
+      return credentials == null ? node : NodeMetadataBuilder.fromNodeMetadata(node)
+              .credentials(LoginCredentials.fromCredentials(credentials)).build();
+   }
+}
@@ -37,6 +37,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Transforms a google compute domain Instance into a generic NodeMetatada object.
+ * <p/>
+ * Instances fetched with the partial response {@code fields} option may lack their image, machine type, zone or
+ * status. These are left out of the node, whose status is then {@link NodeMetadata.Status#UNRECOGNIZED}, instead of
+ * failing the conversion. A field that is present but unknown to the compute service still fails.
  *
  * @author David Alves
  */
@@ -63,21 +67,28 @@ public class InstanceToNodeMetadata implements Function<Instance, NodeMetadata>
 
    @Override
    public NodeMetadata apply(Instance input) {
-      Map<URI, ? extends Image> imagesMap = images.get();
-      Image image = checkNotNull(imagesMap.get(checkNotNull(input.getImage(), "image")),
-              "no image for %s. images: %s", input.getImage(), imagesMap.values());
+      NodeMetadataBuilder builder = new NodeMetadataBuilder();
+      if (input.getImage() != null) {
+         Map<URI, ? extends Image> imagesMap = images.get();
+         Image image = checkNotNull(imagesMap.get(input.getImage()),
+                 "no image for %s. images: %s", input.getImage(), imagesMap.values());
+         builder.imageId(image.getId()).operatingSystem(image.getOperatingSystem());
+      }
+      if (input.getZone() != null) {
+         builder.location(checkNotNull(locations.get().get(input.getZone()), "location for %s", input.getZone()));
+      }
+      if (input.getMachineType() != null) {
+         builder.hardware(checkNotNull(hardwares.get().get(input.getMachineType()), "hardware type for %s",
+                 input.getMachineType()));
+      }
+      NodeMetadata.Status status = input.getStatus() != null ? toPortableNodeStatus.get(input.getStatus()) : null;
 
-      return new NodeMetadataBuilder()
+      return builder
               .id(input.getName())
               .name(input.getName())
               .providerId(input.getId())
               .hostname(input.getName())
-              .imageId(image.getId())
-              .location(checkNotNull(locations.get().get(input.getZone()), "location for %s", input.getZone()))
-              .hardware(checkNotNull(hardwares.get().get(input.getMachineType()), "hardware type for %s",
-                      input.getMachineType().toString()))
-              .operatingSystem(image.getOperatingSystem())
-              .status(toPortableNodeStatus.get(input.getStatus()))
+              .status(status != null ? status : NodeMetadata.Status.UNRECOGNIZED)
               .tags(input.getTags())
               .uri(input.getSelfLink())
               .userMetadata(input.getMetadata())
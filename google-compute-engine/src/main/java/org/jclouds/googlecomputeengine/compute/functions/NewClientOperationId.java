@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.functions;
+
+import com.google.common.base.Function;
+
+import javax.inject.Singleton;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Creates the client operation id that tags an insert or delete of the named resource. Each call returns a new id, so
+ * that an id only ever matches the operation of a single request, even when a resource of the same name was created
+ * and deleted before.
+ */
+@Singleton
+public class NewClientOperationId implements Function<String, String> {
+
+   @Override
+   public String apply(String resourceName) {
+      return checkNotNull(resourceName, "resource name") + "-" + UUID.randomUUID();
+   }
+}
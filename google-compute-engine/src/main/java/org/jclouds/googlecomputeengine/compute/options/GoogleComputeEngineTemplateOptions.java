@@ -21,6 +21,7 @@ import com.google.common.collect.Sets;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace;
 import org.jclouds.scriptbuilder.domain.Statement;
 
 import java.net.URI;
@@ -41,6 +42,8 @@ public class GoogleComputeEngineTemplateOptions extends TemplateOptions {
    private Optional<String> networkName = Optional.absent();
    private Set<Instance.ServiceAccount> serviceAccounts = Sets.newLinkedHashSet();
    private boolean enableNat = true;
+   private boolean spreadAcrossZones = false;
+   private Optional<ProvisioningTrace> trace = Optional.absent();
 
    @Override
    public GoogleComputeEngineTemplateOptions clone() {
@@ -58,6 +61,8 @@ public class GoogleComputeEngineTemplateOptions extends TemplateOptions {
          eTo.network(getNetworkName().orNull());
          eTo.serviceAccounts(getServiceAccounts());
          eTo.enableNat(isEnableNat());
+         eTo.spreadAcrossZones(isSpreadAcrossZones());
+         eTo.trace(getTrace().orNull());
       }
    }
 
@@ -103,6 +108,22 @@ public class GoogleComputeEngineTemplateOptions extends TemplateOptions {
       return this;
    }
 
+   /**
+    * @see #isSpreadAcrossZones()
+    */
+   public GoogleComputeEngineTemplateOptions spreadAcrossZones(boolean spreadAcrossZones) {
+      this.spreadAcrossZones = spreadAcrossZones;
+      return this;
+   }
+
+   /**
+    * @see #getTrace()
+    */
+   public GoogleComputeEngineTemplateOptions trace(ProvisioningTrace trace) {
+      this.trace = fromNullable(trace);
+      return this;
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -293,4 +314,21 @@ public class GoogleComputeEngineTemplateOptions extends TemplateOptions {
    public boolean isEnableNat() {
       return enableNat;
    }
+
+   /**
+    * @return whether the nodes created together are spread evenly across the zones that offer their machine type and
+    *         are not in, or about to enter, a maintenance window, instead of all going to the template's location.
+    *         The template's location gets the first share when it is one of those zones.
+    */
+   public boolean isSpreadAcrossZones() {
+      return spreadAcrossZones;
+   }
+
+   /**
+    * @return the trace of the {@code createNodesInGroup} call creating the nodes, set by the node creation strategy
+    *         like the network, so that the phases of each node are recorded into the trace of their own call.
+    */
+   public Optional<ProvisioningTrace> getTrace() {
+      return trace;
+   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.predicates;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.googlecomputeengine.compute.config.GoogleComputeEngineServiceContextModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.jclouds.googlecomputeengine.options.ListFilter;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.options.ListFilter.anyOf;
+import static org.jclouds.googlecomputeengine.options.ListFilter.quote;
+
+/**
+ * Node predicates that GCE can also evaluate on the server, as an instance list filter, so that only the matching
+ * instances are listed instead of every instance in the project.
+ * <p/>
+ * The compute service pushes the filter of these predicates down to {@code InstanceApi.list(ListOptions)} and still
+ * applies the predicate to each returned node, so it is fine for the server side filter to be broader than the
+ * predicate. Any other predicate is evaluated on the client only.
+ */
+public final class GoogleComputeEngineNodePredicates {
+
+   /**
+    * Filter expressions are sent as a query parameter, so the ones longer than this are evaluated client side only.
+    */
+   static final int MAX_FILTER_LENGTH = 2000;
+
+   private static final ListFilter.Field INSTANCE_NAME = ListFilter.on(Resource.Kind.INSTANCE).field("name");
+   private static final ListFilter.Field INSTANCE_STATUS = ListFilter.on(Resource.Kind.INSTANCE).field("status");
+
+   private GoogleComputeEngineNodePredicates() {
+   }
+
+   /**
+    * A node predicate that has a server side equivalent. The factory methods are generic so that the same predicate can
+    * be passed to both {@code listNodesDetailsMatching} and {@code destroyNodesMatching}, e.g.
+    * {@code GoogleComputeEngineNodePredicates.<NodeMetadata>inGroup("group")}.
+    */
+   public abstract static class ListFilterPredicate<T extends ComputeMetadata> implements Predicate<T> {
+
+      /**
+       * @return the instance list filter that returns at least every instance matching this predicate, if it can be
+       *         expressed in the GCE filter syntax.
+       */
+      public abstract Optional<String> getListFilter();
+   }
+
+   /**
+    * Matches the nodes with the given ids, i.e. instance names, through a hashed lookup.
+    */
+   public static <T extends ComputeMetadata> ListFilterPredicate<T> withIds(String... ids) {
+      return GoogleComputeEngineNodePredicates.<T>withIds(ImmutableSet.copyOf(checkNotNull(ids, "ids")));
+   }
+
+   /**
+    * @see #withIds(String...)
+    */
+   public static <T extends ComputeMetadata> ListFilterPredicate<T> withIds(Iterable<String> ids) {
+      final Set<String> idSet = ImmutableSet.copyOf(checkNotNull(ids, "ids"));
+      return new ListFilterPredicate<T>() {
+         @Override
+         public boolean apply(T input) {
+            return idSet.contains(input.getId());
+         }
+
+         @Override
+         public Optional<String> getListFilter() {
+            return limitMatches(INSTANCE_NAME, anyOf(idSet));
+         }
+
+         @Override
+         public String toString() {
+            return "withIds(" + idSet + ")";
+         }
+      };
+   }
+
+   /**
+    * Matches the nodes in the given group; on the server this is a prefix match on the instance name.
+    */
+   public static <T extends ComputeMetadata> ListFilterPredicate<T> inGroup(final String group) {
+      checkNotNull(group, "group");
+      return new ListFilterPredicate<T>() {
+         @Override
+         public boolean apply(T input) {
+            return input instanceof NodeMetadata && equal(((NodeMetadata) input).getGroup(), group);
+         }
+
+         @Override
+         public Optional<String> getListFilter() {
+            return limitMatches(INSTANCE_NAME, quote(group) + "-.*");
+         }
+
+         @Override
+         public String toString() {
+            return "inGroup(" + group + ")";
+         }
+      };
+   }
+
+   /**
+    * Matches the nodes with one of the given statuses.
+    */
+   public static <T extends ComputeMetadata> ListFilterPredicate<T> withStatus(NodeMetadata.Status... statuses) {
+      checkArgument(checkNotNull(statuses, "statuses").length > 0, "at least one status must be provided");
+      final Set<NodeMetadata.Status> statusSet = ImmutableSet.copyOf(statuses);
+      return new ListFilterPredicate<T>() {
+         @Override
+         public boolean apply(T input) {
+            return input instanceof NodeMetadata && statusSet.contains(((NodeMetadata) input).getStatus());
+         }
+
+         @Override
+         public Optional<String> getListFilter() {
+            Map<Instance.Status, NodeMetadata.Status> toPortableNodeStatus =
+                    GoogleComputeEngineServiceContextModule.toPortableNodeStatus;
+            // statuses without a GCE counterpart (e.g. ERROR, or UNRECOGNIZED for statuses the provider doesn't know)
+            // can't be told apart on the server, so leaving them out would make the filter narrower than the predicate
+            if (!toPortableNodeStatus.values().containsAll(statusSet)) {
+               return Optional.absent();
+            }
+            ImmutableSet.Builder<String> instanceStatuses = ImmutableSet.builder();
+            for (Map.Entry<Instance.Status, NodeMetadata.Status> entry : toPortableNodeStatus.entrySet()) {
+               if (statusSet.contains(entry.getValue())) {
+                  instanceStatuses.add(entry.getKey().name());
+               }
+            }
+            return limitMatches(INSTANCE_STATUS, anyOf(instanceStatuses.build()));
+         }
+
+         @Override
+         public String toString() {
+            return "withStatus(" + statusSet + ")";
+         }
+      };
+   }
+
+   /**
+    * Builds the filter only if its expression fits, since every filter built is kept in the expression cache.
+    */
+   private static Optional<String> limitMatches(ListFilter.Field field, String regex) {
+      // the shortest rendering, e.g. "name eq (a|b)", literals with whitespace are also quoted
+      if (field.getName().length() + " eq ".length() + regex.length() > MAX_FILTER_LENGTH) {
+         return Optional.absent();
+      }
+      String expression = field.matches(regex).getExpression();
+      return expression.length() <= MAX_FILTER_LENGTH ? Optional.of(expression) : Optional.<String>absent();
+   }
+}
@@ -19,40 +19,58 @@ package org.jclouds.googlecomputeengine.compute.strategy;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import org.jclouds.Constants;
+import org.jclouds.collect.Memoized;
 import org.jclouds.compute.config.CustomizationResponse;
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.internal.TemplateImpl;
 import org.jclouds.compute.functions.GroupNamingConvention;
 import org.jclouds.compute.strategy.CreateNodeWithGroupEncodedIntoName;
 import org.jclouds.compute.strategy.CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap;
 import org.jclouds.compute.strategy.ListNodesStrategy;
+import org.jclouds.domain.Location;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.compute.options.GoogleComputeEngineTemplateOptions;
 import org.jclouds.googlecomputeengine.config.UserProject;
 import org.jclouds.googlecomputeengine.domain.Firewall;
 import org.jclouds.googlecomputeengine.domain.Network;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace.Phase;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTracer;
 import org.jclouds.googlecomputeengine.options.FirewallOptions;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableSet.of;
+import static com.google.common.util.concurrent.Futures.successfulAsList;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_TIMEOUT;
+import static org.jclouds.googlecomputeengine.instrumentation.ProvisioningTracer.counting;
 import static org.jclouds.util.Predicates2.retry;
 
 /**
+ * Creates the network and firewall of the group, if they don't exist yet, before the nodes. When the template options
+ * ask to spread the nodes across zones, each zone picked by {@link ZoneSpreadingPlacement} is filled with its share of
+ * the nodes, all of them in parallel.
+ *
  * @author David Alves
  */
 public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
@@ -66,6 +84,9 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
    private final Predicate<AtomicReference<Operation>> operationDonePredicate;
    private final long operationCompleteCheckInterval;
    private final long operationCompleteCheckTimeout;
+   private final ProvisioningTracer tracer;
+   private final ZoneSpreadingPlacement placement;
+   private final Supplier<Set<? extends Location>> locations;
 
    @Inject
    protected CreateNodesWithGroupEncodedIntoNameThenAddToSet(
@@ -80,7 +101,10 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
            @UserProject Supplier<String> userProject,
            Predicate<AtomicReference<Operation>> operationDonePredicate,
            @Named(OPERATION_COMPLETE_INTERVAL) Long operationCompleteCheckInterval,
-           @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout) {
+           @Named(OPERATION_COMPLETE_TIMEOUT) Long operationCompleteCheckTimeout,
+           ProvisioningTracer tracer,
+           ZoneSpreadingPlacement placement,
+           @Memoized Supplier<Set<? extends Location>> locations) {
       super(addNodeWithGroupStrategy, listNodesStrategy, namingConvention, userExecutor,
               customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory);
 
@@ -91,6 +115,9 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
       this.operationCompleteCheckTimeout = checkNotNull(operationCompleteCheckTimeout,
               "operation completed check timeout");
       this.operationDonePredicate = operationDonePredicate;
+      this.tracer = checkNotNull(tracer, "provisioning tracer");
+      this.placement = checkNotNull(placement, "zone spreading placement");
+      this.locations = checkNotNull(locations, "locations");
    }
 
    @Override
@@ -106,18 +133,104 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
               .getOptions());
       assert template.getOptions().equals(templateOptions) : "options didn't clone properly";
 
-      // get or create the network and create a firewall with the users configuration
-      Network network = getOrCreateNetwork(templateOptions, sharedResourceName);
-      getOrCreateFirewall(templateOptions, network, sharedResourceName);
-      templateOptions.network(network.getSelfLink());
+      final ProvisioningTrace trace = tracer.startTrace(group, count);
+      Map<?, ListenableFuture<Void>> responses;
+      try {
+         // get or create the network and create a firewall with the users configuration
+         AtomicInteger polls = new AtomicInteger();
+         long start = tracer.start();
+         Network network = getOrCreateNetwork(templateOptions, sharedResourceName, polls);
+         tracer.record(trace, null, Phase.NETWORK, start, polls.getAndSet(0) - 1);
+         start = tracer.start();
+         getOrCreateFirewall(templateOptions, network, sharedResourceName, polls);
+         tracer.record(trace, null, Phase.FIREWALL, start, polls.get() - 1);
+         templateOptions.network(network.getSelfLink());
+         templateOptions.trace(trace);
+
+         responses = templateOptions.isSpreadAcrossZones() && count > 1
+                 ? executeAcrossZones(group, count, mutableTemplate, goodNodes, badNodes, customizationResponses)
+                 : super.execute(group, count, mutableTemplate, goodNodes, badNodes, customizationResponses);
+      } catch (RuntimeException e) {
+         tracer.finish(trace);
+         throw e;
+      }
+      for (final Map.Entry<?, ListenableFuture<Void>> response : responses.entrySet()) {
+         // the futures are keyed by node name, and are done once the node is running and was initialized
+         if (response.getKey() instanceof String) {
+            response.getValue().addListener(new Runnable() {
+               @Override
+               public void run() {
+                  tracer.customized(trace, (String) response.getKey());
+               }
+            }, sameThreadExecutor());
+         }
+      }
+      successfulAsList(responses.values()).addListener(new Runnable() {
+         @Override
+         public void run() {
+            tracer.finish(trace);
+         }
+      }, sameThreadExecutor());
+      return responses;
+   }
 
-      return super.execute(group, count, mutableTemplate, goodNodes, badNodes, customizationResponses);
+   /**
+    * Hands each zone its share of the nodes. The nodes of every share are created on the user executor, so the zones
+    * are filled in parallel and a zone that fails only fails its own share.
+    */
+   private Map<?, ListenableFuture<Void>> executeAcrossZones(String group, int count, Template template,
+                                                              Set<NodeMetadata> goodNodes,
+                                                              Map<NodeMetadata, Exception> badNodes,
+                                                              Multimap<NodeMetadata, CustomizationResponse>
+                                                                      customizationResponses) {
+      Map<String, Integer> shares = placement.place(template.getHardware().getId(), template.getLocation().getId(),
+              count);
+      Map<String, Location> zones = Maps.newHashMap();
+      for (Location location : locations.get()) {
+         zones.put(location.getId(), location);
+      }
+      // the names given to the nodes of a zone are not listed before the nodes are, so all of them are drawn first
+      Iterator<String> names = drawNames(group, template, count).iterator();
+      Map<Object, ListenableFuture<Void>> responses = Maps.newLinkedHashMap();
+      for (Map.Entry<String, Integer> share : shares.entrySet()) {
+         Location zone = zones.containsKey(share.getKey()) ? zones.get(share.getKey()) : template.getLocation();
+         Template zoneTemplate = new ZoneShareTemplate(template, zone,
+                 ImmutableSet.copyOf(Iterators.limit(names, share.getValue())));
+         responses.putAll(super.execute(group, share.getValue(), zoneTemplate, goodNodes, badNodes,
+                 customizationResponses));
+      }
+      return responses;
+   }
+
+   /**
+    * @throws IllegalStateException if {@code count} distinct names could not be drawn.
+    */
+   private Set<String> drawNames(String group, Template template, int count) {
+      Set<String> names = Sets.newLinkedHashSet();
+      for (int draws = 0; names.size() < count && draws < 10; draws++) {
+         names.addAll(super.getNextNames(group, template, count - names.size()));
+      }
+      checkState(names.size() >= count, "could only find %s free names for the %s nodes of group %s", names.size(),
+              count, group);
+      return names;
+   }
+
+   /**
+    * The nodes of a zone are given the names drawn for its share.
+    */
+   @Override
+   protected Set<String> getNextNames(String group, Template template, int count) {
+      if (template instanceof ZoneShareTemplate) {
+         return ((ZoneShareTemplate) template).names;
+      }
+      return super.getNextNames(group, template, count);
    }
 
    /**
     * Try and find a network either previously created by jclouds or user defined.
     */
-   private Network getOrCreateNetwork(GoogleComputeEngineTemplateOptions templateOptions, String sharedResourceName) {
+   private Network getOrCreateNetwork(GoogleComputeEngineTemplateOptions templateOptions, String sharedResourceName,
+                                      AtomicInteger polls) {
 
       String networkName = templateOptions.getNetworkName().or(sharedResourceName);
 
@@ -132,7 +245,7 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
 
       AtomicReference<Operation> operation = new AtomicReference<Operation>(api.getNetworkApiForProject(userProject
               .get()).createInIPv4Range(sharedResourceName, DEFAULT_INTERNAL_NETWORK_RANGE));
-      retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
+      retry(counting(operationDonePredicate, polls), operationCompleteCheckTimeout, operationCompleteCheckInterval,
               MILLISECONDS).apply(operation);
 
       checkState(!operation.get().getHttpError().isPresent(),"Could not create network, operation failed" + operation);
@@ -148,7 +261,7 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
     * @see org.jclouds.googlecomputeengine.features.FirewallAsyncApi#patch(String, org.jclouds.googlecomputeengine.options.FirewallOptions)
     */
    private void getOrCreateFirewall(GoogleComputeEngineTemplateOptions templateOptions, Network network,
-                                    String sharedResourceName) {
+                                    String sharedResourceName, AtomicInteger polls) {
 
       Firewall firewall = api.getFirewallApiForProject(userProject.get()).get(sharedResourceName);
 
@@ -183,11 +296,23 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet extends
               network.getSelfLink(),
               options));
 
-      retry(operationDonePredicate, operationCompleteCheckTimeout, operationCompleteCheckInterval,
+      retry(counting(operationDonePredicate, polls), operationCompleteCheckTimeout, operationCompleteCheckInterval,
               MILLISECONDS).apply(operation);
 
       checkState(!operation.get().getHttpError().isPresent(),"Could not create firewall, operation failed" + operation);
    }
 
+   /**
+    * The template of a zone's share of the nodes, which carries the names drawn for them.
+    */
+   private static final class ZoneShareTemplate extends TemplateImpl {
+      private final Set<String> names;
+
+      private ZoneShareTemplate(Template template, Location zone, Set<String> names) {
+         super(template.getImage(), template.getHardware(), zone, template.getOptions());
+         this.names = names;
+      }
+   }
+
 
 }
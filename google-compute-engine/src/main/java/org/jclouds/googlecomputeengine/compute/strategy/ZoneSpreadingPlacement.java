@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.strategy;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.config.UserProject;
+import org.jclouds.googlecomputeengine.domain.MachineType;
+import org.jclouds.googlecomputeengine.domain.Zone;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.MAINTENANCE_WINDOW_MARGIN;
+
+/**
+ * Decides how many of the nodes created together go to each zone, when they are spread across zones. A zone is
+ * eligible if it is UP, offers the machine type (per both {@link Zone#getAvailableMachineTypes()} and
+ * {@link MachineType#getAvailableZone()}, when GCE reports them) and has no maintenance window that is under way or
+ * begins within {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#MAINTENANCE_WINDOW_MARGIN}.
+ * <p/>
+ * The nodes are split evenly between the eligible zones, the requested zone first and the rest by name; if no zone is
+ * eligible they all go to the requested zone, which then fails the way it would have without spreading.
+ */
+@Beta
+@Singleton
+public class ZoneSpreadingPlacement {
+
+   private final GoogleComputeEngineApi api;
+   private final Supplier<String> userProject;
+   private final long maintenanceWindowMargin;
+
+   @Inject
+   ZoneSpreadingPlacement(GoogleComputeEngineApi api, @UserProject Supplier<String> userProject,
+                          @Named(MAINTENANCE_WINDOW_MARGIN) Long maintenanceWindowMargin) {
+      this.api = checkNotNull(api, "google compute api");
+      this.userProject = checkNotNull(userProject, "user project name");
+      this.maintenanceWindowMargin = checkNotNull(maintenanceWindowMargin, "maintenance window margin");
+   }
+
+   /**
+    * @param machineType   the name of the machine type of the nodes.
+    * @param requestedZone the name of the zone of the template.
+    * @return the number of nodes for each zone name, in the order the zones should be filled.
+    */
+   public Map<String, Integer> place(String machineType, String requestedZone, int count) {
+      return place(machineType, requestedZone, count, System.currentTimeMillis());
+   }
+
+   Map<String, Integer> place(String machineType, String requestedZone, int count, long now) {
+      checkNotNull(machineType, "machineType");
+      checkNotNull(requestedZone, "requestedZone");
+      checkArgument(count >= 0, "count must not be negative");
+      MachineType type = api.getMachineTypeApiForProject(userProject.get()).get(machineType);
+      Set<String> typeZones = type != null ? type.getAvailableZone() : Collections.<String>emptySet();
+
+      List<String> eligible = Lists.newArrayList();
+      for (Zone zone : api.getZoneApiForProject(userProject.get()).list().concat()) {
+         if (zone.getStatus() == Zone.Status.UP
+                 && (typeZones.isEmpty() || contains(typeZones, zone.getName()))
+                 && (zone.getAvailableMachineTypes().isEmpty()
+                 || contains(zone.getAvailableMachineTypes(), machineType))
+                 && !inMaintenance(zone, now)) {
+            eligible.add(zone.getName());
+         }
+      }
+      if (eligible.isEmpty()) {
+         return ImmutableMap.of(requestedZone, count);
+      }
+      Collections.sort(eligible);
+      if (eligible.remove(requestedZone)) {
+         eligible.add(0, requestedZone);
+      }
+
+      Map<String, Integer> placement = Maps.newLinkedHashMap();
+      int zones = Math.min(eligible.size(), Math.max(count, 1));
+      for (int i = 0; i < zones; i++) {
+         // the first zones take the remainder, one node each
+         placement.put(eligible.get(i), count / zones + (i < count % zones ? 1 : 0));
+      }
+      return placement;
+   }
+
+   private boolean inMaintenance(Zone zone, long now) {
+      for (Zone.MaintenanceWindow window : zone.getMaintenanceWindows()) {
+         if (window.getBeginTime().getTime() <= now + maintenanceWindowMargin
+                 && window.getEndTime().getTime() > now) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * GCE lists either the names or the URIs of the zones and machine types.
+    */
+   private static boolean contains(Set<String> namesOrUris, String name) {
+      for (String nameOrUri : namesOrUris) {
+         if (nameOrUri.equals(name) || nameOrUri.endsWith("/" + name)) {
+            return true;
+         }
+      }
+      return false;
+   }
+}
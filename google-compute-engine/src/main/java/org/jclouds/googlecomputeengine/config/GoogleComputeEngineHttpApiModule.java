@@ -29,8 +29,10 @@ import org.jclouds.domain.Credentials;
 import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineErrorHandler;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineRetryHandler;
 import org.jclouds.googlecomputeengine.predicates.OperationDonePredicate;
 import org.jclouds.http.HttpErrorHandler;
+import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.Uris;
 import org.jclouds.http.annotation.ClientError;
 import org.jclouds.http.annotation.Redirection;
@@ -73,6 +75,12 @@ public class GoogleComputeEngineHttpApiModule extends HttpApiModule<GoogleComput
       bind(HttpErrorHandler.class).annotatedWith(ServerError.class).to(GoogleComputeEngineErrorHandler.class);
    }
 
+   @Override
+   protected void bindRetryHandlers() {
+      bind(HttpRetryHandler.class).annotatedWith(ClientError.class).to(GoogleComputeEngineRetryHandler.class);
+      bind(HttpRetryHandler.class).annotatedWith(ServerError.class).to(GoogleComputeEngineRetryHandler.class);
+   }
+
    @Provides
    @Singleton
    @UserProject
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.config;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Ticker;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.util.Modules;
+import org.jclouds.googlecomputeengine.http.CatalogCachingHttpCommandExecutorService;
+import org.jclouds.googlecomputeengine.http.CoalescingHttpCommandExecutorService;
+import org.jclouds.googlecomputeengine.http.HedgingHttpCommandExecutorService;
+import org.jclouds.googlecomputeengine.instrumentation.ApiMetricsSink;
+import org.jclouds.googlecomputeengine.instrumentation.InstrumentedHttpCommandExecutorService;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.config.ConfiguresHttpCommandExecutorService;
+import org.jclouds.http.config.JavaUrlHttpCommandExecutorServiceModule;
+import org.jclouds.http.internal.JavaUrlHttpCommandExecutorService;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CACHE_CATALOG;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CATALOG_CACHE_MAX_BYTES;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.CATALOG_CACHE_TTL;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COALESCE_GETS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.HEDGE_BUDGET_RATIO;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.HEDGE_GETS;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.HEDGE_PERCENTILE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.INSTRUMENT_API_CALLS;
+
+/**
+ * Decorates the default java.net executor with the executors the context properties enable. Add it to the modules
+ * the context is built with, e.g.
+ * <pre>
+ * Properties overrides = new Properties();
+ * overrides.setProperty(GoogleComputeEngineConstants.INSTRUMENT_API_CALLS, "true");
+ * ContextBuilder.newBuilder("google-compute-engine")
+ *       .overrides(overrides)
+ *       .modules(ImmutableSet.of(new GoogleComputeEngineHttpCommandExecutorServiceModule()))
+ * </pre>
+ * The decorators are composed from the innermost out:
+ * <ul>
+ * <li>{@code jclouds.google-compute-engine.instrument-api-calls} records every call that reaches GCE with an
+ * {@link ApiMetricsSink}. Read the stats from the {@link org.jclouds.googlecomputeengine.instrumentation.ApiMetrics}
+ * instance of the context injector, or bind another sink.</li>
+ * <li>{@code jclouds.google-compute-engine.hedge-gets} hedges the slow gets of single resources, after
+ * {@code jclouds.google-compute-engine.hedge-percentile} of the observed latencies and within
+ * {@code jclouds.google-compute-engine.hedge-budget-ratio} of the gets. Each hedge is instrumented as a call of its
+ * own.</li>
+ * <li>{@code jclouds.google-compute-engine.cache-catalog} caches the zones, machine types, images and kernels for
+ * {@code jclouds.google-compute-engine.catalog-cache-ttl} msecs and up to
+ * {@code jclouds.google-compute-engine.catalog-cache-max-bytes}.</li>
+ * <li>{@code jclouds.google-compute-engine.coalesce-gets} shares one GET among the callers making it concurrently.
+ * Being outermost, the coalesced callers neither reach the other decorators nor take rate limiter permits.</li>
+ * </ul>
+ * With none of them enabled, the java.net executor is used as is.
+ */
+@Beta
+@ConfiguresHttpCommandExecutorService
+public class GoogleComputeEngineHttpCommandExecutorServiceModule extends AbstractModule {
+
+   @Override
+   protected void configure() {
+      install(Modules.override(new JavaUrlHttpCommandExecutorServiceModule()).with(new AbstractModule() {
+         @Override
+         protected void configure() {
+            // replaced by the decorated executor provided below
+         }
+
+         @Provides
+         @Singleton
+         HttpCommandExecutorService provideDecoratedExecutor(JavaUrlHttpCommandExecutorService delegate,
+                                                             @Named(INSTRUMENT_API_CALLS) boolean instrument,
+                                                             Provider<ApiMetricsSink> sink,
+                                                             @Named(HEDGE_GETS) boolean hedge,
+                                                             @Named(HEDGE_PERCENTILE) double hedgePercentile,
+                                                             @Named(HEDGE_BUDGET_RATIO) double hedgeBudgetRatio,
+                                                             @Named(CACHE_CATALOG) boolean cacheCatalog,
+                                                             @Named(CATALOG_CACHE_TTL) long catalogCacheTtl,
+                                                             @Named(CATALOG_CACHE_MAX_BYTES) long catalogCacheMaxBytes,
+                                                             @Named(COALESCE_GETS) boolean coalesce) {
+            HttpCommandExecutorService executor = delegate;
+            if (instrument) {
+               executor = new InstrumentedHttpCommandExecutorService(executor, sink.get(), Ticker.systemTicker());
+            }
+            if (hedge) {
+               executor = new HedgingHttpCommandExecutorService(executor, hedgePercentile, hedgeBudgetRatio,
+                       Ticker.systemTicker());
+            }
+            if (cacheCatalog) {
+               executor = new CatalogCachingHttpCommandExecutorService(executor, catalogCacheTtl,
+                       TimeUnit.MILLISECONDS, catalogCacheMaxBytes, Ticker.systemTicker());
+            }
+            if (coalesce) {
+               executor = new CoalescingHttpCommandExecutorService(executor);
+            }
+            return executor;
+         }
+      }));
+   }
+}
@@ -28,13 +28,21 @@ import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import org.jclouds.date.DateService;
 import org.jclouds.googlecomputeengine.domain.Firewall;
 import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
 import org.jclouds.googlecomputeengine.domain.Project;
+import org.jclouds.googlecomputeengine.json.InstanceTypeAdapter;
+import org.jclouds.googlecomputeengine.json.ListPageTypeAdapter;
+import org.jclouds.googlecomputeengine.json.MetadataTypeAdapter;
+import org.jclouds.googlecomputeengine.json.OperationTypeAdapter;
+import org.jclouds.googlecomputeengine.json.ValueInterner;
 import org.jclouds.googlecomputeengine.options.FirewallOptions;
 import org.jclouds.json.config.GsonModule;
 import org.jclouds.oauth.v2.domain.ClaimSet;
@@ -64,63 +72,26 @@ public class GoogleComputeEngineParserModule extends AbstractModule {
 
    @Provides
    @Singleton
-   public Map<Type, Object> provideCustomAdapterBindings() {
+   public Map<Type, Object> provideCustomAdapterBindings(DateService dateService, ValueInterner interner) {
+      InstanceTypeAdapter instanceTypeAdapter = new InstanceTypeAdapter(dateService, interner);
+      OperationTypeAdapter operationTypeAdapter = new OperationTypeAdapter(dateService, interner);
       return new ImmutableMap.Builder<Type, Object>()
-              .put(Metadata.class, new MetadataTypeAdapter())
-              .put(Operation.class, new OperationTypeAdapter())
+              .put(Metadata.class, new MetadataTypeAdapter(interner))
+              .put(Operation.class, operationTypeAdapter)
+              .put(new TypeToken<ListPage<Operation>>() {}.getType(),
+                      new ListPageTypeAdapter<Operation>(operationTypeAdapter))
               .put(Header.class, new HeaderTypeAdapter())
               .put(ClaimSet.class, new ClaimSetTypeAdapter())
               .put(Project.class, new ProjectTypeAdapter())
-              .put(Instance.class, new InstanceTypeAdapter())
+              .put(Instance.class, instanceTypeAdapter)
+              .put(new TypeToken<ListPage<Instance>>() {}.getType(),
+                      new ListPageTypeAdapter<Instance>(instanceTypeAdapter))
               .put(InstanceTemplate.class, new InstanceTemplateTypeAdapter())
               .put(FirewallOptions.class, new FirewallOptionsTypeAdapter())
               .put(Rule.class, new RuleTypeAdapter())
               .build();
    }
 
-   /**
-    * Parser for operations that unwraps errors avoiding an extra intermediate object.
-    *
-    * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/operations"/>
-    */
-   @Singleton
-   private static class OperationTypeAdapter implements JsonDeserializer<Operation> {
-
-      @Override
-      public Operation deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
-              JsonParseException {
-         Operation.Builder operationBuilder = ((Operation) context.deserialize(json,
-                 OperationInternal.class)).toBuilder();
-         JsonObject error = json.getAsJsonObject().getAsJsonObject("error");
-         if (error != null) {
-            JsonArray array = error.getAsJsonArray("errors");
-            if (array != null) {
-               for (JsonElement element : array) {
-                  operationBuilder.addError((Operation.Error) context.deserialize(element, Operation.Error.class));
-               }
-            }
-         }
-         return operationBuilder.build();
-      }
-
-      private static class OperationInternal extends Operation {
-         @ConstructorProperties({
-                 "id", "creationTimestamp", "selfLink", "name", "description", "targetLink", "targetId",
-                 "clientOperationId", "status", "statusMessage", "user", "progress", "insertTime", "startTime",
-                 "endTime", "httpErrorStatusCode", "httpErrorMessage", "operationType"
-         })
-         private OperationInternal(String id, Date creationTimestamp, URI selfLink, String name,
-                                   String description, URI targetLink, String targetId, String clientOperationId,
-                                   Status status, String statusMessage, String user, int progress, Date insertTime,
-                                   Date startTime, Date endTime, int httpErrorStatusCode, String httpErrorMessage,
-                                   String operationType) {
-            super(id, creationTimestamp, selfLink, name, description, targetLink, targetId, clientOperationId,
-                    status, statusMessage, user, progress, insertTime, startTime, endTime, httpErrorStatusCode,
-                    httpErrorMessage, operationType, null);
-         }
-      }
-   }
-
    @Singleton
    private static class InstanceTemplateTypeAdapter implements JsonSerializer<InstanceTemplate> {
 
@@ -171,87 +142,6 @@ public class GoogleComputeEngineParserModule extends AbstractModule {
       }
    }
 
-   @Singleton
-   private static class InstanceTypeAdapter implements JsonDeserializer<Instance> {
-
-      @Override
-      public Instance deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
-              JsonParseException {
-         Instance.Builder instanceBuilder = ((Instance) context.deserialize(json,
-                 InstanceInternal.class)).toBuilder();
-         JsonObject object = (JsonObject) json;
-         if (object.get("disks") != null) {
-            JsonArray disks = (JsonArray) object.get("disks");
-            for (JsonElement element : disks) {
-               JsonObject disk = (JsonObject) element;
-               if (disk.get("type").getAsString().equals("PERSISTENT")) {
-                  instanceBuilder.addDisk((Instance.PersistentAttachedDisk) context.deserialize(disk,
-                          Instance.PersistentAttachedDisk.class));
-               } else {
-                  instanceBuilder.addDisk((Instance.AttachedDisk) context.deserialize(disk,
-                          Instance.AttachedDisk.class));
-               }
-            }
-
-         }
-
-         return Instance.builder().fromInstance(instanceBuilder.build()).build();
-      }
-
-
-      private static class InstanceInternal extends Instance {
-         @ConstructorProperties({
-                 "id", "creationTimestamp", "selfLink", "name", "description", "tags", "image", "machineType",
-                 "status", "statusMessage", "zone", "networkInterfaces", "metadata", "serviceAccounts"
-         })
-         private InstanceInternal(String id, Date creationTimestamp, URI selfLink, String name, String description,
-                                  Set<String> tags, URI image, URI machineType, Status status, String statusMessage,
-                                  URI zone, Set<NetworkInterface> networkInterfaces, Metadata metadata,
-                                  Set<ServiceAccount> serviceAccounts) {
-            super(id, creationTimestamp, selfLink, name, description, tags, image, machineType,
-                    status, statusMessage, zone, networkInterfaces, null, metadata, serviceAccounts);
-         }
-      }
-   }
-
-   /**
-    * Parser for Metadata.
-    */
-   @Singleton
-   private static class MetadataTypeAdapter implements JsonDeserializer<Metadata>, JsonSerializer<Metadata> {
-
-
-      @Override
-      public Metadata deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
-              JsonParseException {
-         ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-         JsonObject metadata = json.getAsJsonObject();
-         JsonArray items = metadata.getAsJsonArray("items");
-         if (items != null) {
-            for (JsonElement element : items) {
-               JsonObject object = element.getAsJsonObject();
-               builder.put(object.get("key").getAsString(), object.get("value").getAsString());
-            }
-         }
-         return new Metadata(builder.build());
-      }
-
-      @Override
-      public JsonElement serialize(Metadata src, Type typeOfSrc, JsonSerializationContext context) {
-         JsonObject metadataObject = new JsonObject();
-         metadataObject.add("kind", new JsonPrimitive("compute#metadata"));
-         JsonArray items = new JsonArray();
-         for (Map.Entry<String, String> entry : src.entrySet()) {
-            JsonObject object = new JsonObject();
-            object.addProperty("key", entry.getKey());
-            object.addProperty("value", entry.getValue());
-            items.add(object);
-         }
-         metadataObject.add("items", items);
-         return metadataObject;
-      }
-   }
-
    public static class Metadata extends ForwardingMap<String, String> {
 
       private final Map<String, String> delegate;
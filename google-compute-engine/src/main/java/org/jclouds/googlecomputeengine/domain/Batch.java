@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.domain;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Gets, deletes and inserts that are sent together, as a single multipart request, with
+ * {@link org.jclouds.googlecomputeengine.features.BatchApi#execute(Batch)}.
+ * <p/>
+ * Each method of the builder queues a call and returns it, so that its result can be read from the
+ * {@link BatchResponse}, e.g.
+ * <pre>
+ * Batch.Builder batch = Batch.builder();
+ * Batch.Call&lt;Operation&gt; delete = batch.deleteInstance("myproject", "test-0");
+ * BatchResponse response = api.getBatchApi().execute(batch.build());
+ * Operation operation = response.get(delete);
+ * </pre>
+ */
+@Beta
+public final class Batch {
+
+   /**
+    * The most calls GCE accepts in a batch.
+    */
+   public static final int MAX_CALLS = 1000;
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   private final List<Call<?>> calls;
+
+   private Batch(List<Call<?>> calls) {
+      this.calls = ImmutableList.copyOf(calls);
+   }
+
+   public List<Call<?>> getCalls() {
+      return calls;
+   }
+
+   @Override
+   public String toString() {
+      return toStringHelper(this).add("calls", calls).toString();
+   }
+
+   /**
+    * A call in a batch, whose result is of type {@code T}.
+    */
+   public static final class Call<T> {
+      private final String contentId;
+      private final String method;
+      private final String path;
+      private final Optional<Object> payload;
+      private final Class<T> resultType;
+
+      private Call(String contentId, String method, String path, Optional<Object> payload, Class<T> resultType) {
+         this.contentId = contentId;
+         this.method = method;
+         this.path = path;
+         this.payload = payload;
+         this.resultType = resultType;
+      }
+
+      /**
+       * @return the id that matches the call with its response in the batch.
+       */
+      public String getContentId() {
+         return contentId;
+      }
+
+      public String getMethod() {
+         return method;
+      }
+
+      /**
+       * @return the path of the call, relative to the api endpoint, e.g. {@code /projects/myproject/instances/test-0}.
+       */
+      public String getPath() {
+         return path;
+      }
+
+      /**
+       * @return the resource sent with the call, serialized as json.
+       */
+      public Optional<Object> getPayload() {
+         return payload;
+      }
+
+      public Class<T> getResultType() {
+         return resultType;
+      }
+
+      @Override
+      public String toString() {
+         return toStringHelper(this).omitNullValues().add("contentId", contentId).add("method", method)
+                 .add("path", path).add("payload", payload.orNull()).toString();
+      }
+   }
+
+   public static final class Builder {
+
+      private final List<Call<?>> calls = Lists.newArrayList();
+
+      public Call<Instance> getInstance(String projectName, String instanceName) {
+         return get(projectName, "instances", instanceName, Instance.class);
+      }
+
+      public Call<Operation> deleteInstance(String projectName, String instanceName) {
+         return delete(projectName, "instances", instanceName);
+      }
+
+      public Call<Disk> getDisk(String projectName, String diskName) {
+         return get(projectName, "disks", diskName, Disk.class);
+      }
+
+      public Call<Operation> deleteDisk(String projectName, String diskName) {
+         return delete(projectName, "disks", diskName);
+      }
+
+      public Call<Firewall> getFirewall(String projectName, String firewallName) {
+         return get(projectName, "firewalls", firewallName, Firewall.class);
+      }
+
+      public Call<Operation> deleteFirewall(String projectName, String firewallName) {
+         return delete(projectName, "firewalls", firewallName);
+      }
+
+      public Call<Operation> getOperation(String projectName, String operationName) {
+         return get(projectName, "operations", operationName, Operation.class);
+      }
+
+      /**
+       * Queues a get of a resource, whose result is null if the resource does not exist.
+       */
+      public <T> Call<T> get(String projectName, String collection, String name, Class<T> resultType) {
+         return add("GET", path(projectName, collection, checkNotNull(name, "name")), null, resultType);
+      }
+
+      /**
+       * Queues a delete of a resource, whose result is null if the resource does not exist.
+       */
+      public Call<Operation> delete(String projectName, String collection, String name) {
+         return add("DELETE", path(projectName, collection, checkNotNull(name, "name")), null, Operation.class);
+      }
+
+      /**
+       * Queues an insert of a resource, sent as its json representation. Unlike the feature apis, which resolve
+       * e.g. machine type names into urls, the resource must be given as GCE expects it.
+       */
+      public Call<Operation> insert(String projectName, String collection, Object resource) {
+         return add("POST", path(projectName, collection, null), checkNotNull(resource, "resource"), Operation.class);
+      }
+
+      public Batch build() {
+         checkState(!calls.isEmpty(), "a batch needs at least one call");
+         return new Batch(calls);
+      }
+
+      private <T> Call<T> add(String method, String path, Object payload, Class<T> resultType) {
+         checkState(calls.size() < MAX_CALLS, "a batch can't have more than %s calls", MAX_CALLS);
+         Call<T> call = new Call<T>(Integer.toString(calls.size() + 1), method, path, Optional.fromNullable(payload),
+                 checkNotNull(resultType, "resultType"));
+         calls.add(call);
+         return call;
+      }
+
+      private static String path(String projectName, String collection, String name) {
+         checkNotNull(projectName, "projectName");
+         checkArgument(!checkNotNull(collection, "collection").contains("/"), "invalid collection %s", collection);
+         return "/projects/" + projectName + "/" + collection + (name != null ? "/" + name : "");
+      }
+   }
+}
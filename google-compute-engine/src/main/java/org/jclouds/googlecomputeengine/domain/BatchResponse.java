@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.domain;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The results of the calls of a {@link Batch}. Each call succeeds or fails on its own, so a failed call only fails
+ * when its result is read.
+ */
+@Beta
+public final class BatchResponse {
+
+   private final Map<String, Optional<Object>> results;
+   private final Map<String, Exception> failures;
+
+   /**
+    * @param results  the results of the calls that succeeded, keyed by content id, absent when the resource was not
+    *                 found.
+    * @param failures the exceptions of the calls that failed, keyed by content id.
+    */
+   public BatchResponse(Map<String, Optional<Object>> results, Map<String, Exception> failures) {
+      this.results = ImmutableMap.copyOf(checkNotNull(results, "results"));
+      this.failures = ImmutableMap.copyOf(checkNotNull(failures, "failures"));
+   }
+
+   /**
+    * @return the result of the call, or null if the resource was not found.
+    * @throws RuntimeException the exception the call failed with, as the equivalent feature api would have thrown it.
+    */
+   public <T> T get(Batch.Call<T> call) {
+      Optional<Exception> failure = getFailure(call);
+      if (failure.isPresent()) {
+         throw Throwables.propagate(failure.get());
+      }
+      return call.getResultType().cast(results.get(call.getContentId()).orNull());
+   }
+
+   /**
+    * @return the exception the call failed with, if it did.
+    */
+   public Optional<Exception> getFailure(Batch.Call<?> call) {
+      String contentId = checkNotNull(call, "call").getContentId();
+      checkArgument(results.containsKey(contentId) || failures.containsKey(contentId), "%s is not in the batch",
+              call);
+      return Optional.fromNullable(failures.get(contentId));
+   }
+
+   @Override
+   public String toString() {
+      return toStringHelper(this).add("results", results).add("failures", failures).toString();
+   }
+}
@@ -69,11 +69,11 @@ public class Instance extends Resource {
                       Map<String, String> metadata, Set<ServiceAccount> serviceAccounts) {
       super(Kind.INSTANCE, id, creationTimestamp, selfLink, name, description);
       this.tags = tags == null ? ImmutableSet.<String>of() : tags;
-      this.image = checkNotNull(image, "image");
-      this.machineType = checkNotNull(machineType, "machineType of %s", name);
-      this.status = checkNotNull(status, "status");
+      this.image = image;
+      this.machineType = machineType;
+      this.status = status;
       this.statusMessage = fromNullable(statusMessage);
-      this.zone = checkNotNull(zone, "zone of %s", name);
+      this.zone = zone;
       this.networkInterfaces = networkInterfaces == null ? ImmutableSet.<NetworkInterface>of() : networkInterfaces;
       this.disks = disks == null ? ImmutableSet.<AttachedDisk>of() : disks;
       this.metadata = metadata == null ? ImmutableMap.<String, String>of() : metadata;
@@ -91,22 +91,28 @@ public class Instance extends Resource {
    }
 
    /**
-    * @return the URL of the disk image resource to be to be installed on this instance.
+    * @return the URL of the disk image resource to be to be installed on this instance, null if it was left out of a
+    *         partial response.
+    * @see org.jclouds.googlecomputeengine.options.GetOptions#fields(String)
     */
+   @Nullable
    public URI getImage() {
       return image;
    }
 
    /**
-    * @return URL of the machine type resource describing which machine type to use to host the instance.
+    * @return URL of the machine type resource describing which machine type to use to host the instance, null if it
+    *         was left out of a partial response.
     */
+   @Nullable
    public URI getMachineType() {
       return machineType;
    }
 
    /**
-    * @return Instance status
+    * @return Instance status, null if it was left out of a partial response.
     */
+   @Nullable
    public Status getStatus() {
       return status;
    }
@@ -121,8 +127,9 @@ public class Instance extends Resource {
 
    /**
     * @return URL of the zone resource describing where this instance should be hosted; provided by the client when
-    *         the instance is created.
+    *         the instance is created. Null if it was left out of a partial response.
     */
+   @Nullable
    public URI getZone() {
       return zone;
    }
@@ -560,22 +567,25 @@ public class Instance extends Resource {
       })
       private NetworkInterface(String name, URI network, String networkIP,
                                Set<AccessConfig> accessConfigs) {
-         this.name = checkNotNull(name, "name");
-         this.network = checkNotNull(network, "network");
+         this.name = name;
+         this.network = network;
          this.networkIP = fromNullable(networkIP);
          this.accessConfigs = accessConfigs == null ? ImmutableSet.<AccessConfig>of() : accessConfigs;
       }
 
       /**
-       * @return the name of the network interface
+       * @return the name of the network interface, null if it was left out of a partial response.
        */
+      @Nullable
       public String getName() {
          return name;
       }
 
       /**
-       * @return URL of the network resource attached to this interface.
+       * @return URL of the network resource attached to this interface, null if it was left out of a partial
+       *         response.
        */
+      @Nullable
       public URI getNetwork() {
          return network;
       }
@@ -721,7 +731,7 @@ public class Instance extends Resource {
          })
          private AccessConfig(String name, Type type, String natIP) {
             this.name = fromNullable(name);
-            this.type = checkNotNull(type, "type");
+            this.type = type;
             this.natIP = fromNullable(natIP);
          }
 
@@ -734,8 +744,9 @@ public class Instance extends Resource {
 
          /**
           * @return type of configuration. Must be set to ONE_TO_ONE_NAT. This configures port-for-port NAT to the
-          *         internet.
+          *         internet. Null if it was left out of a partial response.
           */
+         @Nullable
          public Type getType() {
             return type;
          }
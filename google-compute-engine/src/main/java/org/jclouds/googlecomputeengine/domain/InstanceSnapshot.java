@@ -0,0 +1,587 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.domain;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.UnmodifiableIterator;
+import com.google.common.net.InetAddresses;
+import com.google.common.primitives.UnsignedLongs;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.googlecomputeengine.domain.Instance.AttachedDisk;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig;
+import org.jclouds.googlecomputeengine.domain.Instance.PersistentAttachedDisk;
+import org.jclouds.googlecomputeengine.domain.Instance.ServiceAccount;
+import org.jclouds.javax.annotation.Nullable;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * A compact, read-only copy of a set of instances, meant for inventories of hundreds of thousands of instances.
+ * <p/>
+ * Instead of one object graph per instance, every field is held in a column of primitives: strings, URIs and the
+ * sets and maps that instances have in common, like tags, metadata and service accounts, are stored once in a
+ * dictionary and referenced by index, addresses are packed into ints and ids into longs. {@link Entry} is a
+ * flyweight over a row with the same getters as {@link Instance}; the values that aren't stored as is, e.g. the
+ * network interfaces, are rebuilt each time they are read.
+ */
+@Beta
+public final class InstanceSnapshot implements Iterable<InstanceSnapshot.Entry> {
+
+   private static final int ABSENT = -1;
+   private static final int PACKED_IPV4 = -2;
+   private static final byte EPHEMERAL = -1;
+   private static final Instance.Status[] STATUSES = Instance.Status.values();
+   private static final AccessConfig.Type[] ACCESS_CONFIG_TYPES = AccessConfig.Type.values();
+   private static final PersistentAttachedDisk.Mode[] DISK_MODES = PersistentAttachedDisk.Mode.values();
+
+   /**
+    * Copies the instances in every page, a page at a time.
+    */
+   public static InstanceSnapshot copyOf(PagedIterable<Instance> instances) {
+      return copyOf(checkNotNull(instances, "instances").concat());
+   }
+
+   public static InstanceSnapshot copyOf(Iterable<Instance> instances) {
+      Builder builder = new Builder();
+      for (Instance instance : checkNotNull(instances, "instances")) {
+         builder.add(instance);
+      }
+      return builder.build();
+   }
+
+   private final int size;
+   private final Object[] dictionary;
+   private final String[] names;
+   // ids are unsigned 64 bit numbers, and only kept as strings if one of them isn't
+   private final long[] ids;
+   private final String[] stringIds;
+   private final long[] creationTimestamps;
+   // self links are stored without the trailing instance name, which is appended back on read
+   private final int[] selfLinks;
+   private final BitSet selfLinkEndsWithName;
+   private final int[] descriptions;
+   private final int[] tags;
+   private final int[] images;
+   private final int[] machineTypes;
+   private final byte[] statuses;
+   private final int[] statusMessages;
+   private final int[] zones;
+   private final int[] metadata;
+   private final int[] serviceAccounts;
+   private final int[] firstNetworkInterface;
+   private final int[] networkInterfaceNames;
+   private final int[] networkInterfaceNetworks;
+   private final int[] networkIPs;
+   private final int[] networkIPRefs;
+   private final int[] firstAccessConfig;
+   private final int[] accessConfigNames;
+   private final byte[] accessConfigTypes;
+   private final int[] natIPs;
+   private final int[] natIPRefs;
+   private final int[] firstDisk;
+   private final int[] diskIndexes;
+   private final byte[] diskModes;
+   private final int[] diskSources;
+   private final int[] diskDeviceNames;
+   private final BitSet diskDeleteOnTerminate;
+   private final int[] byName;
+   private final int[] byId;
+
+   private InstanceSnapshot(Builder builder) {
+      this.size = builder.names.size();
+      this.dictionary = builder.dictionary.toArray();
+      this.names = builder.names.toArray(new String[size]);
+      long[] numericIds = new long[size];
+      String[] ids = builder.ids.toArray(new String[size]);
+      try {
+         for (int row = 0; row < size; row++) {
+            numericIds[row] = UnsignedLongs.parseUnsignedLong(ids[row]);
+         }
+      } catch (NumberFormatException e) {
+         numericIds = null;
+      }
+      this.ids = numericIds;
+      this.stringIds = numericIds == null ? ids : null;
+      this.creationTimestamps = builder.creationTimestamps.toArray();
+      this.selfLinks = builder.selfLinks.toArray();
+      this.selfLinkEndsWithName = builder.selfLinkEndsWithName;
+      this.descriptions = builder.descriptions.toArray();
+      this.tags = builder.tags.toArray();
+      this.images = builder.images.toArray();
+      this.machineTypes = builder.machineTypes.toArray();
+      this.statuses = builder.statuses.toByteArray();
+      this.statusMessages = builder.statusMessages.toArray();
+      this.zones = builder.zones.toArray();
+      this.metadata = builder.metadata.toArray();
+      this.serviceAccounts = builder.serviceAccounts.toArray();
+      this.firstNetworkInterface = builder.firstNetworkInterface.toArray();
+      this.networkInterfaceNames = builder.networkInterfaceNames.toArray();
+      this.networkInterfaceNetworks = builder.networkInterfaceNetworks.toArray();
+      this.networkIPs = builder.networkIPs.toArray();
+      this.networkIPRefs = builder.networkIPRefs.toArray();
+      this.firstAccessConfig = builder.firstAccessConfig.toArray();
+      this.accessConfigNames = builder.accessConfigNames.toArray();
+      this.accessConfigTypes = builder.accessConfigTypes.toByteArray();
+      this.natIPs = builder.natIPs.toArray();
+      this.natIPRefs = builder.natIPRefs.toArray();
+      this.firstDisk = builder.firstDisk.toArray();
+      this.diskIndexes = builder.diskIndexes.toArray();
+      this.diskModes = builder.diskModes.toByteArray();
+      this.diskSources = builder.diskSources.toArray();
+      this.diskDeviceNames = builder.diskDeviceNames.toArray();
+      this.diskDeleteOnTerminate = builder.diskDeleteOnTerminate;
+      this.byName = new int[tableSize(size)];
+      this.byId = new int[tableSize(size)];
+      for (int row = 0; row < size; row++) {
+         put(byName, names[row].hashCode(), row);
+         put(byId, idHash(row), row);
+      }
+   }
+
+   /**
+    * @return the number of instances in the snapshot.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * @return the instance at the given position, in the order they were copied.
+    */
+   public Entry get(int row) {
+      checkElementIndex(row, size, "row");
+      return new Entry(row);
+   }
+
+   public Optional<Entry> getByName(String name) {
+      checkNotNull(name, "name");
+      int mask = byName.length - 1;
+      for (int slot = smear(name.hashCode()) & mask; byName[slot] != 0; slot = (slot + 1) & mask) {
+         int row = byName[slot] - 1;
+         if (names[row].equals(name)) {
+            return Optional.of(new Entry(row));
+         }
+      }
+      return Optional.absent();
+   }
+
+   public Optional<Entry> getById(String id) {
+      checkNotNull(id, "id");
+      long numericId = 0;
+      if (ids != null) {
+         try {
+            numericId = UnsignedLongs.parseUnsignedLong(id);
+         } catch (NumberFormatException e) {
+            return Optional.absent();
+         }
+      }
+      int mask = byId.length - 1;
+      int hash = ids != null ? hash(numericId) : id.hashCode();
+      for (int slot = smear(hash) & mask; byId[slot] != 0; slot = (slot + 1) & mask) {
+         int row = byId[slot] - 1;
+         if (ids != null ? ids[row] == numericId : stringIds[row].equals(id)) {
+            return Optional.of(new Entry(row));
+         }
+      }
+      return Optional.absent();
+   }
+
+   @Override
+   public Iterator<Entry> iterator() {
+      return new UnmodifiableIterator<Entry>() {
+         private int row;
+
+         @Override
+         public boolean hasNext() {
+            return row < size;
+         }
+
+         @Override
+         public Entry next() {
+            if (!hasNext()) {
+               throw new NoSuchElementException();
+            }
+            return new Entry(row++);
+         }
+      };
+   }
+
+   @Override
+   public String toString() {
+      return "InstanceSnapshot{size=" + size + ", dictionary=" + dictionary.length + "}";
+   }
+
+   /**
+    * A view of one instance of the snapshot, with the same getters as {@link Instance}.
+    */
+   public final class Entry {
+
+      private final int row;
+
+      private Entry(int row) {
+         this.row = row;
+      }
+
+      public String getId() {
+         return ids != null ? UnsignedLongs.toString(ids[row]) : stringIds[row];
+      }
+
+      public String getName() {
+         return names[row];
+      }
+
+      public URI getSelfLink() {
+         String selfLink = (String) dictionary[selfLinks[row]];
+         return URI.create(selfLinkEndsWithName.get(row) ? selfLink + names[row] : selfLink);
+      }
+
+      public Optional<Date> getCreationTimestamp() {
+         long timestamp = creationTimestamps[row];
+         return timestamp == Long.MIN_VALUE ? Optional.<Date>absent() : Optional.of(new Date(timestamp));
+      }
+
+      public Optional<String> getDescription() {
+         return Optional.fromNullable(InstanceSnapshot.this.<String>lookup(descriptions[row]));
+      }
+
+      @SuppressWarnings("unchecked")
+      public Set<String> getTags() {
+         return (Set<String>) dictionary[tags[row]];
+      }
+
+      @Nullable
+      public URI getImage() {
+         return lookup(images[row]);
+      }
+
+      @Nullable
+      public URI getMachineType() {
+         return lookup(machineTypes[row]);
+      }
+
+      @Nullable
+      public Instance.Status getStatus() {
+         byte status = statuses[row];
+         return status == ABSENT ? null : STATUSES[status];
+      }
+
+      public Optional<String> getStatusMessage() {
+         return Optional.fromNullable(InstanceSnapshot.this.<String>lookup(statusMessages[row]));
+      }
+
+      @Nullable
+      public URI getZone() {
+         return lookup(zones[row]);
+      }
+
+      public Set<NetworkInterface> getNetworkInterfaces() {
+         ImmutableSet.Builder<NetworkInterface> networkInterfaces = ImmutableSet.builder();
+         for (int nic = firstNetworkInterface[row]; nic < firstNetworkInterface[row + 1]; nic++) {
+            NetworkInterface.Builder networkInterface = NetworkInterface.builder()
+                    .name(InstanceSnapshot.this.<String>lookup(networkInterfaceNames[nic]))
+                    .network(InstanceSnapshot.this.<URI>lookup(networkInterfaceNetworks[nic]))
+                    .networkIP(address(networkIPs[nic], networkIPRefs[nic]));
+            for (int ac = firstAccessConfig[nic]; ac < firstAccessConfig[nic + 1]; ac++) {
+               byte type = accessConfigTypes[ac];
+               networkInterface.addAccessConfig(AccessConfig.builder()
+                       .name(InstanceSnapshot.this.<String>lookup(accessConfigNames[ac]))
+                       .type(type == ABSENT ? null : ACCESS_CONFIG_TYPES[type])
+                       .natIP(address(natIPs[ac], natIPRefs[ac])).build());
+            }
+            networkInterfaces.add(networkInterface.build());
+         }
+         return networkInterfaces.build();
+      }
+
+      public Set<AttachedDisk> getDisks() {
+         ImmutableSet.Builder<AttachedDisk> disks = ImmutableSet.builder();
+         for (int disk = firstDisk[row]; disk < firstDisk[row + 1]; disk++) {
+            byte mode = diskModes[disk];
+            disks.add(mode == EPHEMERAL ? AttachedDisk.ephemeralDiskAtIndex(diskIndexes[disk])
+                    : PersistentAttachedDisk.builder()
+                    .index(diskIndexes[disk])
+                    .mode(DISK_MODES[mode])
+                    .source(URI.create((String) dictionary[diskSources[disk]]))
+                    .deviceName(InstanceSnapshot.this.<String>lookup(diskDeviceNames[disk]))
+                    .deleteOnTerminate(diskDeleteOnTerminate.get(disk)).build());
+         }
+         return disks.build();
+      }
+
+      @SuppressWarnings("unchecked")
+      public Map<String, String> getMetadata() {
+         return (Map<String, String>) dictionary[metadata[row]];
+      }
+
+      @SuppressWarnings("unchecked")
+      public Set<ServiceAccount> getServiceAccounts() {
+         return (Set<ServiceAccount>) dictionary[serviceAccounts[row]];
+      }
+
+      /**
+       * @return a full copy of the instance.
+       */
+      public Instance toInstance() {
+         return Instance.builder()
+                 .id(getId())
+                 .creationTimestamp(getCreationTimestamp().orNull())
+                 .selfLink(getSelfLink())
+                 .name(getName())
+                 .description(getDescription().orNull())
+                 .tags(getTags())
+                 .image(getImage())
+                 .machineType(getMachineType())
+                 .status(getStatus())
+                 .statusMessage(getStatusMessage().orNull())
+                 .zone(getZone())
+                 .networkInterfaces(getNetworkInterfaces())
+                 .disks(getDisks())
+                 .metadata(getMetadata())
+                 .serviceAccoutns(getServiceAccounts())
+                 .build();
+      }
+
+      @Override
+      public String toString() {
+         return toInstance().toString();
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private <T> T lookup(int index) {
+      return index == ABSENT ? null : (T) dictionary[index];
+   }
+
+   private String address(int packed, int ref) {
+      if (ref == PACKED_IPV4) {
+         return InetAddresses.fromInteger(packed).getHostAddress();
+      }
+      return lookup(ref);
+   }
+
+   private int idHash(int row) {
+      return ids != null ? hash(ids[row]) : stringIds[row].hashCode();
+   }
+
+   private static int hash(long id) {
+      return (int) (id ^ (id >>> 32));
+   }
+
+   private static int smear(int hash) {
+      // spreads the high bits, as the tables are indexed by the low ones
+      int smeared = hash * 0x9E3779B9;
+      return smeared ^ (smeared >>> 16);
+   }
+
+   private static int tableSize(int size) {
+      // a load factor of at most one half keeps the linear probes short
+      return Integer.highestOneBit(Math.max(size, 1) * 2) * 2;
+   }
+
+   private static void put(int[] table, int hash, int row) {
+      int mask = table.length - 1;
+      int slot = smear(hash) & mask;
+      while (table[slot] != 0) {
+         slot = (slot + 1) & mask;
+      }
+      table[slot] = row + 1;
+   }
+
+   private static final class Builder {
+
+      private final Map<Object, Integer> indexes = Maps.newHashMap();
+      private final List<Object> dictionary = newArrayList();
+      private final List<String> names = newArrayList();
+      private final List<String> ids = newArrayList();
+      private final LongColumn creationTimestamps = new LongColumn();
+      private final IntColumn selfLinks = new IntColumn();
+      private final BitSet selfLinkEndsWithName = new BitSet();
+      private final IntColumn descriptions = new IntColumn();
+      private final IntColumn tags = new IntColumn();
+      private final IntColumn images = new IntColumn();
+      private final IntColumn machineTypes = new IntColumn();
+      private final IntColumn statuses = new IntColumn();
+      private final IntColumn statusMessages = new IntColumn();
+      private final IntColumn zones = new IntColumn();
+      private final IntColumn metadata = new IntColumn();
+      private final IntColumn serviceAccounts = new IntColumn();
+      private final IntColumn firstNetworkInterface = new IntColumn();
+      private final IntColumn networkInterfaceNames = new IntColumn();
+      private final IntColumn networkInterfaceNetworks = new IntColumn();
+      private final IntColumn networkIPs = new IntColumn();
+      private final IntColumn networkIPRefs = new IntColumn();
+      private final IntColumn firstAccessConfig = new IntColumn();
+      private final IntColumn accessConfigNames = new IntColumn();
+      private final IntColumn accessConfigTypes = new IntColumn();
+      private final IntColumn natIPs = new IntColumn();
+      private final IntColumn natIPRefs = new IntColumn();
+      private final IntColumn firstDisk = new IntColumn();
+      private final IntColumn diskIndexes = new IntColumn();
+      private final IntColumn diskModes = new IntColumn();
+      private final IntColumn diskSources = new IntColumn();
+      private final IntColumn diskDeviceNames = new IntColumn();
+      private final BitSet diskDeleteOnTerminate = new BitSet();
+
+      private Builder() {
+         firstNetworkInterface.add(0);
+         firstAccessConfig.add(0);
+         firstDisk.add(0);
+      }
+
+      private void add(Instance instance) {
+         int row = names.size();
+         String name = instance.getName();
+         names.add(name);
+         ids.add(instance.getId());
+         creationTimestamps.add(instance.getCreationTimestamp().isPresent()
+                 ? instance.getCreationTimestamp().get().getTime() : Long.MIN_VALUE);
+         String selfLink = instance.getSelfLink().toString();
+         if (selfLink.endsWith("/" + name)) {
+            selfLinkEndsWithName.set(row);
+            selfLink = selfLink.substring(0, selfLink.length() - name.length());
+         }
+         selfLinks.add(encode(selfLink));
+         descriptions.add(encode(instance.getDescription().orNull()));
+         tags.add(encode(ImmutableSet.copyOf(instance.getTags())));
+         images.add(encode(instance.getImage()));
+         machineTypes.add(encode(instance.getMachineType()));
+         statuses.add(instance.getStatus() == null ? ABSENT : instance.getStatus().ordinal());
+         statusMessages.add(encode(instance.getStatusMessage().orNull()));
+         zones.add(encode(instance.getZone()));
+         metadata.add(encode(ImmutableMap.copyOf(instance.getMetadata())));
+         serviceAccounts.add(encode(ImmutableSet.copyOf(instance.getServiceAccounts())));
+         for (NetworkInterface networkInterface : instance.getNetworkInterfaces()) {
+            networkInterfaceNames.add(encode(networkInterface.getName()));
+            networkInterfaceNetworks.add(encode(networkInterface.getNetwork()));
+            addAddress(networkInterface.getNetworkIP().orNull(), networkIPs, networkIPRefs);
+            for (AccessConfig accessConfig : networkInterface.getAccessConfigs()) {
+               accessConfigNames.add(encode(accessConfig.getName().orNull()));
+               accessConfigTypes.add(accessConfig.getType() == null ? ABSENT : accessConfig.getType().ordinal());
+               addAddress(accessConfig.getNatIP().orNull(), natIPs, natIPRefs);
+            }
+            firstAccessConfig.add(accessConfigNames.size);
+         }
+         firstNetworkInterface.add(networkInterfaceNames.size);
+         for (AttachedDisk disk : instance.getDisks()) {
+            int index = diskIndexes.size;
+            diskIndexes.add(disk.getIndex());
+            if (disk.isPersistent()) {
+               PersistentAttachedDisk persistent = (PersistentAttachedDisk) disk;
+               diskModes.add(persistent.getMode().ordinal());
+               diskSources.add(encode(persistent.getSource().toString()));
+               diskDeviceNames.add(encode(persistent.getDeviceName().orNull()));
+               diskDeleteOnTerminate.set(index, persistent.isDeleteOnTerminate());
+            } else {
+               diskModes.add(EPHEMERAL);
+               diskSources.add(ABSENT);
+               diskDeviceNames.add(ABSENT);
+            }
+         }
+         firstDisk.add(diskIndexes.size);
+      }
+
+      private void addAddress(@Nullable String address, IntColumn packed, IntColumn refs) {
+         if (address != null && InetAddresses.isInetAddress(address)) {
+            InetAddress inetAddress = InetAddresses.forString(address);
+            // only the canonical form can be rebuilt from the packed address
+            if (inetAddress instanceof Inet4Address && inetAddress.getHostAddress().equals(address)) {
+               packed.add(InetAddresses.coerceToInteger(inetAddress));
+               refs.add(PACKED_IPV4);
+               return;
+            }
+         }
+         packed.add(0);
+         refs.add(encode(address));
+      }
+
+      private int encode(@Nullable Object value) {
+         if (value == null) {
+            return ABSENT;
+         }
+         Integer index = indexes.get(value);
+         if (index == null) {
+            index = dictionary.size();
+            dictionary.add(value);
+            indexes.put(value, index);
+         }
+         return index;
+      }
+
+      private InstanceSnapshot build() {
+         return new InstanceSnapshot(this);
+      }
+   }
+
+   private static final class IntColumn {
+      private int[] values = new int[16];
+      private int size;
+
+      private void add(int value) {
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = value;
+      }
+
+      private int[] toArray() {
+         return Arrays.copyOf(values, size);
+      }
+
+      private byte[] toByteArray() {
+         byte[] bytes = new byte[size];
+         for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) values[i];
+         }
+         return bytes;
+      }
+   }
+
+   private static final class LongColumn {
+      private long[] values = new long[16];
+      private int size;
+
+      private void add(long value) {
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+         values[size++] = value;
+      }
+
+      private long[] toArray() {
+         return Arrays.copyOf(values, size);
+      }
+   }
+}
@@ -391,6 +391,27 @@ public class InstanceTemplate {
       public boolean isDeleteOnTerminate() {
          return deleteOnTerminate;
       }
+
+      @Override
+      public boolean equals(Object object) {
+         if (this == object) {
+            return true;
+         }
+         if (object instanceof PersistentDisk) {
+            final PersistentDisk other = PersistentDisk.class.cast(object);
+            return equal(mode, other.mode)
+                    && equal(source, other.source)
+                    && equal(deviceName, other.deviceName)
+                    && equal(deleteOnTerminate, other.deleteOnTerminate);
+         } else {
+            return false;
+         }
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(mode, source, deviceName, deleteOnTerminate);
+      }
    }
 
    public static class NetworkInterface {
@@ -417,6 +438,26 @@ public class InstanceTemplate {
       public String getNetworkIP() {
          return networkIP;
       }
+
+      @Override
+      public boolean equals(Object object) {
+         if (this == object) {
+            return true;
+         }
+         if (object instanceof NetworkInterface) {
+            final NetworkInterface other = NetworkInterface.class.cast(object);
+            return equal(network, other.network)
+                    && equal(networkIP, other.networkIP)
+                    && equal(accessConfigs, other.accessConfigs);
+         } else {
+            return false;
+         }
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(network, networkIP, accessConfigs);
+      }
    }
 
 
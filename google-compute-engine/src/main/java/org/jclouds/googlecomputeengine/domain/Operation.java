@@ -44,7 +44,11 @@ public class Operation extends Resource {
    public static enum Status {
       PENDING,
       RUNNING,
-      DONE
+      DONE,
+      /**
+       * A status the API added after this provider was written.
+       */
+      UNRECOGNIZED
    }
 
    private final URI targetLink;
@@ -110,7 +114,8 @@ public class Operation extends Resource {
    }
 
    /**
-    * @return Status of the operation. Can be one of the following: PENDING, RUNNING, or DONE.
+    * @return Status of the operation. Can be one of the following: PENDING, RUNNING, or DONE, or UNRECOGNIZED for
+    *         any other status.
     */
    public Status getStatus() {
       return status;
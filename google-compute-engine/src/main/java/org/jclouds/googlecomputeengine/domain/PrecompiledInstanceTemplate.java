@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.domain;
+
+import com.google.common.annotations.Beta;
+import org.jclouds.io.Payload;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.io.Payloads.newByteArrayPayload;
+
+/**
+ * An {@link InstanceTemplate} serialized once into the json body of an instance insert, with a slot for the instance
+ * name. Inserting many instances from the same template then only copies bytes for each of them, instead of resolving
+ * and serializing the template again.
+ * <p/>
+ * Instances of this class are immutable and can be shared between threads; the template they were compiled from is
+ * not referenced, so later changes to it are not reflected. Two of them are equal when they insert the same instance
+ * body into the same zone. See {@link org.jclouds.googlecomputeengine.handlers.InstanceTemplatePrecompiler}.
+ */
+@Beta
+public final class PrecompiledInstanceTemplate {
+
+   /**
+    * Instance names as GCE accepts them, which never need to be escaped in json.
+    */
+   private static final Pattern INSTANCE_NAME = Pattern.compile("[a-z]([-a-z0-9]{0,61}[a-z0-9])?");
+
+   private final byte[] head;
+   private final byte[] tail;
+   private final URI zone;
+   private final int hashCode;
+
+   /**
+    * @param json     the json body of the insert, where the instance name is {@code nameSlot}.
+    * @param nameSlot the string that stands for the instance name, which must occur exactly once in the json.
+    * @param zone     the zone the instances are inserted into.
+    */
+   public PrecompiledInstanceTemplate(String json, String nameSlot, URI zone) {
+      checkNotNull(json, "json");
+      int slot = json.indexOf(checkNotNull(nameSlot, "nameSlot"));
+      checkArgument(slot >= 0 && json.indexOf(nameSlot, slot + 1) < 0, "name slot must occur exactly once in %s",
+              json);
+      this.head = json.substring(0, slot).getBytes(UTF_8);
+      this.tail = json.substring(slot + nameSlot.length()).getBytes(UTF_8);
+      this.zone = checkNotNull(zone, "zone");
+      this.hashCode = 31 * (31 * Arrays.hashCode(head) + Arrays.hashCode(tail)) + zone.hashCode();
+   }
+
+   /**
+    * @return the zone the instances are inserted into.
+    */
+   public URI getZone() {
+      return zone;
+   }
+
+   /**
+    * @return a new json payload that inserts an instance with the given name.
+    */
+   public Payload payloadFor(String instanceName) {
+      checkArgument(INSTANCE_NAME.matcher(checkNotNull(instanceName, "instanceName")).matches(),
+              "invalid instance name %s", instanceName);
+      byte[] name = instanceName.getBytes(UTF_8);
+      byte[] body = new byte[head.length + name.length + tail.length];
+      System.arraycopy(head, 0, body, 0, head.length);
+      System.arraycopy(name, 0, body, head.length, name.length);
+      System.arraycopy(tail, 0, body, head.length + name.length, tail.length);
+      Payload payload = newByteArrayPayload(body);
+      payload.getContentMetadata().setContentType("application/json");
+      return payload;
+   }
+
+   @Override
+   public boolean equals(Object object) {
+      if (this == object) {
+         return true;
+      }
+      if (object instanceof PrecompiledInstanceTemplate) {
+         PrecompiledInstanceTemplate other = PrecompiledInstanceTemplate.class.cast(object);
+         return hashCode == other.hashCode && zone.equals(other.zone) && Arrays.equals(head, other.head)
+                 && Arrays.equals(tail, other.tail);
+      } else {
+         return false;
+      }
+   }
+
+   @Override
+   public int hashCode() {
+      return hashCode;
+   }
+
+   @Override
+   public String toString() {
+      return toStringHelper(this).add("zone", zone).add("size", head.length + tail.length).toString();
+   }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.features;
+
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_SCOPE;
+
+import javax.inject.Named;
+import javax.ws.rs.POST;
+
+import org.jclouds.googlecomputeengine.domain.Batch;
+import org.jclouds.googlecomputeengine.domain.BatchResponse;
+import org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
+import org.jclouds.googlecomputeengine.functions.internal.ParseBatchResponse;
+import org.jclouds.googlecomputeengine.handlers.BindBatchToMultipart;
+import org.jclouds.oauth.v2.config.OAuthScopes;
+import org.jclouds.oauth.v2.filters.OAuthAuthenticator;
+import org.jclouds.rest.annotations.BinderParam;
+import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
+import org.jclouds.rest.annotations.SkipEncoding;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Sends many gets, deletes and inserts as a single multipart/mixed request, so that they share one http exchange and
+ * one authorization header. When rate limiting is enabled, each call is paced as if it was sent on its own, see
+ * {@link BindBatchToMultipart}.
+ *
+ * @see <a href="https://developers.google.com/compute/docs/api/how-tos/batch"/>
+ */
+@Beta
+@SkipEncoding({'/', '='})
+@RequestFilters({OAuthAuthenticator.class, AcceptGzipEncoding.class, RetryBudget.class})
+public interface BatchApi {
+
+   /**
+    * Executes the calls of a batch. GCE may run them in any order, so calls that depend on each other, e.g. an insert
+    * and the get of the inserted resource, belong in separate batches.
+    *
+    * @param batch the calls to execute.
+    * @return the result of each call, see {@link BatchResponse#get(Batch.Call)}.
+    */
+   @Named("Batch:execute")
+   @POST
+   @OAuthScopes(COMPUTE_SCOPE)
+   @ResponseParser(ParseBatchResponse.class)
+   BatchResponse execute(@BinderParam(BindBatchToMultipart.class) Batch batch);
+}
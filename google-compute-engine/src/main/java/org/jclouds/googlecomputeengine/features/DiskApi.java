@@ -39,6 +39,9 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Disk;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
 import org.jclouds.googlecomputeengine.functions.internal.ParseDisks;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
@@ -60,7 +63,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/disks"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({OAuthAuthenticator.class, AcceptGzipEncoding.class, AdaptiveRateLimiter.class, RetryBudget.class})
 public interface DiskApi {
 
    /**
@@ -40,6 +40,9 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Firewall;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
 import org.jclouds.googlecomputeengine.functions.internal.PATCH;
 import org.jclouds.googlecomputeengine.functions.internal.ParseFirewalls;
 import org.jclouds.googlecomputeengine.handlers.FirewallBinder;
@@ -66,7 +69,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/firewalls"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({OAuthAuthenticator.class, AcceptGzipEncoding.class, AdaptiveRateLimiter.class, RetryBudget.class})
 public interface FirewallApi {
    /**
     * Returns the specified image resource.
@@ -35,6 +35,9 @@ import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Image;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
 import org.jclouds.googlecomputeengine.functions.internal.ParseImages;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
@@ -54,7 +57,7 @@ import org.jclouds.rest.annotations.Transform;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/images"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({OAuthAuthenticator.class, AcceptGzipEncoding.class, AdaptiveRateLimiter.class, RetryBudget.class})
 public interface ImageApi {
    /**
     * Returns the specified image resource.
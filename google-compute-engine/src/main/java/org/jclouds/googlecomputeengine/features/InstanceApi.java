@@ -38,8 +38,14 @@ import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
+import org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
 import org.jclouds.googlecomputeengine.functions.internal.ParseInstances;
 import org.jclouds.googlecomputeengine.handlers.InstanceBinder;
+import org.jclouds.googlecomputeengine.handlers.PrecompiledInstanceBinder;
+import org.jclouds.googlecomputeengine.options.GetOptions;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.oauth.v2.config.OAuthScopes;
@@ -62,7 +68,7 @@ import org.jclouds.rest.binders.BindToJsonPayload;
  * @see InstanceApi
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({OAuthAuthenticator.class, AcceptGzipEncoding.class, AdaptiveRateLimiter.class, RetryBudget.class})
 public interface InstanceApi {
 
    /**
@@ -80,6 +86,22 @@ public interface InstanceApi {
    @Nullable
    Instance get(@PathParam("instance") String instanceName);
 
+   /**
+    * Returns the specified instance resource, restricted to the fields in the options.
+    *
+    * @param instanceName name of the instance resource to return.
+    * @param options      the fields to return, see {@link GetOptions#fields(String)}
+    * @return an Instance resource, with only the requested fields present
+    */
+   @Named("Instances:get")
+   @GET
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/instances/{instance}")
+   @OAuthScopes(COMPUTE_READONLY_SCOPE)
+   @Fallback(NullOnNotFoundOr404.class)
+   @Nullable
+   Instance get(@PathParam("instance") String instanceName, GetOptions options);
+
    /**
     * Creates a instance resource in the specified project using the data included in the request.
     *
@@ -100,6 +122,70 @@ public interface InstanceApi {
                           @PayloadParam("template") InstanceTemplate template,
                           @PayloadParam("zone") String zone);
 
+   /**
+    * Creates a instance resource like {@link #createInZone(String, InstanceTemplate, String)}, tagging the operation
+    * with a client chosen id. If the request fails or times out, the operation it may have started can be found by
+    * listing the operations with a {@code clientOperationId} filter, so that the insert is not issued twice; the id
+    * also makes the insert safe to retry on transient errors.
+    *
+    * @param instanceName      this name of the instance to be created
+    * @param template          the instance template
+    * @param zone              the name of the zone where the instance will be created
+    * @param clientOperationId an id that is unique to this insert
+    * @return an Operation resource, whose clientOperationId is the given one.
+    */
+   @Named("Instances:insert")
+   @POST
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Produces(MediaType.APPLICATION_JSON)
+   @Path("/instances")
+   @OAuthScopes({COMPUTE_SCOPE})
+   @MapBinder(InstanceBinder.class)
+   Operation createInZone(@PayloadParam("name") String instanceName,
+                          @PayloadParam("template") InstanceTemplate template,
+                          @PayloadParam("zone") String zone,
+                          @QueryParam("clientOperationId") String clientOperationId);
+
+   /**
+    * Creates a instance resource from a template that was compiled once for many instances, in the zone the template
+    * was compiled for. Only the name of the instance is written into the otherwise prebuilt request body.
+    *
+    * @param instanceName this name of the instance to be created
+    * @param template     the compiled instance template, see
+    *                     {@link org.jclouds.googlecomputeengine.handlers.InstanceTemplatePrecompiler}
+    * @return an Operation resource. To check on the status of an operation, poll the Operations resource returned to
+    *         you, and look for the status field.
+    */
+   @Named("Instances:insert")
+   @POST
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Produces(MediaType.APPLICATION_JSON)
+   @Path("/instances")
+   @OAuthScopes({COMPUTE_SCOPE})
+   @MapBinder(PrecompiledInstanceBinder.class)
+   Operation create(@PayloadParam("name") String instanceName,
+                    @PayloadParam("template") PrecompiledInstanceTemplate template);
+
+   /**
+    * Creates a instance resource like {@link #create(String, PrecompiledInstanceTemplate)}, tagging the operation
+    * with a client chosen id, see {@link #createInZone(String, InstanceTemplate, String, String)}.
+    *
+    * @param instanceName      this name of the instance to be created
+    * @param template          the compiled instance template
+    * @param clientOperationId an id that is unique to this insert
+    * @return an Operation resource, whose clientOperationId is the given one.
+    */
+   @Named("Instances:insert")
+   @POST
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Produces(MediaType.APPLICATION_JSON)
+   @Path("/instances")
+   @OAuthScopes({COMPUTE_SCOPE})
+   @MapBinder(PrecompiledInstanceBinder.class)
+   Operation create(@PayloadParam("name") String instanceName,
+                    @PayloadParam("template") PrecompiledInstanceTemplate template,
+                    @QueryParam("clientOperationId") String clientOperationId);
+
    /**
     * Deletes the specified instance resource.
     *
@@ -116,6 +202,25 @@ public interface InstanceApi {
    @Nullable
    Operation delete(@PathParam("instance") String instanceName);
 
+   /**
+    * Deletes the specified instance resource like {@link #delete(String)}, tagging the operation with a client chosen
+    * id, so that it can be found if the request fails or times out.
+    *
+    * @param instanceName      name of the instance resource to delete.
+    * @param clientOperationId an id that is unique to this delete
+    * @return an Operation resource, whose clientOperationId is the given one. If the instance did not exist the result
+    *         is null.
+    */
+   @Named("Instances:delete")
+   @DELETE
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Path("/instances/{instance}")
+   @OAuthScopes(COMPUTE_SCOPE)
+   @Fallback(NullOnNotFoundOr404.class)
+   @Nullable
+   Operation delete(@PathParam("instance") String instanceName,
+                    @QueryParam("clientOperationId") String clientOperationId);
+
    /**
     * A paged version of InstanceApi#list()
     *
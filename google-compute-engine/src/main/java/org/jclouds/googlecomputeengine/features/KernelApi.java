@@ -32,6 +32,9 @@ import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.collect.PagedIterable;
 import org.jclouds.googlecomputeengine.domain.Kernel;
 import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
 import org.jclouds.googlecomputeengine.functions.internal.ParseKernels;
 import org.jclouds.googlecomputeengine.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
@@ -50,7 +53,7 @@ import org.jclouds.rest.annotations.Transform;
  * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/kernels"/>
  */
 @SkipEncoding({'/', '='})
-@RequestFilters(OAuthAuthenticator.class)
+@RequestFilters({OAuthAuthenticator.class, AcceptGzipEncoding.class, AdaptiveRateLimiter.class, RetryBudget.class})
 @Consumes(MediaType.APPLICATION_JSON)
 public interface KernelApi {
 
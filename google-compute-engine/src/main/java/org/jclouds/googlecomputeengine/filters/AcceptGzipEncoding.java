@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.filters;
+
+import com.google.common.annotations.Beta;
+import org.jclouds.googlecomputeengine.functions.internal.ParseDecompressedJson;
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+import org.jclouds.rest.annotations.ResponseParser;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GZIP_RESPONSES;
+
+/**
+ * Asks for gzip encoded responses, when
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#GZIP_RESPONSES} is enabled, on the requests
+ * whose response parser decompresses them, i.e. extends {@link ParseDecompressedJson}.
+ * These are the list requests, whose pages are large and very repetitive; single resources are left uncompressed
+ * as they are too small to make up for the cost of compressing them.
+ */
+@Beta
+@Singleton
+public class AcceptGzipEncoding implements HttpRequestFilter {
+
+   private final boolean enabled;
+
+   @Inject
+   AcceptGzipEncoding(@Named(GZIP_RESPONSES) boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   @Override
+   public HttpRequest filter(HttpRequest request) throws HttpException {
+      if (!enabled || !(request instanceof GeneratedHttpRequest)) {
+         return request;
+      }
+      ResponseParser parser = GeneratedHttpRequest.class.cast(request).getInvocation().getInvokable()
+              .getAnnotation(ResponseParser.class);
+      if (parser == null || !ParseDecompressedJson.class.isAssignableFrom(parser.value())) {
+         return request;
+      }
+      return request.toBuilder().replaceHeader(ACCEPT_ENCODING, "gzip").build();
+   }
+}
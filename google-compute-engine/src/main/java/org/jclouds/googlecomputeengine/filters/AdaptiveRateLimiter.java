@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.filters;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.inject.Inject;
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.MUTATIONS_PER_SECOND;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_POLLS_PER_SECOND;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RATE_LIMIT;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.READS_PER_SECOND;
+
+/**
+ * Paces the requests, when {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#RATE_LIMIT} is
+ * enabled, with a token bucket per class of request: reads, mutations and operation polls. As filters are applied
+ * to every attempt, retries are paced too.
+ * <p/>
+ * Each bucket starts at its configured rate. When GCE answers that a rate limit was exceeded, the
+ * {@link org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineRetryHandler} calls {@link #backOff}: the rate of
+ * that class is halved and its ceiling set just under the rate that was exceeded, i.e. the rate before the backoff.
+ * The requests that were already in flight at that rate fail too, so the errors that follow within a couple of
+ * seconds are taken as the same one rather than halving the rate again. The rate then grows back by a tenth
+ * of the ceiling per second, up to the ceiling, where it stays instead of probing the limit again right away; the
+ * ceiling itself only creeps back up towards the configured rate after a minute without rate limit errors.
+ */
+@Beta
+@Singleton
+public class AdaptiveRateLimiter implements HttpRequestFilter {
+
+   public enum RequestClass {
+      READS, MUTATIONS, OPERATION_POLLS;
+
+      public static RequestClass of(HttpRequest request) {
+         return of(request.getMethod(), request.getEndpoint().getPath());
+      }
+
+      public static RequestClass of(String method, String path) {
+         if (!method.equals("GET")) {
+            return MUTATIONS;
+         }
+         return path.contains("/operations/") ? OPERATION_POLLS : READS;
+      }
+   }
+
+   static final double BACKOFF_FACTOR = 0.5;
+   static final double CEILING_FACTOR = 0.9;
+   static final double RECOVERY_PER_SECOND = 0.1;
+   static final long CEILING_PROBE_NANOS = TimeUnit.MINUTES.toNanos(1);
+   static final long BACKOFF_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+   static final double MIN_RATE = 0.1;
+
+   @Inject(optional = true)
+   Ticker ticker = Ticker.systemTicker();
+
+   private final boolean enabled;
+   private final Map<RequestClass, Bucket> buckets = Maps.newEnumMap(RequestClass.class);
+
+   @Inject
+   public AdaptiveRateLimiter(@Named(RATE_LIMIT) boolean enabled,
+                              @Named(READS_PER_SECOND) double readsPerSecond,
+                              @Named(MUTATIONS_PER_SECOND) double mutationsPerSecond,
+                              @Named(OPERATION_POLLS_PER_SECOND) double operationPollsPerSecond) {
+      this.enabled = enabled;
+      buckets.put(RequestClass.READS, new Bucket(readsPerSecond));
+      buckets.put(RequestClass.MUTATIONS, new Bucket(mutationsPerSecond));
+      buckets.put(RequestClass.OPERATION_POLLS, new Bucket(operationPollsPerSecond));
+   }
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   @Override
+   public HttpRequest filter(HttpRequest request) throws HttpException {
+      if (enabled) {
+         buckets.get(RequestClass.of(request)).acquire(ticker.read());
+      }
+      return request;
+   }
+
+   /**
+    * Waits for a permit of the given class, for requests that are not sent on their own, e.g. the calls of a batch.
+    */
+   public void acquire(RequestClass requestClass) {
+      if (enabled) {
+         buckets.get(requestClass).acquire(ticker.read());
+      }
+   }
+
+   /**
+    * Slows down the class of the given request, which was answered with a rate limit error.
+    */
+   public void backOff(HttpRequest request) {
+      if (enabled) {
+         buckets.get(RequestClass.of(request)).backOff(ticker.read());
+      }
+   }
+
+   /**
+    * @return the requests per second currently admitted for the class.
+    */
+   public double getRate(RequestClass requestClass) {
+      return buckets.get(requestClass).limiter.getRate();
+   }
+
+   @VisibleForTesting
+   double getCeiling(RequestClass requestClass) {
+      return buckets.get(requestClass).ceiling;
+   }
+
+   private static final class Bucket {
+      private final double maxRate;
+      private final RateLimiter limiter;
+      private double ceiling;
+      private long adjustedNanos;
+      private long backedOffNanos;
+      private long lastBackOffNanos;
+      private boolean backedOff;
+
+      private Bucket(double maxRate) {
+         checkArgument(maxRate > 0, "rates must be positive");
+         this.maxRate = maxRate;
+         this.ceiling = maxRate;
+         this.limiter = RateLimiter.create(maxRate);
+      }
+
+      private void acquire(long now) {
+         recover(now);
+         limiter.acquire();
+      }
+
+      private synchronized void backOff(long now) {
+         if (backedOff && now - lastBackOffNanos < BACKOFF_WINDOW_NANOS) {
+            // a request sent before the last backoff, already answered for
+            return;
+         }
+         double rateBeforeBackOff = limiter.getRate();
+         ceiling = Math.max(MIN_RATE, rateBeforeBackOff * CEILING_FACTOR);
+         limiter.setRate(Math.max(MIN_RATE, rateBeforeBackOff * BACKOFF_FACTOR));
+         adjustedNanos = now;
+         backedOffNanos = now;
+         lastBackOffNanos = now;
+         backedOff = true;
+      }
+
+      private synchronized void recover(long now) {
+         if (!backedOff) {
+            return;
+         }
+         if (now - backedOffNanos >= CEILING_PROBE_NANOS) {
+            // no rate limit error for a while, the limit may have been raised or was hit by another client
+            ceiling = Math.min(maxRate, ceiling / CEILING_FACTOR);
+            backedOffNanos = now;
+         }
+         double rate = limiter.getRate();
+         double seconds = (now - adjustedNanos) / 1e9;
+         if (seconds >= 1 && rate < ceiling) {
+            limiter.setRate(Math.min(ceiling, rate + ceiling * RECOVERY_PER_SECOND * seconds));
+            adjustedNanos = now;
+         }
+         if (ceiling >= maxRate && limiter.getRate() >= maxRate) {
+            backedOff = false;
+         }
+      }
+   }
+}
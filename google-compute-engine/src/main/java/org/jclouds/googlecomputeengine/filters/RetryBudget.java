@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.filters;
+
+import com.google.common.annotations.Beta;
+import com.google.inject.Inject;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineError.Classification;
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.RETRY_BUDGET_RATIO;
+
+/**
+ * Bounds the retries to a share of the requests made: every request that goes through this filter deposits
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#RETRY_BUDGET_RATIO} of a retry, and every retry
+ * withdraws one. The balance starts at {@link #MIN_BALANCE} retries, so that the first failures can be retried, and
+ * is capped at {@link #MAX_BALANCE}, so that a long quiet period does not allow a burst of retries.
+ * <p/>
+ * Also keeps the counts of requests and retries, allowed or not, exposed as the retry budget metrics.
+ *
+ * @see org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineRetryHandler
+ */
+@Beta
+@Singleton
+public class RetryBudget implements HttpRequestFilter {
+
+   public static final int MIN_BALANCE = 10;
+   public static final int MAX_BALANCE = 100;
+
+   // balances are kept in thousandths of a retry
+   private static final long UNIT = 1000;
+
+   private final long deposit;
+   private final AtomicLong balance = new AtomicLong(MIN_BALANCE * UNIT);
+   private final AtomicLong requests = new AtomicLong();
+   private final AtomicLongArray retries = new AtomicLongArray(Classification.values().length);
+   private final AtomicLong denied = new AtomicLong();
+   private final AtomicLong exhausted = new AtomicLong();
+
+   @Inject
+   public RetryBudget(@Named(RETRY_BUDGET_RATIO) double ratio) {
+      checkArgument(ratio >= 0, "the retry budget ratio can't be negative");
+      this.deposit = Math.round(ratio * UNIT);
+   }
+
+   @Override
+   public HttpRequest filter(HttpRequest request) throws HttpException {
+      requests.incrementAndGet();
+      long current;
+      do {
+         current = balance.get();
+      } while (current < MAX_BALANCE * UNIT
+              && !balance.compareAndSet(current, Math.min(MAX_BALANCE * UNIT, current + deposit)));
+      return request;
+   }
+
+   /**
+    * Withdraws a retry of a failure of the given classification.
+    *
+    * @return whether the budget allowed it.
+    */
+   public boolean tryRetry(Classification classification) {
+      long current;
+      do {
+         current = balance.get();
+         if (current < UNIT) {
+            denied.incrementAndGet();
+            return false;
+         }
+      } while (!balance.compareAndSet(current, current - UNIT));
+      retries.incrementAndGet(classification.ordinal());
+      return true;
+   }
+
+   /**
+    * Records that a request was given up on, as it failed on every retry it was allowed.
+    */
+   public void exhausted() {
+      exhausted.incrementAndGet();
+   }
+
+   /**
+    * @return the number of retries currently available.
+    */
+   public double getBalance() {
+      return balance.get() / (double) UNIT;
+   }
+
+   /**
+    * @return the number of requests and retries made, as every attempt goes through the filter.
+    */
+   public long getRequests() {
+      return requests.get();
+   }
+
+   public long getRetries() {
+      long total = 0;
+      for (int i = 0; i < retries.length(); i++) {
+         total += retries.get(i);
+      }
+      return total;
+   }
+
+   public long getRetries(Classification classification) {
+      return retries.get(classification.ordinal());
+   }
+
+   /**
+    * @return the number of retries that were not made because the budget was used up.
+    */
+   public long getDenied() {
+      return denied.get();
+   }
+
+   /**
+    * @return the number of requests that failed after using up their retries.
+    */
+   public long getExhausted() {
+      return exhausted.get();
+   }
+
+   @Override
+   public String toString() {
+      return String.format("RetryBudget{balance=%.1f, requests=%d, retries=%d, denied=%d, exhausted=%d}",
+              getBalance(), getRequests(), getRetries(), getDenied(), getExhausted());
+   }
+}
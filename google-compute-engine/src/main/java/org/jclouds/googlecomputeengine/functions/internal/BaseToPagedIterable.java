@@ -19,6 +19,8 @@ package org.jclouds.googlecomputeengine.functions.internal;
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.jclouds.Constants;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
 import org.jclouds.collect.PagedIterables;
@@ -28,8 +30,12 @@ import org.jclouds.http.HttpRequest;
 import org.jclouds.rest.InvocationContext;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
+import javax.inject.Inject;
+import javax.inject.Named;
+
 import static com.google.common.base.Predicates.instanceOf;
 import static com.google.common.collect.Iterables.tryFind;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.PAGE_PREFETCH_DEPTH;
 
 /**
  * @author Adrian Cole
@@ -40,6 +46,14 @@ public abstract class BaseToPagedIterable<T, I extends BaseToPagedIterable<T, I>
 
    private GeneratedHttpRequest request;
 
+   @Inject
+   @Named(PAGE_PREFETCH_DEPTH)
+   private int prefetchDepth;
+
+   @Inject
+   @Named(Constants.PROPERTY_USER_THREADS)
+   private ListeningExecutorService userExecutor;
+
    @Override
    public PagedIterable<T> apply(ListPage<T> input) {
       if (input.nextMarker() == null)
@@ -52,8 +66,13 @@ public abstract class BaseToPagedIterable<T, I extends BaseToPagedIterable<T, I>
       assert project.isPresent() : String.format("programming error, method %s should have a string param for the "
             + "project", request.getCaller().get().getInvokable());
 
-      return PagedIterables.advance(
-              input, fetchNextPage(project.get().toString(), (ListOptions) listOptions.orNull()));
+      Function<Object, IterableWithMarker<T>> nextPage = fetchNextPage(project.get().toString(),
+              (ListOptions) listOptions.orNull());
+
+      if (prefetchDepth > 0 && input.nextMarker().isPresent())
+         return new PrefetchingPagedIterable<T>(input, nextPage, prefetchDepth, userExecutor);
+
+      return PagedIterables.advance(input, nextPage);
    }
 
    protected abstract Function<Object, IterableWithMarker<T>> fetchNextPage(String projectName,
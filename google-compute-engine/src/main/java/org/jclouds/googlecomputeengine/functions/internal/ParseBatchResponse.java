@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import org.jclouds.googlecomputeengine.domain.Batch;
+import org.jclouds.googlecomputeengine.domain.BatchResponse;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineErrorHandler;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.json.Json;
+import org.jclouds.rest.InvocationContext;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import javax.inject.Inject;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Predicates.instanceOf;
+import static org.jclouds.googlecomputeengine.functions.internal.ParseDecompressedJson.decompressIfGzipped;
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+
+/**
+ * Splits the multipart/mixed response of a batch into the response of each call, which is parsed into the type of
+ * the call when successful and passed through {@link GoogleComputeEngineErrorHandler} otherwise, so that a failed call
+ * fails with the exception the equivalent feature api method would have thrown.
+ */
+@Beta
+public class ParseBatchResponse implements Function<HttpResponse, BatchResponse>,
+        InvocationContext<ParseBatchResponse> {
+
+   private static final Pattern BOUNDARY = Pattern.compile("boundary=\"?([^\";]+)\"?");
+   private static final Pattern CONTENT_ID = Pattern.compile("(?im)^Content-ID:\\s*<(?:response-)?([^>]+)>");
+   private static final Pattern STATUS_LINE = Pattern.compile("HTTP/\\d\\.\\d (\\d{3})\\s*(.*)");
+
+   private final Json json;
+   private final GoogleComputeEngineErrorHandler errorHandler;
+   private GeneratedHttpRequest request;
+
+   @Inject
+   ParseBatchResponse(Json json, GoogleComputeEngineErrorHandler errorHandler) {
+      this.json = checkNotNull(json, "json");
+      this.errorHandler = checkNotNull(errorHandler, "errorHandler");
+   }
+
+   @Override
+   public BatchResponse apply(HttpResponse response) {
+      checkState(request != null, "request must be set before parsing the batch response");
+      Batch batch = (Batch) Iterables.find(request.getInvocation().getArgs(), instanceOf(Batch.class));
+      Map<String, HttpResponse> parts = split(response);
+
+      Map<String, Optional<Object>> results = Maps.newHashMap();
+      Map<String, Exception> failures = Maps.newHashMap();
+      for (Batch.Call<?> call : batch.getCalls()) {
+         HttpResponse part = parts.get(call.getContentId());
+         if (part == null) {
+            failures.put(call.getContentId(), new IllegalStateException("no response for " + call));
+         } else if (part.getStatusCode() >= 200 && part.getStatusCode() < 300) {
+            String body = part.getPayload() != null ? new String(closeClientButKeepContentStream(part), UTF_8) : "";
+            results.put(call.getContentId(), Optional.fromNullable(json.fromJson(body, call.getResultType())));
+         } else if (part.getStatusCode() == 404 && !call.getMethod().equals("POST")) {
+            // as with the NullOnNotFoundOr404 fallback of the gets and deletes of the feature apis
+            results.put(call.getContentId(), Optional.absent());
+         } else {
+            HttpCommand command = new HttpCommand(HttpRequest.builder().method(call.getMethod())
+                    .endpoint(URI.create(request.getEndpoint().getScheme() + "://"
+                            + request.getEndpoint().getRawAuthority() + call.getPath())).build());
+            errorHandler.handleError(command, part);
+            failures.put(call.getContentId(), command.getException());
+         }
+      }
+      return new BatchResponse(results, failures);
+   }
+
+   /**
+    * @return the http response in each part of the multipart response, keyed by content id.
+    */
+   private static Map<String, HttpResponse> split(HttpResponse response) {
+      checkState(response.getPayload() != null, "batch response has no content");
+      String contentType = response.getPayload().getContentMetadata().getContentType();
+      Matcher boundary = BOUNDARY.matcher(contentType != null ? contentType : "");
+      checkState(boundary.find(), "batch response is not multipart: %s", contentType);
+      decompressIfGzipped(response);
+      String content = new String(closeClientButKeepContentStream(response), UTF_8).replace("\r\n", "\n");
+
+      Map<String, HttpResponse> parts = Maps.newHashMap();
+      List<String> segments = ImmutableList.copyOf(Splitter.on("--" + boundary.group(1)).split(content));
+      // the first segment is the preamble and the last one the epilogue, after the closing delimiter
+      for (String segment : segments.subList(1, segments.size())) {
+         if (segment.startsWith("--")) {
+            break;
+         }
+         String[] outer = segment.replaceFirst("^\n", "").split("\n\n", 2);
+         Matcher contentId = CONTENT_ID.matcher(outer[0]);
+         checkState(contentId.find() && outer.length == 2, "malformed batch response part: %s", segment);
+         parts.put(contentId.group(1), parsePart(outer[1]));
+      }
+      return parts;
+   }
+
+   private static HttpResponse parsePart(String part) {
+      String[] inner = part.split("\n\n", 2);
+      List<String> head = ImmutableList.copyOf(Splitter.on('\n').split(inner[0]));
+      Matcher statusLine = STATUS_LINE.matcher(head.get(0));
+      checkState(statusLine.matches(), "malformed batch response status line: %s", head.get(0));
+
+      HttpResponse.Builder<?> builder = HttpResponse.builder().statusCode(Integer.parseInt(statusLine.group(1)))
+              .message(statusLine.group(2).trim());
+      String contentType = null;
+      for (String header : head.subList(1, head.size())) {
+         int colon = header.indexOf(':');
+         if (colon > 0) {
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Type")) {
+               contentType = value;
+            } else if (!name.equalsIgnoreCase("Content-Length")) {
+               builder.addHeader(name, value);
+            }
+         }
+      }
+      String body = inner.length > 1 ? inner[1].replaceFirst("\n+$", "") : "";
+      if (!body.isEmpty()) {
+         builder.payload(body);
+      }
+      HttpResponse response = builder.build();
+      if (response.getPayload() != null && contentType != null) {
+         response.getPayload().getContentMetadata().setContentType(contentType);
+      }
+      return response;
+   }
+
+   @Override
+   public ParseBatchResponse setContext(HttpRequest request) {
+      this.request = GeneratedHttpRequest.class.cast(request);
+      return this;
+   }
+}
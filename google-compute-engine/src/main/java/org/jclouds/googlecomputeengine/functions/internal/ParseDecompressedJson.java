@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import com.google.common.annotations.Beta;
+import com.google.inject.TypeLiteral;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseJson;
+import org.jclouds.io.Payload;
+import org.jclouds.json.Json;
+
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.io.Payloads.newInputStreamPayload;
+
+/**
+ * Parses json responses that may have been gzip encoded, decompressing them as they are read instead of buffering the
+ * compressed body first. Requests whose response parser extends this class negotiate gzip when
+ * {@link org.jclouds.googlecomputeengine.GoogleComputeEngineConstants#GZIP_RESPONSES} is enabled, see
+ * {@link org.jclouds.googlecomputeengine.filters.AcceptGzipEncoding}.
+ */
+@Beta
+public class ParseDecompressedJson<T> extends ParseJson<T> {
+
+   private static final int GZIP_MAGIC = 0x8b1f;
+
+   public ParseDecompressedJson(Json json, TypeLiteral<T> type) {
+      super(json, type);
+   }
+
+   @Override
+   public T apply(HttpResponse from) {
+      decompressIfGzipped(from);
+      return super.apply(from);
+   }
+
+   /**
+    * Replaces the payload of the response with a stream that decompresses it, if the body is gzip encoded. Http drivers
+    * that already decompress responses may leave the Content-Encoding header in place, so the body itself is checked
+    * for the gzip header, which also makes it safe to call this more than once.
+    */
+   public static void decompressIfGzipped(HttpResponse response) {
+      Payload payload = response.getPayload();
+      if (payload == null) {
+         return;
+      }
+      try {
+         PushbackInputStream input = new PushbackInputStream(payload.openStream(), 2);
+         int first = input.read();
+         int second = first != -1 ? input.read() : -1;
+         if (second != -1) {
+            input.unread(second);
+         }
+         if (first != -1) {
+            input.unread(first);
+         }
+         if ((first | (second << 8)) == GZIP_MAGIC) {
+            Payload decompressed = newInputStreamPayload(new GZIPInputStream(input));
+            decompressed.getContentMetadata().setContentType(payload.getContentMetadata().getContentType());
+            response.setPayload(decompressed);
+         } else if (payload.isRepeatable()) {
+            input.close();
+         } else {
+            // hand back the bytes that were read ahead
+            Payload unread = newInputStreamPayload(input);
+            unread.setContentMetadata(payload.getContentMetadata());
+            response.setPayload(unread);
+         }
+      } catch (IOException e) {
+         throw propagate(e);
+      }
+   }
+}
@@ -23,7 +23,6 @@ import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Disk;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 
 import javax.inject.Inject;
@@ -35,7 +34,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author David Alves
  */
 @Singleton
-public class ParseDisks extends ParseJson<ListPage<Disk>> {
+public class ParseDisks extends ParseDecompressedJson<ListPage<Disk>> {
 
    @Inject
    public ParseDisks(Json json) {
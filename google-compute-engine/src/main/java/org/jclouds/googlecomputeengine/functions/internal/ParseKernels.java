@@ -23,7 +23,6 @@ import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.Kernel;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 
 import javax.inject.Inject;
@@ -33,7 +32,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * @author David Alves
  */
-public class ParseKernels extends ParseJson<ListPage<Kernel>> {
+public class ParseKernels extends ParseDecompressedJson<ListPage<Kernel>> {
 
    @Inject
    public ParseKernels(Json json) {
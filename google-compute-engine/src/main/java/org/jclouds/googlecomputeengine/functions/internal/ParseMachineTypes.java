@@ -23,7 +23,6 @@ import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.googlecomputeengine.domain.MachineType;
 import org.jclouds.googlecomputeengine.options.ListOptions;
-import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 
 import javax.inject.Inject;
@@ -33,7 +32,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * @author David Alves
  */
-public class ParseMachineTypes extends ParseJson<ListPage<MachineType>> {
+public class ParseMachineTypes extends ParseDecompressedJson<ListPage<MachineType>> {
 
    @Inject
    public ParseMachineTypes(Json json) {
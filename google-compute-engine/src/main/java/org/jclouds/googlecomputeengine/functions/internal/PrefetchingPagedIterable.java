@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.PagedIterable;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * A {@link PagedIterable} that fetches up to {@code depth} pages in the background, ahead of the page being consumed,
+ * instead of fetching each page only after the previous one is used up.
+ * <p/>
+ * Each iterator prefetches on its own. Callers that abandon an iteration before the last page should {@link #close()}
+ * the iterable, which cancels the pending requests and ends every open iteration.
+ */
+@Beta
+public class PrefetchingPagedIterable<T> extends PagedIterable<T> implements Closeable {
+
+   private final IterableWithMarker<T> first;
+   private final Function<Object, IterableWithMarker<T>> markerToNextPage;
+   private final int depth;
+   private final ListeningExecutorService executor;
+   private final Set<PrefetchingIterator> iterators =
+           Sets.newSetFromMap(new ConcurrentHashMap<PrefetchingIterator, Boolean>());
+   private volatile boolean closed;
+
+   public PrefetchingPagedIterable(IterableWithMarker<T> first, Function<Object, IterableWithMarker<T>> markerToNextPage,
+                                   int depth, ListeningExecutorService executor) {
+      this.first = checkNotNull(first, "first page");
+      this.markerToNextPage = checkNotNull(markerToNextPage, "marker to next page");
+      checkArgument(depth > 0, "prefetch depth must be positive");
+      this.depth = depth;
+      this.executor = checkNotNull(executor, "executor");
+   }
+
+   @Override
+   public Iterator<IterableWithMarker<T>> iterator() {
+      checkState(!closed, "paged iterable was closed");
+      PrefetchingIterator iterator = new PrefetchingIterator();
+      iterators.add(iterator);
+      return iterator;
+   }
+
+   /**
+    * Cancels the pages being prefetched; open iterations end after the page they are on.
+    */
+   @Override
+   public void close() {
+      closed = true;
+      for (PrefetchingIterator iterator : iterators) {
+         iterator.cancel();
+      }
+      iterators.clear();
+   }
+
+   private class PrefetchingIterator extends AbstractIterator<IterableWithMarker<T>> {
+
+      // futures of the pages after the one last returned, in order; a null page marks the end of the listing
+      private final Deque<ListenableFuture<IterableWithMarker<T>>> ahead =
+              new ArrayDeque<ListenableFuture<IterableWithMarker<T>>>();
+      private ListenableFuture<IterableWithMarker<T>> last = Futures.immediateFuture(first);
+      private boolean started;
+      private boolean cancelled;
+
+      @Override
+      protected IterableWithMarker<T> computeNext() {
+         if (!started) {
+            started = true;
+            prefetch();
+            return first;
+         }
+         ListenableFuture<IterableWithMarker<T>> future;
+         synchronized (this) {
+            future = cancelled ? null : ahead.poll();
+         }
+         IterableWithMarker<T> page = future != null ? await(future) : null;
+         if (page == null) {
+            iterators.remove(this);
+            return endOfData();
+         }
+         prefetch();
+         return page;
+      }
+
+      private synchronized void prefetch() {
+         while (!cancelled && ahead.size() < depth) {
+            last = Futures.transform(last, new AsyncFunction<IterableWithMarker<T>, IterableWithMarker<T>>() {
+               @Override
+               public ListenableFuture<IterableWithMarker<T>> apply(final IterableWithMarker<T> page) {
+                  if (page == null || !page.nextMarker().isPresent()) {
+                     return Futures.<IterableWithMarker<T>>immediateFuture(null);
+                  }
+                  return executor.submit(new Callable<IterableWithMarker<T>>() {
+                     @Override
+                     public IterableWithMarker<T> call() {
+                        return markerToNextPage.apply(page.nextMarker().get());
+                     }
+                  });
+               }
+            });
+            ahead.add(last);
+         }
+      }
+
+      private IterableWithMarker<T> await(ListenableFuture<IterableWithMarker<T>> future) {
+         try {
+            return future.get();
+         } catch (CancellationException e) {
+            // closed while waiting for this page
+            return null;
+         } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw propagate(e);
+         } catch (ExecutionException e) {
+            cancel();
+            throw propagate(e.getCause());
+         }
+      }
+
+      private synchronized void cancel() {
+         cancelled = true;
+         for (ListenableFuture<IterableWithMarker<T>> future : ahead) {
+            future.cancel(true);
+         }
+         ahead.clear();
+         iterators.remove(this);
+      }
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import com.google.common.annotations.Beta;
+import org.jclouds.googlecomputeengine.domain.Batch;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter.RequestClass;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.io.Payload;
+import org.jclouds.json.Json;
+import org.jclouds.rest.Binder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.net.URI;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.io.Payloads.newStringPayload;
+
+/**
+ * Binds the calls of a {@link Batch} as the parts of a multipart/mixed request to the batch endpoint of the api host.
+ * Each part is an http request whose path is relative to the api endpoint and whose Content-ID is the content id of
+ * the call, so that {@link org.jclouds.googlecomputeengine.functions.internal.ParseBatchResponse} can match it with
+ * its response.
+ * <p/>
+ * GCE counts each call of a batch against its rate limits, so each call takes a permit of its own class from the
+ * {@link AdaptiveRateLimiter} as it is bound, and the batch request itself takes none.
+ */
+@Beta
+@Singleton
+public class BindBatchToMultipart implements Binder {
+
+   public static final String BOUNDARY = "batch_gce_b0undary";
+
+   private static final String CRLF = "\r\n";
+
+   private final Json json;
+   private final AdaptiveRateLimiter rateLimiter;
+
+   @Inject
+   BindBatchToMultipart(Json json, AdaptiveRateLimiter rateLimiter) {
+      this.json = checkNotNull(json, "json");
+      this.rateLimiter = checkNotNull(rateLimiter, "rate limiter");
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public <R extends HttpRequest> R bindToRequest(R request, Object input) {
+      checkArgument(checkNotNull(input, "input") instanceof Batch, "this binder is only valid for Batch");
+      Batch batch = (Batch) input;
+      URI endpoint = request.getEndpoint();
+
+      StringBuilder body = new StringBuilder();
+      for (Batch.Call<?> call : batch.getCalls()) {
+         rateLimiter.acquire(RequestClass.of(call.getMethod(), endpoint.getPath() + call.getPath()));
+         body.append("--").append(BOUNDARY).append(CRLF);
+         body.append("Content-Type: application/http").append(CRLF);
+         body.append("Content-ID: <").append(call.getContentId()).append('>').append(CRLF);
+         body.append(CRLF);
+         body.append(call.getMethod()).append(' ').append(endpoint.getPath()).append(call.getPath())
+                 .append(" HTTP/1.1").append(CRLF);
+         if (call.getPayload().isPresent()) {
+            String content = json.toJson(call.getPayload().get());
+            checkArgument(!content.contains(BOUNDARY), "the payload of %s contains the batch boundary", call);
+            body.append("Content-Type: application/json").append(CRLF);
+            body.append(CRLF);
+            body.append(content);
+         }
+         body.append(CRLF);
+      }
+      body.append("--").append(BOUNDARY).append("--").append(CRLF);
+
+      Payload payload = newStringPayload(body.toString());
+      payload.getContentMetadata().setContentType("multipart/mixed; boundary=" + BOUNDARY);
+      return (R) request.toBuilder()
+              .endpoint(URI.create(endpoint.getScheme() + "://" + endpoint.getRawAuthority() + "/batch"))
+              .payload(payload).build();
+   }
+}
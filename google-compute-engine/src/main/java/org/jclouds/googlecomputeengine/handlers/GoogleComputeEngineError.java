@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The error GCE returns in the body of a failed response, e.g.
+ * <pre>
+ * {"error": {"errors": [{"domain": "usageLimits", "reason": "rateLimitExceeded", "message": "Rate Limit Exceeded"}],
+ *            "code": 403, "message": "Rate Limit Exceeded"}}
+ * </pre>
+ * along with how it should be handled, by the classification of its status code and reasons.
+ */
+@Beta
+public final class GoogleComputeEngineError {
+
+   public enum Classification {
+      /**
+       * The request was rejected before being processed, it can be retried whatever it is once slowed down.
+       */
+      RATE_LIMITED,
+      /**
+       * The backend failed, the request may or may not have been processed.
+       */
+      TRANSIENT,
+      /**
+       * A project quota, e.g. of instances or CPUs, would be exceeded. Retrying won't help until resources are freed.
+       */
+      QUOTA_EXCEEDED,
+      /**
+       * Anything else, retrying would fail the same way.
+       */
+      PERMANENT
+   }
+
+   private static final Set<String> RATE_LIMITED_REASONS = ImmutableSet.of("rateLimitExceeded",
+           "userRateLimitExceeded");
+   private static final Set<String> TRANSIENT_REASONS = ImmutableSet.of("backendError", "internalError");
+   private static final Set<String> QUOTA_REASONS = ImmutableSet.of("quotaExceeded");
+
+   public static final class Detail {
+      private final String domain;
+      private final String reason;
+      private final String message;
+
+      private Detail(@Nullable String domain, @Nullable String reason, @Nullable String message) {
+         this.domain = domain;
+         this.reason = reason;
+         this.message = message;
+      }
+
+      @Nullable
+      public String getDomain() {
+         return domain;
+      }
+
+      @Nullable
+      public String getReason() {
+         return reason;
+      }
+
+      @Nullable
+      public String getMessage() {
+         return message;
+      }
+
+      @Override
+      public String toString() {
+         return Objects.toStringHelper(this).omitNullValues()
+                 .add("domain", domain).add("reason", reason).add("message", message).toString();
+      }
+   }
+
+   private final int code;
+   private final String message;
+   private final List<Detail> details;
+
+   private GoogleComputeEngineError(int code, @Nullable String message, List<Detail> details) {
+      this.code = code;
+      this.message = message;
+      this.details = ImmutableList.copyOf(checkNotNull(details, "details"));
+   }
+
+   /**
+    * @return the error in the given response body, if it has one.
+    */
+   public static Optional<GoogleComputeEngineError> parse(@Nullable String content) {
+      if (content == null || content.isEmpty()) {
+         return Optional.absent();
+      }
+      try {
+         JsonElement body = new JsonParser().parse(content);
+         if (!body.isJsonObject() || !body.getAsJsonObject().has("error")
+                 || !body.getAsJsonObject().get("error").isJsonObject()) {
+            return Optional.absent();
+         }
+         JsonObject error = body.getAsJsonObject().getAsJsonObject("error");
+         ImmutableList.Builder<Detail> details = ImmutableList.builder();
+         if (error.has("errors") && error.get("errors").isJsonArray()) {
+            for (JsonElement detail : error.getAsJsonArray("errors")) {
+               if (detail.isJsonObject()) {
+                  JsonObject object = detail.getAsJsonObject();
+                  details.add(new Detail(string(object, "domain"), string(object, "reason"),
+                          string(object, "message")));
+               }
+            }
+         }
+         int code = error.has("code") && error.get("code").isJsonPrimitive() ? error.get("code").getAsInt() : 0;
+         return Optional.of(new GoogleComputeEngineError(code, string(error, "message"), details.build()));
+      } catch (JsonParseException e) {
+         return Optional.absent();
+      } catch (NumberFormatException e) {
+         return Optional.absent();
+      }
+   }
+
+   /**
+    * @return the error of the failed response that caused the given exception, if any.
+    */
+   public static Optional<GoogleComputeEngineError> fromException(Throwable exception) {
+      for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+         if (cause instanceof HttpResponseException) {
+            return parse(HttpResponseException.class.cast(cause).getContent());
+         }
+      }
+      return Optional.absent();
+   }
+
+   /**
+    * Classifies a failed response by its status code and, when it has one, its error.
+    */
+   public static Classification classify(int statusCode, Optional<GoogleComputeEngineError> error) {
+      if (error.isPresent()) {
+         Classification byReason = error.get().getClassificationByReason();
+         if (byReason != null) {
+            return byReason;
+         }
+      }
+      if (statusCode == 429) {
+         return Classification.RATE_LIMITED;
+      }
+      if (statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504) {
+         return Classification.TRANSIENT;
+      }
+      return Classification.PERMANENT;
+   }
+
+   public int getCode() {
+      return code;
+   }
+
+   @Nullable
+   public String getMessage() {
+      return message;
+   }
+
+   public List<Detail> getDetails() {
+      return details;
+   }
+
+   public Classification getClassification() {
+      return classify(code, Optional.of(this));
+   }
+
+   @Nullable
+   private Classification getClassificationByReason() {
+      for (Detail detail : details) {
+         if (RATE_LIMITED_REASONS.contains(detail.getReason())) {
+            return Classification.RATE_LIMITED;
+         } else if (QUOTA_REASONS.contains(detail.getReason())) {
+            return Classification.QUOTA_EXCEEDED;
+         } else if (TRANSIENT_REASONS.contains(detail.getReason())) {
+            return Classification.TRANSIENT;
+         }
+      }
+      return null;
+   }
+
+   @Nullable
+   private static String string(JsonObject object, String member) {
+      JsonElement value = object.get(member);
+      return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+   }
+
+   @Override
+   public String toString() {
+      return Objects.toStringHelper(this).omitNullValues()
+              .add("code", code).add("message", message).add("details", details).toString();
+   }
+}
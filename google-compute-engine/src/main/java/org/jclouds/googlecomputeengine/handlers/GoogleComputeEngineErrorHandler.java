@@ -16,25 +16,32 @@
  */
 package org.jclouds.googlecomputeengine.handlers;
 
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineError.Classification;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpErrorHandler;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.http.HttpResponseException;
 import org.jclouds.rest.AuthorizationException;
+import org.jclouds.rest.InsufficientResourcesException;
 import org.jclouds.rest.ResourceNotFoundException;
 
 import javax.inject.Singleton;
 
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.googlecomputeengine.functions.internal.ParseDecompressedJson.decompressIfGzipped;
 import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
 
 /**
- * This will parse and set an appropriate exception on the command object.
+ * This will parse and set an appropriate exception on the command object. The error in the response body, if any,
+ * can be read back from the exception with {@link GoogleComputeEngineError#fromException}.
  *
  * @author Adrian Cole
  */
 @Singleton
 public class GoogleComputeEngineErrorHandler implements HttpErrorHandler {
    public void handleError(HttpCommand command, HttpResponse response) {
+      // error bodies are gzip encoded too when compressed responses were requested
+      decompressIfGzipped(response);
       // it is important to always read fully and close streams
       byte[] data = closeClientButKeepContentStream(response);
       String message = data != null ? new String(data) : null;
@@ -47,9 +54,17 @@ public class GoogleComputeEngineErrorHandler implements HttpErrorHandler {
          case 400:
             break;
          case 401:
-         case 403:
             exception = new AuthorizationException(message, exception);
             break;
+         case 403:
+            // GCE also answers 403 when a rate limit or a quota is exceeded, which is not an authorization problem
+            Classification classification = GoogleComputeEngineError.classify(403,
+                    GoogleComputeEngineError.parse(data != null ? new String(data, UTF_8) : null));
+            exception = classification == Classification.RATE_LIMITED
+                    || classification == Classification.QUOTA_EXCEEDED
+                    ? new InsufficientResourcesException(message, exception)
+                    : new AuthorizationException(message, exception);
+            break;
          case 404:
             if (!command.getCurrentRequest().getMethod().equals("DELETE")) {
                exception = new ResourceNotFoundException(message, exception);
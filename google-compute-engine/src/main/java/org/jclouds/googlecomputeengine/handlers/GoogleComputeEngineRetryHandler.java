@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import org.jclouds.Constants;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineError.Classification;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpRetryHandler;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Random;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.functions.internal.ParseDecompressedJson.decompressIfGzipped;
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+
+/**
+ * Retries the failed requests that are safe to retry, according to the classification of their error:
+ * <ul>
+ * <li>rate limited requests were rejected unprocessed, so any of them is retried. When the
+ * {@link AdaptiveRateLimiter} is enabled their class of requests is slowed down, which paces the retry.</li>
+ * <li>requests that hit a transient backend error may have been processed, so only the idempotent ones are retried:
+ * gets, deletes, and inserts that carry a {@code clientOperationId}, as their operation can be looked up instead of
+ * the resource being inserted twice.</li>
+ * <li>anything else is left to the error handler.</li>
+ * </ul>
+ * Retries wait a random delay of up to {@code jclouds.retries-delay-start} times two to the number of failures so
+ * far, capped at {@link #MAX_DELAY_MILLIS}, are bounded by {@code jclouds.max-retries} per request, and must fit in
+ * the {@link RetryBudget}.
+ */
+@Beta
+@Singleton
+public class GoogleComputeEngineRetryHandler implements HttpRetryHandler {
+
+   /**
+    * The query parameter that makes an insert safe to retry.
+    */
+   public static final String CLIENT_OPERATION_ID = "clientOperationId";
+
+   static final long MAX_DELAY_MILLIS = 10000;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final AdaptiveRateLimiter rateLimiter;
+   private final RetryBudget retryBudget;
+   private final Random random = new Random();
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_MAX_RETRIES)
+   int retryCountLimit = 5;
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_RETRY_DELAY_START)
+   long delayStart = 50L;
+
+   @Inject
+   GoogleComputeEngineRetryHandler(AdaptiveRateLimiter rateLimiter, RetryBudget retryBudget) {
+      this.rateLimiter = checkNotNull(rateLimiter, "rate limiter");
+      this.retryBudget = checkNotNull(retryBudget, "retry budget");
+   }
+
+   @Override
+   public boolean shouldRetryRequest(HttpCommand command, HttpResponse response) {
+      HttpRequest request = command.getCurrentRequest();
+      Classification classification = classify(response);
+      if (!(classification == Classification.RATE_LIMITED
+              || classification == Classification.TRANSIENT && isIdempotent(request))) {
+         return false;
+      }
+      if (classification == Classification.RATE_LIMITED) {
+         rateLimiter.backOff(request);
+      }
+      if (command.getFailureCount() >= retryCountLimit) {
+         retryBudget.exhausted();
+         return false;
+      }
+      if (!retryBudget.tryRetry(classification)) {
+         logger.debug("not retrying %s, the retry budget is used up: %s", request.getRequestLine(), retryBudget);
+         return false;
+      }
+      int failures = command.incrementFailureCount();
+      if (classification == Classification.TRANSIENT || !rateLimiter.isEnabled()) {
+         long delay = delayMillis(failures);
+         logger.debug("retrying %s after %sms, %s failure %d", request.getRequestLine(), delay, classification,
+                 failures);
+         try {
+            Thread.sleep(delay);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return a random delay, so that clients failing together don't retry together, that grows with the failures.
+    */
+   @VisibleForTesting
+   long delayMillis(int failures) {
+      long ceiling = Math.min(MAX_DELAY_MILLIS, delayStart << Math.min(Math.max(failures - 1, 0), 20));
+      return ceiling <= 0 ? 0 : (long) (random.nextDouble() * ceiling);
+   }
+
+   static boolean isIdempotent(HttpRequest request) {
+      String method = request.getMethod();
+      if (method.equals("GET") || method.equals("HEAD") || method.equals("DELETE")) {
+         return true;
+      }
+      String query = request.getEndpoint().getRawQuery();
+      return method.equals("POST") && query != null
+              && (query.startsWith(CLIENT_OPERATION_ID + "=") || query.contains("&" + CLIENT_OPERATION_ID + "="));
+   }
+
+   static Classification classify(HttpResponse response) {
+      if (response.getPayload() == null) {
+         return GoogleComputeEngineError.classify(response.getStatusCode(),
+                 Optional.<GoogleComputeEngineError>absent());
+      }
+      decompressIfGzipped(response);
+      // keeps the content so that the error handler can still read it if the request is not retried
+      byte[] content = closeClientButKeepContentStream(response);
+      return GoogleComputeEngineError.classify(response.getStatusCode(),
+              GoogleComputeEngineError.parse(content != null ? new String(content, UTF_8) : null));
+   }
+}
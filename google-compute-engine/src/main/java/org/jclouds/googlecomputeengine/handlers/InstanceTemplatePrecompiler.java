@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
+import org.jclouds.json.Json;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compiles an {@link InstanceTemplate} into a {@link PrecompiledInstanceTemplate}, resolving the machine type and
+ * zone the same way {@link InstanceBinder} does, but on a copy, so the given template is left untouched.
+ * <p/>
+ * The nodes of a group are built from equal templates, so the last few compilations are kept and handed out again
+ * for an equal template and zone.
+ */
+@Beta
+@Singleton
+public class InstanceTemplatePrecompiler {
+
+   /**
+    * Not a valid instance name, so that it can't be mistaken for one in the compiled json.
+    */
+   private static final String NAME_SLOT = "__INSTANCE_NAME__";
+
+   private final Json json;
+   private final Function<String, URI> machineTypesToURI;
+   private final Function<String, URI> zonesToURI;
+   private final Cache<List<Object>, PrecompiledInstanceTemplate> compiled = CacheBuilder.newBuilder()
+           .maximumSize(16).build();
+
+   @Inject
+   InstanceTemplatePrecompiler(Json json, @Named("machineTypes") Function<String, URI> machineTypesToURI,
+                               @Named("zones") Function<String, URI> zonesToURI) {
+      this.json = checkNotNull(json, "json");
+      this.machineTypesToURI = checkNotNull(machineTypesToURI, "machineTypesToURI");
+      this.zonesToURI = checkNotNull(zonesToURI, "zonesToURI");
+   }
+
+   /**
+    * @param template the template of the instances, which must not be changed afterwards.
+    * @param zone     the name of the zone where the instances will be created.
+    * @return the compilation of an equal template into the same zone, if it was kept.
+    */
+   public PrecompiledInstanceTemplate precompile(final InstanceTemplate template, final String zone) {
+      checkNotNull(template, "template");
+      checkNotNull(zone, "zone");
+      // InstanceTemplate equality leaves out the machine type, which tells apart the templates of different hardware
+      List<Object> key = Arrays.<Object>asList(template, template.getMachineType(), template.getMachineTypeName(),
+              zone);
+      try {
+         return compiled.get(key, new Callable<PrecompiledInstanceTemplate>() {
+            @Override
+            public PrecompiledInstanceTemplate call() {
+               return compile(template, zone);
+            }
+         });
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      } catch (UncheckedExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+
+   private PrecompiledInstanceTemplate compile(InstanceTemplate template, String zone) {
+      URI zoneUri = zonesToURI.apply(zone);
+      URI machineType = template.getMachineTypeName() != null
+              ? machineTypesToURI.apply(template.getMachineTypeName())
+              : template.getMachineType();
+
+      InstanceTemplate copy = InstanceTemplate.builder()
+              .forMachineType(machineType)
+              .networkInterfaces(template.getNetworkInterfaces())
+              .name(NAME_SLOT)
+              .description(template.getDescription())
+              .zone(zoneUri)
+              .image(template.getImage())
+              .tags(template.getTags())
+              .disks(template.getDisks())
+              .metadata(template.getMetadata())
+              .serviceAccounts(template.getServiceAccounts());
+      return new PrecompiledInstanceTemplate(json.toJson(copy), NAME_SLOT, zoneUri);
+   }
+}
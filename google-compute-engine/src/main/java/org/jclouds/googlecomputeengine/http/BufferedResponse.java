@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.base.Charsets;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.Payload;
+import org.jclouds.io.payloads.BaseMutableContentMetadata;
+
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+import static org.jclouds.io.Payloads.newByteArrayPayload;
+
+/**
+ * The status, headers and content of a response, read once, from which any number of callers get their own copy, as
+ * parsers may consume or replace the payload of the response they are given.
+ */
+final class BufferedResponse {
+
+   private final HttpResponse withoutPayload;
+   private final byte[] content;
+   private final ContentMetadata contentMetadata;
+
+   /**
+    * Reads the content of the response, which is left with a repeatable payload of the same content.
+    */
+   BufferedResponse(HttpResponse response) {
+      Payload payload = response.getPayload();
+      this.contentMetadata = payload != null
+              ? BaseMutableContentMetadata.fromContentMetadata(payload.getContentMetadata()) : null;
+      this.content = payload != null ? closeClientButKeepContentStream(response) : null;
+      this.withoutPayload = response.toBuilder().payload((Payload) null).build();
+   }
+
+   HttpResponse copy() {
+      if (content == null) {
+         return withoutPayload.toBuilder().build();
+      }
+      Payload payload = newByteArrayPayload(content);
+      payload.setContentMetadata(BaseMutableContentMetadata.fromContentMetadata(contentMetadata));
+      return withoutPayload.toBuilder().payload(payload).build();
+   }
+
+   /**
+    * @return the content as UTF-8 text, or null if the response has none.
+    */
+   String contentAsString() {
+      return content != null ? new String(content, Charsets.UTF_8) : null;
+   }
+
+   /**
+    * @return the number of bytes of content.
+    */
+   int size() {
+      return content != null ? content.length : 0;
+   }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Maps;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Caches the responses to gets and lists of the catalog resources, zones, machine types, images and kernels, which
+ * rarely change.
+ * <p/>
+ * A cached response is used without a request for the configured time to live. After that, it is revalidated with a
+ * conditional request if it came with an ETag, and used again if GCE answers 304 Not Modified; otherwise it is
+ * fetched again. The cache is bounded by the bytes of content it keeps, and evicts the least recently used responses
+ * first. Only successful responses are cached, and asynchronous {@link #submit} calls are passed through.
+ * <p/>
+ * Any other request to a catalog collection, e.g. an image insert or delete, drops the cached gets and lists of that
+ * collection once it is answered. GCE only applies the change once the operation it answers with is done, so until
+ * a get of that operation answers that it is, the gets and lists of the collection are neither served from nor kept
+ * in the cache, and its cached responses are dropped again then. A change whose operation is never polled to its end
+ * is only tracked for the time to live.
+ * <p/>
+ * As responses are cached by request line, a cached list is used for the same list request, page and filter included,
+ * and the parsers still parse the content of each response they are given.
+ *
+ * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+ */
+@Beta
+public class CatalogCachingHttpCommandExecutorService implements HttpCommandExecutorService {
+
+   private static final Pattern CATALOG =
+           Pattern.compile(".*/projects/[^/]+/(zones|machineTypes|images|kernels)(/[^/]+)?");
+   private static final int COLLECTION = 1;
+   private static final Pattern OPERATION_KIND = Pattern.compile("\"kind\"\\s*:\\s*\"compute#operation\"");
+   private static final Pattern SELF_LINK = Pattern.compile("\"selfLink\"\\s*:\\s*\"([^\"]+)\"");
+   private static final Pattern DONE = Pattern.compile("\"status\"\\s*:\\s*\"DONE\"");
+
+   private final HttpCommandExecutorService delegate;
+   private final long ttlNanos;
+   private final Ticker ticker;
+   private final Cache<String, CachedResponse> cache;
+   // the changes to catalog collections whose operation is not done yet, by the path of the operation
+   private final ConcurrentMap<String, PendingChange> pendingChanges = Maps.newConcurrentMap();
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong revalidations = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+
+   public CatalogCachingHttpCommandExecutorService(HttpCommandExecutorService delegate, long ttl, TimeUnit unit,
+                                                   long maxBytes, Ticker ticker) {
+      checkArgument(ttl >= 0, "ttl must not be negative");
+      checkArgument(maxBytes >= 0, "maxBytes must not be negative");
+      this.delegate = checkNotNull(delegate, "delegate");
+      this.ttlNanos = checkNotNull(unit, "unit").toNanos(ttl);
+      this.ticker = checkNotNull(ticker, "ticker");
+      this.cache = CacheBuilder.newBuilder()
+              .maximumWeight(maxBytes)
+              .weigher(new Weigher<String, CachedResponse>() {
+                 @Override
+                 public int weigh(String key, CachedResponse value) {
+                    return key.length() + value.response.size();
+                 }
+              })
+              .build();
+   }
+
+   @Override
+   public HttpResponse invoke(HttpCommand command) {
+      HttpRequest request = command.getCurrentRequest();
+      String path = request.getEndpoint().getPath();
+      Matcher catalog = CATALOG.matcher(path);
+      if (!catalog.matches()) {
+         PendingChange change = pendingChanges.get(path);
+         return change != null && request.getMethod().equals("GET") ? pollChange(command, path, change)
+                 : delegate.invoke(command);
+      }
+      String collectionPath = path.substring(0, catalog.end(COLLECTION));
+      if (!request.getMethod().equals("GET")) {
+         try {
+            HttpResponse response = delegate.invoke(command);
+            trackChange(collectionPath, response);
+            return response;
+         } finally {
+            invalidateCollection(collectionPath);
+         }
+      } else if (isChanging(collectionPath)) {
+         // the change may or may not show in the response
+         misses.incrementAndGet();
+         return delegate.invoke(command);
+      }
+      String key = request.getRequestLine();
+      CachedResponse cached = cache.getIfPresent(key);
+      if (cached != null) {
+         if (ticker.read() - cached.fetched < ttlNanos) {
+            hits.incrementAndGet();
+            return cached.response.copy();
+         }
+         if (cached.etag != null) {
+            command.setCurrentRequest(request.toBuilder().replaceHeader(HttpHeaders.IF_NONE_MATCH, cached.etag)
+                    .build());
+            HttpResponse response;
+            try {
+               response = delegate.invoke(command);
+            } catch (HttpResponseException e) {
+               if (e.getResponse() == null || e.getResponse().getStatusCode() != 304) {
+                  throw e;
+               }
+               response = e.getResponse();
+            }
+            if (response.getStatusCode() == 304) {
+               revalidations.incrementAndGet();
+               cache.put(key, new CachedResponse(cached.response, cached.etag, ticker.read()));
+               return cached.response.copy();
+            }
+            misses.incrementAndGet();
+            return cache(key, collectionPath, response);
+         }
+      }
+      misses.incrementAndGet();
+      return cache(key, collectionPath, delegate.invoke(command));
+   }
+
+   @Override
+   public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+      return delegate.submit(command);
+   }
+
+   /**
+    * Drops every cached response, e.g. after an image was added or deleted.
+    */
+   public void invalidateAll() {
+      cache.invalidateAll();
+   }
+
+   /**
+    * Tracks the change to the collection until its operation is done, if the response is an operation that isn't.
+    */
+   private void trackChange(String collectionPath, HttpResponse response) {
+      if (response.getStatusCode() != 200 || response.getPayload() == null) {
+         return;
+      }
+      String content = new BufferedResponse(response).contentAsString();
+      Matcher selfLink = SELF_LINK.matcher(content);
+      if (OPERATION_KIND.matcher(content).find() && selfLink.find() && !DONE.matcher(content).find()) {
+         pendingChanges.put(URI.create(selfLink.group(1)).getPath(), new PendingChange(collectionPath,
+                 ticker.read()));
+      }
+   }
+
+   /**
+    * Gets the operation of a pending change, which ends the change once the operation is done.
+    */
+   private HttpResponse pollChange(HttpCommand command, String operationPath, PendingChange change) {
+      HttpResponse response = delegate.invoke(command);
+      if (response.getStatusCode() == 200 && response.getPayload() != null
+              && DONE.matcher(new BufferedResponse(response).contentAsString()).find()
+              && pendingChanges.remove(operationPath, change)) {
+         invalidateCollection(change.collectionPath);
+      }
+      return response;
+   }
+
+   /**
+    * @return whether the collection has a change whose operation isn't done yet; forgets the changes tracked for
+    *         longer than the time to live.
+    */
+   private boolean isChanging(String collectionPath) {
+      boolean changing = false;
+      long now = ticker.read();
+      for (Map.Entry<String, PendingChange> entry : pendingChanges.entrySet()) {
+         if (now - entry.getValue().since >= ttlNanos) {
+            pendingChanges.remove(entry.getKey(), entry.getValue());
+         } else if (entry.getValue().collectionPath.equals(collectionPath)) {
+            changing = true;
+         }
+      }
+      return changing;
+   }
+
+   /**
+    * Drops the cached gets and lists of the collection at the given path, e.g. {@code /projects/myproject/images}.
+    */
+   private void invalidateCollection(String collectionPath) {
+      for (String key : cache.asMap().keySet()) {
+         int start = key.indexOf(collectionPath);
+         if (start < 0) {
+            continue;
+         }
+         int end = start + collectionPath.length();
+         // the request line goes on with the resource name, the query or the protocol
+         if (end < key.length() && "/? ".indexOf(key.charAt(end)) >= 0) {
+            cache.invalidate(key);
+         }
+      }
+   }
+
+   /**
+    * @return the number of requests answered from the cache without a request.
+    */
+   public long getHitCount() {
+      return hits.get();
+   }
+
+   /**
+    * @return the number of requests answered from the cache after GCE answered that it had not changed.
+    */
+   public long getRevalidationCount() {
+      return revalidations.get();
+   }
+
+   /**
+    * @return the number of requests whose response was not in the cache or could not be revalidated.
+    */
+   public long getMissCount() {
+      return misses.get();
+   }
+
+   private HttpResponse cache(String key, String collectionPath, HttpResponse response) {
+      // a change answered while the request was in flight may or may not show in the response
+      if (response.getStatusCode() != 200 || isChanging(collectionPath)) {
+         cache.invalidate(key);
+         return response;
+      }
+      BufferedResponse buffered = new BufferedResponse(response);
+      cache.put(key, new CachedResponse(buffered, response.getFirstHeaderOrNull(HttpHeaders.ETAG), ticker.read()));
+      return response;
+   }
+
+   private static final class PendingChange {
+      private final String collectionPath;
+      private final long since;
+
+      private PendingChange(String collectionPath, long since) {
+         this.collectionPath = collectionPath;
+         this.since = since;
+      }
+   }
+
+   private static final class CachedResponse {
+      private final BufferedResponse response;
+      private final String etag;
+      private final long fetched;
+
+      private CachedResponse(BufferedResponse response, String etag, long fetched) {
+         this.response = response;
+         this.etag = etag;
+         this.fetched = fetched;
+      }
+   }
+}
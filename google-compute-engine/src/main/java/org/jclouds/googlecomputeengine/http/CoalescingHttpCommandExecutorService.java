@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+
+/**
+ * Shares the response of a GET among all the callers that make the same request, by request line, while it is in
+ * flight, so that e.g. the threads of a group scale up that all get the same network, firewall, image or operation
+ * only make one call between them.
+ * <p/>
+ * The first caller makes the request, request filters, retries and error handling included, and the others wait for
+ * it and get a copy of its response or its exception. As filters only run for the first caller, the requests that are
+ * coalesced don't take rate limiter permits either. Requests that were already answered are not cached: a GET made
+ * after the response arrived is made again. Asynchronous {@link #submit} calls are passed through.
+ *
+ * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+ */
+@Beta
+public class CoalescingHttpCommandExecutorService implements HttpCommandExecutorService {
+
+   private final HttpCommandExecutorService delegate;
+   private final ConcurrentMap<String, Flight> inFlight = newConcurrentMap();
+   private final AtomicLong coalesced = new AtomicLong();
+
+   public CoalescingHttpCommandExecutorService(HttpCommandExecutorService delegate) {
+      this.delegate = checkNotNull(delegate, "delegate");
+   }
+
+   @Override
+   public HttpResponse invoke(HttpCommand command) {
+      HttpRequest request = command.getCurrentRequest();
+      if (!request.getMethod().equals("GET") || request.getPayload() != null) {
+         return delegate.invoke(command);
+      }
+      String key = request.getRequestLine();
+      while (true) {
+         Flight flight = new Flight();
+         Flight leader = inFlight.putIfAbsent(key, flight);
+         if (leader == null) {
+            return lead(key, flight, command);
+         }
+         // a flight that has landed is about to leave the map, and a new one is started instead
+         if (leader.join()) {
+            coalesced.incrementAndGet();
+            return leader.await();
+         }
+      }
+   }
+
+   @Override
+   public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+      return delegate.submit(command);
+   }
+
+   /**
+    * @return the number of requests that were answered with the response of an identical request in flight.
+    */
+   public long getCoalescedCount() {
+      return coalesced.get();
+   }
+
+   private HttpResponse lead(String key, Flight flight, HttpCommand command) {
+      HttpResponse response;
+      try {
+         response = delegate.invoke(command);
+      } catch (Throwable t) {
+         inFlight.remove(key, flight);
+         flight.land();
+         flight.response.setException(t);
+         throw propagate(t);
+      }
+      inFlight.remove(key, flight);
+      // the response is only buffered when there is someone to share it with
+      if (flight.land() > 0) {
+         flight.response.set(new BufferedResponse(response));
+      }
+      return response;
+   }
+
+   private static final class Flight {
+      private final SettableFuture<BufferedResponse> response = SettableFuture.create();
+      private int followers;
+      private boolean landed;
+
+      synchronized boolean join() {
+         if (landed) {
+            return false;
+         }
+         followers++;
+         return true;
+      }
+
+      /**
+       * @return the number of callers waiting for the response, none of which can join from now on.
+       */
+      synchronized int land() {
+         landed = true;
+         return followers;
+      }
+
+      HttpResponse await() {
+         try {
+            return getUninterruptibly(response).copy();
+         } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+         }
+      }
+   }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Hedges the gets of single resources, e.g. {@code InstanceApi.get} and {@code OperationApi.get}: when a get has not
+ * been answered within the configured percentile of the latencies observed for its collection, an identical request
+ * is sent and the first response wins. The other request is left to finish, as the io thread an attempt runs on is
+ * blocked in socket reads that ignore interrupts, and its response is released once it arrives.
+ * <p/>
+ * Hedges are bounded by a budget: every hedgeable request deposits the configured ratio of a hedge and every hedge
+ * withdraws one, up to a balance of {@link #MAX_BALANCE}. When all requests slow down, as during an incident, the
+ * budget is soon spent and the requests simply wait, so that hedging adds at most that ratio to the load. Requests are
+ * not hedged before {@link #MIN_SAMPLES} latencies of their collection were observed, and lists, which may be large,
+ * are never hedged. Asynchronous {@link #submit} calls are passed through.
+ *
+ * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+ */
+@Beta
+public class HedgingHttpCommandExecutorService implements HttpCommandExecutorService {
+
+   static final int MIN_SAMPLES = 20;
+   static final int MAX_BALANCE = 10;
+
+   private static final Pattern SINGLE_RESOURCE = Pattern.compile(".*/projects/[^/]+/([^/]+)/[^/]+");
+   // balances are kept in thousandths of a hedge
+   private static final long UNIT = 1000;
+
+   private final HttpCommandExecutorService delegate;
+   private final double percentile;
+   private final long deposit;
+   private final Ticker ticker;
+   private final ConcurrentMap<String, LatencyWindow> latencies = newConcurrentMap();
+   private final AtomicLong balance = new AtomicLong();
+   private final AtomicLong hedges = new AtomicLong();
+   private final AtomicLong hedgeWins = new AtomicLong();
+
+   /**
+    * @param delegate    the executor that makes each attempt, with {@link HttpCommandExecutorService#submit}
+    * @param percentile  the percentile of the observed latencies after which a request is hedged, e.g. 95
+    * @param budgetRatio the share of the requests that can be hedged, e.g. 0.05
+    */
+   public HedgingHttpCommandExecutorService(HttpCommandExecutorService delegate, double percentile,
+                                            double budgetRatio, Ticker ticker) {
+      checkArgument(percentile > 0 && percentile < 100, "percentile must be between 0 and 100");
+      checkArgument(budgetRatio >= 0, "the hedge budget ratio can't be negative");
+      this.delegate = checkNotNull(delegate, "delegate");
+      this.percentile = percentile;
+      this.deposit = Math.round(budgetRatio * UNIT);
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Override
+   public HttpResponse invoke(HttpCommand command) {
+      HttpRequest request = command.getCurrentRequest();
+      Matcher singleResource = SINGLE_RESOURCE.matcher(request.getEndpoint().getPath());
+      if (!request.getMethod().equals("GET") || !singleResource.matches()) {
+         return delegate.invoke(command);
+      }
+      LatencyWindow window = window(singleResource.group(1));
+      long threshold = window.threshold(percentile);
+      if (threshold < 0) {
+         long start = ticker.read();
+         HttpResponse response = delegate.invoke(command);
+         window.add(ticker.read() - start);
+         return response;
+      }
+      deposit();
+
+      ListenableFuture<HttpResponse> primary = attempt(request, window);
+      try {
+         return primary.get(threshold, NANOSECONDS);
+      } catch (TimeoutException e) {
+         if (!withdraw()) {
+            return await(primary);
+         }
+      } catch (InterruptedException e) {
+         releaseWhenDone(primary);
+         Thread.currentThread().interrupt();
+         throw propagate(e);
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      }
+
+      hedges.incrementAndGet();
+      ListenableFuture<HttpResponse> hedge = attempt(request, null);
+      SettableFuture<HttpResponse> first = SettableFuture.create();
+      AtomicInteger failures = new AtomicInteger();
+      race(primary, first, failures, false);
+      race(hedge, first, failures, true);
+      return await(first);
+   }
+
+   @Override
+   public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+      return delegate.submit(command);
+   }
+
+   /**
+    * @return the number of hedge requests sent.
+    */
+   public long getHedgeCount() {
+      return hedges.get();
+   }
+
+   /**
+    * @return the number of hedge requests that were answered before the request they hedged.
+    */
+   public long getHedgeWinCount() {
+      return hedgeWins.get();
+   }
+
+   /**
+    * Sends a copy of the request. The latencies of the first attempts are observed, whether they win or not, so that
+    * hedging doesn't lower the percentile it is based on.
+    */
+   private ListenableFuture<HttpResponse> attempt(HttpRequest request, final LatencyWindow window) {
+      final long start = ticker.read();
+      ListenableFuture<HttpResponse> response = delegate.submit(new HttpCommand(request));
+      if (window != null) {
+         Futures.addCallback(response, new FutureCallback<HttpResponse>() {
+            @Override
+            public void onSuccess(HttpResponse result) {
+               window.add(ticker.read() - start);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+         });
+      }
+      return response;
+   }
+
+   /**
+    * Completes {@code first} with the response of the attempt if it is the first one, and with its failure only if
+    * the other attempt failed too. The response of an attempt that lost is released whenever it arrives.
+    */
+   private void race(ListenableFuture<HttpResponse> attempt, final SettableFuture<HttpResponse> first,
+                     final AtomicInteger failures, final boolean isHedge) {
+      Futures.addCallback(attempt, new FutureCallback<HttpResponse>() {
+         @Override
+         public void onSuccess(HttpResponse result) {
+            if (first.set(result)) {
+               if (isHedge) {
+                  hedgeWins.incrementAndGet();
+               }
+            } else {
+               release(result);
+            }
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            if (failures.incrementAndGet() == 2) {
+               first.setException(t);
+            }
+         }
+      });
+   }
+
+   /**
+    * Releases the response of an attempt nobody waits for anymore once it arrives.
+    */
+   private static void releaseWhenDone(ListenableFuture<HttpResponse> attempt) {
+      Futures.addCallback(attempt, new FutureCallback<HttpResponse>() {
+         @Override
+         public void onSuccess(HttpResponse result) {
+            release(result);
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+         }
+      });
+   }
+
+   private static void release(HttpResponse response) {
+      if (response.getPayload() != null) {
+         response.getPayload().release();
+      }
+   }
+
+   private static HttpResponse await(ListenableFuture<HttpResponse> response) {
+      try {
+         return getUninterruptibly(response);
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   private LatencyWindow window(String collection) {
+      LatencyWindow window = latencies.get(collection);
+      if (window == null) {
+         LatencyWindow created = new LatencyWindow();
+         window = latencies.putIfAbsent(collection, created);
+         if (window == null) {
+            window = created;
+         }
+      }
+      return window;
+   }
+
+   private void deposit() {
+      long current;
+      do {
+         current = balance.get();
+      } while (current < MAX_BALANCE * UNIT
+              && !balance.compareAndSet(current, Math.min(MAX_BALANCE * UNIT, current + deposit)));
+   }
+
+   private boolean withdraw() {
+      long current;
+      do {
+         current = balance.get();
+         if (current < UNIT) {
+            return false;
+         }
+      } while (!balance.compareAndSet(current, current - UNIT));
+      return true;
+   }
+
+   /**
+    * The latest latencies of a collection, in nanos, whose percentiles are recomputed every
+    * {@link #RECOMPUTE_EVERY} samples.
+    */
+   @VisibleForTesting
+   static final class LatencyWindow {
+      static final int SIZE = 512;
+      static final int RECOMPUTE_EVERY = 16;
+
+      private final long[] samples = new long[SIZE];
+      private int count;
+      private double thresholdPercentile = -1;
+      private long threshold = -1;
+
+      synchronized void add(long latency) {
+         samples[count % SIZE] = latency;
+         count++;
+         if (count % RECOMPUTE_EVERY == 0) {
+            thresholdPercentile = -1;
+         }
+      }
+
+      /**
+       * @return the latency at the given percentile, or -1 before {@link #MIN_SAMPLES} latencies were observed.
+       */
+      synchronized long threshold(double percentile) {
+         if (count < MIN_SAMPLES) {
+            return -1;
+         }
+         if (thresholdPercentile != percentile) {
+            long[] sorted = Arrays.copyOf(samples, Math.min(count, SIZE));
+            Arrays.sort(sorted);
+            threshold = sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100 * sorted.length) - 1)];
+            thresholdPercentile = percentile;
+         }
+         return threshold;
+      }
+   }
+}
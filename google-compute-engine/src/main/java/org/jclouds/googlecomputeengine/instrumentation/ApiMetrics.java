@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Aggregates the {@link ApiMetricsSink} records in memory, per api method, with lock free counters: call, retry and
+ * error counts, bytes in and out, and a latency histogram with power of two buckets of microseconds.
+ * <p/>
+ * {@link #getStats()} takes a snapshot that can be read while calls keep being recorded; the snapshot of each method
+ * is consistent per counter, not across counters.
+ */
+@Beta
+@Singleton
+public class ApiMetrics implements ApiMetricsSink {
+
+   static final int BUCKETS = 40;
+
+   private final ConcurrentMap<String, Counters> methods = Maps.newConcurrentMap();
+
+   @Override
+   public void record(String method, int statusCode, long latencyNanos, long bytesOut, long bytesIn, int retries) {
+      Counters counters = methods.get(checkNotNull(method, "method"));
+      if (counters == null) {
+         Counters created = new Counters();
+         counters = methods.putIfAbsent(method, created);
+         if (counters == null) {
+            counters = created;
+         }
+      }
+      counters.calls.incrementAndGet();
+      if (retries > 0) {
+         counters.retries.addAndGet(retries);
+      }
+      counters.statusClasses.incrementAndGet(Math.min(Math.max(statusCode / 100, 0), 5));
+      counters.latencyNanos.addAndGet(latencyNanos);
+      counters.latencyBuckets.incrementAndGet(bucket(latencyNanos));
+      counters.bytesOut.addAndGet(bytesOut);
+      counters.bytesIn.addAndGet(bytesIn);
+   }
+
+   /**
+    * @return a snapshot of the stats of every method called so far, slowest in total first.
+    */
+   public Map<String, Stats> getStats() {
+      List<Stats> stats = Lists.newArrayList();
+      for (Map.Entry<String, Counters> entry : methods.entrySet()) {
+         stats.add(entry.getValue().snapshot(entry.getKey()));
+      }
+      ImmutableMap.Builder<String, Stats> byMethod = ImmutableMap.builder();
+      for (Stats method : Ordering.natural().reverse().onResultOf(TOTAL_LATENCY).sortedCopy(stats)) {
+         byMethod.put(method.getMethod(), method);
+      }
+      return byMethod.build();
+   }
+
+   /**
+    * Forgets every call recorded so far.
+    */
+   public void reset() {
+      methods.clear();
+   }
+
+   static int bucket(long latencyNanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(latencyNanos, 0));
+      return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+   }
+
+   private static final Function<Stats, Long> TOTAL_LATENCY = new Function<Stats, Long>() {
+      @Override
+      public Long apply(Stats input) {
+         return input.getTotalLatencyNanos();
+      }
+   };
+
+   private static final class Counters {
+      private final AtomicLong calls = new AtomicLong();
+      private final AtomicLong retries = new AtomicLong();
+      private final AtomicLongArray statusClasses = new AtomicLongArray(6);
+      private final AtomicLong latencyNanos = new AtomicLong();
+      private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+      private final AtomicLong bytesOut = new AtomicLong();
+      private final AtomicLong bytesIn = new AtomicLong();
+
+      private Stats snapshot(String method) {
+         long[] buckets = new long[BUCKETS];
+         for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = latencyBuckets.get(i);
+         }
+         long[] statuses = new long[6];
+         for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = statusClasses.get(i);
+         }
+         return new Stats(method, calls.get(), retries.get(), statuses, latencyNanos.get(), buckets, bytesOut.get(),
+                 bytesIn.get());
+      }
+   }
+
+   /**
+    * The stats of one api method.
+    */
+   public static final class Stats {
+      private final String method;
+      private final long calls;
+      private final long retries;
+      private final long[] statusClasses;
+      private final long totalLatencyNanos;
+      private final long[] latencyBuckets;
+      private final long bytesOut;
+      private final long bytesIn;
+
+      private Stats(String method, long calls, long retries, long[] statusClasses, long totalLatencyNanos,
+                    long[] latencyBuckets, long bytesOut, long bytesIn) {
+         this.method = method;
+         this.calls = calls;
+         this.retries = retries;
+         this.statusClasses = statusClasses;
+         this.totalLatencyNanos = totalLatencyNanos;
+         this.latencyBuckets = latencyBuckets;
+         this.bytesOut = bytesOut;
+         this.bytesIn = bytesIn;
+      }
+
+      /**
+       * @return the {@code @Named} name of the api method, e.g. {@code "Instances:list"}.
+       */
+      public String getMethod() {
+         return method;
+      }
+
+      public long getCalls() {
+         return calls;
+      }
+
+      /**
+       * @return the retries and redirects of all calls together.
+       */
+      public long getRetries() {
+         return retries;
+      }
+
+      /**
+       * @return the number of calls that ended with a 4xx or 5xx response, or without a response.
+       */
+      public long getErrors() {
+         return statusClasses[0] + statusClasses[4] + statusClasses[5];
+      }
+
+      /**
+       * @param statusClass the first digit of the status codes, e.g. 4 for the 4xx ones, or 0 for no response.
+       * @return the number of calls that ended with a response of that class.
+       */
+      public long getCalls(int statusClass) {
+         checkArgument(statusClass >= 0 && statusClass < statusClasses.length, "no status class %s", statusClass);
+         return statusClasses[statusClass];
+      }
+
+      public long getTotalLatencyNanos() {
+         return totalLatencyNanos;
+      }
+
+      public long getMeanLatencyNanos() {
+         return calls == 0 ? 0 : totalLatencyNanos / calls;
+      }
+
+      /**
+       * @param percentile e.g. 0.99
+       * @return an upper bound for the given latency percentile, the power of two of microseconds it falls under.
+       */
+      public long getLatencyNanos(double percentile) {
+         checkArgument(percentile > 0 && percentile <= 1, "percentile must be in (0, 1]");
+         long total = 0;
+         for (long count : latencyBuckets) {
+            total += count;
+         }
+         long rank = (long) Math.ceil(total * percentile);
+         long seen = 0;
+         for (int i = 0; i < latencyBuckets.length; i++) {
+            seen += latencyBuckets[i];
+            if (seen >= rank && seen > 0) {
+               return TimeUnit.MICROSECONDS.toNanos(1L << i);
+            }
+         }
+         return 0;
+      }
+
+      public long getBytesOut() {
+         return bytesOut;
+      }
+
+      public long getBytesIn() {
+         return bytesIn;
+      }
+
+      @Override
+      public String toString() {
+         return Objects.toStringHelper(this)
+                 .add("method", method)
+                 .add("calls", calls)
+                 .add("errors", getErrors())
+                 .add("retries", retries)
+                 .add("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos))
+                 .add("p50Millis", TimeUnit.NANOSECONDS.toMillis(getLatencyNanos(0.5)))
+                 .add("p99Millis", TimeUnit.NANOSECONDS.toMillis(getLatencyNanos(0.99)))
+                 .add("bytesOut", bytesOut)
+                 .add("bytesIn", bytesIn).toString();
+      }
+   }
+}
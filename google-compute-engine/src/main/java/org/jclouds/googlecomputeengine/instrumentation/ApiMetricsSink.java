@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.annotations.Beta;
+import com.google.inject.ImplementedBy;
+
+/**
+ * Receives a record of every completed GoogleComputeEngineApi call, i.e. once the response is in, after any retries.
+ * <p/>
+ * Calls are keyed by the {@code @Named} name of the api method, e.g. {@code "Instances:list"}. Implementations are
+ * called on the thread that made the request and must be thread safe and cheap; the default one, {@link ApiMetrics},
+ * aggregates the records in memory. Bind another implementation to send them to a metrics system instead.
+ */
+@Beta
+@ImplementedBy(ApiMetrics.class)
+public interface ApiMetricsSink {
+
+   /**
+    * Status code recorded for the calls that failed without a response, e.g. on an IOException.
+    */
+   int NO_RESPONSE = 0;
+
+   /**
+    * @param method       the {@code @Named} name of the api method
+    * @param statusCode   the status code of the last response, or {@link #NO_RESPONSE}
+    * @param latencyNanos the time from sending the first request to receiving the last response
+    * @param bytesOut     the size of the request payload, as sent once
+    * @param bytesIn      the size of the last response payload, as received, or 0 when unknown
+    * @param retries      the number of times the request was retried or redirected
+    */
+   void record(String method, int statusCode, long latencyNanos, long bytesOut, long bytesIn, int retries);
+}
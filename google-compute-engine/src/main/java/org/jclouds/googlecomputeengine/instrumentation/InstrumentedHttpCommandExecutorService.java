@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payload;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import javax.inject.Named;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records every call that goes through the delegate executor with an {@link ApiMetricsSink}.
+ * <p/>
+ * This wraps the executor rather than being an {@code HttpRequestFilter}, as filters only ever see the request; here
+ * the latency covers the whole call, retries and redirects included, and the status code is the final one.
+ *
+ * @see org.jclouds.googlecomputeengine.config.GoogleComputeEngineHttpCommandExecutorServiceModule
+ */
+@Beta
+public class InstrumentedHttpCommandExecutorService implements HttpCommandExecutorService {
+
+   static final String UNNAMED = "unnamed";
+
+   private final HttpCommandExecutorService delegate;
+   private final ApiMetricsSink sink;
+   private final Ticker ticker;
+
+   public InstrumentedHttpCommandExecutorService(HttpCommandExecutorService delegate, ApiMetricsSink sink,
+                                                 Ticker ticker) {
+      this.delegate = checkNotNull(delegate, "delegate");
+      this.sink = checkNotNull(sink, "sink");
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Override
+   public HttpResponse invoke(HttpCommand command) {
+      long start = ticker.read();
+      HttpResponse response = null;
+      try {
+         response = delegate.invoke(command);
+         return response;
+      } finally {
+         record(command, response, start);
+      }
+   }
+
+   @Override
+   public ListenableFuture<HttpResponse> submit(final HttpCommand command) {
+      final long start = ticker.read();
+      ListenableFuture<HttpResponse> response = delegate.submit(command);
+      Futures.addCallback(response, new FutureCallback<HttpResponse>() {
+         @Override
+         public void onSuccess(HttpResponse result) {
+            record(command, result, start);
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            record(command, null, start);
+         }
+      });
+      return response;
+   }
+
+   private void record(HttpCommand command, HttpResponse response, long start) {
+      long latency = ticker.read() - start;
+      HttpRequest request = command.getCurrentRequest();
+      sink.record(methodName(request),
+              response != null ? response.getStatusCode() : ApiMetricsSink.NO_RESPONSE,
+              latency,
+              length(request.getPayload()),
+              response != null ? length(response.getPayload()) : 0,
+              command.getFailureCount() + command.getRedirectCount());
+   }
+
+   /**
+    * @return the {@code @Named} name of the api method that made the request.
+    */
+   static String methodName(HttpRequest request) {
+      if (request instanceof GeneratedHttpRequest) {
+         Named name = GeneratedHttpRequest.class.cast(request).getInvocation().getInvokable()
+                 .getAnnotation(Named.class);
+         if (name != null) {
+            return name.value();
+         }
+      }
+      return UNNAMED;
+   }
+
+   private static long length(Payload payload) {
+      if (payload == null) {
+         return 0;
+      }
+      Long length = payload.getContentMetadata().getContentLength();
+      return length != null ? length : 0;
+   }
+}
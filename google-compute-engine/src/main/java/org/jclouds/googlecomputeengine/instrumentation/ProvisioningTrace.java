@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.jclouds.javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The timing of the phases of one {@code createNodesInGroup} call: the group's network and firewall bootstrap, then
+ * for each node the instance insert, the wait for its operation, the get that follows and, last, the customization
+ * done by the compute service, which is waiting for the node to be running and initializing it over ssh.
+ *
+ * @see ProvisioningTracer
+ */
+@Beta
+public final class ProvisioningTrace {
+
+   public enum Phase {
+      NETWORK, FIREWALL, INSERT, OPERATION, GET, CUSTOMIZE
+   }
+
+   /**
+    * One timed phase, of the group when {@link #getNode()} is null, or of one node.
+    */
+   public static final class Span {
+      private final String node;
+      private final Phase phase;
+      private final long nanos;
+      private final int retries;
+
+      Span(@Nullable String node, Phase phase, long nanos, int retries) {
+         this.node = node;
+         this.phase = checkNotNull(phase, "phase");
+         this.nanos = nanos;
+         this.retries = retries;
+      }
+
+      @Nullable
+      public String getNode() {
+         return node;
+      }
+
+      public Phase getPhase() {
+         return phase;
+      }
+
+      public long getNanos() {
+         return nanos;
+      }
+
+      /**
+       * @return how many more times than once the phase polled or called the api, e.g. operation polls.
+       */
+      public int getRetries() {
+         return retries;
+      }
+
+      @Override
+      public String toString() {
+         return Objects.toStringHelper(this).omitNullValues()
+                 .add("node", node)
+                 .add("phase", phase)
+                 .add("millis", TimeUnit.NANOSECONDS.toMillis(nanos))
+                 .add("retries", retries).toString();
+      }
+   }
+
+   private final String group;
+   private final int count;
+   private final long startNanos;
+   private final Queue<Span> spans = new ConcurrentLinkedQueue<Span>();
+   private final Map<String, Long> createdNanos = Maps.newConcurrentMap();
+   private volatile long endNanos = -1;
+
+   ProvisioningTrace(String group, int count, long startNanos) {
+      this.group = checkNotNull(group, "group");
+      this.count = count;
+      this.startNanos = startNanos;
+   }
+
+   void add(Span span) {
+      spans.add(span);
+   }
+
+   void created(String node, long nanos) {
+      createdNanos.put(node, nanos);
+   }
+
+   @Nullable
+   Long getCreatedNanos(String node) {
+      return createdNanos.get(node);
+   }
+
+   void end(long nanos) {
+      endNanos = nanos;
+   }
+
+   public String getGroup() {
+      return group;
+   }
+
+   /**
+    * @return the number of nodes that were asked for.
+    */
+   public int getCount() {
+      return count;
+   }
+
+   /**
+    * @return the time the call has taken, so far if it is still going on.
+    */
+   public long getElapsedNanos(long nowNanos) {
+      return (endNanos >= 0 ? endNanos : nowNanos) - startNanos;
+   }
+
+   public boolean isFinished() {
+      return endNanos >= 0;
+   }
+
+   public List<Span> getSpans() {
+      return ImmutableList.copyOf(spans);
+   }
+
+   /**
+    * @return the spans of the given node, in the order they ended.
+    */
+   public List<Span> getSpans(String node) {
+      ImmutableList.Builder<Span> nodeSpans = ImmutableList.builder();
+      for (Span span : spans) {
+         if (node.equals(span.getNode())) {
+            nodeSpans.add(span);
+         }
+      }
+      return nodeSpans.build();
+   }
+
+   /**
+    * @return a report of the time spent in each phase, over all nodes, with the slowest node of each.
+    */
+   public String getSummary() {
+      Map<Phase, long[]> totals = Maps.newEnumMap(Phase.class);
+      Map<Phase, Span> slowest = Maps.newEnumMap(Phase.class);
+      for (Span span : spans) {
+         long[] total = totals.get(span.getPhase());
+         if (total == null) {
+            total = new long[3];
+            totals.put(span.getPhase(), total);
+         }
+         total[0]++;
+         total[1] += span.getNanos();
+         total[2] += span.getRetries();
+         Span max = slowest.get(span.getPhase());
+         if (max == null || span.getNanos() > max.getNanos()) {
+            slowest.put(span.getPhase(), span);
+         }
+      }
+      StringBuilder summary = new StringBuilder();
+      summary.append(String.format("createNodesInGroup(%s, %d)", group, count));
+      if (isFinished()) {
+         summary.append(String.format(" took %dms", TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos)));
+      }
+      for (Map.Entry<Phase, long[]> total : totals.entrySet()) {
+         Span max = slowest.get(total.getKey());
+         summary.append(String.format("%n  %-9s %4d spans, %7dms total, %6dms max%s, %d retries",
+                 total.getKey(), total.getValue()[0], TimeUnit.NANOSECONDS.toMillis(total.getValue()[1]),
+                 TimeUnit.NANOSECONDS.toMillis(max.getNanos()), max.getNode() != null ? " (" + max.getNode() + ")" : "",
+                 total.getValue()[2]));
+      }
+      return summary.toString();
+   }
+
+   @Override
+   public String toString() {
+      return getSummary();
+   }
+}
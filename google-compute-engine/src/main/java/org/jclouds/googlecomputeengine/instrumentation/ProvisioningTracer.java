@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace.Phase;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace.Span;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Collects a {@link ProvisioningTrace} per {@code createNodesInGroup} call. The node creation strategy starts the trace
+ * and hands it to the adapter through the template options, phases are recorded into the trace of their own call,
+ * so that concurrent calls for the same group are kept apart, and once every node is done the summary is logged at
+ * debug level. The last trace of the most recently provisioned groups is kept.
+ * <p/>
+ * Phases recorded without a trace, e.g. of a single node created outside of {@code createNodesInGroup}, are dropped.
+ */
+@Beta
+@Singleton
+public class ProvisioningTracer {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   @Inject(optional = true)
+   Ticker ticker = Ticker.systemTicker();
+
+   static final int MAX_GROUPS = 256;
+
+   private final Cache<String, ProvisioningTrace> last = CacheBuilder.newBuilder().maximumSize(MAX_GROUPS).build();
+
+   /**
+    * @return the reading to pass as the start of a phase to {@link #record}.
+    */
+   public long start() {
+      return ticker.read();
+   }
+
+   /**
+    * @return the trace of a new {@code createNodesInGroup} call, to pass to {@link #record} and {@link #finish}.
+    */
+   public ProvisioningTrace startTrace(String group, int count) {
+      ProvisioningTrace trace = new ProvisioningTrace(checkNotNull(group, "group"), count, ticker.read());
+      last.put(group, trace);
+      return trace;
+   }
+
+   /**
+    * Records a phase of the traced call's group, when {@code node} is null, or of the given node, that started at
+    * {@code start} and ends now.
+    */
+   public void record(@Nullable ProvisioningTrace trace, @Nullable String node, Phase phase, long start,
+                      int retries) {
+      if (trace != null) {
+         long now = ticker.read();
+         trace.add(new Span(node, phase, now - start, Math.max(retries, 0)));
+         if (node != null && phase == Phase.GET) {
+            trace.created(node, now);
+         }
+      }
+   }
+
+   /**
+    * Records the customization of a node, from the moment its instance was got until now.
+    */
+   public void customized(ProvisioningTrace trace, String node) {
+      Long created = trace.getCreatedNanos(node);
+      if (created != null) {
+         trace.add(new Span(node, Phase.CUSTOMIZE, ticker.read() - created, 0));
+      }
+   }
+
+   public void finish(ProvisioningTrace trace) {
+      trace.end(ticker.read());
+      logger.debug("<< %s", trace.getSummary());
+   }
+
+   /**
+    * @return the trace of the last {@code createNodesInGroup} call started for the group, which may still be going on.
+    */
+   public Optional<ProvisioningTrace> getLastTrace(String group) {
+      return Optional.fromNullable(last.getIfPresent(group));
+   }
+
+   /**
+    * @return the predicate, counting how many times it is applied.
+    */
+   public static <T> Predicate<T> counting(final Predicate<T> predicate, final AtomicInteger applied) {
+      checkNotNull(predicate, "predicate");
+      checkNotNull(applied, "applied");
+      return new Predicate<T>() {
+         @Override
+         public boolean apply(T input) {
+            applied.incrementAndGet();
+            return predicate.apply(input);
+         }
+      };
+   }
+}
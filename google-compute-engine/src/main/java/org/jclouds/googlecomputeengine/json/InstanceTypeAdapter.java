@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.date.DateService;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig;
+import org.jclouds.javax.annotation.Nullable;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.constantsByName;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextConstant;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextDate;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextUri;
+import static org.jclouds.googlecomputeengine.json.JsonWriters.writeIfPresent;
+import static org.jclouds.googlecomputeengine.json.JsonWriters.writeResource;
+
+/**
+ * Streaming JSON TypeAdapter for Instance, that reads every nested object, including the attached disks and the
+ * metadata items, straight into a single Instance builder.
+ * <p/>
+ * Statuses and access config types the API added after this provider was written are read as null, and disks that
+ * are missing their index, e.g. in a partial response, are skipped rather than failing the whole instance.
+ *
+ * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/instances"/>
+ */
+public class InstanceTypeAdapter extends TypeAdapter<Instance> {
+
+   private enum Field {
+      ID, CREATION_TIMESTAMP, SELF_LINK, NAME, DESCRIPTION, TAGS, IMAGE, MACHINE_TYPE, STATUS, STATUS_MESSAGE, ZONE,
+      NETWORK_INTERFACES, DISKS, METADATA, SERVICE_ACCOUNTS
+   }
+
+   private static final Map<String, Field> FIELDS = ImmutableMap.<String, Field>builder()
+           .put("id", Field.ID)
+           .put("creationTimestamp", Field.CREATION_TIMESTAMP)
+           .put("selfLink", Field.SELF_LINK)
+           .put("name", Field.NAME)
+           .put("description", Field.DESCRIPTION)
+           .put("tags", Field.TAGS)
+           .put("image", Field.IMAGE)
+           .put("machineType", Field.MACHINE_TYPE)
+           .put("status", Field.STATUS)
+           .put("statusMessage", Field.STATUS_MESSAGE)
+           .put("zone", Field.ZONE)
+           .put("networkInterfaces", Field.NETWORK_INTERFACES)
+           .put("disks", Field.DISKS)
+           .put("metadata", Field.METADATA)
+           .put("serviceAccounts", Field.SERVICE_ACCOUNTS).build();
+
+   private static final Map<String, Instance.Status> STATUSES = constantsByName(Instance.Status.class);
+   private static final Map<String, AccessConfig.Type> ACCESS_CONFIG_TYPES = constantsByName(AccessConfig.Type.class);
+   private static final Map<String, Instance.PersistentAttachedDisk.Mode> DISK_MODES =
+           constantsByName(Instance.PersistentAttachedDisk.Mode.class);
+
+   private final DateService dateService;
+   private final ValueInterner interner;
+
+   @Inject
+   public InstanceTypeAdapter(DateService dateService, ValueInterner interner) {
+      this.dateService = checkNotNull(dateService, "date service");
+      this.interner = checkNotNull(interner, "interner");
+   }
+
+   @Override
+   public void write(JsonWriter out, Instance value) throws IOException {
+      out.beginObject();
+      writeResource(out, value, dateService);
+      if (!value.getTags().isEmpty()) {
+         out.name("tags").beginArray();
+         for (String tag : value.getTags()) {
+            out.value(tag);
+         }
+         out.endArray();
+      }
+      writeIfPresent(out, "image", value.getImage());
+      writeIfPresent(out, "machineType", value.getMachineType());
+      writeIfPresent(out, "status", value.getStatus());
+      writeIfPresent(out, "statusMessage", value.getStatusMessage().orNull());
+      writeIfPresent(out, "zone", value.getZone());
+      out.name("networkInterfaces").beginArray();
+      for (NetworkInterface networkInterface : value.getNetworkInterfaces()) {
+         writeNetworkInterface(out, networkInterface);
+      }
+      out.endArray();
+      out.name("disks").beginArray();
+      for (Instance.AttachedDisk disk : value.getDisks()) {
+         writeDisk(out, disk);
+      }
+      out.endArray();
+      out.name("metadata");
+      MetadataTypeAdapter.writeItems(out, value.getMetadata());
+      out.name("serviceAccounts").beginArray();
+      for (Instance.ServiceAccount serviceAccount : value.getServiceAccounts()) {
+         out.beginObject();
+         out.name("email").value(serviceAccount.getEmail());
+         out.name("scopes").beginArray();
+         for (String scope : serviceAccount.getScopes()) {
+            out.value(scope);
+         }
+         out.endArray();
+         out.endObject();
+      }
+      out.endArray();
+      out.endObject();
+   }
+
+   private static void writeNetworkInterface(JsonWriter out, NetworkInterface value) throws IOException {
+      out.beginObject();
+      writeIfPresent(out, "name", value.getName());
+      writeIfPresent(out, "network", value.getNetwork());
+      writeIfPresent(out, "networkIP", value.getNetworkIP().orNull());
+      out.name("accessConfigs").beginArray();
+      for (AccessConfig accessConfig : value.getAccessConfigs()) {
+         out.beginObject();
+         writeIfPresent(out, "name", accessConfig.getName().orNull());
+         writeIfPresent(out, "type", accessConfig.getType());
+         writeIfPresent(out, "natIP", accessConfig.getNatIP().orNull());
+         out.endObject();
+      }
+      out.endArray();
+      out.endObject();
+   }
+
+   private static void writeDisk(JsonWriter out, Instance.AttachedDisk value) throws IOException {
+      out.beginObject();
+      out.name("type").value(value.isPersistent() ? "PERSISTENT" : "EPHEMERAL");
+      out.name("index").value(value.getIndex());
+      if (value.isPersistent()) {
+         Instance.PersistentAttachedDisk persistent = (Instance.PersistentAttachedDisk) value;
+         out.name("mode").value(persistent.getMode().name());
+         out.name("source").value(persistent.getSource().toString());
+         writeIfPresent(out, "deviceName", persistent.getDeviceName().orNull());
+         out.name("deleteOnTerminate").value(persistent.isDeleteOnTerminate());
+      }
+      out.endObject();
+   }
+
+   @Override
+   public Instance read(JsonReader in) throws IOException {
+      Instance.Builder builder = Instance.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         Field field = FIELDS.get(in.nextName());
+         if (field == null || in.peek() == JsonToken.NULL) {
+            in.skipValue();
+            continue;
+         }
+         switch (field) {
+            case ID:
+               builder.id(in.nextString());
+               break;
+            case CREATION_TIMESTAMP:
+               builder.creationTimestamp(nextDate(in, dateService));
+               break;
+            case SELF_LINK:
+               builder.selfLink(nextUri(in));
+               break;
+            case NAME:
+               builder.name(in.nextString());
+               break;
+            case DESCRIPTION:
+               builder.description(in.nextString());
+               break;
+            case TAGS:
+               in.beginArray();
+               while (in.hasNext()) {
+                  builder.addTag(interner.string(in.nextString()));
+               }
+               in.endArray();
+               break;
+            case IMAGE:
+               builder.image(interner.uri(in.nextString()));
+               break;
+            case MACHINE_TYPE:
+               builder.machineType(interner.uri(in.nextString()));
+               break;
+            case STATUS:
+               builder.status(nextConstant(in, STATUSES, null));
+               break;
+            case STATUS_MESSAGE:
+               builder.statusMessage(in.nextString());
+               break;
+            case ZONE:
+               builder.zone(interner.uri(in.nextString()));
+               break;
+            case NETWORK_INTERFACES:
+               in.beginArray();
+               while (in.hasNext()) {
+                  builder.addNetworkInterface(readNetworkInterface(in));
+               }
+               in.endArray();
+               break;
+            case DISKS:
+               in.beginArray();
+               while (in.hasNext()) {
+                  Instance.AttachedDisk disk = readDisk(in);
+                  if (disk != null) {
+                     builder.addDisk(disk);
+                  }
+               }
+               in.endArray();
+               break;
+            case METADATA:
+               builder.metadata(MetadataTypeAdapter.readItems(in, interner));
+               break;
+            case SERVICE_ACCOUNTS:
+               in.beginArray();
+               while (in.hasNext()) {
+                  builder.addServiceAccount(readServiceAccount(in));
+               }
+               in.endArray();
+               break;
+         }
+      }
+      in.endObject();
+      return builder.build();
+   }
+
+   private NetworkInterface readNetworkInterface(JsonReader in) throws IOException {
+      NetworkInterface.Builder builder = NetworkInterface.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         String name = in.nextName();
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+         } else if (name.equals("name")) {
+            builder.name(interner.string(in.nextString()));
+         } else if (name.equals("network")) {
+            builder.network(interner.uri(in.nextString()));
+         } else if (name.equals("networkIP")) {
+            builder.networkIP(in.nextString());
+         } else if (name.equals("accessConfigs")) {
+            in.beginArray();
+            while (in.hasNext()) {
+               builder.addAccessConfig(readAccessConfig(in));
+            }
+            in.endArray();
+         } else {
+            in.skipValue();
+         }
+      }
+      in.endObject();
+      return builder.build();
+   }
+
+   private AccessConfig readAccessConfig(JsonReader in) throws IOException {
+      AccessConfig.Builder builder = AccessConfig.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         String name = in.nextName();
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+         } else if (name.equals("name")) {
+            builder.name(interner.string(in.nextString()));
+         } else if (name.equals("type")) {
+            builder.type(nextConstant(in, ACCESS_CONFIG_TYPES, null));
+         } else if (name.equals("natIP")) {
+            builder.natIP(in.nextString());
+         } else {
+            in.skipValue();
+         }
+      }
+      in.endObject();
+      return builder.build();
+   }
+
+   /**
+    * @return the disk, or null when the response leaves out a member the disk can't be built without, i.e. the index
+    *         or, for persistent disks, the mode or the source.
+    */
+   @Nullable
+   private static Instance.AttachedDisk readDisk(JsonReader in) throws IOException {
+      boolean persistent = false;
+      Integer index = null;
+      Instance.PersistentAttachedDisk.Mode mode = null;
+      URI source = null;
+      String deviceName = null;
+      boolean deleteOnTerminate = false;
+      in.beginObject();
+      while (in.hasNext()) {
+         String name = in.nextName();
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+         } else if (name.equals("type")) {
+            persistent = in.nextString().equals("PERSISTENT");
+         } else if (name.equals("index")) {
+            index = in.nextInt();
+         } else if (name.equals("mode")) {
+            mode = nextConstant(in, DISK_MODES, null);
+         } else if (name.equals("source")) {
+            source = nextUri(in);
+         } else if (name.equals("deviceName")) {
+            deviceName = in.nextString();
+         } else if (name.equals("deleteOnTerminate")) {
+            deleteOnTerminate = in.nextBoolean();
+         } else {
+            in.skipValue();
+         }
+      }
+      in.endObject();
+      if (index == null) {
+         return null;
+      } else if (!persistent) {
+         return Instance.AttachedDisk.ephemeralDiskAtIndex(index);
+      } else if (mode == null || source == null) {
+         return null;
+      }
+      return new Instance.PersistentAttachedDisk(mode, source, deviceName, index, deleteOnTerminate);
+   }
+
+   private Instance.ServiceAccount readServiceAccount(JsonReader in) throws IOException {
+      Instance.ServiceAccount.Builder builder = Instance.ServiceAccount.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         String name = in.nextName();
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+         } else if (name.equals("email")) {
+            builder.email(interner.string(in.nextString()));
+         } else if (name.equals("scopes")) {
+            in.beginArray();
+            while (in.hasNext()) {
+               builder.addScopes(interner.string(in.nextString()));
+            }
+            in.endArray();
+         } else {
+            in.skipValue();
+         }
+      }
+      in.endObject();
+      return builder.build();
+   }
+}
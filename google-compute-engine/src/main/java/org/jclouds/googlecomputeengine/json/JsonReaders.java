@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.stream.JsonReader;
+import org.jclouds.date.DateService;
+import org.jclouds.javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Helpers shared by the streaming type adapters.
+ */
+final class JsonReaders {
+
+   private JsonReaders() {
+   }
+
+   static URI nextUri(JsonReader in) throws IOException {
+      return URI.create(in.nextString());
+   }
+
+   /**
+    * Parses dates as {@link org.jclouds.json.config.GsonModule.Iso8601DateAdapter} does, with or without millis.
+    */
+   static Date nextDate(JsonReader in, DateService dateService) throws IOException {
+      String toParse = in.nextString();
+      try {
+         return dateService.iso8601DateParse(toParse);
+      } catch (RuntimeException e) {
+         return dateService.iso8601SecondsDateParse(toParse);
+      }
+   }
+
+   /**
+    * Indexes the constants of an enum by name, for {@link #nextConstant}.
+    */
+   static <E extends Enum<E>> Map<String, E> constantsByName(Class<E> type) {
+      ImmutableMap.Builder<String, E> constants = ImmutableMap.builder();
+      for (E constant : type.getEnumConstants()) {
+         constants.put(constant.name(), constant);
+      }
+      return constants.build();
+   }
+
+   /**
+    * Looks the next string up in the given constants. Unlike {@link Enum#valueOf}, a value the API added after this
+    * provider was written maps to {@code unrecognized} instead of failing the whole response.
+    */
+   static <E> E nextConstant(JsonReader in, Map<String, E> constants, @Nullable E unrecognized) throws IOException {
+      E constant = constants.get(in.nextString());
+      return constant != null ? constant : unrecognized;
+   }
+}
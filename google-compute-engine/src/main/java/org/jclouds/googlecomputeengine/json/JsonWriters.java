@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.date.DateService;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.jclouds.javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Helpers shared by the streaming type adapters to write resources back out in the form they read them.
+ */
+final class JsonWriters {
+
+   private JsonWriters() {
+   }
+
+   /**
+    * Writes the member only when the value is present, as the API leaves out unset members.
+    */
+   static void writeIfPresent(JsonWriter out, String name, @Nullable Object value) throws IOException {
+      if (value != null) {
+         out.name(name).value(value.toString());
+      }
+   }
+
+   static void writeIfPresent(JsonWriter out, String name, @Nullable Date value, DateService dateService)
+           throws IOException {
+      if (value != null) {
+         out.name(name).value(dateService.iso8601DateFormat(value));
+      }
+   }
+
+   /**
+    * Writes the members every resource has, see {@link Resource}.
+    */
+   static void writeResource(JsonWriter out, Resource value, DateService dateService) throws IOException {
+      out.name("kind").value(value.getKind().value());
+      writeIfPresent(out, "id", value.getId());
+      writeIfPresent(out, "creationTimestamp", value.getCreationTimestamp().orNull(), dateService);
+      writeIfPresent(out, "selfLink", value.getSelfLink());
+      writeIfPresent(out, "name", value.getName());
+      writeIfPresent(out, "description", value.getDescription().orNull());
+   }
+}
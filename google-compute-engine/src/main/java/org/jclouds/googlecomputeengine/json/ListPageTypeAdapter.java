@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextUri;
+import static org.jclouds.googlecomputeengine.json.JsonWriters.writeIfPresent;
+
+/**
+ * Streaming JSON TypeAdapter for a page of resources, that reads each item with the given adapter straight into the
+ * page, instead of collecting the items and copying them into the page afterwards.
+ */
+public class ListPageTypeAdapter<T> extends TypeAdapter<ListPage<T>> {
+
+   private final TypeAdapter<T> itemAdapter;
+
+   public ListPageTypeAdapter(TypeAdapter<T> itemAdapter) {
+      this.itemAdapter = checkNotNull(itemAdapter, "item adapter");
+   }
+
+   @Override
+   public void write(JsonWriter out, ListPage<T> value) throws IOException {
+      out.beginObject();
+      out.name("kind").value(value.getKind().value());
+      out.name("id").value(value.getId());
+      out.name("selfLink").value(value.getSelfLink().toString());
+      writeIfPresent(out, "nextPageToken", value.nextMarker().orNull());
+      out.name("items").beginArray();
+      for (T item : value) {
+         itemAdapter.write(out, item);
+      }
+      out.endArray();
+      out.endObject();
+   }
+
+   @Override
+   public ListPage<T> read(JsonReader in) throws IOException {
+      ListPage.Builder<T> builder = ListPage.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         String name = in.nextName();
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+         } else if (name.equals("items")) {
+            in.beginArray();
+            while (in.hasNext()) {
+               builder.addItem(itemAdapter.read(in));
+            }
+            in.endArray();
+         } else if (name.equals("kind")) {
+            builder.kind(Resource.Kind.fromValue(in.nextString()));
+         } else if (name.equals("id")) {
+            builder.id(in.nextString());
+         } else if (name.equals("selfLink")) {
+            builder.selfLink(nextUri(in));
+         } else if (name.equals("nextPageToken")) {
+            builder.nextPageToken(in.nextString());
+         } else {
+            in.skipValue();
+         }
+      }
+      in.endObject();
+      return builder.build();
+   }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule.Metadata;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Streaming JSON TypeAdapter for Metadata, which GCE represents as a list of key/value items.
+ */
+public class MetadataTypeAdapter extends TypeAdapter<Metadata> {
+
+   private final ValueInterner interner;
+
+   @Inject
+   public MetadataTypeAdapter(ValueInterner interner) {
+      this.interner = checkNotNull(interner, "interner");
+   }
+
+   @Override
+   public void write(JsonWriter out, Metadata value) throws IOException {
+      writeItems(out, value);
+   }
+
+   @Override
+   public Metadata read(JsonReader in) throws IOException {
+      return new Metadata(readItems(in, interner));
+   }
+
+   /**
+    * Reads a metadata object straight into an immutable map. Instances of the same group usually share their metadata,
+    * e.g. the ssh keys, so both keys and values are interned.
+    */
+   static Map<String, String> readItems(JsonReader in, ValueInterner interner) throws IOException {
+      ImmutableMap.Builder<String, String> items = ImmutableMap.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         if (!in.nextName().equals("items") || in.peek() == JsonToken.NULL) {
+            in.skipValue();
+            continue;
+         }
+         in.beginArray();
+         while (in.hasNext()) {
+            String key = null;
+            String value = null;
+            in.beginObject();
+            while (in.hasNext()) {
+               String name = in.nextName();
+               if (name.equals("key")) {
+                  key = interner.string(in.nextString());
+               } else if (name.equals("value")) {
+                  value = interner.string(in.nextString());
+               } else {
+                  in.skipValue();
+               }
+            }
+            in.endObject();
+            items.put(key, value);
+         }
+         in.endArray();
+      }
+      in.endObject();
+      return items.build();
+   }
+
+   static void writeItems(JsonWriter out, Map<String, String> items) throws IOException {
+      out.beginObject();
+      out.name("kind").value("compute#metadata");
+      out.name("items").beginArray();
+      for (Map.Entry<String, String> entry : items.entrySet()) {
+         out.beginObject();
+         out.name("key").value(entry.getKey());
+         out.name("value").value(entry.getValue());
+         out.endObject();
+      }
+      out.endArray();
+      out.endObject();
+   }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jclouds.date.DateService;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.http.HttpResponse;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.constantsByName;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextConstant;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextDate;
+import static org.jclouds.googlecomputeengine.json.JsonReaders.nextUri;
+import static org.jclouds.googlecomputeengine.json.JsonWriters.writeIfPresent;
+import static org.jclouds.googlecomputeengine.json.JsonWriters.writeResource;
+
+/**
+ * Streaming JSON TypeAdapter for Operation, that unwraps the errors straight into the Operation builder. Statuses the
+ * API added after this provider was written are read as {@link Operation.Status#UNRECOGNIZED}.
+ *
+ * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/operations"/>
+ */
+public class OperationTypeAdapter extends TypeAdapter<Operation> {
+
+   private enum Field {
+      ID, CREATION_TIMESTAMP, SELF_LINK, NAME, DESCRIPTION, TARGET_LINK, TARGET_ID, CLIENT_OPERATION_ID, STATUS,
+      STATUS_MESSAGE, USER, PROGRESS, INSERT_TIME, START_TIME, END_TIME, HTTP_ERROR_STATUS_CODE, HTTP_ERROR_MESSAGE,
+      OPERATION_TYPE, ERROR
+   }
+
+   private static final Map<String, Field> FIELDS = ImmutableMap.<String, Field>builder()
+           .put("id", Field.ID)
+           .put("creationTimestamp", Field.CREATION_TIMESTAMP)
+           .put("selfLink", Field.SELF_LINK)
+           .put("name", Field.NAME)
+           .put("description", Field.DESCRIPTION)
+           .put("targetLink", Field.TARGET_LINK)
+           .put("targetId", Field.TARGET_ID)
+           .put("clientOperationId", Field.CLIENT_OPERATION_ID)
+           .put("status", Field.STATUS)
+           .put("statusMessage", Field.STATUS_MESSAGE)
+           .put("user", Field.USER)
+           .put("progress", Field.PROGRESS)
+           .put("insertTime", Field.INSERT_TIME)
+           .put("startTime", Field.START_TIME)
+           .put("endTime", Field.END_TIME)
+           .put("httpErrorStatusCode", Field.HTTP_ERROR_STATUS_CODE)
+           .put("httpErrorMessage", Field.HTTP_ERROR_MESSAGE)
+           .put("operationType", Field.OPERATION_TYPE)
+           .put("error", Field.ERROR).build();
+
+   private static final Map<String, Operation.Status> STATUSES = constantsByName(Operation.Status.class);
+
+   private final DateService dateService;
+   private final ValueInterner interner;
+
+   @Inject
+   public OperationTypeAdapter(DateService dateService, ValueInterner interner) {
+      this.dateService = checkNotNull(dateService, "date service");
+      this.interner = checkNotNull(interner, "interner");
+   }
+
+   @Override
+   public void write(JsonWriter out, Operation value) throws IOException {
+      out.beginObject();
+      writeResource(out, value, dateService);
+      writeIfPresent(out, "targetLink", value.getTargetLink());
+      writeIfPresent(out, "targetId", value.getTargetId().orNull());
+      writeIfPresent(out, "clientOperationId", value.getClientOperationId().orNull());
+      writeIfPresent(out, "status", value.getStatus());
+      writeIfPresent(out, "statusMessage", value.getStatusMessage().orNull());
+      writeIfPresent(out, "user", value.getUser());
+      if (value.getProgress().isPresent()) {
+         out.name("progress").value(value.getProgress().get());
+      }
+      writeIfPresent(out, "insertTime", value.getInsertTime(), dateService);
+      writeIfPresent(out, "startTime", value.getStartTime().orNull(), dateService);
+      writeIfPresent(out, "endTime", value.getEndTime().orNull(), dateService);
+      if (value.getHttpError().isPresent()) {
+         HttpResponse httpError = value.getHttpError().get();
+         out.name("httpErrorStatusCode").value(httpError.getStatusCode());
+         writeIfPresent(out, "httpErrorMessage", httpError.getMessage());
+      }
+      writeIfPresent(out, "operationType", value.getOperationType());
+      if (!value.getErrors().isEmpty()) {
+         out.name("error").beginObject();
+         out.name("errors").beginArray();
+         for (Operation.Error error : value.getErrors()) {
+            out.beginObject();
+            writeIfPresent(out, "code", error.getCode());
+            writeIfPresent(out, "location", error.getLocation().orNull());
+            writeIfPresent(out, "message", error.getMessage().orNull());
+            out.endObject();
+         }
+         out.endArray();
+         out.endObject();
+      }
+      out.endObject();
+   }
+
+   @Override
+   public Operation read(JsonReader in) throws IOException {
+      Operation.Builder builder = Operation.builder();
+      in.beginObject();
+      while (in.hasNext()) {
+         Field field = FIELDS.get(in.nextName());
+         if (field == null || in.peek() == JsonToken.NULL) {
+            in.skipValue();
+            continue;
+         }
+         switch (field) {
+            case ID:
+               builder.id(in.nextString());
+               break;
+            case CREATION_TIMESTAMP:
+               builder.creationTimestamp(nextDate(in, dateService));
+               break;
+            case SELF_LINK:
+               builder.selfLink(nextUri(in));
+               break;
+            case NAME:
+               builder.name(in.nextString());
+               break;
+            case DESCRIPTION:
+               builder.description(in.nextString());
+               break;
+            case TARGET_LINK:
+               builder.targetLink(interner.uri(in.nextString()));
+               break;
+            case TARGET_ID:
+               builder.targetId(in.nextString());
+               break;
+            case CLIENT_OPERATION_ID:
+               builder.clientOperationId(in.nextString());
+               break;
+            case STATUS:
+               builder.status(nextConstant(in, STATUSES, Operation.Status.UNRECOGNIZED));
+               break;
+            case STATUS_MESSAGE:
+               builder.statusMessage(in.nextString());
+               break;
+            case USER:
+               builder.user(interner.string(in.nextString()));
+               break;
+            case PROGRESS:
+               builder.progress(in.nextInt());
+               break;
+            case INSERT_TIME:
+               builder.insertTime(nextDate(in, dateService));
+               break;
+            case START_TIME:
+               builder.startTime(nextDate(in, dateService));
+               break;
+            case END_TIME:
+               builder.endTime(nextDate(in, dateService));
+               break;
+            case HTTP_ERROR_STATUS_CODE:
+               builder.httpErrorStatusCode(in.nextInt());
+               break;
+            case HTTP_ERROR_MESSAGE:
+               builder.httpErrorMessage(interner.string(in.nextString()));
+               break;
+            case OPERATION_TYPE:
+               builder.operationType(interner.string(in.nextString()));
+               break;
+            case ERROR:
+               readErrors(in, builder);
+               break;
+         }
+      }
+      in.endObject();
+      return builder.build();
+   }
+
+   private void readErrors(JsonReader in, Operation.Builder operation) throws IOException {
+      in.beginObject();
+      while (in.hasNext()) {
+         if (!in.nextName().equals("errors") || in.peek() == JsonToken.NULL) {
+            in.skipValue();
+            continue;
+         }
+         in.beginArray();
+         while (in.hasNext()) {
+            Operation.Error.Builder error = Operation.Error.builder();
+            in.beginObject();
+            while (in.hasNext()) {
+               String name = in.nextName();
+               if (in.peek() == JsonToken.NULL) {
+                  in.nextNull();
+               } else if (name.equals("code")) {
+                  error.code(interner.string(in.nextString()));
+               } else if (name.equals("location")) {
+                  error.location(in.nextString());
+               } else if (name.equals("message")) {
+                  error.message(in.nextString());
+               } else {
+                  in.skipValue();
+               }
+            }
+            in.endObject();
+            operation.addError(error.build());
+         }
+         in.endArray();
+      }
+      in.endObject();
+   }
+}
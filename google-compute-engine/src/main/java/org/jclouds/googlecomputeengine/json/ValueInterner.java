@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.annotations.Beta;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.inject.Singleton;
+import java.net.URI;
+
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * Canonicalizes the values that repeat across parsed resources, e.g. the zone, machine type, image and network URIs
+ * or the service account scopes of instances, so that every instance shares one copy of each instead of holding its
+ * own. Values are held weakly, so the canonical copies go away with the last resource that uses them.
+ * <p/>
+ * Only the values that take a handful of distinct values across a project are interned; names, ids and self links
+ * are unique to each resource and interning them would only cost a lookup.
+ */
+@Beta
+@Singleton
+public class ValueInterner {
+
+   /**
+    * Returns every value as it was parsed.
+    */
+   public static final ValueInterner NONE = new ValueInterner() {
+      @Override
+      public URI uri(String uri) {
+         return URI.create(uri);
+      }
+
+      @Override
+      public String string(String value) {
+         return value;
+      }
+   };
+
+   private final Interner<String> strings = Interners.newWeakInterner();
+   private final LoadingCache<String, URI> uris = CacheBuilder.newBuilder().weakValues()
+           .build(new CacheLoader<String, URI>() {
+              @Override
+              public URI load(String key) {
+                 return URI.create(key);
+              }
+           });
+
+   /**
+    * @return the canonical URI for the given string, which is only parsed the first time it is seen.
+    */
+   public URI uri(String uri) {
+      try {
+         return uris.getUnchecked(uri);
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   /**
+    * @return the canonical copy of the given string.
+    */
+   public String string(String value) {
+      return strings.intern(value);
+   }
+}
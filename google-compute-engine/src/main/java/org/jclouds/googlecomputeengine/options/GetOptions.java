@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.options;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.jclouds.http.options.BaseHttpRequestOptions;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Allows to optionally ask for a partial response of <code>get()</code> REST methods.
+ *
+ * @see <a href="https://developers.google.com/compute/docs/performance#partial"/>
+ */
+public class GetOptions extends BaseHttpRequestOptions {
+
+   /**
+    * The fields every resource needs to be parsed, always asked for along with the requested ones.
+    */
+   static final List<String> RESOURCE_FIELDS = ImmutableList.of("kind", "id", "selfLink", "name");
+
+   /**
+    * Optional. Restricts the response to the given fields, so that less is sent over the wire and parsed, in the
+    * partial response syntax, e.g. {@code status,networkInterfaces/networkIP} or {@code disks(source,index)}. The
+    * fields needed to identify the resource are always included, the other ones are left absent from the returned
+    * resource. Such instances can still be converted into nodes, see
+    * {@link org.jclouds.googlecomputeengine.compute.functions.InstanceToNodeMetadata}.
+    */
+   public GetOptions fields(String fields) {
+      this.queryParameters.put("fields", withResourceFields(fields));
+      return this;
+   }
+
+   /**
+    * Prepends the resource fields to a partial response selector, unless they're already part of it.
+    */
+   static String withResourceFields(String fields) {
+      checkArgument(!checkNotNull(fields, "fields").trim().isEmpty(), "fields must not be empty");
+      Set<String> selectors = Sets.newLinkedHashSet(RESOURCE_FIELDS);
+      int depth = 0;
+      int start = 0;
+      for (int i = 0; i < fields.length(); i++) {
+         char c = fields.charAt(i);
+         if (c == '(') {
+            depth++;
+         } else if (c == ')') {
+            depth--;
+         } else if (c == ',' && depth == 0) {
+            selectors.add(fields.substring(start, i).trim());
+            start = i + 1;
+         }
+      }
+      checkArgument(depth == 0, "unbalanced parentheses in fields: %s", fields);
+      selectors.add(fields.substring(start).trim());
+      return Joiner.on(',').join(selectors);
+   }
+
+   public static class Builder {
+
+      /**
+       * @see GetOptions#fields(String)
+       */
+      public GetOptions fields(String fields) {
+         return new GetOptions().fields(fields);
+      }
+   }
+}
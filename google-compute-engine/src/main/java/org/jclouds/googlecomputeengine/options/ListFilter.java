@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.options;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.googlecomputeengine.domain.Resource;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.base.Throwables.propagateIfInstanceOf;
+import static com.google.common.collect.Iterables.transform;
+
+/**
+ * A validated filter expression for {@link ListOptions#filter(ListFilter)}, in the form
+ * {@code <field_name> eq|ne <literal_string>}.
+ * <p/>
+ * Field names are checked against the atomic fields of the filtered resource kind, string literals are compiled as
+ * regular expressions and number literals parsed, so that malformed filters fail before any request is made.
+ * Expressions are cached once built, so building the same filter repeatedly, e.g. on every poll, is a lookup; filters
+ * on a value that is only ever used once, e.g. a unique id, are built through {@link Field#uncached()} instead.
+ * <p/>
+ * For example:
+ * <p/>
+ * {@code ListFilter.on(Resource.Kind.INSTANCE).field("status").notEqualTo("RUNNING")}<br/>
+ * {@code ListFilter.on(Resource.Kind.INSTANCE).field("name").matches("my-group-.*")}
+ *
+ * @see ListOptions#filter(String)
+ */
+public final class ListFilter {
+
+   public enum Comparison {
+      EQ,
+      NE;
+
+      public String value() {
+         return name().toLowerCase();
+      }
+
+      @Override
+      public String toString() {
+         return value();
+      }
+   }
+
+   private enum FieldType {
+      STRING,
+      NUMBER
+   }
+
+   private static final Map<String, FieldType> RESOURCE_FIELDS = ImmutableMap.<String, FieldType>builder()
+           .put("id", FieldType.STRING)
+           .put("creationTimestamp", FieldType.STRING)
+           .put("selfLink", FieldType.STRING)
+           .put("name", FieldType.STRING)
+           .put("description", FieldType.STRING).build();
+
+   private static final Map<Resource.Kind, Map<String, FieldType>> FIELDS =
+           ImmutableMap.<Resource.Kind, Map<String, FieldType>>builder()
+                   .put(Resource.Kind.DISK, fields(ImmutableMap.of(
+                           "sizeGb", FieldType.NUMBER,
+                           "zone", FieldType.STRING,
+                           "status", FieldType.STRING)))
+                   .put(Resource.Kind.FIREWALL, fields(ImmutableMap.of(
+                           "network", FieldType.STRING)))
+                   .put(Resource.Kind.IMAGE, fields(ImmutableMap.of(
+                           "sourceType", FieldType.STRING,
+                           "preferredKernel", FieldType.STRING)))
+                   .put(Resource.Kind.INSTANCE, fields(ImmutableMap.of(
+                           "image", FieldType.STRING,
+                           "machineType", FieldType.STRING,
+                           "status", FieldType.STRING,
+                           "statusMessage", FieldType.STRING,
+                           "zone", FieldType.STRING)))
+                   .put(Resource.Kind.KERNEL, RESOURCE_FIELDS)
+                   .put(Resource.Kind.MACHINE_TYPE, fields(ImmutableMap.of(
+                           "guestCpus", FieldType.NUMBER,
+                           "memoryMb", FieldType.NUMBER,
+                           "imageSpaceGb", FieldType.NUMBER,
+                           "maximumPersistentDisks", FieldType.NUMBER,
+                           "maximumPersistentDisksSizeGb", FieldType.NUMBER)))
+                   .put(Resource.Kind.NETWORK, fields(ImmutableMap.of(
+                           "IPv4Range", FieldType.STRING,
+                           "gatewayIPv4", FieldType.STRING)))
+                   .put(Resource.Kind.OPERATION, fields(ImmutableMap.<String, FieldType>builder()
+                           .put("targetLink", FieldType.STRING)
+                           .put("targetId", FieldType.STRING)
+                           .put("clientOperationId", FieldType.STRING)
+                           .put("status", FieldType.STRING)
+                           .put("statusMessage", FieldType.STRING)
+                           .put("user", FieldType.STRING)
+                           .put("progress", FieldType.NUMBER)
+                           .put("insertTime", FieldType.STRING)
+                           .put("startTime", FieldType.STRING)
+                           .put("endTime", FieldType.STRING)
+                           .put("httpErrorStatusCode", FieldType.NUMBER)
+                           .put("httpErrorMessage", FieldType.STRING)
+                           .put("operationType", FieldType.STRING).build()))
+                   .put(Resource.Kind.ZONE, fields(ImmutableMap.of(
+                           "status", FieldType.STRING))).build();
+
+   private static final Pattern RE2_METACHARACTERS = Pattern.compile("[\\\\.^$|?*+()\\[\\]{}]");
+   private static final Pattern NUMBER = Pattern.compile("-?[0-9]+(\\.[0-9]+)?");
+   private static final Pattern WHITESPACE = Pattern.compile("\\s");
+
+   private static final LoadingCache<Key, ListFilter> EXPRESSIONS = CacheBuilder.newBuilder()
+           .maximumSize(1000)
+           .build(new CacheLoader<Key, ListFilter>() {
+              @Override
+              public ListFilter load(Key key) {
+                 return new ListFilter(key);
+              }
+           });
+
+   /**
+    * Starts a filter on the given resource kind, e.g. {@link Resource.Kind#INSTANCE}.
+    *
+    * @throws IllegalArgumentException if the resources of that kind can't be listed with a filter.
+    */
+   public static Fields on(Resource.Kind kind) {
+      checkArgument(FIELDS.containsKey(checkNotNull(kind, "kind")), "resources of kind %s can't be filtered", kind);
+      return new Fields(kind);
+   }
+
+   /**
+    * Escapes RE2 metacharacters so that the literal only matches itself.
+    */
+   public static String quote(String literal) {
+      return RE2_METACHARACTERS.matcher(checkNotNull(literal, "literal")).replaceAll("\\\\$0");
+   }
+
+   /**
+    * @return a regular expression that matches any of the given literals, e.g. {@code (a|b)}.
+    */
+   public static String anyOf(Iterable<String> literals) {
+      return "(" + Joiner.on('|').join(transform(checkNotNull(literals, "literals"), new Function<String, String>() {
+         @Override
+         public String apply(String input) {
+            return quote(input);
+         }
+      })) + ")";
+   }
+
+   /**
+    * The filterable fields of a resource kind.
+    */
+   public static final class Fields {
+
+      private final Resource.Kind kind;
+
+      private Fields(Resource.Kind kind) {
+         this.kind = kind;
+      }
+
+      /**
+       * @throws IllegalArgumentException if the field isn't an atomic field of the resource kind.
+       */
+      public Field field(String name) {
+         checkArgument(FIELDS.get(kind).containsKey(checkNotNull(name, "field name")),
+                 "%s is not a filterable field of %s, valid fields are %s", name, kind, FIELDS.get(kind).keySet());
+         return new Field(kind, name, true);
+      }
+   }
+
+   /**
+    * A field of the filtered resource kind.
+    */
+   public static final class Field {
+
+      private final Resource.Kind kind;
+      private final String name;
+      private final boolean cached;
+
+      private Field(Resource.Kind kind, String name, boolean cached) {
+         this.kind = kind;
+         this.name = name;
+         this.cached = cached;
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      /**
+       * @return the same field, whose filters are built every time instead of kept in the expression cache, where a
+       *         filter that is never built again would only evict the ones that are.
+       */
+      public Field uncached() {
+         return new Field(kind, name, false);
+      }
+
+      /**
+       * Matches the resources whose field matches the whole regular expression.
+       */
+      public ListFilter matches(String regex) {
+         return get(new Key(kind, name, Comparison.EQ, regex), cached);
+      }
+
+      /**
+       * Matches the resources whose field doesn't match the whole regular expression.
+       */
+      public ListFilter doesNotMatch(String regex) {
+         return get(new Key(kind, name, Comparison.NE, regex), cached);
+      }
+
+      /**
+       * Matches the resources whose field equals the literal, which is escaped as needed.
+       */
+      public ListFilter equalTo(Object literal) {
+         return get(new Key(kind, name, Comparison.EQ, literal(literal)), cached);
+      }
+
+      /**
+       * Matches the resources whose field doesn't equal the literal, which is escaped as needed.
+       */
+      public ListFilter notEqualTo(Object literal) {
+         return get(new Key(kind, name, Comparison.NE, literal(literal)), cached);
+      }
+
+      private String literal(Object literal) {
+         String value = checkNotNull(literal, "literal").toString();
+         return FIELDS.get(kind).get(name) == FieldType.NUMBER ? value : quote(value);
+      }
+   }
+
+   private final Key key;
+   private final String expression;
+
+   private ListFilter(Key key) {
+      this.key = key;
+      FieldType type = FIELDS.get(key.kind).get(key.field);
+      if (type == FieldType.NUMBER) {
+         checkArgument(NUMBER.matcher(key.literal).matches(), "%s of %s is a number, not %s", key.field, key.kind,
+                 key.literal);
+      } else {
+         // RE2 is close to a subset of java.util.regex, so this catches malformed expressions
+         Pattern.compile(key.literal);
+      }
+      this.expression = key.field + " " + key.comparison.value() + " " + render(key.literal);
+   }
+
+   public Resource.Kind getKind() {
+      return key.kind;
+   }
+
+   public String getField() {
+      return key.field;
+   }
+
+   public Comparison getComparison() {
+      return key.comparison;
+   }
+
+   /**
+    * @return the regular expression, or number, the field is compared to.
+    */
+   public String getLiteral() {
+      return key.literal;
+   }
+
+   /**
+    * @return the filter expression, e.g. {@code status ne RUNNING}.
+    */
+   public String getExpression() {
+      return expression;
+   }
+
+   @Override
+   public int hashCode() {
+      return key.hashCode();
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (obj == null || getClass() != obj.getClass()) return false;
+      return key.equals(ListFilter.class.cast(obj).key);
+   }
+
+   @Override
+   public String toString() {
+      return expression;
+   }
+
+   private static ListFilter get(Key key, boolean cached) {
+      if (!cached) {
+         return new ListFilter(key);
+      }
+      try {
+         return EXPRESSIONS.getUnchecked(key);
+      } catch (UncheckedExecutionException e) {
+         propagateIfInstanceOf(e.getCause(), IllegalArgumentException.class);
+         throw propagate(e.getCause());
+      }
+   }
+
+   private static String render(String literal) {
+      if (!WHITESPACE.matcher(literal).find()) {
+         return literal;
+      }
+      checkArgument(literal.indexOf('\'') == -1 || literal.indexOf('"') == -1,
+              "literals with whitespace can't contain both single and double quotes: %s", literal);
+      return literal.indexOf('\'') == -1 ? "'" + literal + "'" : "\"" + literal + "\"";
+   }
+
+   private static Map<String, FieldType> fields(Map<String, FieldType> fields) {
+      return ImmutableMap.<String, FieldType>builder().putAll(RESOURCE_FIELDS).putAll(fields).build();
+   }
+
+   private static final class Key {
+
+      private final Resource.Kind kind;
+      private final String field;
+      private final Comparison comparison;
+      private final String literal;
+
+      private Key(Resource.Kind kind, String field, Comparison comparison, String literal) {
+         this.kind = kind;
+         this.field = field;
+         this.comparison = comparison;
+         this.literal = checkNotNull(literal, "literal");
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(kind, field, comparison, literal);
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         if (this == obj) return true;
+         if (obj == null || getClass() != obj.getClass()) return false;
+         Key that = Key.class.cast(obj);
+         return equal(this.kind, that.kind)
+                 && equal(this.field, that.field)
+                 && equal(this.comparison, that.comparison)
+                 && equal(this.literal, that.literal);
+      }
+   }
+}
@@ -64,6 +64,28 @@ public class ListOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Sets a filter built and validated with {@link ListFilter}.
+    *
+    * @see #filter(String)
+    */
+   public ListOptions filter(ListFilter filter) {
+      return filter(checkNotNull(filter, "filter").getExpression());
+   }
+
+   /**
+    * Optional. Restricts each listed item to the given fields, in the partial response syntax, e.g.
+    * {@code name,status,networkInterfaces/networkIP}. The fields needed to page through the list and to identify each
+    * item are always included.
+    *
+    * @see GetOptions#fields(String)
+    */
+   public ListOptions fields(String itemFields) {
+      this.queryParameters.put("fields", "kind,id,selfLink,nextPageToken,items("
+              + GetOptions.withResourceFields(itemFields) + ")");
+      return this;
+   }
+
    /**
     * Sets Maximum count of results to be returned. Maximum and default value is 100. Acceptable values are 0 to
     * 100, inclusive. (Default: 100)
@@ -82,6 +104,20 @@ public class ListOptions extends BaseHttpRequestOptions {
          return new ListOptions().filter(filter);
       }
 
+      /**
+       * @see ListOptions#filter(ListFilter)
+       */
+      public ListOptions filter(ListFilter filter) {
+         return new ListOptions().filter(filter);
+      }
+
+      /**
+       * @see ListOptions#fields(String)
+       */
+      public ListOptions fields(String itemFields) {
+         return new ListOptions().fields(itemFields);
+      }
+
       /**
        * @see ListOptions#maxResults(Integer)
        */
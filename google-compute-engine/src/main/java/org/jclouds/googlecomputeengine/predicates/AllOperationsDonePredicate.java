@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.predicates;
+
+import com.google.common.base.Predicate;
+import com.google.inject.Inject;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Tests that a group of Operations are all done, polling only the ones that were not yet seen DONE. Each reference
+ * is updated with the completed Operation as soon as it is.
+ * <p/>
+ * Meant to be used with {@link org.jclouds.util.Predicates2#retry} so that a single thread tracks every operation
+ * issued by a bulk request. Use {@link #recordingFailuresIn} so that an operation that can't be polled only fails
+ * itself, instead of the wait for all of them.
+ */
+public class AllOperationsDonePredicate implements Predicate<Collection<AtomicReference<Operation>>> {
+
+   private final Predicate<AtomicReference<Operation>> operationDonePredicate;
+   private final Map<AtomicReference<Operation>, Exception> failures;
+
+   @Inject
+   AllOperationsDonePredicate(Predicate<AtomicReference<Operation>> operationDonePredicate) {
+      this(operationDonePredicate, null);
+   }
+
+   private AllOperationsDonePredicate(Predicate<AtomicReference<Operation>> operationDonePredicate,
+                                      @Nullable Map<AtomicReference<Operation>, Exception> failures) {
+      this.operationDonePredicate = checkNotNull(operationDonePredicate, "operation done predicate");
+      this.failures = failures;
+   }
+
+   /**
+    * @param failures receives the exception thrown while polling each operation, which is then no longer polled and
+    *                 counts as done.
+    * @return a predicate that records the failed polls instead of propagating them.
+    */
+   public AllOperationsDonePredicate recordingFailuresIn(Map<AtomicReference<Operation>, Exception> failures) {
+      return new AllOperationsDonePredicate(operationDonePredicate, checkNotNull(failures, "failures"));
+   }
+
+   @Override
+   public boolean apply(Collection<AtomicReference<Operation>> input) {
+      checkNotNull(input, "input");
+      boolean allDone = true;
+      for (AtomicReference<Operation> operation : input) {
+         if (operation.get().getStatus() == Operation.Status.DONE
+                 || (failures != null && failures.containsKey(operation))) {
+            continue;
+         }
+         try {
+            if (!operationDonePredicate.apply(operation)) {
+               allDone = false;
+            }
+         } catch (RuntimeException e) {
+            if (failures == null) {
+               throw e;
+            }
+            failures.put(operation, e);
+         }
+      }
+      return allDone;
+   }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.watch;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import org.jclouds.googlecomputeengine.domain.Instance;
+
+import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An instance that was added, removed or changed between two listings of an {@link InstanceChangeFeed}.
+ */
+@Beta
+public final class InstanceChange {
+
+   public enum Type {
+      ADDED,
+      REMOVED,
+      CHANGED
+   }
+
+   public static InstanceChange added(Instance current) {
+      return new InstanceChange(Type.ADDED, null, checkNotNull(current, "current"));
+   }
+
+   public static InstanceChange removed(Instance previous) {
+      return new InstanceChange(Type.REMOVED, checkNotNull(previous, "previous"), null);
+   }
+
+   public static InstanceChange changed(Instance previous, Instance current) {
+      checkArgument(checkNotNull(previous, "previous").getName().equals(checkNotNull(current, "current").getName()),
+              "%s and %s are not the same instance", previous.getName(), current.getName());
+      return new InstanceChange(Type.CHANGED, previous, current);
+   }
+
+   private final Type type;
+   private final Optional<Instance> previous;
+   private final Optional<Instance> current;
+
+   private InstanceChange(Type type, Instance previous, Instance current) {
+      this.type = type;
+      this.previous = Optional.fromNullable(previous);
+      this.current = Optional.fromNullable(current);
+   }
+
+   public Type getType() {
+      return type;
+   }
+
+   /**
+    * @return the name of the instance.
+    */
+   public String getName() {
+      return current.or(previous).get().getName();
+   }
+
+   /**
+    * @return the instance as it was in the previous listing, absent if it was added.
+    */
+   public Optional<Instance> getPrevious() {
+      return previous;
+   }
+
+   /**
+    * @return the instance as it is in the latest listing, absent if it was removed.
+    */
+   public Optional<Instance> getCurrent() {
+      return current;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int hashCode() {
+      return Objects.hashCode(type, previous, current);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (obj == null || getClass() != obj.getClass()) return false;
+      InstanceChange that = InstanceChange.class.cast(obj);
+      return equal(this.type, that.type)
+              && equal(this.previous, that.previous)
+              && equal(this.current, that.current);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString() {
+      return toStringHelper(this).add("type", type).add("name", getName()).toString();
+   }
+}
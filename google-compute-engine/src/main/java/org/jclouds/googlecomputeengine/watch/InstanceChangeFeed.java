@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.watch;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Polls the instance list of a project and publishes what changed since the previous listing, so that any number of
+ * subscribers share one polling loop and only handle the instances that were added, removed or changed.
+ * <p/>
+ * Instances are told apart by name, and compared by {@link InstanceFingerprint}, so changes to fields outside of the
+ * fingerprint are not reported. A subscriber that joins after the first listing is first sent every known instance
+ * as added, so that it starts from the same state as the others.
+ * <p/>
+ * Listings are made by {@link #poll()}, either directly or, once {@link #start started}, on a single daemon thread.
+ * A subscriber that throws is logged and skipped, so it neither keeps the others from the changes nor fails the poll.
+ * <pre>
+ * InstanceChangeFeed feed = new InstanceChangeFeed(api.getInstanceApiForProject("myproject"), null,
+ *       context.utils().loggerFactory());
+ * feed.subscribe(reconciler);
+ * feed.start(30, TimeUnit.SECONDS);
+ * </pre>
+ */
+@Beta
+public class InstanceChangeFeed implements Closeable {
+
+   public interface Subscriber {
+
+      /**
+       * Called after each listing that found changes, in the order of the polls.
+       */
+      void onChanges(List<InstanceChange> changes);
+
+      /**
+       * Called when a scheduled listing failed; the next poll diffs against the last successful listing.
+       */
+      void onFailure(Exception failure);
+   }
+
+   private final InstanceApi instanceApi;
+   private final ListOptions listOptions;
+   private final Logger logger;
+   private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+   // guards the snapshot, and keeps polls and subscriptions in order, so a listing never overwrites a later one
+   private final Object lock = new Object();
+   private Map<String, Listed> snapshot;
+   private ScheduledExecutorService scheduler;
+
+   /**
+    * @param instanceApi the instance api of the project to watch.
+    * @param listOptions the options of each listing, e.g. a filter that narrows the instances to watch.
+    * @param loggerFactory the logger factory of the context, which logs the failed subscribers and listings.
+    */
+   public InstanceChangeFeed(InstanceApi instanceApi, @Nullable ListOptions listOptions,
+                             Logger.LoggerFactory loggerFactory) {
+      this.instanceApi = checkNotNull(instanceApi, "instanceApi");
+      this.listOptions = listOptions;
+      this.logger = checkNotNull(loggerFactory, "loggerFactory").getLogger(InstanceChangeFeed.class.getName());
+   }
+
+   public void subscribe(Subscriber subscriber) {
+      checkNotNull(subscriber, "subscriber");
+      synchronized (lock) {
+         subscribers.add(subscriber);
+         if (snapshot != null && !snapshot.isEmpty()) {
+            ImmutableList.Builder<InstanceChange> known = ImmutableList.builder();
+            for (Listed listed : snapshot.values()) {
+               known.add(InstanceChange.added(listed.instance));
+            }
+            publish(subscriber, known.build());
+         }
+      }
+   }
+
+   public void unsubscribe(Subscriber subscriber) {
+      subscribers.remove(subscriber);
+   }
+
+   /**
+    * Polls on a daemon thread, with the given delay between the end of a listing and the start of the next one.
+    */
+   public synchronized void start(long delay, TimeUnit unit) {
+      checkArgument(delay > 0, "delay must be positive");
+      checkState(scheduler == null, "feed was already started");
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("gce-instance-change-feed-%d").build());
+      scheduler.scheduleWithFixedDelay(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               poll();
+            } catch (RuntimeException e) {
+               logger.warn(e, "could not list the instances");
+               for (Subscriber subscriber : subscribers) {
+                  try {
+                     subscriber.onFailure(e);
+                  } catch (RuntimeException failed) {
+                     logger.warn(failed, "subscriber %s failed on %s", subscriber, e);
+                  }
+               }
+            }
+         }
+      }, 0, delay, unit);
+   }
+
+   /**
+    * Stops polling, if the feed was started.
+    */
+   @Override
+   public synchronized void close() {
+      if (scheduler != null) {
+         scheduler.shutdownNow();
+      }
+   }
+
+   /**
+    * Lists the instances, publishes the changes since the previous listing to the subscribers and returns them.
+    */
+   public List<InstanceChange> poll() {
+      synchronized (lock) {
+         Iterable<Instance> instances = listOptions != null ? instanceApi.list(listOptions).concat()
+                 : instanceApi.list().concat();
+         Map<String, Listed> current = Maps.newLinkedHashMap();
+         for (Instance instance : instances) {
+            current.put(instance.getName(), new Listed(instance));
+         }
+         List<InstanceChange> changes = diff(snapshot != null ? snapshot : Maps.<String, Listed>newHashMap(), current);
+         snapshot = current;
+         if (!changes.isEmpty()) {
+            for (Subscriber subscriber : subscribers) {
+               publish(subscriber, changes);
+            }
+         }
+         return changes;
+      }
+   }
+
+   private void publish(Subscriber subscriber, List<InstanceChange> changes) {
+      try {
+         subscriber.onChanges(changes);
+      } catch (RuntimeException e) {
+         logger.warn(e, "subscriber %s failed on %d changes", subscriber, changes.size());
+      }
+   }
+
+   private static List<InstanceChange> diff(Map<String, Listed> previous, Map<String, Listed> current) {
+      ImmutableList.Builder<InstanceChange> changes = ImmutableList.builder();
+      for (Listed listed : current.values()) {
+         Listed before = previous.get(listed.instance.getName());
+         if (before == null) {
+            changes.add(InstanceChange.added(listed.instance));
+         } else if (before.fingerprint != listed.fingerprint) {
+            changes.add(InstanceChange.changed(before.instance, listed.instance));
+         }
+      }
+      for (Listed listed : previous.values()) {
+         if (!current.containsKey(listed.instance.getName())) {
+            changes.add(InstanceChange.removed(listed.instance));
+         }
+      }
+      return changes.build();
+   }
+
+   private static final class Listed {
+      private final Instance instance;
+      private final long fingerprint;
+
+      private Listed(Instance instance) {
+         this.instance = instance;
+         this.fingerprint = InstanceFingerprint.of(instance);
+      }
+   }
+}
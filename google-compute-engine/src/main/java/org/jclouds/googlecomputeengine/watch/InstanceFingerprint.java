@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.watch;
+
+import com.google.common.annotations.Beta;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig;
+
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A 64 bit fingerprint of the parts of an instance that a reconciler acts on: its status, metadata, tags and network
+ * interfaces, including their addresses. Two listings of an unchanged instance have the same fingerprint, so comparing
+ * fingerprints is enough to tell which instances changed between two listings. Metadata entries and network
+ * interfaces are combined regardless of their order.
+ */
+@Beta
+public final class InstanceFingerprint {
+
+   private static final HashFunction HASH = Hashing.murmur3_128();
+
+   private InstanceFingerprint() {
+   }
+
+   public static long of(Instance instance) {
+      checkNotNull(instance, "instance");
+      long metadata = 0;
+      for (Map.Entry<String, String> entry : instance.getMetadata().entrySet()) {
+         metadata += HASH.newHasher().putString(entry.getKey(), UTF_8).putByte((byte) 0)
+                 .putString(entry.getValue(), UTF_8).hash().asLong();
+      }
+      long tags = 0;
+      for (String tag : instance.getTags()) {
+         tags += HASH.hashString(tag, UTF_8).asLong();
+      }
+      long networkInterfaces = 0;
+      for (NetworkInterface networkInterface : instance.getNetworkInterfaces()) {
+         networkInterfaces += fingerprint(networkInterface);
+      }
+      return HASH.newHasher()
+              .putString(String.valueOf(instance.getStatus()), UTF_8)
+              .putLong(metadata)
+              .putLong(tags)
+              .putLong(networkInterfaces)
+              .hash().asLong();
+   }
+
+   private static long fingerprint(NetworkInterface networkInterface) {
+      Hasher hasher = HASH.newHasher()
+              .putString(String.valueOf(networkInterface.getName()), UTF_8).putByte((byte) 0)
+              .putString(String.valueOf(networkInterface.getNetwork()), UTF_8).putByte((byte) 0)
+              .putString(networkInterface.getNetworkIP().or(""), UTF_8);
+      long accessConfigs = 0;
+      for (AccessConfig accessConfig : networkInterface.getAccessConfigs()) {
+         accessConfigs += HASH.newHasher()
+                 .putString(String.valueOf(accessConfig.getType()), UTF_8).putByte((byte) 0)
+                 .putString(accessConfig.getName().or(""), UTF_8).putByte((byte) 0)
+                 .putString(accessConfig.getNatIP().or(""), UTF_8)
+                 .hash().asLong();
+      }
+      return hasher.putLong(accessConfigs).hash().asLong();
+   }
+}
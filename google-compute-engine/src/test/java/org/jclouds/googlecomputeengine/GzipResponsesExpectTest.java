@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine;
+
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceListTest;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payload;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_READONLY_SCOPE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.GZIP_RESPONSES;
+import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.GET_INSTANCE_REQUEST;
+import static org.jclouds.googlecomputeengine.features.InstanceApiExpectTest.GET_INSTANCE_RESPONSE;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.gzip;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.resource;
+import static org.jclouds.io.Payloads.newByteArrayPayload;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests that list requests negotiate gzip encoded responses, and decompress them, when
+ * {@link GoogleComputeEngineConstants#GZIP_RESPONSES} is enabled.
+ */
+@Test(groups = "unit")
+public class GzipResponsesExpectTest extends BaseGoogleComputeEngineApiExpectTest {
+
+   @Override
+   protected Properties setupProperties() {
+      Properties props = super.setupProperties();
+      props.put(GZIP_RESPONSES, "true");
+      return props;
+   }
+
+   public void testListInstancesAcceptsGzip() {
+      HttpRequest list = HttpRequest
+              .builder()
+              .method("GET")
+              .endpoint("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/instances")
+              .addHeader("Accept", "application/json")
+              .addHeader("Accept-Encoding", "gzip")
+              .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+      Payload gzipped = newByteArrayPayload(gzip(resource("/instance_list.json")));
+      gzipped.getContentMetadata().setContentType("application/json");
+      gzipped.getContentMetadata().setContentEncoding("gzip");
+      HttpResponse listResponse = HttpResponse.builder().statusCode(200).payload(gzipped).build();
+
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE),
+              TOKEN_RESPONSE, list, listResponse).getInstanceApiForProject("myproject");
+
+      assertEquals(api.listFirstPage().toString(), new ParseInstanceListTest().expected().toString());
+   }
+
+   public void testGetInstanceIsNotCompressed() {
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE),
+              TOKEN_RESPONSE, GET_INSTANCE_REQUEST, GET_INSTANCE_RESPONSE).getInstanceApiForProject("myproject");
+
+      assertEquals(api.get("test-1"), new ParseInstanceTest().expected());
+   }
+}
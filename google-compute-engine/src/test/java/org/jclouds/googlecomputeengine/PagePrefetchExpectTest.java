@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine;
+
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.googlecomputeengine.domain.Image;
+import org.jclouds.googlecomputeengine.features.ImageApi;
+import org.jclouds.googlecomputeengine.functions.internal.PrefetchingPagedIterable;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.Properties;
+
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_READONLY_SCOPE;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.PAGE_PREFETCH_DEPTH;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Same as {@link PageSystemExpectTest} but with pages prefetched in the background. Expect tests run the user
+ * executor on the calling thread, so the prefetched pages are requested in order as soon as iteration starts.
+ */
+@Test(groups = "unit")
+public class PagePrefetchExpectTest extends BaseGoogleComputeEngineApiExpectTest {
+
+   @Override
+   protected Properties setupProperties() {
+      Properties props = super.setupProperties();
+      props.put(PAGE_PREFETCH_DEPTH, "2");
+      return props;
+   }
+
+   public void testGetMultiplePagesWithPrefetch() {
+      int imageCounter = 0;
+      for (IterableWithMarker<Image> page : listMultiplePages()) {
+         for (Image image : page) {
+            imageCounter++;
+         }
+      }
+      assertSame(imageCounter, 9);
+   }
+
+   public void testCloseEndsIteration() {
+      PagedIterable<Image> images = listMultiplePages();
+      assertTrue(images instanceof PrefetchingPagedIterable);
+
+      Iterator<IterableWithMarker<Image>> pages = images.iterator();
+      assertTrue(pages.hasNext());
+      pages.next();
+
+      ((PrefetchingPagedIterable<Image>) images).close();
+      assertFalse(pages.hasNext());
+   }
+
+   private PagedIterable<Image> listMultiplePages() {
+      HttpRequest list1 = HttpRequest
+              .builder()
+              .method("GET")
+              .endpoint("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/images?maxResults=3")
+              .addHeader("Accept", "application/json")
+              .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+      HttpRequest list2 = HttpRequest
+              .builder()
+              .method("GET")
+              .endpoint("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/images?pageToken" +
+                      "=CgVJTUFHRRIbZ29vZ2xlLmNlbnRvcy02LTItdjIwMTIwNjIx&maxResults=3")
+              .addHeader("Accept", "application/json")
+              .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+      HttpRequest list3 = HttpRequest
+              .builder()
+              .method("GET")
+              .endpoint("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/images?pageToken" +
+                      "=CgVJTUFHRRIbZ29vZ2xlLmdjZWwtMTAtMDQtdjIwMTIxMTA2&maxResults=3")
+              .addHeader("Accept", "application/json")
+              .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+      HttpResponse list1response = HttpResponse.builder().statusCode(200)
+              .payload(payloadFromResource("/image_list_multiple_page_1.json")).build();
+
+      HttpResponse list2Response = HttpResponse.builder().statusCode(200)
+              .payload(payloadFromResource("/image_list_multiple_page_2.json")).build();
+
+      HttpResponse list3Response = HttpResponse.builder().statusCode(200)
+              .payload(payloadFromResource("/image_list_single_page.json")).build();
+
+      ImageApi imageApi = orderedRequestsSendResponses(requestForScopes(COMPUTE_READONLY_SCOPE),
+              TOKEN_RESPONSE, list1, list1response, list2, list2Response, list3, list3Response)
+              .getImageApiForProject("myproject");
+
+      return imageApi.list(new ListOptions.Builder().maxResults(3));
+   }
+}
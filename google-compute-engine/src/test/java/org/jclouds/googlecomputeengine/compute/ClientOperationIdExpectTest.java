@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.gson.JsonObject;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineServiceExpectTest;
+import org.jclouds.googlecomputeengine.internal.GoogleComputeEngineSimulator;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_INITIAL_PERIOD;
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_MAX_PERIOD;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests that the compute service recovers the operation of an instance insert whose response was lost, instead of
+ * failing or inserting the instance twice.
+ */
+@Test(groups = "unit", singleThreaded = true)
+public class ClientOperationIdExpectTest extends BaseGoogleComputeEngineServiceExpectTest {
+
+   @Override
+   protected Properties setupProperties() {
+      Properties overrides = super.setupProperties();
+      overrides.put("google-compute-engine.identity", "myproject");
+      try {
+         overrides.put("google-compute-engine.credential",
+                 toStringAndClose(getClass().getResourceAsStream("/testpk.pem")));
+      } catch (IOException e) {
+         Throwables.propagate(e);
+      }
+      overrides.put(OPERATION_COMPLETE_INTERVAL, "10");
+      overrides.put(POLL_INITIAL_PERIOD, "10");
+      overrides.put(POLL_MAX_PERIOD, "50");
+      return overrides;
+   }
+
+   public void testInsertWhoseResponseWasLostIsNotRepeated() throws Exception {
+      final GoogleComputeEngineSimulator simulator = GoogleComputeEngineSimulator.builder()
+              .operationDelays(10, 20, TimeUnit.MILLISECONDS).build();
+      final AtomicBoolean lost = new AtomicBoolean();
+      // the first insert goes through, but its client sees a transient error, as if the response timed out
+      ComputeService computeService = createClient(new Function<HttpRequest, HttpResponse>() {
+         @Override
+         public HttpResponse apply(HttpRequest input) {
+            HttpResponse response = simulator.apply(input);
+            if (input.getMethod().equals("POST") && input.getEndpoint().getPath().endsWith("/instances")
+                    && lost.compareAndSet(false, true)) {
+               return HttpResponse.builder().statusCode(503).message("Service Unavailable").build();
+            }
+            return response;
+         }
+      });
+
+      NodeMetadata node = getOnlyElement(computeService.createNodesInGroup("test", 1));
+
+      JsonObject instance = getOnlyElement(simulator.list("myproject", "instances"));
+      assertEquals(node.getId(), instance.get("name").getAsString());
+      // the retried insert conflicts with the first one, whose operation is then found by its client operation id
+      assertEquals(simulator.getRequestCounts().count("POST instances"), 2);
+      int inserts = 0;
+      for (JsonObject operation : simulator.list("myproject", "operations")) {
+         if (operation.get("targetLink").getAsString().endsWith("/instances/" + node.getId())) {
+            assertEquals(operation.get("clientOperationId").getAsString(), node.getId() + "-0");
+            inserts++;
+         }
+      }
+      assertEquals(inserts, 1);
+   }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.easymock.IAnswer;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", singleThreaded = true)
+public class GroupStatusWatcherTest {
+
+   private static final Instance INSTANCE = new ParseInstanceTest().expected();
+
+   public void testWaitsUntilTheInstanceReachesTheStatus() {
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.list(anyObject(ListOptions.class)))
+              .andReturn(page(instance("test-1", Instance.Status.PROVISIONING)))
+              .andReturn(page(instance("test-1", Instance.Status.RUNNING), instance("other-1",
+                      Instance.Status.RUNNING)));
+      GroupStatusWatcher watcher = watcher(instanceApi, 0);
+      final List<String> changes = Lists.newArrayList();
+      watcher.addListener(new GroupStatusWatcher.Listener() {
+         @Override
+         public void statusChanged(String group, String instanceName, Instance.Status previous,
+                                   Instance.Status current) {
+            changes.add(group + "/" + instanceName + ":" + previous + "->" + current);
+         }
+      });
+
+      AtomicInteger snapshots = new AtomicInteger();
+      Optional<Instance> instance = watcher.await("test", "test-1", EnumSet.of(Instance.Status.RUNNING), 1,
+              TimeUnit.MINUTES, snapshots);
+
+      assertEquals(instance.get().getStatus(), Instance.Status.RUNNING);
+      assertEquals(snapshots.get(), 2);
+      // instances outside of the group are ignored, even if the name filter lists them
+      assertEquals(changes, ImmutableList.of("test/test-1:null->PROVISIONING", "test/test-1:PROVISIONING->RUNNING"));
+      verify(instanceApi);
+   }
+
+   public void testWaitersOfAGroupShareEachList() throws Exception {
+      final CountDownLatch listed = new CountDownLatch(1);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.list(anyObject(ListOptions.class))).andAnswer(new IAnswer<PagedIterable<Instance>>() {
+         @Override
+         public PagedIterable<Instance> answer() {
+            listed.countDown();
+            return page(instance("test-1", Instance.Status.RUNNING), instance("test-2", Instance.Status.STAGING));
+         }
+      }).once();
+      final GroupStatusWatcher watcher = watcher(instanceApi, TimeUnit.HOURS.toMillis(1));
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<Optional<Instance>> second = executor.submit(new Callable<Optional<Instance>>() {
+            @Override
+            public Optional<Instance> call() {
+               return watcher.await("test", "test-2", EnumSet.of(Instance.Status.RUNNING), 500, TimeUnit.MILLISECONDS);
+            }
+         });
+         assertTrue(listed.await(10, TimeUnit.SECONDS));
+
+         // answered from the snapshot listed for the other waiter
+         Optional<Instance> first = watcher.await("test", "test-1", EnumSet.of(Instance.Status.RUNNING), 1,
+                 TimeUnit.MINUTES);
+         assertEquals(first.get().getName(), "test-1");
+         // the next list is only due after the interval, which is longer than the wait
+         assertFalse(second.get(10, TimeUnit.SECONDS).isPresent());
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(instanceApi);
+   }
+
+   public void testInstancesWithAnUnknownStatusMatchAnyStatus() {
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.list(anyObject(ListOptions.class))).andReturn(page(instance("test-1", null))).once();
+      GroupStatusWatcher watcher = watcher(instanceApi, TimeUnit.HOURS.toMillis(1));
+
+      Optional<Instance> listed = watcher.await("test", "test-1", GroupStatusWatcher.ANY_STATUS, 1, TimeUnit.MINUTES);
+      assertTrue(listed.isPresent());
+      assertFalse(watcher.await("test", "test-1", EnumSet.of(Instance.Status.RUNNING), 0, TimeUnit.MILLISECONDS)
+              .isPresent());
+      verify(instanceApi);
+   }
+
+   private static GroupStatusWatcher watcher(InstanceApi instanceApi, long interval) {
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+      replay(api, instanceApi);
+      return new GroupStatusWatcher(api, Suppliers.ofInstance("myproject"), interval);
+   }
+
+   private static Instance instance(String name, Instance.Status status) {
+      return INSTANCE.toBuilder().name(name).status(status).build();
+   }
+
+   private static PagedIterable<Instance> page(Instance... instances) {
+      return PagedIterables.of(ListPage.<Instance>builder().kind(Resource.Kind.INSTANCE_LIST)
+              .items(ImmutableList.copyOf(instances)).build());
+   }
+}
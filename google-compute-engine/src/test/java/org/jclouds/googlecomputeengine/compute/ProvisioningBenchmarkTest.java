@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Multiset;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineServiceExpectTest;
+import org.jclouds.googlecomputeengine.internal.GoogleComputeEngineSimulator;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_INITIAL_PERIOD;
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_MAX_PERIOD;
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.OPERATION_COMPLETE_INTERVAL;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Baseline for how many nodes per minute the compute service creates and destroys, and how many api calls it makes
+ * doing so, against the in-process simulator with short operation delays.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class ProvisioningBenchmarkTest extends BaseGoogleComputeEngineServiceExpectTest {
+
+   private static final int NODES = 20;
+
+   @Override
+   protected Properties setupProperties() {
+      Properties overrides = super.setupProperties();
+      overrides.put("google-compute-engine.identity", "myproject");
+      try {
+         overrides.put("google-compute-engine.credential",
+                 toStringAndClose(getClass().getResourceAsStream("/testpk.pem")));
+      } catch (IOException e) {
+         Throwables.propagate(e);
+      }
+      overrides.put(OPERATION_COMPLETE_INTERVAL, "10");
+      overrides.put(POLL_INITIAL_PERIOD, "10");
+      overrides.put(POLL_MAX_PERIOD, "50");
+      return overrides;
+   }
+
+   public void testCreateAndDestroyNodesInGroup() throws Exception {
+      GoogleComputeEngineSimulator simulator = GoogleComputeEngineSimulator.builder()
+              .operationDelays(20, 80, TimeUnit.MILLISECONDS).build();
+      ComputeService computeService = createClient(simulator);
+
+      long start = System.nanoTime();
+      Set<? extends NodeMetadata> nodes = computeService.createNodesInGroup("bench", NODES);
+      long createNanos = System.nanoTime() - start;
+      assertEquals(nodes.size(), NODES);
+      Multiset<String> createCounts = simulator.getRequestCounts();
+
+      start = System.nanoTime();
+      Set<? extends NodeMetadata> destroyed = computeService.destroyNodesMatching(
+              GoogleComputeEngineNodePredicates.<NodeMetadata>inGroup("bench"));
+      long destroyNanos = System.nanoTime() - start;
+      assertEquals(destroyed.size(), NODES);
+      assertEquals(simulator.list("myproject", "instances").size(), 0);
+
+      report("createNodesInGroup: %.1f nodes/min, api calls %s",
+              NODES * 60e9 / createNanos, createCounts);
+      report("destroyNodesMatching: %.1f nodes/min, api calls %s",
+              NODES * 60e9 / destroyNanos, simulator.getRequestCounts());
+   }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicates;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.easymock.IAnswer;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.compute.functions.NewClientOperationId;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.jclouds.googlecomputeengine.parse.ParseOperationTest;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.same;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", singleThreaded = true)
+public class WarmPoolManagerTest {
+
+   private static final Instance INSTANCE = new ParseInstanceTest().expected();
+   private static final Operation DONE = new ParseOperationTest().expected();
+   private static final PrecompiledInstanceTemplate TEMPLATE = new PrecompiledInstanceTemplate(
+           "{\"name\":\"__INSTANCE_NAME__\"}", "__INSTANCE_NAME__",
+           URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/zones/us-central1-a"));
+
+   private final List<String> inserted = Collections.synchronizedList(Lists.<String>newArrayList());
+   private final List<String> deleted = Collections.synchronizedList(Lists.<String>newArrayList());
+   private final AtomicInteger insertAttempts = new AtomicInteger();
+   private final AtomicInteger failingInserts = new AtomicInteger();
+
+   public void testHandsOutSparesAndGrowsOnMisses() {
+      WarmPoolManager warmPool = warmPool();
+      try {
+         warmPool.configure("test", 0, 2, 1, TimeUnit.HOURS);
+
+         // the first request finds the pool empty, which makes it keep a spare
+         assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+         assertEquals(inserted, ImmutableList.of("test-1"));
+         assertTrue(warmPool.isSpare("test-1"));
+         assertEquals(warmPool.getReadyCount("test"), 1);
+
+         Optional<Instance> spare = warmPool.acquire("test", TEMPLATE);
+         assertEquals(spare.get().getName(), "test-1");
+         assertFalse(warmPool.isSpare("test-1"));
+         assertEquals(inserted, ImmutableList.of("test-1", "test-2"));
+         assertTrue(warmPool.isSpare("test-2"));
+      } finally {
+         warmPool.close();
+      }
+      // the spare left is deleted, not the one handed out
+      assertEquals(deleted, ImmutableList.of("test-2"));
+      assertFalse(warmPool.hasSpares());
+   }
+
+   public void testReapsIdleSparesDownToTheMinimum() {
+      WarmPoolManager warmPool = warmPool();
+      try {
+         warmPool.configure("test", 1, 2, 0, TimeUnit.NANOSECONDS);
+         assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+         assertEquals(warmPool.getReadyCount("test"), 2);
+
+         warmPool.maintain();
+
+         // the oldest spare goes first, and the pool is not refilled beyond the minimum
+         assertEquals(deleted, ImmutableList.of("test-1"));
+         assertEquals(inserted, ImmutableList.of("test-1", "test-2"));
+         assertEquals(warmPool.getReadyCount("test"), 1);
+      } finally {
+         warmPool.close();
+      }
+   }
+
+   public void testGroupsThatAreNotConfiguredHaveNoSpares() {
+      WarmPoolManager warmPool = warmPool();
+      try {
+         warmPool.configure("other", 1, 1, 1, TimeUnit.HOURS);
+         assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+         assertEquals(warmPool.getReadyCount("test"), 0);
+         assertTrue(inserted.isEmpty());
+      } finally {
+         warmPool.close();
+      }
+   }
+
+   public void testBacksOffAfterFailedInserts() {
+      WarmPoolManager warmPool = warmPool();
+      failingInserts.set(2);
+      try {
+         warmPool.configure("test", 1, 1, 1, TimeUnit.HOURS);
+         assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+         assertEquals(insertAttempts.get(), 1);
+
+         long now = System.nanoTime();
+         warmPool.maintain(now);
+         assertEquals(insertAttempts.get(), 1);
+
+         // waits a maintenance interval after the first failure, then twice as long after the second
+         warmPool.maintain(now + TimeUnit.MILLISECONDS.toNanos(WarmPoolManager.MAINTENANCE_INTERVAL + 100));
+         assertEquals(insertAttempts.get(), 2);
+         warmPool.maintain(now + TimeUnit.MILLISECONDS.toNanos(2 * WarmPoolManager.MAINTENANCE_INTERVAL));
+         assertEquals(insertAttempts.get(), 2);
+         warmPool.maintain(now + TimeUnit.MILLISECONDS.toNanos(4 * WarmPoolManager.MAINTENANCE_INTERVAL));
+         assertEquals(insertAttempts.get(), 3);
+         assertEquals(warmPool.getReadyCount("test"), 1);
+      } finally {
+         warmPool.close();
+      }
+   }
+
+   public void testCloseWaitsForTheSparesToBeDeleted() {
+      ListeningExecutorService userExecutor = listeningDecorator(Executors.newFixedThreadPool(2));
+      try {
+         WarmPoolManager warmPool = warmPool(userExecutor);
+         warmPool.configure("test", 2, 2, 1, TimeUnit.HOURS);
+         // the spares are still being created in the background
+         assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+
+         warmPool.close();
+
+         assertEquals(inserted.size(), 2);
+         assertEquals(ImmutableSet.copyOf(deleted), ImmutableSet.copyOf(inserted));
+         assertFalse(warmPool.hasSpares());
+      } finally {
+         userExecutor.shutdownNow();
+      }
+   }
+
+   public void testDisablingAGroupCanWaitForItsSparesToBeDeleted() {
+      ListeningExecutorService userExecutor = listeningDecorator(Executors.newFixedThreadPool(2));
+      WarmPoolManager warmPool = warmPool(userExecutor);
+      try {
+         warmPool.configure("test", 2, 2, 1, TimeUnit.HOURS);
+         assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+
+         warmPool.disableAndAwait("test");
+
+         assertEquals(inserted.size(), 2);
+         assertEquals(ImmutableSet.copyOf(deleted), ImmutableSet.copyOf(inserted));
+         assertFalse(warmPool.hasSpares());
+      } finally {
+         warmPool.close();
+         userExecutor.shutdownNow();
+      }
+   }
+
+   public void testDeletesSparesOnceTheUserExecutorIsShutDown() {
+      ListeningExecutorService userExecutor = sameThreadExecutor();
+      WarmPoolManager warmPool = warmPool(userExecutor);
+      warmPool.configure("test", 1, 1, 1, TimeUnit.HOURS);
+      assertFalse(warmPool.acquire("test", TEMPLATE).isPresent());
+      assertEquals(warmPool.getReadyCount("test"), 1);
+      userExecutor.shutdown();
+
+      warmPool.close();
+
+      assertEquals(deleted, ImmutableList.of("test-1"));
+      assertFalse(warmPool.hasSpares());
+   }
+
+   private WarmPoolManager warmPool() {
+      return warmPool(sameThreadExecutor());
+   }
+
+   @SuppressWarnings("unchecked")
+   private WarmPoolManager warmPool(ListeningExecutorService userExecutor) {
+      inserted.clear();
+      deleted.clear();
+      insertAttempts.set(0);
+      failingInserts.set(0);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.create(anyObject(String.class), same(TEMPLATE), anyObject(String.class)))
+              .andAnswer(new IAnswer<Operation>() {
+                 @Override
+                 public Operation answer() {
+                    insertAttempts.incrementAndGet();
+                    if (failingInserts.getAndDecrement() > 0) {
+                       throw new IllegalStateException("quota exceeded");
+                    }
+                    inserted.add((String) getCurrentArguments()[0]);
+                    return DONE;
+                 }
+              }).anyTimes();
+      expect(instanceApi.list(anyObject(ListOptions.class))).andAnswer(new IAnswer<PagedIterable<Instance>>() {
+         @Override
+         public PagedIterable<Instance> answer() {
+            ImmutableList.Builder<Instance> running = ImmutableList.builder();
+            for (String name : inserted) {
+               running.add(INSTANCE.toBuilder().name(name).status(Instance.Status.RUNNING).build());
+            }
+            return PagedIterables.of(ListPage.<Instance>builder().kind(Resource.Kind.INSTANCE_LIST)
+                    .items(running.build()).build());
+         }
+      }).anyTimes();
+      expect(instanceApi.delete(anyObject(String.class))).andAnswer(new IAnswer<Operation>() {
+         @Override
+         public Operation answer() {
+            deleted.add((String) getCurrentArguments()[0]);
+            return null;
+         }
+      }).anyTimes();
+
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      expect(api.getInstanceApiForProject("myproject")).andReturn(instanceApi).anyTimes();
+
+      final AtomicInteger counter = new AtomicInteger();
+      GroupNamingConvention naming = createMock(GroupNamingConvention.class);
+      expect(naming.uniqueNameForGroup(eq("test"))).andAnswer(new IAnswer<String>() {
+         @Override
+         public String answer() {
+            return "test-" + counter.incrementAndGet();
+         }
+      }).anyTimes();
+      GroupNamingConvention.Factory namingConvention = createMock(GroupNamingConvention.Factory.class);
+      expect(namingConvention.createWithoutPrefix()).andReturn(naming).anyTimes();
+      replay(instanceApi, api, naming, namingConvention);
+
+      return new WarmPoolManager(api, Suppliers.ofInstance("myproject"), namingConvention,
+              new GroupStatusWatcher(api, Suppliers.ofInstance("myproject"), 0L),
+              Predicates.<AtomicReference<Operation>>alwaysTrue(), 0L, 1000L, userExecutor,
+              new NewClientOperationId());
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.functions;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Guice;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.googlecomputeengine.compute.config.GoogleComputeEngineServiceContextModule;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Baseline for the throughput and allocations of converting a page of instances into nodes.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class InstanceToNodeMetadataBenchmarkTest {
+
+   private static final int PAGE_SIZE = 500;
+   private static final int ITERATIONS = 200;
+
+   public void testInstanceToNodeMetadata() {
+      Json json = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule()).getInstance(Json.class);
+      ListPage<Instance> page = json.fromJson(scaledListPage("/instance_list.json", PAGE_SIZE),
+              new TypeToken<ListPage<Instance>>() {}.getType());
+      final List<Instance> instances = page.toList();
+      Instance instance = instances.get(0);
+
+      Image image = new ImageBuilder().id("gcel-12-04-v20121106").providerId("1").name("gcel-12-04-v20121106")
+              .operatingSystem(OperatingSystem.builder().family(OsFamily.LINUX).description("gcel").build())
+              .status(Image.Status.AVAILABLE).description("gcel").build();
+      Hardware hardware = new HardwareBuilder().id("n1-standard-1").build();
+      Location zone = new LocationBuilder().scope(LocationScope.ZONE).id("us-central1-a")
+              .description("us-central1-a").build();
+
+      final InstanceToNodeMetadata instanceToNodeMetadata = new InstanceToNodeMetadata(
+              GoogleComputeEngineServiceContextModule.toPortableNodeStatus,
+              Guice.createInjector().getInstance(GroupNamingConvention.Factory.class),
+              Suppliers.<Map<URI, ? extends Image>>ofInstance(ImmutableMap.of(instance.getImage(), image)),
+              Suppliers.<Map<URI, ? extends Hardware>>ofInstance(ImmutableMap.of(instance.getMachineType(), hardware)),
+              Suppliers.<Map<URI, ? extends Location>>ofInstance(ImmutableMap.of(instance.getZone(), zone)));
+
+      Callable<List<NodeMetadata>> convert = new Callable<List<NodeMetadata>>() {
+         @Override
+         public List<NodeMetadata> call() {
+            ImmutableList.Builder<NodeMetadata> nodes = ImmutableList.builder();
+            for (Instance instance : instances) {
+               nodes.add(instanceToNodeMetadata.apply(instance));
+            }
+            return nodes.build();
+         }
+      };
+      report("InstanceToNodeMetadata", PAGE_SIZE, convert, ITERATIONS);
+      assertEquals(instanceToNodeMetadata.apply(instance).getId(), instance.getName());
+   }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.functions;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Guice;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.domain.Location;
+import org.jclouds.googlecomputeengine.compute.config.GoogleComputeEngineServiceContextModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(groups = "unit")
+public class InstanceToNodeMetadataTest {
+
+   public void testPartialInstance() {
+      InstanceToNodeMetadata instanceToNodeMetadata = new InstanceToNodeMetadata(
+              GoogleComputeEngineServiceContextModule.toPortableNodeStatus,
+              Guice.createInjector().getInstance(GroupNamingConvention.Factory.class),
+              Suppliers.<Map<URI, ? extends Image>>ofInstance(ImmutableMap.<URI, Image>of()),
+              Suppliers.<Map<URI, ? extends Hardware>>ofInstance(ImmutableMap.<URI, Hardware>of()),
+              Suppliers.<Map<URI, ? extends Location>>ofInstance(ImmutableMap.<URI, Location>of()));
+
+      NodeMetadata node = instanceToNodeMetadata.apply(Instance.builder()
+              .id("13051190678907570425")
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/instances/test-0"))
+              .name("test-0")
+              .addNetworkInterface(Instance.NetworkInterface.builder().networkIP("10.240.121.115").build())
+              .build());
+
+      assertEquals(node.getId(), "test-0");
+      assertEquals(node.getStatus(), NodeMetadata.Status.UNRECOGNIZED);
+      assertEquals(node.getPrivateAddresses().iterator().next(), "10.240.121.115");
+      assertNull(node.getImageId());
+      assertNull(node.getHardware());
+      assertNull(node.getLocation());
+   }
+}
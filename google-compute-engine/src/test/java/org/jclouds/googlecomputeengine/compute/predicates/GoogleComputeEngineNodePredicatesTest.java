@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.predicates;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.internal.NodeMetadataImpl;
+import org.testng.annotations.Test;
+
+import static org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates.inGroup;
+import static org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates.withIds;
+import static org.jclouds.googlecomputeengine.compute.predicates.GoogleComputeEngineNodePredicates.withStatus;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineNodePredicatesTest {
+
+   private static class IdAndGroupOnlyNodeMetadata extends NodeMetadataImpl {
+
+      public IdAndGroupOnlyNodeMetadata(String id, String group, Status status) {
+         super(null, null, id, null, null, ImmutableMap.<String, String>of(), ImmutableSet.<String>of(), group, null,
+                 null, null, status, null, 0, ImmutableSet.<String>of(), ImmutableSet.<String>of(), null, null);
+      }
+   }
+
+   public void testWithIds() {
+      GoogleComputeEngineNodePredicates.ListFilterPredicate<NodeMetadata> predicate = withIds("test-0", "test.1");
+
+      assertEquals(predicate.getListFilter(), Optional.of("name eq (test-0|test\\.1)"));
+      assertTrue(predicate.apply(new IdAndGroupOnlyNodeMetadata("test.1", "test", NodeMetadata.Status.RUNNING)));
+      assertFalse(predicate.apply(new IdAndGroupOnlyNodeMetadata("test-1", "test", NodeMetadata.Status.RUNNING)));
+   }
+
+   public void testWithTooManyIdsIsClientSideOnly() {
+      GoogleComputeEngineNodePredicates.ListFilterPredicate<NodeMetadata> predicate =
+              withIds(Strings.repeat("a", GoogleComputeEngineNodePredicates.MAX_FILTER_LENGTH));
+
+      assertFalse(predicate.getListFilter().isPresent());
+   }
+
+   public void testInGroup() {
+      GoogleComputeEngineNodePredicates.ListFilterPredicate<NodeMetadata> predicate = inGroup("test");
+
+      assertEquals(predicate.getListFilter(), Optional.of("name eq test-.*"));
+      assertTrue(predicate.apply(new IdAndGroupOnlyNodeMetadata("test-0", "test", NodeMetadata.Status.RUNNING)));
+      assertFalse(predicate.apply(new IdAndGroupOnlyNodeMetadata("test2-0", "test2", NodeMetadata.Status.RUNNING)));
+   }
+
+   public void testWithStatus() {
+      GoogleComputeEngineNodePredicates.ListFilterPredicate<NodeMetadata> predicate =
+              withStatus(NodeMetadata.Status.RUNNING, NodeMetadata.Status.TERMINATED);
+
+      assertEquals(predicate.getListFilter(), Optional.of("status eq (RUNNING|TERMINATED)"));
+      assertTrue(predicate.apply(new IdAndGroupOnlyNodeMetadata("test-0", "test", NodeMetadata.Status.TERMINATED)));
+      assertFalse(predicate.apply(new IdAndGroupOnlyNodeMetadata("test-0", "test", NodeMetadata.Status.PENDING)));
+   }
+
+   public void testWithStatusWithoutInstanceCounterpartIsClientSideOnly() {
+      assertFalse(withStatus(NodeMetadata.Status.ERROR).getListFilter().isPresent());
+   }
+
+   public void testWithStatusPartlyWithoutInstanceCounterpartIsClientSideOnly() {
+      GoogleComputeEngineNodePredicates.ListFilterPredicate<NodeMetadata> predicate =
+              withStatus(NodeMetadata.Status.RUNNING, NodeMetadata.Status.UNRECOGNIZED);
+
+      // a filter on RUNNING alone would skip the instances whose status the provider doesn't know
+      assertFalse(predicate.getListFilter().isPresent());
+      assertTrue(predicate.apply(new IdAndGroupOnlyNodeMetadata("test-0", "test", NodeMetadata.Status.UNRECOGNIZED)));
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.compute.strategy;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.MachineType;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.jclouds.googlecomputeengine.domain.Zone;
+import org.jclouds.googlecomputeengine.features.MachineTypeApi;
+import org.jclouds.googlecomputeengine.features.ZoneApi;
+import org.jclouds.googlecomputeengine.parse.ParseMachineTypeTest;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit")
+public class ZoneSpreadingPlacementTest {
+
+   private static final long NOW = 1356998400000L;
+   private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+   private static final MachineType MACHINE_TYPE = new ParseMachineTypeTest().expected();
+
+   public void testSpreadsEvenlyStartingWithTheRequestedZone() {
+      ZoneSpreadingPlacement placement = placement(MACHINE_TYPE, zone("us-central1-a"), zone("us-central2-a"),
+              zone("europe-west1-a"));
+
+      Map<String, Integer> shares = placement.place("n1-standard-1", "us-central2-a", 7, NOW);
+
+      assertEquals(ImmutableList.copyOf(shares.entrySet()), ImmutableList.copyOf(ImmutableMap.of(
+              "us-central2-a", 3, "europe-west1-a", 2, "us-central1-a", 2).entrySet()));
+   }
+
+   public void testSkipsZonesInOrNearMaintenance() {
+      ZoneSpreadingPlacement placement = placement(MACHINE_TYPE,
+              zone("us-central1-a"),
+              // under way
+              zone("us-central1-b", window(NOW - HOUR, NOW + HOUR)),
+              // begins within the margin
+              zone("us-central2-a", window(NOW + HOUR / 2, NOW + 2 * HOUR)),
+              // over, or far enough ahead
+              zone("europe-west1-a", window(NOW - 2 * HOUR, NOW - HOUR), window(NOW + 2 * HOUR, NOW + 3 * HOUR)),
+              Zone.builder().fromZone(zone("europe-west1-b")).status(Zone.Status.DOWN).build());
+
+      assertEquals(placement.place("n1-standard-1", "us-central1-b", 4, NOW),
+              ImmutableMap.of("europe-west1-a", 2, "us-central1-a", 2));
+   }
+
+   public void testOnlyPlacesInZonesThatOfferTheMachineType() {
+      MachineType machineType = MACHINE_TYPE.toBuilder().availableZones(ImmutableSet.of("us-central1-a",
+              "us-central2-a")).build();
+      ZoneSpreadingPlacement placement = placement(machineType, zone("us-central1-a"),
+              Zone.builder().fromZone(zone("us-central2-a")).addAvailableMachineType("n1-highmem-2").build(),
+              zone("europe-west1-a"));
+
+      assertEquals(placement.place("n1-standard-1", "us-central1-a", 3, NOW), ImmutableMap.of("us-central1-a", 3));
+   }
+
+   public void testFallsBackToTheRequestedZone() {
+      ZoneSpreadingPlacement placement = placement(MACHINE_TYPE,
+              zone("us-central1-a", window(NOW - HOUR, NOW + HOUR)));
+
+      assertEquals(placement.place("n1-standard-1", "us-central1-a", 2, NOW), ImmutableMap.of("us-central1-a", 2));
+   }
+
+   private static ZoneSpreadingPlacement placement(MachineType machineType, Zone... zones) {
+      MachineTypeApi machineTypeApi = createMock(MachineTypeApi.class);
+      expect(machineTypeApi.get("n1-standard-1")).andReturn(machineType);
+      ZoneApi zoneApi = createMock(ZoneApi.class);
+      expect(zoneApi.list()).andReturn(PagedIterables.of(ListPage.<Zone>builder().kind(Resource.Kind.ZONE_LIST)
+              .items(ImmutableList.copyOf(zones)).build()));
+      GoogleComputeEngineApi api = createMock(GoogleComputeEngineApi.class);
+      expect(api.getMachineTypeApiForProject("myproject")).andReturn(machineTypeApi);
+      expect(api.getZoneApiForProject("myproject")).andReturn(zoneApi);
+      replay(machineTypeApi, zoneApi, api);
+      return new ZoneSpreadingPlacement(api, Suppliers.ofInstance("myproject"), HOUR);
+   }
+
+   private static Zone zone(String name, Zone.MaintenanceWindow... windows) {
+      return Zone.builder()
+              .id(name)
+              .creationTimestamp(new Date(NOW))
+              .selfLink(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/zones/" + name))
+              .name(name)
+              .status(Zone.Status.UP)
+              .maintenanceWindows(ImmutableSet.copyOf(windows))
+              .build();
+   }
+
+   private static Zone.MaintenanceWindow window(long begin, long end) {
+      return Zone.MaintenanceWindow.builder()
+              .name("maintenance-" + begin)
+              .beginTime(new Date(begin))
+              .endTime(new Date(end))
+              .build();
+   }
+}
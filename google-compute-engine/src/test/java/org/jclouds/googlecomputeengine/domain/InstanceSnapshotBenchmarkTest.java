@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.domain;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Guice;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.usedHeapAfterGc;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Compares the heap retained per instance by a list of parsed instances and by an {@link InstanceSnapshot} of the
+ * same instances.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class InstanceSnapshotBenchmarkTest {
+
+   private static final int INSTANCES = 50000;
+   private static final int PAGE_SIZE = 500;
+   private static final Type INSTANCE_LIST = new TypeToken<ListPage<Instance>>() {}.getType();
+
+   private final Json json = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule())
+           .getInstance(Json.class);
+
+   public void testRetainedSizePerInstance() {
+      long before = usedHeapAfterGc();
+      List<Instance> instances = ImmutableList.copyOf(instances());
+      long listBytes = (usedHeapAfterGc() - before) / instances.size();
+      assertEquals(instances.size(), INSTANCES);
+      instances = null;
+
+      before = usedHeapAfterGc();
+      InstanceSnapshot snapshot = InstanceSnapshot.copyOf(instances());
+      long snapshotBytes = (usedHeapAfterGc() - before) / snapshot.size();
+      assertEquals(snapshot.size(), INSTANCES);
+
+      report("%d instances: %d bytes retained per instance as a list, %d bytes as a snapshot",
+              INSTANCES, listBytes, snapshotBytes);
+      assertTrue(snapshotBytes * 2 < listBytes, "snapshot " + snapshotBytes + " bytes, list " + listBytes);
+   }
+
+   /**
+    * @return the instances of the inventory, parsed a page at a time as they are iterated.
+    */
+   private Iterable<Instance> instances() {
+      final String page = scaledListPage("/instance_list.json", PAGE_SIZE);
+      return Iterables.concat(Iterables.transform(Collections.nCopies(INSTANCES / PAGE_SIZE, page),
+              new Function<String, Iterable<Instance>>() {
+                 @Override
+                 public Iterable<Instance> apply(String input) {
+                    return json.<ListPage<Instance>>fromJson(input, INSTANCE_LIST);
+                 }
+              }));
+   }
+}
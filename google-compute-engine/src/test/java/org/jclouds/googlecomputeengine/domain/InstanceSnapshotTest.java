@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.domain;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface;
+import org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceListTest;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class InstanceSnapshotTest {
+
+   private static final Instance INSTANCE = new ParseInstanceTest().expected();
+
+   public void testCopiesEveryPage() {
+      ListPage<Instance> page = new ParseInstanceListTest().expected();
+      InstanceSnapshot snapshot = InstanceSnapshot.copyOf(PagedIterables.of(page));
+
+      assertEquals(snapshot.size(), Iterables.size(page));
+      assertEquals(snapshot.get(0).toString(), page.iterator().next().toString());
+   }
+
+   public void testEntryMirrorsInstance() {
+      Instance instance = INSTANCE.toBuilder().addNetworkInterface(NetworkInterface.builder()
+              .name("nic1")
+              .networkIP("10.240.121.116")
+              .network(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/networks/default"))
+              .addAccessConfig(AccessConfig.builder().name("External NAT").type(AccessConfig.Type.ONE_TO_ONE_NAT)
+                      .natIP("8.8.8.8").build()).build())
+              .addDisk(Instance.AttachedDisk.ephemeralDiskAtIndex(1)).build();
+
+      InstanceSnapshot.Entry entry = InstanceSnapshot.copyOf(ImmutableList.of(instance)).get(0);
+
+      assertEquals(entry.getId(), instance.getId());
+      assertEquals(entry.getName(), instance.getName());
+      assertEquals(entry.getSelfLink(), instance.getSelfLink());
+      assertEquals(entry.getCreationTimestamp(), instance.getCreationTimestamp());
+      assertEquals(entry.getDescription(), instance.getDescription());
+      assertEquals(entry.getTags(), instance.getTags());
+      assertEquals(entry.getImage(), instance.getImage());
+      assertEquals(entry.getMachineType(), instance.getMachineType());
+      assertEquals(entry.getStatus(), instance.getStatus());
+      assertEquals(entry.getStatusMessage(), instance.getStatusMessage());
+      assertEquals(entry.getZone(), instance.getZone());
+      assertEquals(entry.getNetworkInterfaces(), instance.getNetworkInterfaces());
+      assertEquals(entry.getDisks(), instance.getDisks());
+      assertEquals(entry.getMetadata(), instance.getMetadata());
+      assertEquals(entry.getServiceAccounts(), instance.getServiceAccounts());
+      assertEquals(entry.toInstance().toString(), instance.toString());
+   }
+
+   public void testSharesRepeatedValues() {
+      InstanceSnapshot snapshot = InstanceSnapshot.copyOf(ImmutableList.of(INSTANCE,
+              INSTANCE.toBuilder().name("test-1").id("13051190678907570426")
+                      .selfLink(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/instances"
+                              + "/test-1")).build()));
+
+      assertSame(snapshot.get(0).getZone(), snapshot.get(1).getZone());
+      assertSame(snapshot.get(0).getMetadata(), snapshot.get(1).getMetadata());
+      assertEquals(snapshot.get(1).getSelfLink().toString(),
+              "https://www.googleapis.com/compute/v1beta13/projects/myproject/instances/test-1");
+   }
+
+   public void testLookupByNameAndId() {
+      InstanceSnapshot snapshot = InstanceSnapshot.copyOf(ImmutableList.of(INSTANCE,
+              INSTANCE.toBuilder().name("test-1").id("1").build()));
+
+      assertEquals(snapshot.getByName("test-1").get().getId(), "1");
+      assertEquals(snapshot.getById(INSTANCE.getId()).get().getName(), INSTANCE.getName());
+      assertFalse(snapshot.getByName("test-2").isPresent());
+      assertFalse(snapshot.getById("2").isPresent());
+      assertFalse(snapshot.getById("not-a-number").isPresent());
+   }
+
+   public void testNonNumericIds() {
+      InstanceSnapshot snapshot = InstanceSnapshot.copyOf(ImmutableList.of(INSTANCE.toBuilder().id("abc").build()));
+
+      assertEquals(snapshot.get(0).getId(), "abc");
+      assertTrue(snapshot.getById("abc").isPresent());
+   }
+
+   public void testEmpty() {
+      InstanceSnapshot snapshot = InstanceSnapshot.copyOf(ImmutableList.<Instance>of());
+
+      assertEquals(snapshot.size(), 0);
+      assertFalse(snapshot.iterator().hasNext());
+      assertFalse(snapshot.getByName("test-0").isPresent());
+   }
+}
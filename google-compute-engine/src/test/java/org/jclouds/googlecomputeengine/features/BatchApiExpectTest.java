@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.features;
+
+import com.google.common.collect.ImmutableMap;
+import org.jclouds.googlecomputeengine.domain.Batch;
+import org.jclouds.googlecomputeengine.domain.BatchResponse;
+import org.jclouds.googlecomputeengine.domain.Disk;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
+import org.jclouds.googlecomputeengine.parse.ParseDiskTest;
+import org.jclouds.googlecomputeengine.parse.ParseOperationTest;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payload;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_SCOPE;
+import static org.jclouds.io.Payloads.newStringPayload;
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit")
+public class BatchApiExpectTest extends BaseGoogleComputeEngineApiExpectTest {
+
+   private static final String BOUNDARY = "batch_gce_b0undary";
+
+   public void testExecuteBatchResponseIs2xx() throws IOException {
+      HttpRequest batch = HttpRequest
+              .builder()
+              .method("POST")
+              .endpoint("https://www.googleapis.com/batch")
+              .addHeader("Authorization", "Bearer " + TOKEN)
+              .payload(multipart("multipart/mixed; boundary=" + BOUNDARY,
+                      "--" + BOUNDARY + "\r\n"
+                      + "Content-Type: application/http\r\n"
+                      + "Content-ID: <1>\r\n"
+                      + "\r\n"
+                      + "GET /compute/v1beta13/projects/myproject/disks/testimage1 HTTP/1.1\r\n"
+                      + "\r\n"
+                      + "--" + BOUNDARY + "\r\n"
+                      + "Content-Type: application/http\r\n"
+                      + "Content-ID: <2>\r\n"
+                      + "\r\n"
+                      + "DELETE /compute/v1beta13/projects/myproject/instances/test-0 HTTP/1.1\r\n"
+                      + "\r\n"
+                      + "--" + BOUNDARY + "\r\n"
+                      + "Content-Type: application/http\r\n"
+                      + "Content-ID: <3>\r\n"
+                      + "\r\n"
+                      + "POST /compute/v1beta13/projects/myproject/disks HTTP/1.1\r\n"
+                      + "Content-Type: application/json\r\n"
+                      + "\r\n"
+                      + "{\"name\":\"testimage2\",\"sizeGb\":1}\r\n"
+                      + "--" + BOUNDARY + "\r\n"
+                      + "Content-Type: application/http\r\n"
+                      + "Content-ID: <4>\r\n"
+                      + "\r\n"
+                      + "DELETE /compute/v1beta13/projects/myproject/disks/testimage3 HTTP/1.1\r\n"
+                      + "\r\n"
+                      + "--" + BOUNDARY + "--\r\n"))
+              .build();
+
+      // GCE may answer the calls in any order
+      HttpResponse batchResponse = HttpResponse.builder().statusCode(200)
+              .payload(multipart("multipart/mixed; boundary=batch_response",
+                      "--batch_response\r\n"
+                      + part("3", "200 OK", resource("/operation.json"))
+                      + "--batch_response\r\n"
+                      + part("1", "200 OK", resource("/disk_get.json"))
+                      + "--batch_response\r\n"
+                      + part("4", "409 Conflict", "{\"error\":{\"errors\":[{\"domain\":\"global\","
+                              + "\"reason\":\"resourceInUseByAnotherResource\",\"message\":\"in use\"}],"
+                              + "\"code\":409,\"message\":\"in use\"}}")
+                      + "--batch_response\r\n"
+                      + part("2", "404 Not Found", "")
+                      + "--batch_response--\r\n")).build();
+
+      Batch.Builder builder = Batch.builder();
+      Batch.Call<Disk> getDisk = builder.getDisk("myproject", "testimage1");
+      Batch.Call<Operation> deleteInstance = builder.deleteInstance("myproject", "test-0");
+      Batch.Call<Operation> insertDisk = builder.insert("myproject", "disks",
+              ImmutableMap.of("name", "testimage2", "sizeGb", 1));
+      Batch.Call<Operation> deleteDisk = builder.deleteDisk("myproject", "testimage3");
+
+      BatchApi api = requestsSendResponses(requestForScopes(COMPUTE_SCOPE),
+              TOKEN_RESPONSE, batch, batchResponse).getBatchApi();
+
+      BatchResponse response = api.execute(builder.build());
+      assertEquals(response.get(getDisk), new ParseDiskTest().expected());
+      assertNull(response.get(deleteInstance));
+      assertEquals(response.get(insertDisk), new ParseOperationTest().expected());
+      assertTrue(response.getFailure(deleteDisk).get() instanceof IllegalStateException);
+      try {
+         response.get(deleteDisk);
+         fail("a call that failed should throw when its result is read");
+      } catch (IllegalStateException expected) {
+      }
+   }
+
+   public void testExecuteBatchWithMissingResponse() throws IOException {
+      HttpRequest batch = HttpRequest
+              .builder()
+              .method("POST")
+              .endpoint("https://www.googleapis.com/batch")
+              .addHeader("Authorization", "Bearer " + TOKEN)
+              .payload(multipart("multipart/mixed; boundary=" + BOUNDARY,
+                      "--" + BOUNDARY + "\r\n"
+                      + "Content-Type: application/http\r\n"
+                      + "Content-ID: <1>\r\n"
+                      + "\r\n"
+                      + "GET /compute/v1beta13/projects/myproject/disks/testimage1 HTTP/1.1\r\n"
+                      + "\r\n"
+                      + "--" + BOUNDARY + "\r\n"
+                      + "Content-Type: application/http\r\n"
+                      + "Content-ID: <2>\r\n"
+                      + "\r\n"
+                      + "GET /compute/v1beta13/projects/myproject/disks/testimage2 HTTP/1.1\r\n"
+                      + "\r\n"
+                      + "--" + BOUNDARY + "--\r\n"))
+              .build();
+
+      HttpResponse batchResponse = HttpResponse.builder().statusCode(200)
+              .payload(multipart("multipart/mixed; boundary=batch_response",
+                      "--batch_response\r\n"
+                      + part("1", "200 OK", resource("/disk_get.json"))
+                      + "--batch_response--\r\n")).build();
+
+      Batch.Builder builder = Batch.builder();
+      Batch.Call<Disk> first = builder.getDisk("myproject", "testimage1");
+      Batch.Call<Disk> second = builder.getDisk("myproject", "testimage2");
+
+      BatchApi api = requestsSendResponses(requestForScopes(COMPUTE_SCOPE),
+              TOKEN_RESPONSE, batch, batchResponse).getBatchApi();
+
+      BatchResponse response = api.execute(builder.build());
+      assertEquals(response.get(first), new ParseDiskTest().expected());
+      assertTrue(response.getFailure(second).get() instanceof IllegalStateException);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testBatchNeedsCalls() {
+      Batch.builder().build();
+   }
+
+   private static String part(String contentId, String status, String body) {
+      return "Content-Type: application/http\r\n"
+              + "Content-ID: <response-" + contentId + ">\r\n"
+              + "\r\n"
+              + "HTTP/1.1 " + status + "\r\n"
+              + "Content-Type: application/json; charset=UTF-8\r\n"
+              + "Content-Length: " + body.length() + "\r\n"
+              + "\r\n"
+              + body + "\r\n";
+   }
+
+   private static String resource(String resource) throws IOException {
+      return toStringAndClose(BatchApiExpectTest.class.getResourceAsStream(resource));
+   }
+
+   private static Payload multipart(String contentType, String content) {
+      Payload payload = newStringPayload(content);
+      payload.getContentMetadata().setContentType(contentType);
+      return payload;
+   }
+}
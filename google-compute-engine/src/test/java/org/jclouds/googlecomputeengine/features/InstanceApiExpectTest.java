@@ -18,6 +18,7 @@ package org.jclouds.googlecomputeengine.features;
 
 import org.jclouds.googlecomputeengine.domain.Instance;
 import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
 import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineApiExpectTest;
 import org.jclouds.googlecomputeengine.parse.ParseInstanceListTest;
 import org.jclouds.googlecomputeengine.parse.ParseInstanceSerialOutputTest;
@@ -28,11 +29,13 @@ import org.jclouds.http.HttpResponse;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.core.MediaType;
+import java.io.IOException;
 import java.net.URI;
 
 import static java.net.URI.create;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_READONLY_SCOPE;
 import static org.jclouds.googlecomputeengine.GoogleComputeEngineConstants.COMPUTE_SCOPE;
+import static org.jclouds.util.Strings2.toStringAndClose;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.AssertJUnit.assertNull;
@@ -129,6 +132,51 @@ public class InstanceApiExpectTest extends BaseGoogleComputeEngineApiExpectTest
       assertEquals(api.createInZone("test-1", options, "us-central1-a"), new ParseOperationTest().expected());
    }
 
+   public void testInsertInstanceWithClientOperationIdResponseIs2xx() {
+      HttpRequest insert = HttpRequest
+              .builder()
+              .method("POST")
+              .endpoint("https://www.googleapis.com/compute/v1beta13/projects/myproject/instances" +
+                      "?clientOperationId=test-1-op")
+              .addHeader("Accept", "application/json")
+              .addHeader("Authorization", "Bearer " + TOKEN)
+              .payload(payloadFromResourceWithContentType("/instance_insert_simple.json", MediaType.APPLICATION_JSON))
+              .build();
+
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_SCOPE),
+              TOKEN_RESPONSE, insert,
+              CREATE_INSTANCE_RESPONSE).getInstanceApiForProject("myproject");
+
+      InstanceTemplate options = InstanceTemplate.builder().forMachineType("n1-standard-1")
+              .addNetworkInterface(URI.create("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/networks/default"));
+
+      assertEquals(api.createInZone("test-1", options, "us-central1-a", "test-1-op"),
+              new ParseOperationTest().expected());
+   }
+
+   public void testInsertPrecompiledInstanceResponseIs2xx() throws IOException {
+      HttpRequest insert = HttpRequest
+              .builder()
+              .method("POST")
+              .endpoint("https://www.googleapis.com/compute/v1beta13/projects/myproject/instances" +
+                      "?clientOperationId=test-1-op")
+              .addHeader("Accept", "application/json")
+              .addHeader("Authorization", "Bearer " + TOKEN)
+              .payload(payloadFromResourceWithContentType("/instance_insert_simple.json", MediaType.APPLICATION_JSON))
+              .build();
+
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_SCOPE),
+              TOKEN_RESPONSE, insert,
+              CREATE_INSTANCE_RESPONSE).getInstanceApiForProject("myproject");
+
+      PrecompiledInstanceTemplate template = new PrecompiledInstanceTemplate(
+              toStringAndClose(getClass().getResourceAsStream("/instance_insert_simple.json")), "test-1",
+              URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/zones/us-central1-a"));
+
+      assertEquals(api.create("test-1", template, "test-1-op"), new ParseOperationTest().expected());
+   }
+
    public void testInsertInstanceResponseIs2xxAllOptions() {
       HttpRequest insert = HttpRequest
               .builder()
@@ -180,6 +228,24 @@ public class InstanceApiExpectTest extends BaseGoogleComputeEngineApiExpectTest
               new ParseOperationTest().expected());
    }
 
+   public void testDeleteInstanceWithClientOperationIdResponseIs2xx() {
+      HttpRequest delete = HttpRequest
+              .builder()
+              .method("DELETE")
+              .endpoint("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/instances/test-1?clientOperationId=test-1-op")
+              .addHeader("Accept", "application/json")
+              .addHeader("Authorization", "Bearer " + TOKEN).build();
+
+      HttpResponse deleteResponse = HttpResponse.builder().statusCode(200)
+              .payload(payloadFromResource("/operation.json")).build();
+
+      InstanceApi api = requestsSendResponses(requestForScopes(COMPUTE_SCOPE),
+              TOKEN_RESPONSE, delete, deleteResponse).getInstanceApiForProject("myproject");
+
+      assertEquals(api.delete("test-1", "test-1-op"), new ParseOperationTest().expected());
+   }
+
    public void testDeleteInstanceResponseIs4xx() {
       HttpRequest delete = HttpRequest
               .builder()
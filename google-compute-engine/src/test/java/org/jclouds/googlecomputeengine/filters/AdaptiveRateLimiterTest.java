@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.filters;
+
+import com.google.common.base.Ticker;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter.RequestClass;
+import org.jclouds.http.HttpRequest;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = "unit")
+public class AdaptiveRateLimiterTest {
+
+   private static final String PROJECT = "https://www.googleapis.com/compute/v1beta13/projects/myproject";
+   private static final HttpRequest GET_INSTANCE = HttpRequest.builder().method("GET")
+           .endpoint(URI.create(PROJECT + "/instances/test-1")).build();
+   private static final HttpRequest INSERT_INSTANCE = HttpRequest.builder().method("POST")
+           .endpoint(URI.create(PROJECT + "/instances")).build();
+   private static final HttpRequest GET_OPERATION = HttpRequest.builder().method("GET")
+           .endpoint(URI.create(PROJECT + "/operations/operation-1")).build();
+
+   private static final class ManualTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long time, TimeUnit unit) {
+         nanos.addAndGet(unit.toNanos(time));
+      }
+   }
+
+   public void testRequestClasses() {
+      assertEquals(RequestClass.of(GET_INSTANCE), RequestClass.READS);
+      assertEquals(RequestClass.of(INSERT_INSTANCE), RequestClass.MUTATIONS);
+      assertEquals(RequestClass.of(GET_OPERATION), RequestClass.OPERATION_POLLS);
+      assertEquals(RequestClass.of(HttpRequest.builder().method("DELETE")
+              .endpoint(URI.create(PROJECT + "/operations/operation-1")).build()), RequestClass.MUTATIONS);
+      assertEquals(RequestClass.of("DELETE", "/compute/v1beta13/projects/myproject/instances/test-1"),
+              RequestClass.MUTATIONS);
+      assertEquals(RequestClass.of("GET", "/compute/v1beta13/projects/myproject/operations/operation-1"),
+              RequestClass.OPERATION_POLLS);
+   }
+
+   public void testBacksOffOnlyTheRequestClassThatWasLimited() {
+      ManualTicker ticker = new ManualTicker();
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(true, 20, 10, 20);
+      limiter.ticker = ticker;
+
+      limiter.backOff(INSERT_INSTANCE);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 5.0, 0.001);
+      assertEquals(limiter.getCeiling(RequestClass.MUTATIONS), 9.0, 0.001);
+      assertEquals(limiter.getRate(RequestClass.READS), 20.0, 0.001);
+      assertEquals(limiter.getRate(RequestClass.OPERATION_POLLS), 20.0, 0.001);
+
+      ticker.advance(AdaptiveRateLimiter.BACKOFF_WINDOW_NANOS, TimeUnit.NANOSECONDS);
+      limiter.backOff(INSERT_INSTANCE);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 2.5, 0.001);
+      assertEquals(limiter.getCeiling(RequestClass.MUTATIONS), 4.5, 0.001);
+   }
+
+   public void testErrorsOfRequestsInFlightBackOffOnce() {
+      ManualTicker ticker = new ManualTicker();
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(true, 20, 10, 20);
+      limiter.ticker = ticker;
+
+      for (int i = 0; i < 5; i++) {
+         limiter.backOff(INSERT_INSTANCE);
+         ticker.advance(100, TimeUnit.MILLISECONDS);
+      }
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 5.0, 0.001);
+      assertEquals(limiter.getCeiling(RequestClass.MUTATIONS), 9.0, 0.001);
+   }
+
+   public void testRecoversUpToJustUnderTheExceededRate() {
+      ManualTicker ticker = new ManualTicker();
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(true, 20, 10, 20);
+      limiter.ticker = ticker;
+
+      limiter.backOff(INSERT_INSTANCE);
+      ticker.advance(2, TimeUnit.SECONDS);
+      limiter.filter(INSERT_INSTANCE);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 6.8, 0.001);
+
+      ticker.advance(10, TimeUnit.SECONDS);
+      limiter.filter(INSERT_INSTANCE);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 9.0, 0.001);
+
+      ticker.advance(10, TimeUnit.SECONDS);
+      limiter.filter(INSERT_INSTANCE);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 9.0, 0.001);
+
+      // after a minute without errors the ceiling goes back up, to the configured rate at most
+      ticker.advance(1, TimeUnit.MINUTES);
+      limiter.filter(INSERT_INSTANCE);
+      assertEquals(limiter.getCeiling(RequestClass.MUTATIONS), 10.0, 0.001);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 10.0, 0.001);
+   }
+
+   public void testDisabledDoesNothing() {
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(false, 20, 10, 20);
+      limiter.backOff(INSERT_INSTANCE);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 10.0, 0.001);
+      assertSame(limiter.filter(INSERT_INSTANCE), INSERT_INSTANCE);
+   }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.functions.internal;
+
+import com.google.common.base.Charsets;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payload;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.gzip;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.nanosPerIteration;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.jclouds.io.Payloads.newByteArrayPayload;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Compares the size of plain and gzip encoded list pages, and the time it takes to parse them, for the instance and
+ * operation list fixtures scaled to thousands of items. The transfer time is estimated for a nominal link speed, as
+ * there is no network involved.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class ParseDecompressedJsonBenchmarkTest {
+
+   private static final int PAGE_SIZE = 5000;
+   private static final int ITERATIONS = 10;
+   private static final long BYTES_PER_SECOND = 10L * 1000 * 1000 / 8;
+
+   private final Injector injector = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule());
+
+   public void testInstanceList() {
+      compare("instance list", injector.getInstance(ParseInstances.class), scaledListPage("/instance_list.json",
+              PAGE_SIZE));
+   }
+
+   public void testOperationList() {
+      compare("operation list", injector.getInstance(ParseOperations.class), scaledListPage("/operation_list.json",
+              PAGE_SIZE));
+   }
+
+   private void compare(String name, final ParseDecompressedJson<?> parser, String json) {
+      final byte[] plain = json.getBytes(Charsets.UTF_8);
+      final byte[] gzipped = gzip(json);
+      assertEquals(parser.apply(response(gzipped, "gzip")).toString(), parser.apply(response(plain, null)).toString());
+
+      long plainNanos = nanosPerIteration(new Callable<Object>() {
+         @Override
+         public Object call() {
+            return parser.apply(response(plain, null));
+         }
+      }, ITERATIONS);
+      long gzippedNanos = nanosPerIteration(new Callable<Object>() {
+         @Override
+         public Object call() {
+            return parser.apply(response(gzipped, "gzip"));
+         }
+      }, ITERATIONS);
+
+      report("%s of %d items: plain %d bytes, parsed in %d ms, ~%d ms transfer; "
+              + "gzip %d bytes, parsed in %d ms, ~%d ms transfer", name, PAGE_SIZE,
+              plain.length, plainNanos / 1000000, plain.length * 1000L / BYTES_PER_SECOND,
+              gzipped.length, gzippedNanos / 1000000, gzipped.length * 1000L / BYTES_PER_SECOND);
+      assertTrue(gzipped.length * 4 < plain.length, name + " compressed to " + gzipped.length + " of "
+              + plain.length + " bytes");
+   }
+
+   private static HttpResponse response(byte[] body, String contentEncoding) {
+      Payload payload = newByteArrayPayload(body);
+      payload.getContentMetadata().setContentType("application/json");
+      payload.getContentMetadata().setContentEncoding(contentEncoding);
+      return HttpResponse.builder().statusCode(200).payload(payload).build();
+   }
+}
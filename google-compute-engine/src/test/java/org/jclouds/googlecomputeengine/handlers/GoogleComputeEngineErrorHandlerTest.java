@@ -16,19 +16,25 @@
  */
 package org.jclouds.googlecomputeengine.handlers;
 
+import org.easymock.Capture;
 import org.easymock.IArgumentMatcher;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.rest.AuthorizationException;
+import org.jclouds.rest.InsufficientResourcesException;
 import org.testng.annotations.Test;
 
 import java.net.URI;
 
+import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reportMatcher;
 import static org.easymock.EasyMock.verify;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.gzip;
+import static org.testng.Assert.assertEquals;
 
 /**
  * @author Adrian Cole
@@ -48,6 +54,52 @@ public class GoogleComputeEngineErrorHandlerTest {
               IllegalStateException.class);
    }
 
+   @Test
+   public void test403RateLimitExceededMakesInsufficientResourcesException() {
+      assertCodeMakes(
+              "POST",
+              URI.create("https://www.googleapis.com/compute/v1beta13"),
+              403,
+              "HTTP/1.1 403 Forbidden",
+              "{\"error\":{\"errors\":[{\"domain\":\"usageLimits\",\"reason\":\"rateLimitExceeded\"," +
+                      "\"message\":\"Rate Limit Exceeded\"}],\"code\":403,\"message\":\"Rate Limit Exceeded\"}}",
+              InsufficientResourcesException.class);
+   }
+
+   @Test
+   public void test403MakesAuthorizationException() {
+      assertCodeMakes(
+              "GET",
+              URI.create("https://www.googleapis.com/compute/v1beta13"),
+              403,
+              "HTTP/1.1 403 Forbidden",
+              "{\"error\":{\"errors\":[{\"domain\":\"global\",\"reason\":\"forbidden\"," +
+                      "\"message\":\"Forbidden\"}],\"code\":403,\"message\":\"Forbidden\"}}",
+              AuthorizationException.class);
+   }
+
+   @Test
+   public void testGzippedErrorIsDecompressed() {
+      HttpCommand command = createMock(HttpCommand.class);
+      HttpRequest request = HttpRequest.builder().method("POST")
+              .endpoint(URI.create("https://www.googleapis.com/compute/v1beta13")).build();
+      HttpResponse response = HttpResponse.builder().statusCode(409).message("HTTP/1.1 409 Conflict")
+              .payload(gzip("{\"code\":\"InvalidState\"}")).build();
+      response.getPayload().getContentMetadata().setContentEncoding("gzip");
+
+      Capture<Exception> exception = new Capture<Exception>();
+      expect(command.getCurrentRequest()).andReturn(request).atLeastOnce();
+      command.setException(capture(exception));
+
+      replay(command);
+
+      new GoogleComputeEngineErrorHandler().handleError(command, response);
+
+      verify(command);
+      assertEquals(exception.getValue().getClass(), IllegalStateException.class);
+      assertEquals(exception.getValue().getMessage(), "{\"code\":\"InvalidState\"}");
+   }
+
    private void assertCodeMakes(String method, URI uri, int statusCode, String message, String content,
                                 Class<? extends Exception> expected) {
       assertCodeMakes(method, uri, statusCode, message, "application/json", content, expected);
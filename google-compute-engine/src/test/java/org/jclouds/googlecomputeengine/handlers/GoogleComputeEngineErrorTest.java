@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import com.google.common.base.Optional;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineError.Classification;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineErrorTest {
+
+   private static final String QUOTA_EXCEEDED = "{\"error\":{\"errors\":[{\"domain\":\"usageLimits\"," +
+           "\"reason\":\"quotaExceeded\",\"message\":\"Quota 'INSTANCES' exceeded. Limit: 8.0\"}],\"code\":403," +
+           "\"message\":\"Quota 'INSTANCES' exceeded. Limit: 8.0\"}}";
+
+   public void testParsesTheErrorAndItsDetails() {
+      GoogleComputeEngineError error = GoogleComputeEngineError.parse(QUOTA_EXCEEDED).get();
+      assertEquals(error.getCode(), 403);
+      assertEquals(error.getMessage(), "Quota 'INSTANCES' exceeded. Limit: 8.0");
+      assertEquals(error.getDetails().size(), 1);
+      assertEquals(error.getDetails().get(0).getDomain(), "usageLimits");
+      assertEquals(error.getDetails().get(0).getReason(), "quotaExceeded");
+      assertEquals(error.getClassification(), Classification.QUOTA_EXCEEDED);
+   }
+
+   public void testBodiesWithoutAnErrorAreIgnored() {
+      assertFalse(GoogleComputeEngineError.parse(null).isPresent());
+      assertFalse(GoogleComputeEngineError.parse("").isPresent());
+      assertFalse(GoogleComputeEngineError.parse("Service Unavailable").isPresent());
+      assertFalse(GoogleComputeEngineError.parse("{\"kind\":\"compute#operation\"}").isPresent());
+   }
+
+   public void testClassifiesByStatusCodeWithoutAnError() {
+      Optional<GoogleComputeEngineError> absent = Optional.absent();
+      assertEquals(GoogleComputeEngineError.classify(429, absent), Classification.RATE_LIMITED);
+      assertEquals(GoogleComputeEngineError.classify(503, absent), Classification.TRANSIENT);
+      assertEquals(GoogleComputeEngineError.classify(501, absent), Classification.PERMANENT);
+      assertEquals(GoogleComputeEngineError.classify(404, absent), Classification.PERMANENT);
+   }
+
+   public void testReadsTheErrorBackFromTheException() {
+      HttpCommand command = new HttpCommand(HttpRequest.builder().method("POST")
+              .endpoint(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/instances"))
+              .build());
+      HttpResponseException cause = new HttpResponseException(command,
+              HttpResponse.builder().statusCode(403).build(), QUOTA_EXCEEDED);
+      assertEquals(GoogleComputeEngineError.fromException(new IllegalStateException("failed", cause)).get()
+              .getClassification(), Classification.QUOTA_EXCEEDED);
+   }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter;
+import org.jclouds.googlecomputeengine.filters.AdaptiveRateLimiter.RequestClass;
+import org.jclouds.googlecomputeengine.filters.RetryBudget;
+import org.jclouds.googlecomputeengine.handlers.GoogleComputeEngineError.Classification;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineRetryHandlerTest {
+
+   private static final String INSTANCES = "https://www.googleapis.com/compute/v1beta13/projects/myproject/instances";
+
+   private static final HttpRequest INSERT_INSTANCE = HttpRequest.builder().method("POST")
+           .endpoint(URI.create(INSTANCES)).build();
+   private static final HttpRequest INSERT_INSTANCE_WITH_ID = HttpRequest.builder().method("POST")
+           .endpoint(URI.create(INSTANCES + "?clientOperationId=abc")).build();
+   private static final HttpRequest GET_INSTANCE = HttpRequest.builder().method("GET")
+           .endpoint(URI.create(INSTANCES + "/test-1")).build();
+
+   private static final String RATE_LIMIT_EXCEEDED = "{\"error\":{\"errors\":[{\"domain\":\"usageLimits\"," +
+           "\"reason\":\"rateLimitExceeded\",\"message\":\"Rate Limit Exceeded\"}],\"code\":403," +
+           "\"message\":\"Rate Limit Exceeded\"}}";
+
+   private static final String FORBIDDEN = "{\"error\":{\"errors\":[{\"domain\":\"global\"," +
+           "\"reason\":\"forbidden\",\"message\":\"Forbidden\"}],\"code\":403,\"message\":\"Forbidden\"}}";
+
+   private static final String BACKEND_ERROR = "{\"error\":{\"errors\":[{\"domain\":\"global\"," +
+           "\"reason\":\"backendError\",\"message\":\"Backend Error\"}],\"code\":503,\"message\":\"Backend Error\"}}";
+
+   private static GoogleComputeEngineRetryHandler retryHandler(AdaptiveRateLimiter limiter, RetryBudget budget) {
+      GoogleComputeEngineRetryHandler retryHandler = new GoogleComputeEngineRetryHandler(limiter, budget);
+      retryHandler.delayStart = 0;
+      return retryHandler;
+   }
+
+   private static HttpCommand command(HttpRequest request, int failures) {
+      HttpCommand command = createMock(HttpCommand.class);
+      expect(command.getCurrentRequest()).andReturn(request).anyTimes();
+      expect(command.getFailureCount()).andReturn(failures).anyTimes();
+      expect(command.incrementFailureCount()).andReturn(failures + 1).anyTimes();
+      replay(command);
+      return command;
+   }
+
+   public void testRateLimitedRequestsAreRetriedWhateverTheMethod() {
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(true, 20, 10, 20);
+      RetryBudget budget = new RetryBudget(0.2);
+      HttpCommand command = command(INSERT_INSTANCE, 0);
+
+      assertTrue(retryHandler(limiter, budget).shouldRetryRequest(command, response(403, RATE_LIMIT_EXCEEDED)));
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 5.0, 0.001);
+      assertEquals(budget.getRetries(Classification.RATE_LIMITED), 1);
+      verify(command);
+   }
+
+   public void testTransientErrorsAreOnlyRetriedForIdempotentRequests() {
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(false, 20, 10, 20);
+      RetryBudget budget = new RetryBudget(0.2);
+
+      assertTrue(retryHandler(limiter, budget).shouldRetryRequest(command(GET_INSTANCE, 0),
+              response(503, BACKEND_ERROR)));
+      assertTrue(retryHandler(limiter, budget).shouldRetryRequest(command(INSERT_INSTANCE_WITH_ID, 0),
+              response(500, "")));
+      assertFalse(retryHandler(limiter, budget).shouldRetryRequest(command(INSERT_INSTANCE, 0),
+              response(503, BACKEND_ERROR)));
+      assertEquals(budget.getRetries(Classification.TRANSIENT), 2);
+   }
+
+   public void testGivesUpAfterTheRetryLimit() {
+      RetryBudget budget = new RetryBudget(0.2);
+      assertFalse(retryHandler(new AdaptiveRateLimiter(false, 20, 10, 20), budget)
+              .shouldRetryRequest(command(GET_INSTANCE, 5), response(503, BACKEND_ERROR)));
+      assertEquals(budget.getExhausted(), 1);
+      assertEquals(budget.getRetries(), 0);
+   }
+
+   public void testRetriesStopWhenTheBudgetIsUsedUp() {
+      RetryBudget budget = new RetryBudget(0);
+      GoogleComputeEngineRetryHandler retryHandler = retryHandler(new AdaptiveRateLimiter(false, 20, 10, 20), budget);
+      for (int i = 0; i < RetryBudget.MIN_BALANCE; i++) {
+         assertTrue(retryHandler.shouldRetryRequest(command(GET_INSTANCE, 0), response(503, BACKEND_ERROR)));
+      }
+      assertFalse(retryHandler.shouldRetryRequest(command(GET_INSTANCE, 0), response(503, BACKEND_ERROR)));
+      assertEquals(budget.getDenied(), 1);
+   }
+
+   public void testOtherErrorsAreNotRetriedAndStayReadable() throws Exception {
+      AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(true, 20, 10, 20);
+      HttpCommand command = command(INSERT_INSTANCE, 0);
+
+      HttpResponse response = response(403, FORBIDDEN);
+      assertFalse(retryHandler(limiter, new RetryBudget(0.2)).shouldRetryRequest(command, response));
+      assertEquals(toStringAndClose(response.getPayload().openStream()), FORBIDDEN);
+      assertEquals(limiter.getRate(RequestClass.MUTATIONS), 10.0, 0.001);
+   }
+
+   public void testDelaysAreJitteredAndCapped() {
+      GoogleComputeEngineRetryHandler retryHandler = new GoogleComputeEngineRetryHandler(
+              new AdaptiveRateLimiter(false, 20, 10, 20), new RetryBudget(0.2));
+      for (int failures = 1; failures < 30; failures++) {
+         long delay = retryHandler.delayMillis(failures);
+         assertTrue(delay >= 0 && delay < Math.min(GoogleComputeEngineRetryHandler.MAX_DELAY_MILLIS,
+                 50L << Math.min(failures - 1, 20)), "delay " + delay + " for " + failures + " failures");
+      }
+   }
+
+   private static HttpResponse response(int statusCode, String content) {
+      HttpResponse response = HttpResponse.builder().statusCode(statusCode).message("error").payload(content)
+              .build();
+      response.getPayload().getContentMetadata().setContentType("application/json");
+      return response;
+   }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.handlers;
+
+import com.google.common.base.Function;
+import com.google.inject.Guice;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.PrecompiledInstanceTemplate;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jclouds.googlecomputeengine.domain.Instance.NetworkInterface.AccessConfig.Type;
+import static org.jclouds.util.Strings2.toStringAndClose;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class InstanceTemplatePrecompilerTest {
+
+   private static final String PROJECT = "https://www.googleapis.com/compute/v1beta13/projects/myproject";
+
+   private final Json json = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule())
+           .getInstance(Json.class);
+
+   private final InstanceTemplatePrecompiler precompiler = new InstanceTemplatePrecompiler(json,
+           toURI("/machineTypes/"), toURI("/zones/"));
+
+   public void testCompiledPayloadMatchesTheBoundTemplate() throws IOException {
+      InstanceTemplate template = InstanceTemplate.builder().forMachineType("n1-standard-1")
+              .addNetworkInterface(URI.create(PROJECT + "/networks/default"));
+
+      PrecompiledInstanceTemplate precompiled = precompiler.precompile(template, "us-central1-a");
+
+      assertEquals(toStringAndClose(precompiled.payloadFor("test-1").openStream()),
+              toStringAndClose(getClass().getResourceAsStream("/instance_insert_simple.json")));
+      assertEquals(precompiled.getZone(), URI.create(PROJECT + "/zones/us-central1-a"));
+      assertNull(template.getName());
+      assertNull(template.getZone());
+   }
+
+   public void testCompiledPayloadIsReusedForEveryName() throws IOException {
+      InstanceTemplate template = InstanceTemplate.builder().forMachineType(URI.create(PROJECT
+              + "/machineTypes/n1-standard-1")).addMetadata("aKey", "aValue");
+      PrecompiledInstanceTemplate precompiled = precompiler.precompile(template, "us-central1-a");
+
+      for (String name : new String[]{"test-0", "test-1", "a-much-longer-instance-name-9"}) {
+         InstanceTemplate bound = InstanceTemplate.fromInstanceTemplate(template).name(name)
+                 .zone(URI.create(PROJECT + "/zones/us-central1-a"));
+         assertEquals(toStringAndClose(precompiled.payloadFor(name).openStream()), json.toJson(bound));
+      }
+   }
+
+   public void testEqualTemplatesShareOneCompilation() {
+      final AtomicInteger resolved = new AtomicInteger();
+      InstanceTemplatePrecompiler precompiler = new InstanceTemplatePrecompiler(json,
+              new Function<String, URI>() {
+                 @Override
+                 public URI apply(String input) {
+                    resolved.incrementAndGet();
+                    return URI.create(PROJECT + "/machineTypes/" + input);
+                 }
+              }, toURI("/zones/"));
+
+      // built separately, as the compute service builds one for every node
+      PrecompiledInstanceTemplate first = precompiler.precompile(nodeTemplate("n1-standard-1"), "us-central1-a");
+      PrecompiledInstanceTemplate second = precompiler.precompile(nodeTemplate("n1-standard-1"), "us-central1-a");
+
+      assertSame(second, first);
+      assertEquals(resolved.get(), 1);
+      assertTrue(precompiler.precompile(nodeTemplate("n1-standard-2"), "us-central1-a") != first);
+      assertTrue(precompiler.precompile(nodeTemplate("n1-standard-1"), "us-central2-a") != first);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testInvalidInstanceNameIsRejected() {
+      InstanceTemplate template = InstanceTemplate.builder().forMachineType("n1-standard-1");
+      precompiler.precompile(template, "us-central1-a").payloadFor("\",\"machineType\":\"");
+   }
+
+   private static InstanceTemplate nodeTemplate(String machineType) {
+      return InstanceTemplate.builder().forMachineType(machineType)
+              .addNetworkInterface(URI.create(PROJECT + "/networks/default"), Type.ONE_TO_ONE_NAT)
+              .addDisk(InstanceTemplate.PersistentDisk.Mode.READ_WRITE, URI.create(PROJECT + "/disks/data"))
+              .addMetadata("aKey", "aValue")
+              .addTag("web");
+   }
+
+   private static Function<String, URI> toURI(final String collection) {
+      return new Function<String, URI>() {
+         @Override
+         public URI apply(String input) {
+            return URI.create(PROJECT + collection + input);
+         }
+      };
+   }
+}
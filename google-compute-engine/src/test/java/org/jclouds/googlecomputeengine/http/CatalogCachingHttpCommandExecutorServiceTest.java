@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.io.Payloads.newStringPayload;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(groups = "unit")
+public class CatalogCachingHttpCommandExecutorServiceTest {
+
+   private static final String PROJECT = "https://www.googleapis.com/compute/v1beta13/projects/myproject";
+   private static final HttpRequest LIST_ZONES = HttpRequest.builder().method("GET").endpoint(PROJECT + "/zones")
+           .build();
+
+   private static class ManualTicker extends Ticker {
+      private long nanos;
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+
+      void advance(long time, TimeUnit unit) {
+         nanos += unit.toNanos(time);
+      }
+   }
+
+   /**
+    * Answers with the queued responses, keeping the requests it was asked.
+    */
+   private static class ScriptedExecutorService implements HttpCommandExecutorService {
+      private final Deque<HttpResponse> responses = Lists.newLinkedList();
+      private final List<HttpRequest> requests = Lists.newArrayList();
+
+      ScriptedExecutorService answer(int statusCode, String content, String etag) {
+         HttpResponse.Builder<?> response = HttpResponse.builder().statusCode(statusCode);
+         if (content != null) {
+            response.payload(newStringPayload(content));
+         }
+         if (etag != null) {
+            response.addHeader(HttpHeaders.ETAG, etag);
+         }
+         responses.add(response.build());
+         return this;
+      }
+
+      @Override
+      public HttpResponse invoke(HttpCommand command) {
+         requests.add(command.getCurrentRequest());
+         return responses.remove();
+      }
+
+      @Override
+      public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static String content(HttpResponse response) throws IOException {
+      return Strings2.toStringAndClose(response.getPayload().openStream());
+   }
+
+   public void testFreshResponsesAreServedFromTheCache() throws IOException {
+      ScriptedExecutorService delegate = new ScriptedExecutorService().answer(200, "{\"items\":[]}", null);
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, new ManualTicker());
+
+      assertEquals(content(cache.invoke(new HttpCommand(LIST_ZONES))), "{\"items\":[]}");
+      assertEquals(content(cache.invoke(new HttpCommand(LIST_ZONES))), "{\"items\":[]}");
+      assertEquals(delegate.requests.size(), 1);
+      assertEquals(cache.getHitCount(), 1);
+      assertEquals(cache.getMissCount(), 1);
+   }
+
+   public void testStaleResponsesWithAnETagAreRevalidated() throws IOException {
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, "{\"items\":[]}", "\"v1\"")
+              .answer(304, null, null);
+      ManualTicker ticker = new ManualTicker();
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, ticker);
+
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      ticker.advance(2, TimeUnit.MINUTES);
+      HttpResponse revalidated = cache.invoke(new HttpCommand(LIST_ZONES));
+
+      assertEquals(revalidated.getStatusCode(), 200);
+      assertEquals(content(revalidated), "{\"items\":[]}");
+      assertNull(delegate.requests.get(0).getFirstHeaderOrNull(HttpHeaders.IF_NONE_MATCH));
+      assertEquals(delegate.requests.get(1).getFirstHeaderOrNull(HttpHeaders.IF_NONE_MATCH), "\"v1\"");
+      assertEquals(cache.getRevalidationCount(), 1);
+
+      // revalidating makes the response fresh again
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      assertEquals(delegate.requests.size(), 2);
+   }
+
+   public void testStaleResponsesWithoutAnETagAreFetchedAgain() throws IOException {
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, "{\"items\":[{}]}", null);
+      ManualTicker ticker = new ManualTicker();
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, ticker);
+
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      ticker.advance(2, TimeUnit.MINUTES);
+
+      assertEquals(content(cache.invoke(new HttpCommand(LIST_ZONES))), "{\"items\":[{}]}");
+      assertNull(delegate.requests.get(1).getFirstHeaderOrNull(HttpHeaders.IF_NONE_MATCH));
+      assertEquals(cache.getMissCount(), 2);
+   }
+
+   public void testOnlyCatalogResponsesAreCached() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, "{}", null)
+              .answer(200, "{}", null);
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, new ManualTicker());
+
+      HttpRequest getInstance = HttpRequest.builder().method("GET").endpoint(PROJECT + "/instances/test-0").build();
+      cache.invoke(new HttpCommand(getInstance));
+      cache.invoke(new HttpCommand(getInstance));
+      assertEquals(delegate.requests.size(), 2);
+   }
+
+   public void testChangesToACollectionDropItsCachedResponses() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, "{}", null)
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, "{}", null)
+              .answer(200, "{\"items\":[{}]}", null);
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, new ManualTicker());
+      HttpRequest listImages = HttpRequest.builder().method("GET").endpoint(PROJECT + "/images").build();
+
+      cache.invoke(new HttpCommand(listImages));
+      cache.invoke(new HttpCommand(HttpRequest.builder().method("GET").endpoint(PROJECT + "/images/test").build()));
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      cache.invoke(new HttpCommand(HttpRequest.builder().method("POST").endpoint(PROJECT + "/images").build()));
+
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      assertEquals(delegate.requests.size(), 4);
+      cache.invoke(new HttpCommand(listImages));
+      assertEquals(delegate.requests.size(), 5);
+      assertEquals(cache.getHitCount(), 1);
+   }
+
+   public void testCollectionsAreNotCachedUntilTheOperationOfTheirChangeIsDone() throws IOException {
+      String operation = "{\"kind\":\"compute#operation\",\"selfLink\":\"" + PROJECT + "/operations/op-1\","
+              + "\"status\":\"%s\"}";
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, String.format(operation, "PENDING"), null)
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, String.format(operation, "DONE"), null)
+              .answer(200, "{\"items\":[{}]}", null);
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, new ManualTicker());
+      HttpRequest listImages = HttpRequest.builder().method("GET").endpoint(PROJECT + "/images").build();
+
+      cache.invoke(new HttpCommand(HttpRequest.builder().method("POST").endpoint(PROJECT + "/images").build()));
+
+      // the image is not listed yet, and the list without it must not be kept
+      cache.invoke(new HttpCommand(listImages));
+      cache.invoke(new HttpCommand(listImages));
+      assertEquals(delegate.requests.size(), 3);
+
+      HttpResponse done = cache.invoke(new HttpCommand(HttpRequest.builder().method("GET")
+              .endpoint(PROJECT + "/operations/op-1").build()));
+      assertEquals(content(done), String.format(operation, "DONE"));
+
+      assertEquals(content(cache.invoke(new HttpCommand(listImages))), "{\"items\":[{}]}");
+      assertEquals(content(cache.invoke(new HttpCommand(listImages))), "{\"items\":[{}]}");
+      assertEquals(delegate.requests.size(), 5);
+      assertEquals(cache.getHitCount(), 1);
+   }
+
+   public void testChangesWhoseOperationIsNotPolledAreTrackedForTheTimeToLive() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, "{\"kind\":\"compute#operation\",\"selfLink\":\"" + PROJECT + "/operations/op-1\","
+                      + "\"status\":\"RUNNING\"}", null)
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, "{\"items\":[{}]}", null);
+      ManualTicker ticker = new ManualTicker();
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 1024, ticker);
+      HttpRequest listImages = HttpRequest.builder().method("GET").endpoint(PROJECT + "/images").build();
+
+      cache.invoke(new HttpCommand(HttpRequest.builder().method("DELETE").endpoint(PROJECT + "/images/test")
+              .build()));
+      cache.invoke(new HttpCommand(listImages));
+      ticker.advance(2, TimeUnit.MINUTES);
+      cache.invoke(new HttpCommand(listImages));
+      cache.invoke(new HttpCommand(listImages));
+
+      assertEquals(delegate.requests.size(), 3);
+      assertEquals(cache.getHitCount(), 1);
+   }
+
+   public void testNothingIsCachedBeyondTheMaximumSize() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService()
+              .answer(200, "{\"items\":[]}", null)
+              .answer(200, "{\"items\":[]}", null);
+      CatalogCachingHttpCommandExecutorService cache = new CatalogCachingHttpCommandExecutorService(delegate,
+              1, TimeUnit.MINUTES, 0, new ManualTicker());
+
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      cache.invoke(new HttpCommand(LIST_ZONES));
+      assertEquals(delegate.requests.size(), 2);
+   }
+}
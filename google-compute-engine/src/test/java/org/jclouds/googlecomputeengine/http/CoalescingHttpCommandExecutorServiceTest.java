@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.rest.ResourceNotFoundException;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jclouds.io.Payloads.newStringPayload;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit", singleThreaded = true)
+public class CoalescingHttpCommandExecutorServiceTest {
+
+   private static final String NETWORK = "https://www.googleapis.com/compute/v1beta13/projects/myproject/networks" +
+           "/jclouds-test";
+
+   /**
+    * Answers every request once released, counting them.
+    */
+   private static class GatedExecutorService implements HttpCommandExecutorService {
+      private final CountDownLatch gate = new CountDownLatch(1);
+      private final AtomicInteger invocations = new AtomicInteger();
+      private final RuntimeException failure;
+
+      GatedExecutorService(RuntimeException failure) {
+         this.failure = failure;
+      }
+
+      @Override
+      public HttpResponse invoke(HttpCommand command) {
+         invocations.incrementAndGet();
+         try {
+            gate.await();
+         } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+         }
+         if (failure != null) {
+            throw failure;
+         }
+         return HttpResponse.builder().statusCode(200).payload(newStringPayload("{\"name\":\"jclouds-test\"}"))
+                 .build();
+      }
+
+      @Override
+      public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static List<Future<HttpResponse>> invokeConcurrently(final CoalescingHttpCommandExecutorService service,
+                                                               ExecutorService threads, final HttpRequest request,
+                                                               int callers) throws InterruptedException {
+      List<Future<HttpResponse>> responses = Lists.newArrayList();
+      for (int i = 0; i < callers; i++) {
+         responses.add(threads.submit(new Callable<HttpResponse>() {
+            @Override
+            public HttpResponse call() {
+               return service.invoke(new HttpCommand(request));
+            }
+         }));
+      }
+      // waits for all but the first caller to join the request in flight
+      while (service.getCoalescedCount() < callers - 1) {
+         Thread.sleep(5);
+      }
+      return responses;
+   }
+
+   public void testConcurrentGetsShareOneResponse() throws Exception {
+      GatedExecutorService delegate = new GatedExecutorService(null);
+      CoalescingHttpCommandExecutorService service = new CoalescingHttpCommandExecutorService(delegate);
+      ExecutorService threads = Executors.newFixedThreadPool(4);
+      try {
+         List<Future<HttpResponse>> responses = invokeConcurrently(service, threads,
+                 HttpRequest.builder().method("GET").endpoint(NETWORK).build(), 4);
+         delegate.gate.countDown();
+
+         for (Future<HttpResponse> response : responses) {
+            HttpResponse shared = response.get(10, TimeUnit.SECONDS);
+            assertEquals(shared.getStatusCode(), 200);
+            // each caller can read the whole content
+            assertEquals(Strings2.toStringAndClose(shared.getPayload().openStream()), "{\"name\":\"jclouds-test\"}");
+         }
+         assertEquals(delegate.invocations.get(), 1);
+         assertEquals(service.getCoalescedCount(), 3);
+      } finally {
+         threads.shutdownNow();
+      }
+   }
+
+   public void testFailureIsSharedWithWaitingCallers() throws Exception {
+      GatedExecutorService delegate = new GatedExecutorService(new ResourceNotFoundException("not found"));
+      CoalescingHttpCommandExecutorService service = new CoalescingHttpCommandExecutorService(delegate);
+      ExecutorService threads = Executors.newFixedThreadPool(2);
+      try {
+         List<Future<HttpResponse>> responses = invokeConcurrently(service, threads,
+                 HttpRequest.builder().method("GET").endpoint(NETWORK).build(), 2);
+         delegate.gate.countDown();
+
+         for (Future<HttpResponse> response : responses) {
+            try {
+               response.get(10, TimeUnit.SECONDS);
+               fail("the failure should have been propagated to every caller");
+            } catch (ExecutionException expected) {
+               assertTrue(expected.getCause() instanceof ResourceNotFoundException, expected.toString());
+            }
+         }
+         assertEquals(delegate.invocations.get(), 1);
+      } finally {
+         threads.shutdownNow();
+      }
+   }
+
+   public void testGetsAfterTheResponseAndMutationsAreNotCoalesced() {
+      GatedExecutorService delegate = new GatedExecutorService(null);
+      delegate.gate.countDown();
+      CoalescingHttpCommandExecutorService service = new CoalescingHttpCommandExecutorService(delegate);
+
+      HttpRequest get = HttpRequest.builder().method("GET").endpoint(NETWORK).build();
+      service.invoke(new HttpCommand(get));
+      service.invoke(new HttpCommand(get));
+      service.invoke(new HttpCommand(HttpRequest.builder().method("DELETE").endpoint(NETWORK).build()));
+
+      assertEquals(delegate.invocations.get(), 3);
+      assertEquals(service.getCoalescedCount(), 0);
+   }
+}
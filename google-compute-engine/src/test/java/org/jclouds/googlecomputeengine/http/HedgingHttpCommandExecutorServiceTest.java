@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.http;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jclouds.io.Payloads.newInputStreamPayload;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class HedgingHttpCommandExecutorServiceTest {
+
+   private static final String PROJECT = "https://www.googleapis.com/compute/v1beta13/projects/myproject";
+   private static final HttpRequest GET_OPERATION = HttpRequest.builder().method("GET")
+           .endpoint(PROJECT + "/operations/operation-1").build();
+
+   /**
+    * Every read is a millisecond after the previous one.
+    */
+   private static class StepTicker extends Ticker {
+      private long nanos;
+
+      @Override
+      public synchronized long read() {
+         return nanos += TimeUnit.MILLISECONDS.toNanos(1);
+      }
+   }
+
+   /**
+    * Answers invocations right away and submissions with the queued futures.
+    */
+   private static class ScriptedExecutorService implements HttpCommandExecutorService {
+      private final Deque<ListenableFuture<HttpResponse>> submissions = Lists.newLinkedList();
+      private final AtomicInteger invocations = new AtomicInteger();
+
+      @Override
+      public HttpResponse invoke(HttpCommand command) {
+         invocations.incrementAndGet();
+         return HttpResponse.builder().statusCode(200).build();
+      }
+
+      @Override
+      public synchronized ListenableFuture<HttpResponse> submit(HttpCommand command) {
+         return submissions.remove();
+      }
+   }
+
+   /**
+    * Makes enough gets of operations, of a millisecond each, for their latency percentiles to be known.
+    */
+   private static void warmUp(HedgingHttpCommandExecutorService service) {
+      for (int i = 0; i < HedgingHttpCommandExecutorService.MIN_SAMPLES; i++) {
+         service.invoke(new HttpCommand(GET_OPERATION));
+      }
+   }
+
+   public void testSlowGetsAreHedgedAndTheFirstResponseWins() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService();
+      HedgingHttpCommandExecutorService service = new HedgingHttpCommandExecutorService(delegate, 95, 1,
+              new StepTicker());
+      warmUp(service);
+
+      SettableFuture<HttpResponse> slow = SettableFuture.create();
+      HttpResponse fast = HttpResponse.builder().statusCode(200).message("hedge").build();
+      SettableFuture<HttpResponse> hedge = SettableFuture.create();
+      hedge.set(fast);
+      delegate.submissions.add(slow);
+      delegate.submissions.add(hedge);
+
+      assertSame(service.invoke(new HttpCommand(GET_OPERATION)), fast);
+      assertEquals(service.getHedgeCount(), 1);
+      assertEquals(service.getHedgeWinCount(), 1);
+
+      // the request that lost carries on, and its response is released when it arrives
+      assertFalse(slow.isCancelled());
+      final AtomicBoolean closed = new AtomicBoolean();
+      InputStream content = new ByteArrayInputStream("{}".getBytes()) {
+         @Override
+         public void close() throws IOException {
+            closed.set(true);
+            super.close();
+         }
+      };
+      slow.set(HttpResponse.builder().statusCode(200).payload(newInputStreamPayload(content)).build());
+      assertTrue(closed.get());
+   }
+
+   public void testNoHedgesBeyondTheBudget() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService();
+      HedgingHttpCommandExecutorService service = new HedgingHttpCommandExecutorService(delegate, 95, 0,
+              new StepTicker());
+      warmUp(service);
+
+      final SettableFuture<HttpResponse> slow = SettableFuture.create();
+      final HttpResponse response = HttpResponse.builder().statusCode(200).build();
+      delegate.submissions.add(slow);
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      try {
+         scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+               slow.set(response);
+            }
+         }, 50, TimeUnit.MILLISECONDS);
+
+         assertSame(service.invoke(new HttpCommand(GET_OPERATION)), response);
+         assertEquals(service.getHedgeCount(), 0);
+      } finally {
+         scheduler.shutdownNow();
+      }
+   }
+
+   public void testListsAndMutationsAreNotHedged() {
+      ScriptedExecutorService delegate = new ScriptedExecutorService();
+      HedgingHttpCommandExecutorService service = new HedgingHttpCommandExecutorService(delegate, 50, 1,
+              new StepTicker());
+      HttpRequest list = HttpRequest.builder().method("GET").endpoint(PROJECT + "/operations").build();
+      HttpRequest delete = HttpRequest.builder().method("DELETE").endpoint(PROJECT + "/operations/operation-1")
+              .build();
+      for (int i = 0; i < HedgingHttpCommandExecutorService.MIN_SAMPLES + 1; i++) {
+         service.invoke(new HttpCommand(list));
+         service.invoke(new HttpCommand(delete));
+      }
+      assertEquals(delegate.invocations.get(), 2 * (HedgingHttpCommandExecutorService.MIN_SAMPLES + 1));
+      assertEquals(service.getHedgeCount(), 0);
+   }
+
+   public void testLatencyPercentiles() {
+      HedgingHttpCommandExecutorService.LatencyWindow window = new HedgingHttpCommandExecutorService.LatencyWindow();
+      for (int i = 1; i < HedgingHttpCommandExecutorService.MIN_SAMPLES; i++) {
+         window.add(i);
+      }
+      assertEquals(window.threshold(95), -1);
+      for (int i = HedgingHttpCommandExecutorService.MIN_SAMPLES; i <= 100; i++) {
+         window.add(i);
+      }
+      assertEquals(window.threshold(95), 95);
+      assertEquals(window.threshold(50), 50);
+   }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class ApiMetricsTest {
+
+   public void testAggregatesPerMethodSlowestFirst() {
+      ApiMetrics metrics = new ApiMetrics();
+      metrics.record("Instances:get", 200, TimeUnit.MILLISECONDS.toNanos(10), 0, 1000, 0);
+      metrics.record("Instances:insert", 200, TimeUnit.MILLISECONDS.toNanos(300), 500, 700, 1);
+      metrics.record("Instances:insert", 409, TimeUnit.MILLISECONDS.toNanos(100), 500, 200, 0);
+      metrics.record("Instances:insert", ApiMetricsSink.NO_RESPONSE, TimeUnit.SECONDS.toNanos(1), 500, 0, 2);
+
+      Map<String, ApiMetrics.Stats> stats = metrics.getStats();
+      assertEquals(stats.keySet().iterator().next(), "Instances:insert");
+
+      ApiMetrics.Stats insert = stats.get("Instances:insert");
+      assertEquals(insert.getCalls(), 3);
+      assertEquals(insert.getCalls(2), 1);
+      assertEquals(insert.getCalls(4), 1);
+      assertEquals(insert.getErrors(), 2);
+      assertEquals(insert.getRetries(), 3);
+      assertEquals(insert.getBytesOut(), 1500);
+      assertEquals(insert.getBytesIn(), 900);
+      assertEquals(insert.getTotalLatencyNanos(), TimeUnit.MILLISECONDS.toNanos(1400));
+
+      ApiMetrics.Stats get = stats.get("Instances:get");
+      assertEquals(get.getCalls(), 1);
+      assertEquals(get.getErrors(), 0);
+   }
+
+   public void testLatencyPercentilesAreBucketUpperBounds() {
+      ApiMetrics metrics = new ApiMetrics();
+      for (int i = 0; i < 99; i++) {
+         metrics.record("Operations:get", 200, TimeUnit.MICROSECONDS.toNanos(900), 0, 0, 0);
+      }
+      metrics.record("Operations:get", 200, TimeUnit.MILLISECONDS.toNanos(50), 0, 0, 0);
+
+      ApiMetrics.Stats stats = metrics.getStats().get("Operations:get");
+      assertEquals(stats.getLatencyNanos(0.5), TimeUnit.MICROSECONDS.toNanos(1024));
+      assertEquals(stats.getLatencyNanos(0.99), TimeUnit.MICROSECONDS.toNanos(1024));
+      assertEquals(stats.getLatencyNanos(1), TimeUnit.MICROSECONDS.toNanos(65536));
+      assertTrue(stats.getMeanLatencyNanos() > TimeUnit.MICROSECONDS.toNanos(900));
+   }
+
+   public void testReset() {
+      ApiMetrics metrics = new ApiMetrics();
+      metrics.record("Zones:list", 200, 1, 0, 0, 0);
+      metrics.reset();
+      assertTrue(metrics.getStats().isEmpty());
+   }
+}
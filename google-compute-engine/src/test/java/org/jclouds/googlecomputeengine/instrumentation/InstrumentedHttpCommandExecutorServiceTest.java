@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.Invokable;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.reflect.Invocation;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.io.Payloads.newStringPayload;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit")
+public class InstrumentedHttpCommandExecutorServiceTest {
+
+   private static final URI INSTANCE = URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject" +
+           "/instances/test-1");
+
+   private static class StepTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.getAndAdd(1000);
+      }
+   }
+
+   private static GeneratedHttpRequest getInstanceRequest() throws NoSuchMethodException {
+      return GeneratedHttpRequest.builder().method("GET").endpoint(INSTANCE)
+              .invocation(Invocation.create(Invokable.from(InstanceApi.class.getMethod("get", String.class)),
+                      ImmutableList.<Object>of("test-1")))
+              .build();
+   }
+
+   public void testRecordsResponsesByMethodName() throws Exception {
+      HttpCommand command = new HttpCommand(getInstanceRequest());
+      HttpResponse response = HttpResponse.builder().statusCode(200).payload(newStringPayload("{}")).build();
+
+      HttpCommandExecutorService delegate = createMock(HttpCommandExecutorService.class);
+      ApiMetricsSink sink = createMock(ApiMetricsSink.class);
+      expect(delegate.invoke(command)).andReturn(response);
+      sink.record("Instances:get", 200, 1000, 0, 2, 0);
+      expectLastCall();
+      replay(delegate, sink);
+
+      assertSame(new InstrumentedHttpCommandExecutorService(delegate, sink, new StepTicker()).invoke(command),
+              response);
+      verify(delegate, sink);
+   }
+
+   public void testRecordsFailuresWithoutResponse() throws Exception {
+      HttpCommand command = new HttpCommand(getInstanceRequest());
+      command.incrementFailureCount();
+
+      HttpCommandExecutorService delegate = createMock(HttpCommandExecutorService.class);
+      ApiMetricsSink sink = createMock(ApiMetricsSink.class);
+      expect(delegate.invoke(command)).andThrow(new RuntimeException(new IOException("connection reset")));
+      sink.record("Instances:get", ApiMetricsSink.NO_RESPONSE, 1000, 0, 0, 1);
+      expectLastCall();
+      replay(delegate, sink);
+
+      try {
+         new InstrumentedHttpCommandExecutorService(delegate, sink, new StepTicker()).invoke(command);
+         fail("the failure should have been propagated");
+      } catch (RuntimeException expected) {
+      }
+      verify(delegate, sink);
+   }
+
+   public void testRequestsNotMadeByTheApiAreUnnamed() {
+      HttpRequest request = HttpRequest.builder().method("GET").endpoint(INSTANCE).build();
+      assertEquals(InstrumentedHttpCommandExecutorService.methodName(request),
+              InstrumentedHttpCommandExecutorService.UNNAMED);
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.instrumentation;
+
+import com.google.common.base.Predicates;
+import com.google.common.base.Ticker;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace.Phase;
+import org.jclouds.googlecomputeengine.instrumentation.ProvisioningTrace.Span;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class ProvisioningTracerTest {
+
+   private static final class ManualTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long millis) {
+         nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+      }
+   }
+
+   public void testTracesPhasesOfGroupAndNodes() {
+      ManualTicker ticker = new ManualTicker();
+      ProvisioningTracer tracer = new ProvisioningTracer();
+      tracer.ticker = ticker;
+
+      ProvisioningTrace trace = tracer.startTrace("test", 2);
+      long start = tracer.start();
+      ticker.advance(300);
+      tracer.record(trace, null, Phase.NETWORK, start, 2);
+      for (String node : new String[]{"test-0", "test-1"}) {
+         start = tracer.start();
+         ticker.advance(100);
+         tracer.record(trace, node, Phase.INSERT, start, 0);
+         start = tracer.start();
+         ticker.advance(1000);
+         tracer.record(trace, node, Phase.OPERATION, start, 4);
+         start = tracer.start();
+         ticker.advance(50);
+         tracer.record(trace, node, Phase.GET, start, -1);
+      }
+      ticker.advance(2000);
+      tracer.customized(trace, "test-1");
+      tracer.finish(trace);
+
+      List<Span> spans = trace.getSpans("test-1");
+      assertEquals(spans.size(), 4);
+      assertEquals(spans.get(1).getPhase(), Phase.OPERATION);
+      assertEquals(spans.get(1).getRetries(), 4);
+      assertEquals(spans.get(2).getRetries(), 0);
+      assertEquals(spans.get(3).getPhase(), Phase.CUSTOMIZE);
+      assertEquals(spans.get(3).getNanos(), TimeUnit.MILLISECONDS.toNanos(2000));
+      assertTrue(trace.isFinished());
+      assertEquals(trace.getElapsedNanos(ticker.read()), TimeUnit.MILLISECONDS.toNanos(4600));
+
+      String summary = trace.getSummary();
+      assertTrue(summary.startsWith("createNodesInGroup(test, 2) took 4600ms"), summary);
+      assertTrue(summary.contains("OPERATION    2 spans,    2000ms total,   1000ms max (test-0), 8 retries"), summary);
+      assertEquals(tracer.getLastTrace("test").get(), trace);
+   }
+
+   public void testPhasesOutsideOfATraceAreDropped() {
+      ProvisioningTracer tracer = new ProvisioningTracer();
+      tracer.record(null, "other-0", Phase.INSERT, tracer.start(), 0);
+      assertFalse(tracer.getLastTrace("other").isPresent());
+   }
+
+   public void testConcurrentCallsForTheSameGroupAreKeptApart() {
+      ProvisioningTracer tracer = new ProvisioningTracer();
+      ProvisioningTrace first = tracer.startTrace("test", 1);
+      ProvisioningTrace second = tracer.startTrace("test", 1);
+      tracer.record(first, "test-0", Phase.INSERT, tracer.start(), 0);
+      tracer.record(second, "test-1", Phase.INSERT, tracer.start(), 0);
+
+      assertEquals(first.getSpans("test-0").size(), 1);
+      assertTrue(first.getSpans("test-1").isEmpty());
+      assertEquals(second.getSpans("test-1").size(), 1);
+      assertEquals(tracer.getLastTrace("test").get(), second);
+   }
+
+   public void testKeepsTheLastTracesOfBoundedGroups() {
+      ProvisioningTracer tracer = new ProvisioningTracer();
+      for (int i = 0; i < ProvisioningTracer.MAX_GROUPS * 2; i++) {
+         tracer.finish(tracer.startTrace("group-" + i, 1));
+      }
+      assertFalse(tracer.getLastTrace("group-0").isPresent());
+      assertTrue(tracer.getLastTrace("group-" + (ProvisioningTracer.MAX_GROUPS * 2 - 1)).isPresent());
+   }
+
+   public void testCountingPredicate() {
+      AtomicInteger applied = new AtomicInteger();
+      ProvisioningTracer.counting(Predicates.alwaysFalse(), applied).apply(null);
+      ProvisioningTracer.counting(Predicates.alwaysFalse(), applied).apply(null);
+      assertEquals(applied.get(), 2);
+   }
+}
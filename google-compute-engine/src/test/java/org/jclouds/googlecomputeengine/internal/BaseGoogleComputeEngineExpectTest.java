@@ -25,6 +25,7 @@ import com.google.inject.TypeLiteral;
 import org.jclouds.collect.PagedIterable;
 import org.jclouds.collect.PagedIterables;
 import org.jclouds.crypto.Crypto;
+import org.jclouds.googlecomputeengine.compute.functions.NewClientOperationId;
 import org.jclouds.googlecomputeengine.domain.ListPage;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
@@ -139,6 +140,14 @@ public class BaseGoogleComputeEngineExpectTest<T> extends BaseRestApiExpectTest<
                   return suffix.getAndIncrement() + "";
                }
             });
+            // predictable client operation ids
+            final AtomicInteger operation = new AtomicInteger();
+            binder.bind(NewClientOperationId.class).toInstance(new NewClientOperationId() {
+               @Override
+               public String apply(String resourceName) {
+                  return resourceName + "-" + operation.getAndIncrement();
+               }
+            });
          }
       };
    }
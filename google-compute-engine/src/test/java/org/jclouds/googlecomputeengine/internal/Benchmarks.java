@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Reporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.util.Strings2.toStringAndClose;
+
+/**
+ * Fixtures and measurements shared by the performance tests.
+ */
+public final class Benchmarks {
+
+   private Benchmarks() {
+   }
+
+   /**
+    * Scales the list in the given resource, e.g. {@code /instance_list.json}, to {@code count} items by repeating its
+    * items, each renamed to {@code <name>-<n>}. The result is a single, last, page.
+    */
+   public static String scaledListPage(String listResource, int count) {
+      JsonParser parser = new JsonParser();
+      JsonObject list = parser.parse(resource(listResource)).getAsJsonObject();
+      JsonArray items = list.getAsJsonArray("items");
+      JsonArray scaled = new JsonArray();
+      for (int i = 0; i < count; i++) {
+         JsonObject item = parser.parse(items.get(i % items.size()).toString()).getAsJsonObject();
+         item.addProperty("name", item.get("name").getAsString() + "-" + i);
+         scaled.add(item);
+      }
+      list.add("items", scaled);
+      list.remove("nextPageToken");
+      return list.toString();
+   }
+
+   public static byte[] gzip(String content) {
+      try {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+         gzip.write(content.getBytes(Charsets.UTF_8));
+         gzip.close();
+         return bytes.toByteArray();
+      } catch (IOException e) {
+         throw propagate(e);
+      }
+   }
+
+   public static String resource(String resource) {
+      try {
+         return toStringAndClose(Benchmarks.class.getResourceAsStream(resource));
+      } catch (Exception e) {
+         throw propagate(e);
+      }
+   }
+
+   /**
+    * @return the bytes allocated by the current thread while running the task {@code iterations} times, divided by
+    *         the number of iterations, or absent if the JVM can't measure the allocations of a thread.
+    */
+   public static Optional<Long> allocatedBytesPerIteration(Callable<?> task, int iterations) {
+      Optional<com.sun.management.ThreadMXBean> threads = allocationMXBean();
+      if (!threads.isPresent()) {
+         return Optional.absent();
+      }
+      long threadId = Thread.currentThread().getId();
+      try {
+         // warm up, so that class loading and compilation aren't measured
+         for (int i = 0; i < iterations; i++) {
+            task.call();
+         }
+         long before = threads.get().getThreadAllocatedBytes(threadId);
+         for (int i = 0; i < iterations; i++) {
+            task.call();
+         }
+         return Optional.of((threads.get().getThreadAllocatedBytes(threadId) - before) / iterations);
+      } catch (Exception e) {
+         throw propagate(e);
+      }
+   }
+
+   /**
+    * @return the thread bean of HotSpot based JVMs, the only one that measures the allocations of a thread.
+    */
+   private static Optional<com.sun.management.ThreadMXBean> allocationMXBean() {
+      try {
+         ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+         if (threads instanceof com.sun.management.ThreadMXBean
+                 && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+            return Optional.of((com.sun.management.ThreadMXBean) threads);
+         }
+      } catch (LinkageError e) {
+         // the com.sun.management extensions are missing altogether
+      }
+      return Optional.absent();
+   }
+
+   /**
+    * Measures a task that handles {@code items} items each run, e.g. parses a page, and reports its throughput and the
+    * bytes it allocates per item, when the JVM can measure them.
+    */
+   public static void report(String name, int items, Callable<?> task, int iterations) {
+      Optional<Long> bytes = allocatedBytesPerIteration(task, iterations);
+      long nanos = nanosPerIteration(task, iterations);
+      if (bytes.isPresent()) {
+         report("%s: %.0f items/s, %d bytes allocated per item", name, items * 1e9 / nanos, bytes.get() / items);
+      } else {
+         report("%s: %.0f items/s, allocations not measured on this JVM", name, items * 1e9 / nanos);
+      }
+   }
+
+   /**
+    * Adds a measurement to the TestNG report of the running test, and to the console.
+    */
+   public static void report(String format, Object... args) {
+      Reporter.log(String.format(format, args), true);
+   }
+
+   /**
+    * @return the heap in use once the garbage collector has settled, to measure what a set of objects retains.
+    */
+   public static long usedHeapAfterGc() {
+      Runtime runtime = Runtime.getRuntime();
+      long used = Long.MAX_VALUE;
+      // a single System.gc() is only a hint, so collect until the used heap stops shrinking
+      for (int i = 0; i < 10; i++) {
+         System.gc();
+         long now = runtime.totalMemory() - runtime.freeMemory();
+         if (now >= used) {
+            break;
+         }
+         used = now;
+      }
+      return used;
+   }
+
+   /**
+    * @return the mean wall clock nanoseconds of running the task, after as many warm up runs.
+    */
+   public static long nanosPerIteration(Callable<?> task, int iterations) {
+      try {
+         for (int i = 0; i < iterations; i++) {
+            task.call();
+         }
+         long start = System.nanoTime();
+         for (int i = 0; i < iterations; i++) {
+            task.call();
+         }
+         return (System.nanoTime() - start) / iterations;
+      } catch (Exception e) {
+         throw propagate(e);
+      }
+   }
+}
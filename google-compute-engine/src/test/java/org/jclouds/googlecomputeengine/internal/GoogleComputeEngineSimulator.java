@@ -0,0 +1,562 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.internal;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.base.Splitter;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.jclouds.date.DateService;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payload;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.resource;
+import static org.jclouds.io.Payloads.newStringPayload;
+import static org.jclouds.util.Strings2.toStringAndClose;
+
+/**
+ * An in-process, stateful stand-in for the GCE v1beta13 api, to be plugged into the expect test harness with
+ * {@code createClient(simulator)} so that whole compute service workflows can be run at scale without a project.
+ * <p/>
+ * Instances, networks, firewalls and operations are kept in memory. Every insert or delete returns an operation that
+ * is PENDING, then RUNNING and then DONE as the configured delays elapse, and the resource is only created, running,
+ * or removed once its operation is done. Operations keep the {@code clientOperationId} their request carried. Lists
+ * are paginated with {@code maxResults} and {@code pageToken} and can be filtered with {@code <field> eq|ne <regex>}
+ * on top level fields. Zones, machine types, images and kernels are served from the test fixtures. Requests can be
+ * rate limited and made to fail, and are counted per method and collection, e.g. {@code "GET operations"}.
+ */
+public class GoogleComputeEngineSimulator implements Function<HttpRequest, HttpResponse> {
+
+   public static final String TOKEN = "simulated-token";
+
+   private static final String API = "https://www.googleapis.com/compute/v1beta13/projects/";
+   private static final Pattern PATH = Pattern.compile("/compute/v1beta13/projects/([^/]+)/([^/]+)(?:/([^/]+))?");
+   private static final Pattern FILTER = Pattern.compile("(\\S+)\\s+(eq|ne)\\s+(.*)");
+   private static final int DEFAULT_MAX_RESULTS = 500;
+
+   private static final Map<String, String> CATALOGS = ImmutableMap.of(
+           "zones", "/zone_list.json",
+           "machineTypes", "/machinetype_list.json",
+           "kernels", "/kernel_list.json");
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   public static class Builder {
+      private Ticker ticker = Ticker.systemTicker();
+      private long pendingNanos = TimeUnit.MILLISECONDS.toNanos(50);
+      private long runningNanos = TimeUnit.MILLISECONDS.toNanos(100);
+      private int maxRequestsPerSecond = Integer.MAX_VALUE;
+
+      /**
+       * The clock operations and rate limits are measured with, e.g. a fake one to step through an operation.
+       */
+      public Builder ticker(Ticker ticker) {
+         this.ticker = checkNotNull(ticker, "ticker");
+         return this;
+      }
+
+      /**
+       * How long operations stay PENDING and then RUNNING, before they are DONE.
+       */
+      public Builder operationDelays(long pending, long running, TimeUnit unit) {
+         this.pendingNanos = unit.toNanos(pending);
+         this.runningNanos = unit.toNanos(running);
+         return this;
+      }
+
+      /**
+       * Requests beyond this many in the same second fail with a 403 rateLimitExceeded error, as GCE's do.
+       */
+      public Builder maxRequestsPerSecond(int maxRequestsPerSecond) {
+         checkArgument(maxRequestsPerSecond > 0, "maxRequestsPerSecond must be positive");
+         this.maxRequestsPerSecond = maxRequestsPerSecond;
+         return this;
+      }
+
+      public GoogleComputeEngineSimulator build() {
+         return new GoogleComputeEngineSimulator(this);
+      }
+   }
+
+   private final Ticker ticker;
+   private final long pendingNanos;
+   private final long runningNanos;
+   private final int maxRequestsPerSecond;
+   private final DateService dateService = new SimpleDateFormatDateService();
+   private final long startMillis = System.currentTimeMillis();
+   private final long startNanos;
+   private final AtomicLong ids = new AtomicLong(1000000);
+   private final Multiset<String> requestCounts = ConcurrentHashMultiset.create();
+   private final Map<String, NavigableMap<String, JsonObject>> collections = Maps.newHashMap();
+   private final Map<String, Runnable> onDone = Maps.newHashMap();
+   private final Map<String, Long> insertNanos = Maps.newHashMap();
+   private final Set<String> pendingInserts = Sets.newHashSet();
+   private final List<InjectedError> errors = Lists.newArrayList();
+   private long currentSecond = -1;
+   private int requestsThisSecond;
+
+   private GoogleComputeEngineSimulator(Builder builder) {
+      this.ticker = builder.ticker;
+      this.pendingNanos = builder.pendingNanos;
+      this.runningNanos = builder.runningNanos;
+      this.maxRequestsPerSecond = builder.maxRequestsPerSecond;
+      this.startNanos = ticker.read();
+   }
+
+   /**
+    * Makes the next {@code times} requests that match fail with the given status code, before they are handled.
+    */
+   public synchronized GoogleComputeEngineSimulator failRequests(Predicate<HttpRequest> matching, int statusCode,
+                                                                 int times) {
+      errors.add(new InjectedError(checkNotNull(matching, "matching"), statusCode, times));
+      return this;
+   }
+
+   /**
+    * @return the number of requests handled so far, by method and collection, e.g. {@code "POST instances"}.
+    */
+   public ImmutableMultiset<String> getRequestCounts() {
+      return ImmutableMultiset.copyOf(requestCounts);
+   }
+
+   /**
+    * @return the resources currently in the given collection of the project, e.g. {@code "instances"}.
+    */
+   public synchronized List<JsonObject> list(String project, String collection) {
+      advanceOperations();
+      return ImmutableList.copyOf(collection(project, collection).values());
+   }
+
+   @Override
+   public synchronized HttpResponse apply(HttpRequest request) {
+      advanceOperations();
+      if (request.getEndpoint().getHost().equals("accounts.google.com")) {
+         requestCounts.add("POST token");
+         return json(200, "{\"access_token\":\"" + TOKEN + "\",\"token_type\":\"Bearer\",\"expires_in\":3600}");
+      }
+      Matcher path = PATH.matcher(request.getEndpoint().getPath());
+      if (!path.matches()) {
+         return error(400, "invalid", "not supported by the simulator: " + request.getRequestLine());
+      }
+      String project = path.group(1);
+      String collection = path.group(2);
+      String name = path.group(3);
+      requestCounts.add(request.getMethod() + " " + collection);
+
+      if (rateLimited()) {
+         return error(403, "rateLimitExceeded", "Rate Limit Exceeded");
+      }
+      for (Iterator<InjectedError> it = errors.iterator(); it.hasNext(); ) {
+         InjectedError error = it.next();
+         if (error.matching.apply(request)) {
+            if (--error.times == 0) {
+               it.remove();
+            }
+            return error(error.statusCode, "injected", "injected error for " + request.getRequestLine());
+         }
+      }
+
+      String method = request.getMethod();
+      if (CATALOGS.containsKey(collection) || collection.equals("images")) {
+         return method.equals("GET") ? catalog(project, collection, name)
+                 : error(400, "invalid", "the simulator's " + collection + " are read only");
+      }
+      if (method.equals("GET")) {
+         return name == null ? list(project, collection, query(request)) : get(project, collection, name);
+      } else if (method.equals("POST") && name == null) {
+         return insert(project, collection, body(request), query(request).get("clientOperationId"));
+      } else if (method.equals("DELETE") && name != null) {
+         return delete(project, collection, name, query(request).get("clientOperationId"));
+      }
+      return error(400, "invalid", "not supported by the simulator: " + request.getRequestLine());
+   }
+
+   private HttpResponse get(String project, String collection, String name) {
+      JsonObject resource = collection(project, collection).get(name);
+      return resource == null ? notFound(project, collection, name) : json(200, resource.toString());
+   }
+
+   private HttpResponse list(String project, String collection, Map<String, String> query) {
+      Predicate<JsonObject> filter = filter(query.get("filter"));
+      int maxResults = query.containsKey("maxResults") ? Integer.parseInt(query.get("maxResults"))
+              : DEFAULT_MAX_RESULTS;
+      NavigableMap<String, JsonObject> resources = collection(project, collection);
+      if (query.containsKey("pageToken")) {
+         resources = resources.tailMap(query.get("pageToken"), true);
+      }
+      JsonObject page = new JsonObject();
+      page.addProperty("kind", "compute#" + singular(collection) + "List");
+      page.addProperty("id", "projects/" + project + "/" + collection);
+      page.addProperty("selfLink", API + project + "/" + collection);
+      JsonArray items = new JsonArray();
+      int count = 0;
+      for (JsonObject resource : resources.values()) {
+         if (!filter.apply(resource)) {
+            continue;
+         }
+         if (count++ == maxResults) {
+            page.addProperty("nextPageToken", resource.get("name").getAsString());
+            break;
+         }
+         items.add(resource);
+      }
+      if (items.size() > 0) {
+         page.add("items", items);
+      }
+      return json(200, page.toString());
+   }
+
+   private HttpResponse insert(String project, String collection, JsonObject body, String clientOperationId) {
+      if (!body.has("name")) {
+         return error(400, "required", "Required field 'name' not specified");
+      }
+      final String name = body.get("name").getAsString();
+      final NavigableMap<String, JsonObject> resources = collection(project, collection);
+      final String selfLink = selfLink(project, collection, name);
+      if (resources.containsKey(name) || pendingInserts.contains(selfLink)) {
+         return error(409, "alreadyExists", "The resource '" + selfLink + "' already exists");
+      }
+      final JsonObject resource = body;
+      resource.addProperty("kind", "compute#" + singular(collection));
+      resource.addProperty("id", Long.toString(ids.incrementAndGet()));
+      resource.addProperty("creationTimestamp", now());
+      resource.addProperty("selfLink", selfLink);
+      Runnable done;
+      if (collection.equals("instances")) {
+         provisionInstance(resource);
+         resources.put(name, resource);
+         done = new Runnable() {
+            @Override
+            public void run() {
+               resource.addProperty("status", "RUNNING");
+            }
+         };
+      } else if (collection.equals("networks") || collection.equals("firewalls")) {
+         done = new Runnable() {
+            @Override
+            public void run() {
+               pendingInserts.remove(selfLink);
+               resources.put(name, resource);
+            }
+         };
+         pendingInserts.add(selfLink);
+      } else {
+         return error(400, "invalid", "the simulator can't insert " + collection);
+      }
+      return operation(project, "insert", resource, clientOperationId, done);
+   }
+
+   private HttpResponse delete(String project, String collection, final String name, String clientOperationId) {
+      final NavigableMap<String, JsonObject> resources = collection(project, collection);
+      JsonObject resource = resources.get(name);
+      if (resource == null) {
+         return notFound(project, collection, name);
+      }
+      if (collection.equals("operations")) {
+         resources.remove(name);
+         onDone.remove(name);
+         insertNanos.remove(name);
+         return HttpResponse.builder().statusCode(204).message("No Content").build();
+      }
+      if (collection.equals("instances")) {
+         resource.addProperty("status", "STOPPING");
+      }
+      return operation(project, "delete", resource, clientOperationId, new Runnable() {
+         @Override
+         public void run() {
+            resources.remove(name);
+         }
+      });
+   }
+
+   private HttpResponse operation(String project, String type, JsonObject target, String clientOperationId,
+                                  Runnable done) {
+      long id = ids.incrementAndGet();
+      String name = "operation-" + id;
+      JsonObject operation = new JsonObject();
+      operation.addProperty("kind", "compute#operation");
+      operation.addProperty("id", Long.toString(id));
+      operation.addProperty("selfLink", selfLink(project, "operations", name));
+      operation.addProperty("name", name);
+      operation.addProperty("targetLink", target.get("selfLink").getAsString());
+      operation.addProperty("targetId", target.get("id").getAsString());
+      operation.addProperty("status", "PENDING");
+      operation.addProperty("user", "user@developer.gserviceaccount.com");
+      operation.addProperty("progress", 0);
+      operation.addProperty("insertTime", now());
+      operation.addProperty("operationType", type);
+      if (clientOperationId != null) {
+         operation.addProperty("clientOperationId", clientOperationId);
+      }
+      collection(project, "operations").put(name, operation);
+      insertNanos.put(name, ticker.read());
+      onDone.put(name, done);
+      return json(200, operation.toString());
+   }
+
+   /**
+    * Moves the operations along with the clock, and applies the effect of the ones that are done.
+    */
+   private void advanceOperations() {
+      long now = ticker.read();
+      for (NavigableMap<String, JsonObject> operations : projectCollections("operations")) {
+         for (JsonObject operation : operations.values()) {
+            String status = operation.get("status").getAsString();
+            if (status.equals("DONE")) {
+               continue;
+            }
+            long elapsed = now - insertNanos.get(operation.get("name").getAsString());
+            if (elapsed >= pendingNanos + runningNanos) {
+               operation.addProperty("status", "DONE");
+               operation.addProperty("progress", 100);
+               operation.addProperty("endTime", now());
+               if (!operation.has("startTime")) {
+                  operation.addProperty("startTime", now());
+               }
+               Runnable done = onDone.remove(operation.get("name").getAsString());
+               if (done != null) {
+                  done.run();
+               }
+            } else if (elapsed >= pendingNanos && status.equals("PENDING")) {
+               operation.addProperty("status", "RUNNING");
+               operation.addProperty("progress", 50);
+               operation.addProperty("startTime", now());
+            }
+         }
+      }
+   }
+
+   private void provisionInstance(JsonObject instance) {
+      instance.addProperty("status", "PROVISIONING");
+      long id = instance.get("id").getAsLong();
+      if (instance.has("networkInterfaces")) {
+         int nic = 0;
+         for (JsonElement element : instance.getAsJsonArray("networkInterfaces")) {
+            JsonObject networkInterface = element.getAsJsonObject();
+            networkInterface.addProperty("kind", "compute#instanceNetworkInterface");
+            networkInterface.addProperty("name", "nic" + nic++);
+            networkInterface.addProperty("networkIP", address(10, id));
+            if (networkInterface.has("accessConfigs")) {
+               for (JsonElement accessConfig : networkInterface.getAsJsonArray("accessConfigs")) {
+                  accessConfig.getAsJsonObject().addProperty("kind", "compute#accessConfig");
+                  accessConfig.getAsJsonObject().addProperty("name", "External NAT");
+                  accessConfig.getAsJsonObject().addProperty("natIP", address(173, id));
+               }
+            }
+         }
+      }
+      if (instance.has("disks")) {
+         int index = 0;
+         for (JsonElement disk : instance.getAsJsonArray("disks")) {
+            disk.getAsJsonObject().addProperty("kind", "compute#attachedDisk");
+            disk.getAsJsonObject().addProperty("index", index++);
+         }
+      }
+   }
+
+   private HttpResponse catalog(String project, String collection, String name) {
+      String fixture = collection.equals("images")
+              ? project.equals("google") ? "/image_list_single_page.json" : "/image_list.json"
+              : CATALOGS.get(collection);
+      if (name == null) {
+         return json(200, resource(fixture));
+      }
+      JsonObject list = new JsonParser().parse(resource(fixture)).getAsJsonObject();
+      if (list.has("items")) {
+         for (JsonElement item : list.getAsJsonArray("items")) {
+            if (item.getAsJsonObject().get("name").getAsString().equals(name)) {
+               return json(200, item.toString());
+            }
+         }
+      }
+      return notFound(project, collection, name);
+   }
+
+   private boolean rateLimited() {
+      long second = TimeUnit.NANOSECONDS.toSeconds(ticker.read());
+      if (second != currentSecond) {
+         currentSecond = second;
+         requestsThisSecond = 0;
+      }
+      return ++requestsThisSecond > maxRequestsPerSecond;
+   }
+
+   private static Predicate<JsonObject> filter(String expression) {
+      if (expression == null) {
+         return Predicates.<JsonObject>alwaysTrue();
+      }
+      Matcher matcher = FILTER.matcher(expression.trim());
+      checkArgument(matcher.matches(), "invalid filter %s", expression);
+      final String field = matcher.group(1);
+      final boolean equal = matcher.group(2).equals("eq");
+      String literal = matcher.group(3);
+      if (literal.length() > 1 && (literal.startsWith("'") && literal.endsWith("'")
+              || literal.startsWith("\"") && literal.endsWith("\""))) {
+         literal = literal.substring(1, literal.length() - 1);
+      }
+      final Pattern regex = Pattern.compile(literal);
+      return new Predicate<JsonObject>() {
+         @Override
+         public boolean apply(JsonObject input) {
+            JsonElement value = input.get(field);
+            boolean matches = value instanceof JsonPrimitive && regex.matcher(value.getAsString()).matches();
+            return matches == equal;
+         }
+      };
+   }
+
+   private NavigableMap<String, JsonObject> collection(String project, String collection) {
+      String key = project + "/" + collection;
+      NavigableMap<String, JsonObject> resources = collections.get(key);
+      if (resources == null) {
+         resources = Maps.newTreeMap();
+         collections.put(key, resources);
+      }
+      return resources;
+   }
+
+   private Iterable<NavigableMap<String, JsonObject>> projectCollections(final String collection) {
+      ImmutableList.Builder<NavigableMap<String, JsonObject>> matching = ImmutableList.builder();
+      for (Map.Entry<String, NavigableMap<String, JsonObject>> entry : collections.entrySet()) {
+         if (entry.getKey().endsWith("/" + collection)) {
+            matching.add(entry.getValue());
+         }
+      }
+      return matching.build();
+   }
+
+   private String now() {
+      // simulated time starts at the wall clock and moves with the ticker
+      long millis = startMillis + TimeUnit.NANOSECONDS.toMillis(ticker.read() - startNanos);
+      return dateService.iso8601DateFormat(new Date(millis));
+   }
+
+   private static String selfLink(String project, String collection, String name) {
+      return API + project + "/" + collection + "/" + name;
+   }
+
+   private static String singular(String collection) {
+      return collection.substring(0, collection.length() - 1);
+   }
+
+   private static String address(int first, long id) {
+      return first + "." + (id >> 16 & 0xff) + "." + (id >> 8 & 0xff) + "." + (id & 0xff);
+   }
+
+   private static Map<String, String> query(HttpRequest request) {
+      String query = request.getEndpoint().getRawQuery();
+      if (query == null) {
+         return ImmutableMap.of();
+      }
+      Map<String, String> params = Maps.newHashMap();
+      try {
+         for (String param : Splitter.on('&').omitEmptyStrings().split(query)) {
+            List<String> keyValue = ImmutableList.copyOf(Splitter.on('=').limit(2).split(param));
+            params.put(URLDecoder.decode(keyValue.get(0), "UTF-8"),
+                    keyValue.size() > 1 ? URLDecoder.decode(keyValue.get(1), "UTF-8") : "");
+         }
+      } catch (UnsupportedEncodingException e) {
+         throw propagate(e);
+      }
+      return params;
+   }
+
+   private static JsonObject body(HttpRequest request) {
+      Payload payload = request.getPayload();
+      if (payload == null) {
+         return new JsonObject();
+      }
+      try {
+         return new JsonParser().parse(toStringAndClose(payload.openStream())).getAsJsonObject();
+      } catch (IOException e) {
+         throw propagate(e);
+      }
+   }
+
+   private static HttpResponse notFound(String project, String collection, String name) {
+      return error(404, "notFound", "The resource '" + selfLink(project, collection, name) + "' was not found");
+   }
+
+   private static HttpResponse error(int code, String reason, String message) {
+      JsonObject error = new JsonObject();
+      JsonObject detail = new JsonObject();
+      detail.addProperty("domain", "global");
+      detail.addProperty("reason", reason);
+      detail.addProperty("message", message);
+      JsonArray errors = new JsonArray();
+      errors.add(detail);
+      error.add("errors", errors);
+      error.addProperty("code", code);
+      error.addProperty("message", message);
+      JsonObject body = new JsonObject();
+      body.add("error", error);
+      return json(code, body.toString());
+   }
+
+   private static HttpResponse json(int code, String json) {
+      Payload payload = newStringPayload(json);
+      payload.getContentMetadata().setContentType("application/json");
+      return HttpResponse.builder().statusCode(code).message(code == 200 ? "OK" : "Error").payload(payload).build();
+   }
+
+   private static final class InjectedError {
+      private final Predicate<HttpRequest> matching;
+      private final int statusCode;
+      private int times;
+
+      private InjectedError(Predicate<HttpRequest> matching, int statusCode, int times) {
+         this.matching = matching;
+         this.statusCode = statusCode;
+         this.times = times;
+      }
+   }
+}
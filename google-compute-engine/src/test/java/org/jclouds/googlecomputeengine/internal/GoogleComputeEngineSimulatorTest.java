@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.internal;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import org.jclouds.googlecomputeengine.GoogleComputeEngineApi;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Network;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.features.NetworkApi;
+import org.jclouds.googlecomputeengine.options.ListOptions;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.rest.InsufficientResourcesException;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit")
+public class GoogleComputeEngineSimulatorTest extends BaseGoogleComputeEngineApiExpectTest {
+
+   private static final class FakeTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long time, TimeUnit unit) {
+         nanos.addAndGet(unit.toNanos(time));
+      }
+   }
+
+   public void testOperationsCompleteAsTimePasses() {
+      FakeTicker ticker = new FakeTicker();
+      GoogleComputeEngineSimulator simulator = GoogleComputeEngineSimulator.builder().ticker(ticker)
+              .operationDelays(1, 2, TimeUnit.SECONDS).build();
+      GoogleComputeEngineApi api = createClient(simulator);
+      NetworkApi networkApi = api.getNetworkApiForProject("myproject");
+
+      Operation operation = networkApi.createInIPv4Range("jclouds-test", "10.0.0.0/8");
+      assertEquals(operation.getStatus(), Operation.Status.PENDING);
+      assertNull(networkApi.get("jclouds-test"));
+
+      ticker.advance(1, TimeUnit.SECONDS);
+      assertEquals(api.getOperationApiForProject("myproject").get(operation.getName()).getStatus(),
+              Operation.Status.RUNNING);
+      assertNull(networkApi.get("jclouds-test"));
+
+      ticker.advance(2, TimeUnit.SECONDS);
+      assertEquals(api.getOperationApiForProject("myproject").get(operation.getName()).getStatus(),
+              Operation.Status.DONE);
+      Network network = networkApi.get("jclouds-test");
+      assertNotNull(network);
+      assertEquals(network.getIPv4Range(), "10.0.0.0/8");
+      assertEquals(operation.getTargetLink(), network.getSelfLink());
+
+      networkApi.delete("jclouds-test");
+      ticker.advance(3, TimeUnit.SECONDS);
+      assertNull(networkApi.get("jclouds-test"));
+      assertEquals(simulator.getRequestCounts().count("POST networks"), 1);
+      assertEquals(simulator.getRequestCounts().count("DELETE networks"), 1);
+   }
+
+   public void testListsArePaginatedAndFiltered() {
+      FakeTicker ticker = new FakeTicker();
+      GoogleComputeEngineSimulator simulator = GoogleComputeEngineSimulator.builder().ticker(ticker).build();
+      NetworkApi networkApi = createClient(simulator).getNetworkApiForProject("myproject");
+      for (int i = 0; i < 5; i++) {
+         networkApi.createInIPv4Range("network-" + i, "10.0." + i + ".0/24");
+      }
+      networkApi.createInIPv4Range("other", "10.1.0.0/24");
+      ticker.advance(1, TimeUnit.MINUTES);
+
+      ListPage<Network> firstPage = networkApi.listAtMarker(null, new ListOptions().maxResults(4));
+      assertEquals(firstPage.size(), 4);
+      assertEquals(firstPage.nextMarker().get(), "network-4");
+      assertEquals(Iterables.size(networkApi.list(new ListOptions().maxResults(4)).concat()), 6);
+
+      ImmutableSet.Builder<String> names = ImmutableSet.builder();
+      for (Network network : networkApi.list(new ListOptions().filter("name eq network-[0-2]")).concat()) {
+         names.add(network.getName());
+      }
+      assertEquals(names.build(), ImmutableSet.of("network-0", "network-1", "network-2"));
+      assertEquals(Iterables.size(networkApi.list(new ListOptions().filter("name ne network-.*")).concat()), 1);
+   }
+
+   public void testInjectedErrorsFailMatchingRequests() {
+      GoogleComputeEngineSimulator simulator = GoogleComputeEngineSimulator.builder().build();
+      simulator.failRequests(new Predicate<HttpRequest>() {
+         @Override
+         public boolean apply(HttpRequest input) {
+            return input.getMethod().equals("POST");
+         }
+      }, 409, 1);
+      NetworkApi networkApi = createClient(simulator).getNetworkApiForProject("myproject");
+
+      try {
+         networkApi.createInIPv4Range("jclouds-test", "10.0.0.0/8");
+         fail("the injected error should have failed the insert");
+      } catch (IllegalStateException expected) {
+      }
+      assertNotNull(networkApi.createInIPv4Range("jclouds-test", "10.0.0.0/8"));
+      try {
+         networkApi.createInIPv4Range("jclouds-test", "10.0.0.0/8");
+         fail("inserting the same network twice should conflict");
+      } catch (IllegalStateException expected) {
+      }
+   }
+
+   public void testRequestsAreRateLimited() {
+      FakeTicker ticker = new FakeTicker();
+      GoogleComputeEngineSimulator simulator = GoogleComputeEngineSimulator.builder().ticker(ticker)
+              .maxRequestsPerSecond(2).build();
+      NetworkApi networkApi = createClient(simulator).getNetworkApiForProject("myproject");
+
+      networkApi.listFirstPage();
+      networkApi.listFirstPage();
+      try {
+         networkApi.listFirstPage();
+         fail("the third request in the same second should be rate limited");
+      } catch (InsufficientResourcesException expected) {
+      }
+      ticker.advance(1, TimeUnit.SECONDS);
+      networkApi.listFirstPage();
+      // the rate limited request is retried 5 times, the clock standing still
+      assertEquals(simulator.getRequestCounts().count("GET networks"), 9);
+   }
+
+   public void testCatalogsAreServedFromFixtures() {
+      GoogleComputeEngineApi api = createClient(GoogleComputeEngineSimulator.builder().build());
+
+      assertEquals(api.getZoneApiForProject("myproject").listFirstPage().size(), 2);
+      assertNotNull(api.getImageApiForProject("google").get("gcel-12-04-v20121106"));
+      assertEquals(ImmutableList.copyOf(api.getInstanceApiForProject("myproject").list().concat()).size(), 0);
+   }
+}
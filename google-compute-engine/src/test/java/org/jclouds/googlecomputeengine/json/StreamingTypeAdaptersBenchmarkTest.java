@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.base.Optional;
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Guice;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule.Metadata;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.allocatedBytesPerIteration;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.nanosPerIteration;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.resource;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Compares the allocations and time of the streaming type adapters with the JsonElement tree based deserializers
+ * they replaced, see {@link TreeModelParserModule}.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class StreamingTypeAdaptersBenchmarkTest {
+
+   private static final int PAGE_SIZE = 500;
+   private static final int ITERATIONS = 20;
+
+   private final Json streaming = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule())
+           .getInstance(Json.class);
+   private final Json treeModel = Guice.createInjector(new GsonModule(), new TreeModelParserModule())
+           .getInstance(Json.class);
+
+   public void testInstanceList() {
+      compare("instance list", scaledListPage("/instance_list.json", PAGE_SIZE),
+              new TypeToken<ListPage<Instance>>() {}.getType());
+   }
+
+   public void testOperationList() {
+      compare("operation list", scaledListPage("/operation_list.json", PAGE_SIZE),
+              new TypeToken<ListPage<Operation>>() {}.getType());
+   }
+
+   public void testMetadata() {
+      compare("metadata", resource("/metadata.json"), Metadata.class);
+   }
+
+   private void compare(String name, final String json, final Type type) {
+      assertEquals(streaming.fromJson(json, type).toString(), treeModel.fromJson(json, type).toString());
+
+      Callable<Object> parseStreaming = new Callable<Object>() {
+         @Override
+         public Object call() {
+            return streaming.fromJson(json, type);
+         }
+      };
+      Callable<Object> parseTreeModel = new Callable<Object>() {
+         @Override
+         public Object call() {
+            return treeModel.fromJson(json, type);
+         }
+      };
+
+      Optional<Long> streamingBytes = allocatedBytesPerIteration(parseStreaming, ITERATIONS);
+      Optional<Long> treeModelBytes = allocatedBytesPerIteration(parseTreeModel, ITERATIONS);
+      report("%s: streaming %s bytes %d ns, tree model %s bytes %d ns", name, streamingBytes.or(-1L),
+              nanosPerIteration(parseStreaming, ITERATIONS), treeModelBytes.or(-1L),
+              nanosPerIteration(parseTreeModel, ITERATIONS));
+      if (!streamingBytes.isPresent() || !treeModelBytes.isPresent()) {
+         throw new SkipException("the allocations of a thread can't be measured on this JVM");
+      }
+      assertTrue(streamingBytes.get() < treeModelBytes.get(), name + " streaming allocated " + streamingBytes.get()
+              + " bytes, tree model " + treeModelBytes.get());
+   }
+}
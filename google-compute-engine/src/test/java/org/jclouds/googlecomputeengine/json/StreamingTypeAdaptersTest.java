@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Guice;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Type;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.resource;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit")
+public class StreamingTypeAdaptersTest {
+
+   private final Json json = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule())
+           .getInstance(Json.class);
+
+   public void testInstanceRoundTrip() {
+      assertRoundTrip(resource("/instance_get.json"), Instance.class);
+   }
+
+   public void testOperationRoundTrip() {
+      assertRoundTrip(resource("/operation.json"), Operation.class);
+      assertRoundTrip(resource("/operation_error.json"), Operation.class);
+   }
+
+   public void testListPageRoundTrip() {
+      assertRoundTrip(scaledListPage("/instance_list.json", 2),
+              new TypeToken<ListPage<Instance>>() {}.getType());
+   }
+
+   public void testUnrecognizedOperationStatus() {
+      Operation operation = json.fromJson(resource("/operation.json").replace("\"DONE\"", "\"CANCELLING\""),
+              Operation.class);
+      assertEquals(operation.getStatus(), Operation.Status.UNRECOGNIZED);
+   }
+
+   private void assertRoundTrip(String original, Type type) {
+      Object parsed = json.fromJson(original, type);
+      assertEquals(json.fromJson(json.toJson(parsed, type), type).toString(), parsed.toString());
+   }
+}
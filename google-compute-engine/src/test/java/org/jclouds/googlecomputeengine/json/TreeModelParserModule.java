@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule.Metadata;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.json.config.GsonModule;
+
+import javax.inject.Singleton;
+import java.beans.ConstructorProperties;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The JsonElement tree based deserializers that the streaming type adapters replaced, kept as the baseline of the
+ * parser benchmarks.
+ */
+public class TreeModelParserModule extends AbstractModule {
+
+   @Override
+   protected void configure() {
+      bind(GsonModule.DateAdapter.class).to(GsonModule.Iso8601DateAdapter.class);
+   }
+
+   @Provides
+   @Singleton
+   public Map<Type, Object> provideCustomAdapterBindings() {
+      return new ImmutableMap.Builder<Type, Object>()
+              .put(Metadata.class, new TreeModelMetadataAdapter())
+              .put(Operation.class, new TreeModelOperationAdapter())
+              .put(Instance.class, new TreeModelInstanceAdapter())
+              .build();
+   }
+
+   /**
+    * Parser for operations that unwraps errors avoiding an extra intermediate object.
+    *
+    * @see <a href="https://developers.google.com/compute/docs/reference/v1beta13/operations"/>
+    */
+   @Singleton
+   private static class TreeModelOperationAdapter implements JsonDeserializer<Operation> {
+
+      @Override
+      public Operation deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
+              JsonParseException {
+         Operation.Builder operationBuilder = ((Operation) context.deserialize(json,
+                 OperationInternal.class)).toBuilder();
+         JsonObject error = json.getAsJsonObject().getAsJsonObject("error");
+         if (error != null) {
+            JsonArray array = error.getAsJsonArray("errors");
+            if (array != null) {
+               for (JsonElement element : array) {
+                  operationBuilder.addError((Operation.Error) context.deserialize(element, Operation.Error.class));
+               }
+            }
+         }
+         return operationBuilder.build();
+      }
+
+      private static class OperationInternal extends Operation {
+         @ConstructorProperties({
+                 "id", "creationTimestamp", "selfLink", "name", "description", "targetLink", "targetId",
+                 "clientOperationId", "status", "statusMessage", "user", "progress", "insertTime", "startTime",
+                 "endTime", "httpErrorStatusCode", "httpErrorMessage", "operationType"
+         })
+         private OperationInternal(String id, Date creationTimestamp, URI selfLink, String name,
+                                   String description, URI targetLink, String targetId, String clientOperationId,
+                                   Status status, String statusMessage, String user, int progress, Date insertTime,
+                                   Date startTime, Date endTime, int httpErrorStatusCode, String httpErrorMessage,
+                                   String operationType) {
+            super(id, creationTimestamp, selfLink, name, description, targetLink, targetId, clientOperationId,
+                    status, statusMessage, user, progress, insertTime, startTime, endTime, httpErrorStatusCode,
+                    httpErrorMessage, operationType, null);
+         }
+      }
+   }
+
+   @Singleton
+   private static class TreeModelInstanceAdapter implements JsonDeserializer<Instance> {
+
+      @Override
+      public Instance deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
+              JsonParseException {
+         Instance.Builder instanceBuilder = ((Instance) context.deserialize(json,
+                 InstanceInternal.class)).toBuilder();
+         JsonObject object = (JsonObject) json;
+         if (object.get("disks") != null) {
+            JsonArray disks = (JsonArray) object.get("disks");
+            for (JsonElement element : disks) {
+               JsonObject disk = (JsonObject) element;
+               if (disk.get("type").getAsString().equals("PERSISTENT")) {
+                  instanceBuilder.addDisk((Instance.PersistentAttachedDisk) context.deserialize(disk,
+                          Instance.PersistentAttachedDisk.class));
+               } else {
+                  instanceBuilder.addDisk((Instance.AttachedDisk) context.deserialize(disk,
+                          Instance.AttachedDisk.class));
+               }
+            }
+
+         }
+
+         return Instance.builder().fromInstance(instanceBuilder.build()).build();
+      }
+
+
+      private static class InstanceInternal extends Instance {
+         @ConstructorProperties({
+                 "id", "creationTimestamp", "selfLink", "name", "description", "tags", "image", "machineType",
+                 "status", "statusMessage", "zone", "networkInterfaces", "metadata", "serviceAccounts"
+         })
+         private InstanceInternal(String id, Date creationTimestamp, URI selfLink, String name, String description,
+                                  Set<String> tags, URI image, URI machineType, Status status, String statusMessage,
+                                  URI zone, Set<NetworkInterface> networkInterfaces, Metadata metadata,
+                                  Set<ServiceAccount> serviceAccounts) {
+            super(id, creationTimestamp, selfLink, name, description, tags, image, machineType,
+                    status, statusMessage, zone, networkInterfaces, null, metadata, serviceAccounts);
+         }
+      }
+   }
+
+   /**
+    * Parser for Metadata.
+    */
+   @Singleton
+   private static class TreeModelMetadataAdapter implements JsonDeserializer<Metadata>, JsonSerializer<Metadata> {
+
+
+      @Override
+      public Metadata deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
+              JsonParseException {
+         ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+         JsonObject metadata = json.getAsJsonObject();
+         JsonArray items = metadata.getAsJsonArray("items");
+         if (items != null) {
+            for (JsonElement element : items) {
+               JsonObject object = element.getAsJsonObject();
+               builder.put(object.get("key").getAsString(), object.get("value").getAsString());
+            }
+         }
+         return new Metadata(builder.build());
+      }
+
+      @Override
+      public JsonElement serialize(Metadata src, Type typeOfSrc, JsonSerializationContext context) {
+         JsonObject metadataObject = new JsonObject();
+         metadataObject.add("kind", new JsonPrimitive("compute#metadata"));
+         JsonArray items = new JsonArray();
+         for (Map.Entry<String, String> entry : src.entrySet()) {
+            JsonObject object = new JsonObject();
+            object.addProperty("key", entry.getKey());
+            object.addProperty("value", entry.getValue());
+            items.add(object);
+         }
+         metadataObject.add("items", items);
+         return metadataObject;
+      }
+   }
+}
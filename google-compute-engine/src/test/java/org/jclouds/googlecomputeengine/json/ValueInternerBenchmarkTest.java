@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.usedHeapAfterGc;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Measures the heap retained per instance by a 50k instance inventory, parsed a page at a time, with and without
+ * interning the values the instances have in common, see {@link ValueInterner}.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class ValueInternerBenchmarkTest {
+
+   private static final int INSTANCES = 50000;
+   private static final int PAGE_SIZE = 500;
+   private static final Type INSTANCE_LIST = new TypeToken<ListPage<Instance>>() {}.getType();
+
+   public void testRetainedSizePerInstance() {
+      String page = scaledListPage("/instance_list.json", PAGE_SIZE);
+
+      long interned = retainedBytesPerInstance(Guice.createInjector(new GsonModule(),
+              new GoogleComputeEngineParserModule()).getInstance(Json.class), page);
+      long asParsed = retainedBytesPerInstance(Guice.createInjector(new GsonModule(),
+              new GoogleComputeEngineParserModule(), new AbstractModule() {
+                 @Override
+                 protected void configure() {
+                    bind(ValueInterner.class).toInstance(ValueInterner.NONE);
+                 }
+              }).getInstance(Json.class), page);
+
+      report("%d instances: %d bytes retained per instance as parsed, %d bytes interned", INSTANCES,
+              asParsed, interned);
+      assertTrue(interned < asParsed, "interned " + interned + " bytes, as parsed " + asParsed);
+   }
+
+   private static long retainedBytesPerInstance(Json json, String page) {
+      List<Instance> inventory = Lists.newArrayListWithCapacity(INSTANCES);
+      long before = usedHeapAfterGc();
+      for (int i = 0; i < INSTANCES / PAGE_SIZE; i++) {
+         ListPage<Instance> instances = json.fromJson(page, INSTANCE_LIST);
+         inventory.addAll(instances);
+      }
+      long retained = usedHeapAfterGc() - before;
+      assertEquals(inventory.size(), INSTANCES);
+      return retained / inventory.size();
+   }
+}
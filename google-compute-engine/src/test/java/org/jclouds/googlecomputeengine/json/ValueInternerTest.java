@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.json;
+
+import com.google.common.reflect.TypeToken;
+import com.google.inject.Guice;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = "unit")
+public class ValueInternerTest {
+
+   private static final Type INSTANCE_LIST = new TypeToken<ListPage<Instance>>() {}.getType();
+
+   private final Json json = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule())
+           .getInstance(Json.class);
+
+   public void testInstancesShareRepeatedValues() {
+      List<Instance> instances = json.<ListPage<Instance>>fromJson(scaledListPage("/instance_list.json", 2),
+              INSTANCE_LIST).toList();
+      Instance first = instances.get(0);
+      Instance second = instances.get(1);
+
+      assertSame(first.getZone(), second.getZone());
+      assertSame(first.getMachineType(), second.getMachineType());
+      assertSame(first.getImage(), second.getImage());
+      assertSame(getOnlyElement(first.getNetworkInterfaces()).getNetwork(),
+              getOnlyElement(second.getNetworkInterfaces()).getNetwork());
+      assertSame(getOnlyElement(first.getServiceAccounts()).getScopes().iterator().next(),
+              getOnlyElement(second.getServiceAccounts()).getScopes().iterator().next());
+      // self links are unique to each instance, so they are left alone
+      assertNotSame(first.getSelfLink(), second.getSelfLink());
+   }
+
+   public void testAcrossResponses() {
+      ValueInterner interner = new ValueInterner();
+      assertSame(interner.uri(new String("https://www.googleapis.com/compute/v1beta13/projects/myproject/zones/a")),
+              interner.uri(new String("https://www.googleapis.com/compute/v1beta13/projects/myproject/zones/a")));
+      assertSame(interner.string(new String("RUNNING")), interner.string(new String("RUNNING")));
+   }
+
+   public void testNoneKeepsValuesAsParsed() {
+      String value = new String("RUNNING");
+      assertSame(ValueInterner.NONE.string(value), value);
+      assertEquals(ValueInterner.NONE.uri("http://a/b"), ValueInterner.NONE.uri("http://a/b"));
+      assertNotSame(ValueInterner.NONE.uri("http://a/b"), ValueInterner.NONE.uri("http://a/b"));
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testInvalidUri() {
+      new ValueInterner().uri("not a uri");
+   }
+}
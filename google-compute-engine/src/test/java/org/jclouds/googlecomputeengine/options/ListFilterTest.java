@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.options;
+
+import com.google.common.collect.ImmutableList;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = "unit")
+public class ListFilterTest {
+
+   public void testRendersExpressions() {
+      assertEquals(ListFilter.on(Resource.Kind.INSTANCE).field("status").notEqualTo("RUNNING").getExpression(),
+              "status ne RUNNING");
+      assertEquals(ListFilter.on(Resource.Kind.INSTANCE).field("name").matches("test-.*").getExpression(),
+              "name eq test-.*");
+      assertEquals(ListFilter.on(Resource.Kind.MACHINE_TYPE).field("guestCpus").equalTo(4).getExpression(),
+              "guestCpus eq 4");
+   }
+
+   public void testEscapesLiterals() {
+      assertEquals(ListFilter.on(Resource.Kind.DISK).field("name").equalTo("disk.1").getExpression(),
+              "name eq disk\\.1");
+      assertEquals(ListFilter.anyOf(ImmutableList.of("a+", "b")), "(a\\+|b)");
+   }
+
+   public void testQuotesLiteralsWithWhitespace() {
+      assertEquals(ListFilter.on(Resource.Kind.OPERATION).field("statusMessage").equalTo("it's done")
+              .getExpression(), "statusMessage eq \"it's done\"");
+      assertEquals(ListFilter.on(Resource.Kind.IMAGE).field("description").equalTo("an image").getExpression(),
+              "description eq 'an image'");
+   }
+
+   public void testCachesExpressions() {
+      assertSame(ListFilter.on(Resource.Kind.FIREWALL).field("network").matches(".*/default"),
+              ListFilter.on(Resource.Kind.FIREWALL).field("network").matches(".*/default"));
+   }
+
+   public void testUncachedExpressions() {
+      ListFilter.Field clientOperationId = ListFilter.on(Resource.Kind.OPERATION).field("clientOperationId");
+      ListFilter uncached = clientOperationId.uncached().equalTo("id-1");
+
+      assertEquals(uncached, clientOperationId.equalTo("id-1"));
+      assertEquals(uncached.getExpression(), "clientOperationId eq id-1");
+      assertNotSame(uncached, clientOperationId.uncached().equalTo("id-1"));
+   }
+
+   public void testListOptionsFilter() {
+      ListOptions options = new ListOptions.Builder().filter(ListFilter.on(Resource.Kind.ZONE).field("status")
+              .equalTo("UP"));
+      assertEquals(options.buildQueryParameters().get("filter"), ImmutableList.of("status eq UP"));
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testRejectsUnknownField() {
+      ListFilter.on(Resource.Kind.INSTANCE).field("tags");
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testRejectsUnfilterableKind() {
+      ListFilter.on(Resource.Kind.PROJECT);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testRejectsMalformedRegex() {
+      ListFilter.on(Resource.Kind.INSTANCE).field("name").matches("test-(");
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testRejectsNonNumericLiteralForNumberField() {
+      ListFilter.on(Resource.Kind.DISK).field("sizeGb").equalTo("ten");
+   }
+}
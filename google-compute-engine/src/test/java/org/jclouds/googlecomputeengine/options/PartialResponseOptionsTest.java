@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.options;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit")
+public class PartialResponseOptionsTest {
+
+   public void testGetOptionsAddResourceFields() {
+      assertEquals(new GetOptions.Builder().fields("status,networkInterfaces/networkIP").buildQueryParameters()
+              .get("fields"), ImmutableList.of("kind,id,selfLink,name,status,networkInterfaces/networkIP"));
+   }
+
+   public void testGetOptionsKeepNestedSelectorsAndSkipDuplicates() {
+      assertEquals(new GetOptions.Builder().fields("name, disks(source,index),status").buildQueryParameters()
+              .get("fields"), ImmutableList.of("kind,id,selfLink,name,disks(source,index),status"));
+   }
+
+   public void testListOptionsKeepPageFields() {
+      assertEquals(new ListOptions.Builder().fields("name,status").buildQueryParameters().get("fields"),
+              ImmutableList.of("kind,id,selfLink,nextPageToken,items(kind,id,selfLink,name,status)"));
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testRejectsUnbalancedParentheses() {
+      new GetOptions.Builder().fields("disks(source");
+   }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.parse;
+
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.internal.BaseGoogleComputeEngineParseTest;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.MediaType;
+import java.net.URI;
+
+public class ParseInstancePartialResponseTest extends BaseGoogleComputeEngineParseTest<Instance> {
+
+   @Override
+   public String resource() {
+      return "/instance_get_partial.json";
+   }
+
+   @Override
+   @Consumes(MediaType.APPLICATION_JSON)
+   public Instance expected() {
+      return Instance.builder()
+              .id("13051190678907570425")
+              .selfLink(URI.create("https://www.googleapis" +
+                      ".com/compute/v1beta13/projects/myproject/instances/test-0"))
+              .name("test-0")
+              .status(Instance.Status.RUNNING)
+              .addNetworkInterface(Instance.NetworkInterface.builder().networkIP("10.240.121.115").build())
+              .build();
+   }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.parse;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule;
+import org.jclouds.googlecomputeengine.config.GoogleComputeEngineParserModule.Metadata;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.InstanceTemplate;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.functions.internal.ParseInstances;
+import org.jclouds.googlecomputeengine.functions.internal.ParseOperations;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseJson;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Callable;
+
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.report;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.resource;
+import static org.jclouds.googlecomputeengine.internal.Benchmarks.scaledListPage;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Baselines for the throughput and allocations of the json parsers, on the parse test fixtures replicated to full
+ * pages, so that changes to the parsers can be measured.
+ */
+@Test(groups = "performance", singleThreaded = true)
+public class ParsersBenchmarkTest {
+
+   private static final int PAGE_SIZE = 500;
+   private static final int PAGE_ITERATIONS = 50;
+   private static final int ITEM_ITERATIONS = 20000;
+   private static final int METADATA_ITEMS = 100;
+
+   private final Injector injector = Guice.createInjector(new GsonModule(), new GoogleComputeEngineParserModule());
+   private final Gson gson = injector.getInstance(Gson.class);
+
+   public void testParseInstances() {
+      ListPage<Instance> page = parsePages("ParseInstances", injector.getInstance(ParseInstances.class),
+              scaledListPage("/instance_list.json", PAGE_SIZE));
+      assertEquals(page.size(), PAGE_SIZE);
+   }
+
+   public void testParseOperations() {
+      ListPage<Operation> page = parsePages("ParseOperations", injector.getInstance(ParseOperations.class),
+              scaledListPage("/operation_list.json", PAGE_SIZE));
+      assertEquals(page.size(), PAGE_SIZE);
+   }
+
+   public void testInstanceTypeAdapter() {
+      readItems("InstanceTypeAdapter", gson.getAdapter(Instance.class), resource("/instance_get.json"), 1);
+   }
+
+   public void testOperationTypeAdapter() {
+      readItems("OperationTypeAdapter", gson.getAdapter(Operation.class), resource("/operation.json"), 1);
+   }
+
+   public void testMetadataTypeAdapter() {
+      StringBuilder metadata = new StringBuilder("{\"kind\":\"compute#metadata\",\"items\":[");
+      for (int i = 0; i < METADATA_ITEMS; i++) {
+         metadata.append(i == 0 ? "" : ",").append("{\"key\":\"key-").append(i).append("\",\"value\":\"value-")
+                 .append(i).append("\"}");
+      }
+      Metadata parsed = readItems("MetadataTypeAdapter", gson.getAdapter(Metadata.class),
+              metadata.append("]}").toString(), METADATA_ITEMS);
+      assertEquals(parsed.size(), METADATA_ITEMS);
+   }
+
+   public void testInstanceTemplateSerialization() {
+      final Json json = injector.getInstance(Json.class);
+      final InstanceTemplate template = InstanceTemplate.builder()
+              .forMachineType(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/machineTypes"
+                      + "/n1-standard-1"))
+              .name("test-0")
+              .zone(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/zones/us-central1-a"))
+              .addNetworkInterface(URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/networks"
+                      + "/default"), Instance.NetworkInterface.AccessConfig.Type.ONE_TO_ONE_NAT)
+              .description("desc")
+              .image(URI.create("https://www.googleapis.com/compute/v1beta13/projects/google/images"
+                      + "/gcel-12-04-v20121106"))
+              .addDisk(InstanceTemplate.PersistentDisk.Mode.READ_WRITE,
+                      URI.create("https://www.googleapis.com/compute/v1beta13/projects/myproject/disks/test"))
+              .addTag("aTag")
+              .addServiceAccount(Instance.ServiceAccount.builder().email("default").addScopes("myscope").build())
+              .addMetadata("aKey", "aValue");
+
+      report("InstanceTemplate serialization", 1, new Callable<Object>() {
+         @Override
+         public Object call() {
+            return json.toJson(template);
+         }
+      }, ITEM_ITERATIONS);
+   }
+
+   private static <T> T parsePages(String name, final ParseJson<T> parser, final String page) {
+      Callable<T> parse = new Callable<T>() {
+         @Override
+         public T call() {
+            return parser.apply(HttpResponse.builder().statusCode(200).payload(page).build());
+         }
+      };
+      report(name, PAGE_SIZE, parse, PAGE_ITERATIONS);
+      try {
+         return parse.call();
+      } catch (Exception e) {
+         throw new AssertionError(e);
+      }
+   }
+
+   private static <T> T readItems(String name, final TypeAdapter<T> adapter, final String json, int items) {
+      Callable<T> read = new Callable<T>() {
+         @Override
+         public T call() throws IOException {
+            return adapter.fromJson(json);
+         }
+      };
+      report(name, items, read, ITEM_ITERATIONS);
+      try {
+         return read.call();
+      } catch (IOException e) {
+         throw new AssertionError(e);
+      }
+   }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.predicates;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.jclouds.googlecomputeengine.domain.Operation;
+import org.jclouds.googlecomputeengine.parse.ParseOperationTest;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.same;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class AllOperationsDonePredicateTest {
+
+   private static final Operation DONE = new ParseOperationTest().expected();
+   private static final Operation PENDING = DONE.toBuilder().status(Operation.Status.PENDING).build();
+
+   @SuppressWarnings("unchecked")
+   public void testOnlyPollsOperationsNotYetDone() {
+      AtomicReference<Operation> done = new AtomicReference<Operation>(DONE);
+      AtomicReference<Operation> pending = new AtomicReference<Operation>(PENDING);
+
+      Predicate<AtomicReference<Operation>> operationDone = createMock(Predicate.class);
+      expect(operationDone.apply(same(pending))).andReturn(false);
+      replay(operationDone);
+
+      assertFalse(new AllOperationsDonePredicate(operationDone).apply(ImmutableList.of(done, pending)));
+      verify(operationDone);
+   }
+
+   @SuppressWarnings("unchecked")
+   public void testDoneWhenAllOperationsAreDone() {
+      AtomicReference<Operation> first = new AtomicReference<Operation>(PENDING);
+      AtomicReference<Operation> second = new AtomicReference<Operation>(PENDING);
+
+      Predicate<AtomicReference<Operation>> operationDone = createMock(Predicate.class);
+      expect(operationDone.apply(same(first))).andReturn(true);
+      expect(operationDone.apply(same(second))).andReturn(true);
+      replay(operationDone);
+
+      assertTrue(new AllOperationsDonePredicate(operationDone).apply(ImmutableList.of(first, second)));
+      verify(operationDone);
+   }
+
+   @SuppressWarnings("unchecked")
+   public void testFailedPollOnlyFailsItsOwnOperation() {
+      AtomicReference<Operation> failing = new AtomicReference<Operation>(PENDING);
+      AtomicReference<Operation> pending = new AtomicReference<Operation>(PENDING);
+      RuntimeException failure = new IllegalStateException("poll failed");
+
+      Predicate<AtomicReference<Operation>> operationDone = createMock(Predicate.class);
+      expect(operationDone.apply(same(failing))).andThrow(failure);
+      expect(operationDone.apply(same(pending))).andReturn(false);
+      expect(operationDone.apply(same(pending))).andReturn(true);
+      replay(operationDone);
+
+      Map<AtomicReference<Operation>, Exception> failures = Maps.newHashMap();
+      Predicate<Collection<AtomicReference<Operation>>> allDone =
+              new AllOperationsDonePredicate(operationDone).recordingFailuresIn(failures);
+      assertFalse(allDone.apply(ImmutableList.of(failing, pending)));
+      // the failed operation is not polled again
+      assertTrue(allDone.apply(ImmutableList.of(failing, pending)));
+      assertEquals(failures, ImmutableMap.of(failing, failure));
+      verify(operationDone);
+   }
+}
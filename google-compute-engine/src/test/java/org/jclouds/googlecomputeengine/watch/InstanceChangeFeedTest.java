@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.googlecomputeengine.watch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.googlecomputeengine.domain.Instance;
+import org.jclouds.googlecomputeengine.domain.ListPage;
+import org.jclouds.googlecomputeengine.domain.Resource;
+import org.jclouds.googlecomputeengine.features.InstanceApi;
+import org.jclouds.googlecomputeengine.parse.ParseInstanceTest;
+import org.jclouds.logging.Logger;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit")
+public class InstanceChangeFeedTest {
+
+   private static final Instance INSTANCE = new ParseInstanceTest().expected();
+
+   public void testPublishesOnlyWhatChanged() {
+      Instance first = instance("test-0", Instance.Status.PROVISIONING);
+      Instance second = instance("test-1", Instance.Status.RUNNING);
+      Instance firstRunning = instance("test-0", Instance.Status.RUNNING);
+
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.list())
+              .andReturn(page(first, second))
+              .andReturn(page(first, second))
+              .andReturn(page(firstRunning));
+      replay(instanceApi);
+
+      InstanceChangeFeed feed = new InstanceChangeFeed(instanceApi, null, loggerFactory(Logger.NULL));
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      feed.subscribe(subscriber);
+
+      assertEquals(feed.poll(), ImmutableList.of(InstanceChange.added(first), InstanceChange.added(second)));
+      assertTrue(feed.poll().isEmpty());
+      List<InstanceChange> changes = feed.poll();
+      assertEquals(changes, ImmutableList.of(InstanceChange.changed(first, firstRunning),
+              InstanceChange.removed(second)));
+      assertEquals(changes.get(0).getCurrent().get().getStatus(), Instance.Status.RUNNING);
+
+      // subscribers are only called when something changed
+      assertEquals(subscriber.changes.size(), 2);
+      verify(instanceApi);
+   }
+
+   public void testLateSubscriberStartsFromTheLatestListing() {
+      Instance instance = instance("test-0", Instance.Status.RUNNING);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.list()).andReturn(page(instance));
+      replay(instanceApi);
+
+      InstanceChangeFeed feed = new InstanceChangeFeed(instanceApi, null, loggerFactory(Logger.NULL));
+      feed.poll();
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      feed.subscribe(subscriber);
+
+      assertEquals(subscriber.changes, ImmutableList.of(ImmutableList.of(InstanceChange.added(instance))));
+      verify(instanceApi);
+   }
+
+   public void testFailingSubscriberDoesNotKeepChangesFromTheOthers() {
+      Instance instance = instance("test-0", Instance.Status.RUNNING);
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      expect(instanceApi.list()).andReturn(page(instance));
+      Logger logger = createMock(Logger.class);
+      logger.warn(anyObject(IllegalStateException.class), eq("subscriber %s failed on %d changes"), anyObject(),
+              eq(1));
+      replay(instanceApi, logger);
+
+      InstanceChangeFeed feed = new InstanceChangeFeed(instanceApi, null, loggerFactory(logger));
+      feed.subscribe(new RecordingSubscriber() {
+         @Override
+         public void onChanges(List<InstanceChange> changes) {
+            throw new IllegalStateException("failed");
+         }
+      });
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      feed.subscribe(subscriber);
+
+      assertEquals(feed.poll(), ImmutableList.of(InstanceChange.added(instance)));
+      assertEquals(subscriber.changes, ImmutableList.of(ImmutableList.of(InstanceChange.added(instance))));
+      verify(instanceApi, logger);
+   }
+
+   public void testFingerprintOfAPartialInstance() {
+      Instance partial = Instance.builder().id("1").name("test-0").selfLink(INSTANCE.getSelfLink())
+              .addNetworkInterface(Instance.NetworkInterface.builder().networkIP("10.240.121.115").build())
+              .build();
+      assertEquals(InstanceFingerprint.of(partial), InstanceFingerprint.of(partial.toBuilder().build()));
+   }
+
+   public void testFingerprintIgnoresOrderAndTracksWatchedFields() {
+      Instance instance = INSTANCE.toBuilder().metadata(ImmutableMap.of("a", "1", "b", "2")).build();
+
+      assertEquals(InstanceFingerprint.of(instance),
+              InstanceFingerprint.of(instance.toBuilder().metadata(ImmutableMap.of("b", "2", "a", "1")).build()));
+      assertTrue(InstanceFingerprint.of(instance)
+              != InstanceFingerprint.of(instance.toBuilder().metadata(ImmutableMap.of("a", "1", "b", "3")).build()));
+      assertTrue(InstanceFingerprint.of(instance)
+              != InstanceFingerprint.of(instance.toBuilder().status(Instance.Status.STOPPING).build()));
+      // fields outside of the fingerprint don't count as changes
+      assertEquals(InstanceFingerprint.of(instance),
+              InstanceFingerprint.of(instance.toBuilder().description("another description").build()));
+   }
+
+   private static Instance instance(String name, Instance.Status status) {
+      return INSTANCE.toBuilder().name(name).status(status).build();
+   }
+
+   private static Logger.LoggerFactory loggerFactory(final Logger logger) {
+      return new Logger.LoggerFactory() {
+         @Override
+         public Logger getLogger(String category) {
+            return logger;
+         }
+      };
+   }
+
+   private static PagedIterable<Instance> page(Instance... instances) {
+      return PagedIterables.of(ListPage.<Instance>builder().kind(Resource.Kind.INSTANCE_LIST)
+              .items(ImmutableList.copyOf(instances)).build());
+   }
+
+   private static class RecordingSubscriber implements InstanceChangeFeed.Subscriber {
+      private final List<List<InstanceChange>> changes = Lists.newArrayList();
+
+      @Override
+      public void onChanges(List<InstanceChange> changes) {
+         this.changes.add(changes);
+      }
+
+      @Override
+      public void onFailure(Exception failure) {
+         throw new AssertionError(failure);
+      }
+   }
+}